@@ -3497,7 +3497,7 @@ public abstract class Component
 	{
 		if (key != null)
 		{
-			final String tagAttributeValue = tag.getAttributes().getString(key);
+			final String tagAttributeValue = tag.getAttribute(key);
 
 			boolean found = false;
 			if (tagAttributeValue != null)
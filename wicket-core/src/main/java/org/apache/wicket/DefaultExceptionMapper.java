@@ -24,6 +24,7 @@ import org.apache.wicket.core.request.handler.RenderPageRequestHandler;
 import org.apache.wicket.core.request.mapper.StalePageException;
 import org.apache.wicket.markup.html.pages.ExceptionErrorPage;
 import org.apache.wicket.protocol.http.PageExpiredException;
+import org.apache.wicket.protocol.http.StreamingRenderException;
 import org.apache.wicket.protocol.http.servlet.ResponseIOException;
 import org.apache.wicket.request.IExceptionMapper;
 import org.apache.wicket.request.IRequestHandler;
@@ -144,6 +145,11 @@ public class DefaultExceptionMapper implements IExceptionMapper
 			logger.debug("Connection lost, give up responding.", e);
 			return new EmptyRequestHandler();
 		}
+		else if (e instanceof StreamingRenderException)
+		{
+			logger.error(e.getMessage(), e.getCause());
+			return new EmptyRequestHandler();
+		}
 		else if (e instanceof PackageResource.PackageResourceBlockedException && application.usesDeploymentConfig())
 		{
 			logger.debug(e.getMessage(), e);
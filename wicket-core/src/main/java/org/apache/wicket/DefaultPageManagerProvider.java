@@ -24,6 +24,7 @@ import org.apache.wicket.page.PageStoreManager;
 import org.apache.wicket.pageStore.AsynchronousDataStore;
 import org.apache.wicket.pageStore.AsynchronousPageStore;
 import org.apache.wicket.pageStore.DefaultPageStore;
+import org.apache.wicket.pageStore.DeltaDataStore;
 import org.apache.wicket.pageStore.DiskDataStore;
 import org.apache.wicket.pageStore.IDataStore;
 import org.apache.wicket.pageStore.IPageStore;
@@ -58,18 +59,27 @@ public class DefaultPageManagerProvider implements IPageManagerProvider
 
 		StoreSettings storeSettings = getStoreSettings();
 
+		if (storeSettings.isDeltaVersions())
+		{
+			// rewrite bases before the data store evicts them
+			Bytes rebaseHorizon = Bytes.bytes(storeSettings.getMaxSizePerSession().bytes() / 2);
+			dataStore = new DeltaDataStore(dataStore, DeltaDataStore.DEFAULT_REBASE_INTERVAL,
+				rebaseHorizon);
+		}
+
 		IPageStore pageStore;
 
 		if (dataStore.canBeAsynchronous() && storeSettings.isAsynchronous())
 		{
 			int capacity = storeSettings.getAsynchronousQueueCapacity();
-			dataStore = new AsynchronousDataStore(dataStore, capacity);
+			int threads = storeSettings.getAsynchronousThreads();
+			dataStore = new AsynchronousDataStore(dataStore, capacity, threads);
 
 			pageStore = newPageStore(dataStore);
 
 			if (pageStore.canBeAsynchronous())
 			{
-				pageStore = new AsynchronousPageStore(pageStore, capacity);
+				pageStore = new AsynchronousPageStore(pageStore, capacity, threads);
 			}
 		}
 		else
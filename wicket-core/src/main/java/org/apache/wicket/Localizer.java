@@ -19,11 +19,12 @@ package org.apache.wicket;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.MissingResourceException;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.wicket.core.util.string.interpolator.ConvertingPropertyVariableInterpolator;
 import org.apache.wicket.markup.repeater.AbstractRepeater;
@@ -31,7 +32,7 @@ import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.Model;
 import org.apache.wicket.resource.loader.IStringResourceLoader;
 import org.apache.wicket.settings.ResourceSettings;
-import org.apache.wicket.util.lang.Generics;
+import org.apache.wicket.util.lang.Args;
 import org.apache.wicket.util.string.AppendingStringBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -60,11 +61,20 @@ public class Localizer
 	/** ConcurrentHashMap does not allow null values */
 	private static final String NULL_VALUE = "<null-value>";
 
+	/** The default maximum number of cached properties */
+	public static final int DEFAULT_CACHE_SIZE = 10000;
+
 	/** Cache properties */
-	private Map<String, String> cache = newCache();
+	private Cache cache = newCache();
+
+	/**
+	 * The number of interned component paths per cached property, above which the paths are
+	 * cleared together with the cache
+	 */
+	private static final int PATHS_PER_PROPERTY = 4;
 
-	/** Database that maps class names to an integer id. */
-	private final ClassMetaDatabase metaDatabase = new ClassMetaDatabase();
+	/** The interned component paths used in the cache keys */
+	private PathNode paths = new PathNode(new AtomicInteger());
 
 	/**
 	 * @return Same as Application.get().getResourceSettings().getLocalizer()
@@ -92,9 +102,20 @@ public class Localizer
 		if (cache != null)
 		{
 			cache = newCache();
+			paths = new PathNode(new AtomicInteger());
 		}
 	}
 
+	/**
+	 * Gets the cache of properties, e.g. to inspect its statistics.
+	 * 
+	 * @return the cache or {@code null} if caching is disabled
+	 */
+	public final Cache getCache()
+	{
+		return cache;
+	}
+
 	/**
 	 * @see #getString(String, Component, IModel, Locale, String, String)
 	 * 
@@ -338,7 +359,7 @@ public class Localizer
 			}
 		}
 
-		String cacheKey = null;
+		CacheKey cacheKey = null;
 		String value;
 
 		// Make sure locale, style and variation have the right values
@@ -364,15 +385,20 @@ public class Localizer
 
 		// If this component is not yet added to page we do not want to check
 		// cache as we can generate an invalid cache key
+		final Cache cache = this.cache;
+		boolean cached = false;
+		value = null;
 		if ((cache != null) && ((component == null) || addedToPage))
 		{
 			cacheKey = getCacheKey(key, component, locale, style, variation);
+			value = getFromCache(cacheKey);
+
+			// Value not found are cached as well (value = null)
+			cached = value != null || cache.containsKey(cacheKey);
 		}
 
-		// Value not found are cached as well (value = null)
-		if ((cacheKey != null) && cache.containsKey(cacheKey))
+		if (cached)
 		{
-			value = getFromCache(cacheKey);
 			if (log.isDebugEnabled())
 			{
 				log.debug("Property found in cache: '" + key + "'; Component: '" +
@@ -390,7 +416,6 @@ public class Localizer
 
 			// Iterate over all registered string resource loaders until the property has been found
 			Iterator<IStringResourceLoader> iter = getStringResourceLoaders().iterator();
-			value = null;
 			while (iter.hasNext() && (value == null))
 			{
 				IStringResourceLoader loader = iter.next();
@@ -441,8 +466,9 @@ public class Localizer
 	 * @param cacheKey
 	 * @param string
 	 */
-	protected void putIntoCache(final String cacheKey, final String string)
+	protected void putIntoCache(final CacheKey cacheKey, final String string)
 	{
+		final Cache cache = this.cache;
 		if (cache == null)
 		{
 			return;
@@ -465,8 +491,9 @@ public class Localizer
 	 * @param cacheKey
 	 * @return The value of the key
 	 */
-	protected String getFromCache(final String cacheKey)
+	protected String getFromCache(final CacheKey cacheKey)
 	{
+		final Cache cache = this.cache;
 		if (cache == null)
 		{
 			return null;
@@ -493,60 +520,63 @@ public class Localizer
 	 * @param variation
 	 * @return The value of the key
 	 */
-	protected String getCacheKey(final String key, final Component component, final Locale locale,
-		final String style, final String variation)
+	protected CacheKey getCacheKey(final String key, final Component component,
+		final Locale locale, final String style, final String variation)
 	{
 		if (component != null)
 		{
-			StringBuilder buffer = new StringBuilder(200);
-			buffer.append(key);
+			final PathNode root = paths;
+			PathNode path = root;
 
 			Component cursor = component;
 
 			while (cursor != null)
 			{
-				buffer.append('-').append(metaDatabase.id(cursor.getClass()));
-
 				if (cursor instanceof Page)
 				{
+					path = path.getChild(cursor.getClass(), PathNode.NO_ID);
 					break;
 				}
 
 				/*
-				 * only append component id if component is not a loop item because (a) these ids
+				 * only use component id if component is not a loop item because (a) these ids
 				 * are irrelevant when generating resource cache keys (b) they cause a lot of
 				 * redundant keys to be generated
 				 * 
-				 * also if the cursor component is an auto component we append a constant string
+				 * also if the cursor component is an auto component we use a constant string
 				 * instead of component's id because auto components have a newly generated id on
 				 * every render.
 				 */
 				final Component parent = cursor.getParent();
 				final boolean skip = parent instanceof AbstractRepeater;
 
+				String cursorKey = PathNode.NO_ID;
 				if (skip == false)
 				{
-					String cursorKey = cursor.isAuto() ? "wicket-auto" : cursor.getId();
-					buffer.append(':').append(cursorKey);
+					cursorKey = cursor.isAuto() ? "wicket-auto" : cursor.getId();
 				}
+				path = path.getChild(cursor.getClass(), cursorKey);
 
 				cursor = parent;
 			}
 
-			buffer.append('-').append(locale);
-			buffer.append('-').append(style);
-			buffer.append('-').append(variation);
+			// paths are not evicted with the properties, drop them all once too many were interned
+			final Cache cache = this.cache;
+			if (cache != null && root.count.get() > PATHS_PER_PROPERTY * cache.getMaxSize())
+			{
+				clearCache();
+			}
 
-			return buffer.toString();
+			return new CacheKey(key, path, locale, style, variation);
 		}
 		else
 		{
 			// locale is guaranteed to be != null
-			return key + '-' + locale.toString() + '-' + style;
+			return new CacheKey(key, null, locale, style, null);
 		}
 	}
 
-/**
+	/**
 	 * Helper method to handle property variable substitution in strings.
 	 * 
 	 * @param component
@@ -608,50 +638,266 @@ public class Localizer
 	}
 
 	/**
-	 * Create a new cache, override this method if you want a different map to store the cache keys,
-	 * for example a map that hold only the last X number of elements..
+	 * Create a new cache, override this method if you want a cache of another size.
 	 * 
-	 * By default it uses the {@link ConcurrentHashMap}
+	 * By default it holds {@value #DEFAULT_CACHE_SIZE} properties.
 	 * 
 	 * @return cache
 	 */
-	protected Map<String, String> newCache()
+	protected Cache newCache()
 	{
-		return new ConcurrentHashMap<>();
+		return new Cache(DEFAULT_CACHE_SIZE);
 	}
 
 	/**
-	 * Database that maps class names to an integer id. This is used to make localizer keys shorter
-	 * because sometimes they can contain a large number of class names.
-	 * 
-	 * @author igor.vaynberg
+	 * The key of a property in the cache. The component path is interned, so the key is compared
+	 * and hashed without walking the component hierarchy again.
 	 */
-	private static class ClassMetaDatabase
+	protected static final class CacheKey
 	{
-		private final ConcurrentMap<String, Long> nameToId = Generics.newConcurrentHashMap();
-		private final AtomicLong nameCounter = new AtomicLong();
+		private final String key;
+		private final Object path;
+		private final Locale locale;
+		private final String style;
+		private final String variation;
+		private final int hash;
 
 		/**
-		 * Returns a unique id that represents this class' name. This can be used for compressing
-		 * class names. Notice this id should not be used across cluster nodes.
+		 * Construct.
 		 * 
-		 * @param clazz
-		 * @return long id of class name
+		 * @param key
+		 *            the key of the property
+		 * @param path
+		 *            the path of the component, compared with {@code equals}, or {@code null}
+		 * @param locale
+		 *            the locale, must not be {@code null}
+		 * @param style
+		 *            the style or {@code null}
+		 * @param variation
+		 *            the variation or {@code null}
+		 */
+		public CacheKey(final String key, final Object path, final Locale locale,
+			final String style, final String variation)
+		{
+			Args.notNull(locale, "locale");
+
+			this.key = key;
+			this.path = path;
+			this.locale = locale;
+			this.style = style;
+			this.variation = variation;
+
+			int result = key != null ? key.hashCode() : 0;
+			result = 31 * result + (path != null ? path.hashCode() : 0);
+			result = 31 * result + locale.hashCode();
+			result = 31 * result + (style != null ? style.hashCode() : 0);
+			result = 31 * result + (variation != null ? variation.hashCode() : 0);
+			hash = result;
+		}
+
+		/**
+		 * @return the key of the property
 		 */
-		public long id(Class<?> clazz)
+		public String getKey()
 		{
-			final String name = clazz.getName();
-			Long id = nameToId.get(name);
-			if (id == null)
+			return key;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+
+		@Override
+		public boolean equals(final Object obj)
+		{
+			if (this == obj)
 			{
-				id = nameCounter.incrementAndGet();
-				Long previousId = nameToId.putIfAbsent(name, id);
-				if (previousId != null)
-				{
-					id = previousId;
-				}
+				return true;
 			}
-			return id;
+			if (obj instanceof CacheKey == false)
+			{
+				return false;
+			}
+			CacheKey other = (CacheKey)obj;
+			return hash == other.hash && Objects.equals(path, other.path) &&
+				Objects.equals(key, other.key) &&
+				locale.equals(other.locale) && Objects.equals(style, other.style) &&
+				Objects.equals(variation, other.variation);
+		}
+
+		@Override
+		public String toString()
+		{
+			return "CacheKey [key=" + key + ", locale=" + locale + ", style=" + style +
+				", variation=" + variation + "]";
+		}
+	}
+
+	/**
+	 * A node in the tree of component paths, each node representing the path from a component to
+	 * its page. Nodes are interned, so equal paths are represented by the same node.
+	 */
+	private static final class PathNode
+	{
+		/** The id used for pages and the children of repeaters */
+		private static final String NO_ID = "";
+
+		private final ConcurrentMap<Class<?>, ConcurrentMap<String, PathNode>> children = new ConcurrentHashMap<>(
+			4);
+
+		/** The number of nodes in the tree, shared by all its nodes */
+		private final AtomicInteger count;
+
+		private PathNode(final AtomicInteger count)
+		{
+			this.count = count;
+		}
+
+		private PathNode getChild(final Class<?> type, final String id)
+		{
+			ConcurrentMap<String, PathNode> ids = children.get(type);
+			if (ids == null)
+			{
+				ids = children.computeIfAbsent(type, t -> new ConcurrentHashMap<>(4));
+			}
+			PathNode child = ids.get(id);
+			if (child == null)
+			{
+				child = ids.computeIfAbsent(id, i -> {
+					count.incrementAndGet();
+					return new PathNode(count);
+				});
+			}
+			return child;
+		}
+	}
+
+	/**
+	 * A bounded cache of properties keeping statistics about its usage. When the cache is full,
+	 * a tenth of its entries is evicted.
+	 */
+	public static class Cache
+	{
+		private final ConcurrentMap<CacheKey, String> map = new ConcurrentHashMap<>();
+
+		private final int maxSize;
+
+		private final LongAdder hits = new LongAdder();
+
+		private final LongAdder misses = new LongAdder();
+
+		private final LongAdder evictions = new LongAdder();
+
+		/**
+		 * Construct.
+		 * 
+		 * @param maxSize
+		 *            the maximum number of cached properties
+		 */
+		public Cache(final int maxSize)
+		{
+			this.maxSize = Args.withinRange(1, Integer.MAX_VALUE, maxSize, "maxSize");
+		}
+
+		/**
+		 * @param key
+		 * @return whether a value, maybe a {@code null} one, is cached for the key
+		 */
+		public boolean containsKey(final CacheKey key)
+		{
+			return map.containsKey(key);
+		}
+
+		/**
+		 * @param key
+		 * @return the cached value or {@code null}
+		 */
+		public String get(final CacheKey key)
+		{
+			String value = map.get(key);
+			if (value == null)
+			{
+				misses.increment();
+			}
+			else
+			{
+				hits.increment();
+			}
+			return value;
+		}
+
+		/**
+		 * @param key
+		 * @param value
+		 */
+		public void put(final CacheKey key, final String value)
+		{
+			if (map.put(key, value) == null && map.size() > maxSize)
+			{
+				evict();
+			}
+		}
+
+		private void evict()
+		{
+			int count = Math.max(1, maxSize / 10);
+			Iterator<CacheKey> keys = map.keySet().iterator();
+			while (count > 0 && keys.hasNext())
+			{
+				keys.next();
+				keys.remove();
+				evictions.increment();
+				count--;
+			}
+		}
+
+		/**
+		 * @return the maximum number of cached properties
+		 */
+		public int getMaxSize()
+		{
+			return maxSize;
+		}
+
+		/**
+		 * @return the number of cached properties
+		 */
+		public int size()
+		{
+			return map.size();
+		}
+
+		/**
+		 * @return the number of properties found in the cache
+		 */
+		public long getHitCount()
+		{
+			return hits.sum();
+		}
+
+		/**
+		 * @return the number of properties not found in the cache
+		 */
+		public long getMissCount()
+		{
+			return misses.sum();
+		}
+
+		/**
+		 * @return the number of properties evicted from the cache
+		 */
+		public long getEvictionCount()
+		{
+			return evictions.sum();
+		}
+
+		@Override
+		public String toString()
+		{
+			return "Cache [size=" + size() + ", maxSize=" + maxSize + ", hits=" + getHitCount() +
+				", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "]";
 		}
 	}
 }
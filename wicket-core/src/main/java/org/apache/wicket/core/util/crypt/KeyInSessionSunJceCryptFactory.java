@@ -22,6 +22,7 @@ import java.util.UUID;
 
 import org.apache.wicket.MetaDataKey;
 import org.apache.wicket.Session;
+import org.apache.wicket.request.cycle.RequestCycle;
 import org.apache.wicket.util.crypt.ICrypt;
 import org.apache.wicket.util.crypt.ICryptFactory;
 import org.apache.wicket.util.crypt.SunJceCrypt;
@@ -44,6 +45,12 @@ public class KeyInSessionSunJceCryptFactory implements ICryptFactory
 		private static final long serialVersionUID = 1L;
 	};
 
+	/** metadata-key used to reuse the crypt in the request cycle */
+	private static final MetaDataKey<SessionCrypt> CRYPT = new MetaDataKey<SessionCrypt>()
+	{
+		private static final long serialVersionUID = 1L;
+	};
+
 	private final String cryptMethod;
 
 	/**
@@ -96,10 +103,22 @@ public class KeyInSessionSunJceCryptFactory implements ICryptFactory
 			session.setMetaData(KEY, key);
 		}
 
-		// build the crypt based on session key
-		ICrypt crypt = createCrypt();
-		crypt.setKey(key);
-		return crypt;
+		// reuse the crypt for all URLs of the request, its key and ciphers are initialized once
+		RequestCycle requestCycle = RequestCycle.get();
+		SessionCrypt sessionCrypt = requestCycle != null ? requestCycle.getMetaData(CRYPT) : null;
+		if (sessionCrypt == null || sessionCrypt.factory != this ||
+			sessionCrypt.key.equals(key) == false)
+		{
+			// build the crypt based on session key
+			ICrypt crypt = createCrypt();
+			crypt.setKey(key);
+			sessionCrypt = new SessionCrypt(this, key, crypt);
+			if (requestCycle != null)
+			{
+				requestCycle.setMetaData(CRYPT, sessionCrypt);
+			}
+		}
+		return sessionCrypt.crypt;
 	}
 
 	/**
@@ -109,4 +128,24 @@ public class KeyInSessionSunJceCryptFactory implements ICryptFactory
 	{
 		return new SunJceCrypt(cryptMethod);
 	}
+
+	/**
+	 * A crypt created by a factory with the key of the session.
+	 */
+	private static class SessionCrypt
+	{
+		private final KeyInSessionSunJceCryptFactory factory;
+
+		private final String key;
+
+		private final ICrypt crypt;
+
+		private SessionCrypt(final KeyInSessionSunJceCryptFactory factory, final String key,
+			final ICrypt crypt)
+		{
+			this.factory = factory;
+			this.key = key;
+			this.crypt = crypt;
+		}
+	}
 }
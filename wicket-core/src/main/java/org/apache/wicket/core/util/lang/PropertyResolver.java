@@ -87,6 +87,16 @@ public final class PropertyResolver
 
 	private final static ConcurrentHashMap<Object, IPropertyLocator> applicationToLocators = Generics.newConcurrentHashMap(2);
 
+	/**
+	 * The maximum number of cached compiled expressions.
+	 */
+	private final static int MAX_COMPILED_EXPRESSIONS = 1000;
+
+	/**
+	 * The compiled expressions, shared by all applications.
+	 */
+	private final static ConcurrentHashMap<String, CompiledExpression> compiledExpressions = Generics.newConcurrentHashMap(64);
+
 	private static final String GET = "get";
 	private static final String IS = "is";
 	private static final String SET = "set";
@@ -273,43 +283,43 @@ public final class PropertyResolver
 	 */
 	private static ObjectWithGetAndSet getObjectWithGetAndSet(final String expression, final Object object, final int tryToCreateNull, Class<?> clz)
 	{
-		String expressionBracketsSeperated = Strings.replaceAll(expression, "[", ".[").toString();
-		int index = getNextDotIndex(expressionBracketsSeperated, 0);
-		while (index == 0 && expressionBracketsSeperated.startsWith("."))
-		{
-			// eat dots at the beginning of the expression since they will confuse
-			// later steps
-			expressionBracketsSeperated = expressionBracketsSeperated.substring(1);
-			index = getNextDotIndex(expressionBracketsSeperated, 0);
-		}
-		int lastIndex = 0;
+		final IPropertyLocator locator = getLocator();
+		final CompiledExpression compiled = compile(expression);
+		final int dots = compiled.getDotCount();
+
 		Object value = object;
-		String exp = expressionBracketsSeperated;
-		while (index != -1)
-		{
-			exp = expressionBracketsSeperated.substring(lastIndex, index);
+		// the segments from first up to last (including) form the current expression
+		int first = 0;
+		int last = 0;
+		String exp = compiled.getSegment(0);
+		int slot = 0;
+		while (last < dots)
+		{
+			exp = compiled.getSegments(first, last);
+			slot = first == last ? first : -1;
 			if (exp.length() == 0)
 			{
-				exp = expressionBracketsSeperated.substring(index + 1);
+				exp = compiled.getRemainder(last + 1);
+				slot = -1;
 				break;
 			}
 
 			IGetAndSet getAndSet = null;
 			try
 			{
-				getAndSet = getGetAndSet(exp, clz);
+				getAndSet = compiled.getGetAndSet(locator, slot, exp, clz);
 			}
 			catch (WicketRuntimeException ex)
 			{
 				// expression by itself can't be found. try combined with the following
 				// expression (e.g. for a indexed property);
-				int temp = getNextDotIndex(expressionBracketsSeperated, index + 1);
-				if (temp == -1)
+				if (last + 1 == dots)
 				{
-					exp = expressionBracketsSeperated.substring(lastIndex);
+					exp = compiled.getRemainder(first);
+					slot = -1;
 					break;
 				} else {
-					index = temp;
+					last++;
 					continue;
 				}
 			}
@@ -344,18 +354,46 @@ public final class PropertyResolver
 				clz = value.getClass();
 			}
 
-			lastIndex = index + 1;
-			index = getNextDotIndex(expressionBracketsSeperated, lastIndex);
-			if (index == -1)
+			first = last + 1;
+			last = first;
+			if (first == dots)
 			{
-				exp = expressionBracketsSeperated.substring(lastIndex);
+				exp = compiled.getSegment(first);
+				slot = first;
 				break;
 			}
 		}
-		IGetAndSet getAndSet = getGetAndSet(exp, clz);
+		IGetAndSet getAndSet = compiled.getGetAndSet(locator, slot, exp, clz);
 		return new ObjectWithGetAndSet(getAndSet, value);
 	}
 
+	/**
+	 * Gets the compiled form of an expression, compiling it if it is not cached yet.
+	 *
+	 * @param expression
+	 *            property expression
+	 * @return compiled expression
+	 */
+	private static CompiledExpression compile(final String expression)
+	{
+		CompiledExpression compiled = compiledExpressions.get(expression);
+		if (compiled == null)
+		{
+			compiled = new CompiledExpression(expression);
+
+			// expressions are usually constants, but do not let generated ones fill the memory
+			if (compiledExpressions.size() < MAX_COMPILED_EXPRESSIONS)
+			{
+				CompiledExpression existing = compiledExpressions.putIfAbsent(expression, compiled);
+				if (existing != null)
+				{
+					compiled = existing;
+				}
+			}
+		}
+		return compiled;
+	}
+
 	/**
 	 *
 	 * @param expression
@@ -384,24 +422,180 @@ public final class PropertyResolver
 		return -1;
 	}
 
-	private static IGetAndSet getGetAndSet(String exp, final Class<?> clz)
+	/**
+	 * Utility class: instantiation not allowed.
+	 */
+	private PropertyResolver()
+	{
+	}
+
+	/**
+	 * An expression split into its segments once, remembering the {@link IGetAndSet} located for
+	 * each segment.
+	 * <p>
+	 * The located {@link IGetAndSet} depends on the class of the object the segment is evaluated
+	 * on, so the last one is remembered along with its class and locator, and located again when
+	 * the expression is evaluated on another class. It is only remembered if the locator is a
+	 * {@link CachingPropertyLocator}, any other locator is asked on every evaluation.
+	 */
+	private static final class CompiledExpression
 	{
-		IPropertyLocator locator = getLocator();
-		
-		IGetAndSet getAndSet = locator.get(clz, exp);
-		if (getAndSet == null) {
-			throw new WicketRuntimeException(
+		/**
+		 * The expression with brackets separated by dots and without leading dots.
+		 */
+		private final String path;
+
+		/**
+		 * The positions of the dots separating the segments in {@link #path}.
+		 */
+		private final int[] dots;
+
+		/**
+		 * The segments between the dots, one more than dots.
+		 */
+		private final String[] segments;
+
+		/**
+		 * The last located {@link IGetAndSet} of each segment. Updated without synchronization,
+		 * since the {@link Step}s are immutable and locating again is harmless.
+		 */
+		private final Step[] steps;
+
+		private CompiledExpression(final String expression)
+		{
+			String separated = Strings.replaceAll(expression, "[", ".[").toString();
+			int index = getNextDotIndex(separated, 0);
+			while (index == 0 && separated.startsWith("."))
+			{
+				// eat dots at the beginning of the expression since they will confuse
+				// later steps
+				separated = separated.substring(1);
+				index = getNextDotIndex(separated, 0);
+			}
+			path = separated;
+
+			List<Integer> positions = Generics.newArrayList();
+			while (index != -1)
+			{
+				positions.add(index);
+				index = getNextDotIndex(path, index + 1);
+			}
+
+			dots = new int[positions.size()];
+			segments = new String[dots.length + 1];
+			int start = 0;
+			for (int i = 0; i < dots.length; i++)
+			{
+				dots[i] = positions.get(i);
+				segments[i] = path.substring(start, dots[i]);
+				start = dots[i] + 1;
+			}
+			segments[dots.length] = path.substring(start);
+
+			steps = new Step[segments.length];
+		}
+
+		/**
+		 * @return the number of dots separating the segments
+		 */
+		private int getDotCount()
+		{
+			return dots.length;
+		}
+
+		/**
+		 * @param index
+		 *            index of the segment
+		 * @return the segment
+		 */
+		private String getSegment(final int index)
+		{
+			return segments[index];
+		}
+
+		/**
+		 * @param first
+		 *            index of the first segment
+		 * @param last
+		 *            index of the last segment, followed by a dot
+		 * @return the segments from first to last joined by dots
+		 */
+		private String getSegments(final int first, final int last)
+		{
+			if (first == last)
+			{
+				return segments[first];
+			}
+			return path.substring(first == 0 ? 0 : dots[first - 1] + 1, dots[last]);
+		}
+
+		/**
+		 * @param first
+		 *            index of the first segment
+		 * @return the segments from first to the end of the expression
+		 */
+		private String getRemainder(final int first)
+		{
+			return first == 0 ? path : path.substring(dots[first - 1] + 1);
+		}
+
+		/**
+		 * Locates the {@link IGetAndSet} for a part of the expression.
+		 *
+		 * @param locator
+		 *            the locator
+		 * @param slot
+		 *            index of the segment or {@code -1} if exp is not a single segment
+		 * @param exp
+		 *            the part of the expression
+		 * @param clz
+		 *            the class to locate the property in
+		 * @return getAndSet
+		 * @throws WicketRuntimeException
+		 *             if the property cannot be located
+		 */
+		private IGetAndSet getGetAndSet(final IPropertyLocator locator, final int slot,
+			final String exp, final Class<?> clz)
+		{
+			if (slot != -1)
+			{
+				Step step = steps[slot];
+				if (step != null && step.clz == clz && step.locator == locator)
+				{
+					return step.getAndSet;
+				}
+			}
+
+			IGetAndSet getAndSet = locator.get(clz, exp);
+			if (getAndSet == null)
+			{
+				throw new WicketRuntimeException(
 					"Property could not be resolved for class: " + clz + " expression: " + exp);
+			}
+
+			if (slot != -1 && locator instanceof CachingPropertyLocator)
+			{
+				steps[slot] = new Step(locator, clz, getAndSet);
+			}
+			return getAndSet;
 		}
-		
-		return getAndSet;
 	}
 
 	/**
-	 * Utility class: instantiation not allowed.
+	 * The {@link IGetAndSet} located by a locator for a segment of an expression on a class.
 	 */
-	private PropertyResolver()
+	private static final class Step
 	{
+		private final IPropertyLocator locator;
+		private final Class<?> clz;
+		private final IGetAndSet getAndSet;
+
+		private Step(final IPropertyLocator locator, final Class<?> clz, final IGetAndSet getAndSet)
+		{
+			this.locator = locator;
+			this.clz = clz;
+			this.getAndSet = getAndSet;
+		}
 	}
 
 	/**
@@ -1240,6 +1434,9 @@ public final class PropertyResolver
 	public static void destroy(Application application)
 	{
 		applicationToLocators.remove(application);
+
+		// do not keep the classes of the application
+		compiledExpressions.clear();
 	}
 
 	/**
@@ -54,6 +54,7 @@ import org.slf4j.LoggerFactory;
  * not found markup file. Later when the user creates the markup file the MarkupCache
  * should be notified.
  *
+ * @see WatchServiceModificationWatcher
  * @since 7.0.0
  */
 public class Nio2ModificationWatcher extends ModificationWatcher
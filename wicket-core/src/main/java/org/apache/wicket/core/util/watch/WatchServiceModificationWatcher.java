@@ -0,0 +1,700 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.core.util.watch;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.ThreadContext;
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.application.IClassResolver;
+import org.apache.wicket.markup.DefaultMarkupCacheKeyProvider;
+import org.apache.wicket.markup.IMarkupCache;
+import org.apache.wicket.markup.Markup;
+import org.apache.wicket.markup.MarkupCache;
+import org.apache.wicket.markup.MarkupResourceStream;
+import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.listener.ChangeListenerSet;
+import org.apache.wicket.util.listener.IChangeListener;
+import org.apache.wicket.util.resource.FileResourceStream;
+import org.apache.wicket.util.resource.FileSystemResourceStream;
+import org.apache.wicket.util.resource.IFixedLocationResourceStream;
+import org.apache.wicket.util.string.Strings;
+import org.apache.wicket.util.thread.ICode;
+import org.apache.wicket.util.thread.Task;
+import org.apache.wicket.util.time.Duration;
+import org.apache.wicket.util.time.Time;
+import org.apache.wicket.util.watch.IModifiable;
+import org.apache.wicket.util.watch.IModificationWatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link IModificationWatcher} driven by the events of a {@link WatchService} instead of polling
+ * the modification time of every watched {@link IModifiable}.
+ * <p>
+ * Each watched resource stream located in a file is indexed by its path and the folder of the file
+ * is registered in the watch service, as are all classpath folders and their subfolders. Only the
+ * listeners of the files reported by the watch service are notified, so the cost of a check no
+ * longer grows with the number of watched markup, properties and resource files. The events are
+ * collected until the folders are quiet for the debounce duration, so an editor saving a file in
+ * several steps or a build copying many files causes a single notification per file.
+ * </p>
+ * <p>
+ * Resource streams which are not located in a file of the default file system, e.g. the ones in
+ * jars, are polled at the given frequency like {@link org.apache.wicket.util.watch.ModificationWatcher}
+ * does.
+ * </p>
+ * <p>
+ * Files created in a watched folder may provide markup or properties which were looked up before
+ * and not found, so the matching {@link Markup#NO_MARKUP} entries are removed from the
+ * {@link MarkupCache}, respectively the properties and {@link org.apache.wicket.Localizer} caches
+ * are cleared.
+ * </p>
+ * To use this watcher, put the following code in your application's init:
+ *
+ * <pre>
+ * getResourceSettings().setResourceWatcher(
+ * 	new WatchServiceModificationWatcher(this, getResourceSettings().getResourcePollFrequency()));
+ * </pre>
+ */
+public class WatchServiceModificationWatcher implements IModificationWatcher
+{
+	private static final Logger log = LoggerFactory.getLogger(WatchServiceModificationWatcher.class);
+
+	/** The default time the folders have to be quiet before the collected events are handled */
+	private static final Duration DEFAULT_DEBOUNCE = Duration.milliseconds(100);
+
+	private final Application application;
+
+	private final WatchService watchService;
+
+	/** maps <code>IModifiable</code> objects to <code>Entry</code> objects */
+	private final ConcurrentMap<IModifiable, Entry> modifiableToEntry = new ConcurrentHashMap<>();
+
+	/** maps the paths of watched files to their entries */
+	private final ConcurrentMap<Path, Set<Entry>> pathToEntries = new ConcurrentHashMap<>();
+
+	/** the entries which cannot be watched by the watch service and have to be polled */
+	private final Set<Entry> polledEntries = ConcurrentHashMap.newKeySet();
+
+	/** the folders registered in the watch service */
+	private final Set<Path> folders = ConcurrentHashMap.newKeySet();
+
+	/** the registered classpath folders */
+	private final List<Path> classpathFolders = new ArrayList<>();
+
+	private volatile Duration debounce = DEFAULT_DEBOUNCE;
+
+	/** the <code>Task</code> to run */
+	private Task task;
+
+	/**
+	 * Container class for holding modifiable entries to watch.
+	 */
+	private static final class Entry
+	{
+		// The modifiable thing
+		private final IModifiable modifiable;
+
+		// The path of the file of the modifiable, null if it has to be polled
+		private final Path path;
+
+		// The set of listeners to call when the modifiable changes
+		private final ChangeListenerSet<IModifiable> listeners = new ChangeListenerSet<>();
+
+		// The most recent lastModificationTime checked on the object
+		private volatile Time lastModifiedTime;
+
+		private Entry(final IModifiable modifiable, final Path path, final Time lastModifiedTime)
+		{
+			this.modifiable = modifiable;
+			this.path = path;
+			this.lastModifiedTime = lastModifiedTime;
+		}
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param application
+	 *            The application that manages the caches
+	 * @param pollFrequency
+	 *            How often to check on <code>IModifiable</code>s which are not located in a file
+	 */
+	public WatchServiceModificationWatcher(final Application application,
+		final Duration pollFrequency)
+	{
+		this.application = Args.notNull(application, "application");
+
+		try
+		{
+			watchService = FileSystems.getDefault().newWatchService();
+		}
+		catch (IOException iox)
+		{
+			throw new WicketRuntimeException("Cannot get the watch service", iox);
+		}
+
+		registerClasspathFolders();
+
+		start(pollFrequency);
+	}
+
+	/**
+	 * Sets the time the watched folders have to be quiet before the collected events are
+	 * handled.
+	 *
+	 * @param debounce
+	 *            the debounce duration
+	 * @return {@code this} object for chaining
+	 */
+	public WatchServiceModificationWatcher setDebounce(final Duration debounce)
+	{
+		this.debounce = Args.notNull(debounce, "debounce");
+		return this;
+	}
+
+	/**
+	 * @return the time the watched folders have to be quiet before the collected events are
+	 *         handled
+	 */
+	public Duration getDebounce()
+	{
+		return debounce;
+	}
+
+	@Override
+	public boolean add(final IModifiable modifiable, final IChangeListener<IModifiable> listener)
+	{
+		// Look up entry for modifiable
+		final Entry entry = modifiableToEntry.get(modifiable);
+
+		// Found it?
+		if (entry == null)
+		{
+			Time lastModifiedTime = modifiable.lastModifiedTime();
+			if (lastModifiedTime != null)
+			{
+				Path path = getPath(modifiable);
+				if (path != null && watch(path.getParent()) == false)
+				{
+					path = null;
+				}
+
+				// Construct new entry
+				final Entry newEntry = new Entry(modifiable, path, lastModifiedTime);
+				newEntry.listeners.add(listener);
+
+				// Put in map
+				if (modifiableToEntry.putIfAbsent(modifiable, newEntry) == null)
+				{
+					if (path != null)
+					{
+						pathToEntries.computeIfAbsent(path, k -> ConcurrentHashMap.newKeySet())
+							.add(newEntry);
+					}
+					else
+					{
+						polledEntries.add(newEntry);
+					}
+				}
+			}
+			else
+			{
+				// The IModifiable is not returning a valid lastModifiedTime
+				log.info("Cannot track modifications to resource '{}'", modifiable);
+			}
+
+			return true;
+		}
+		else
+		{
+			// Add listener to existing entry
+			return !entry.listeners.add(listener);
+		}
+	}
+
+	@Override
+	public IModifiable remove(final IModifiable modifiable)
+	{
+		final Entry entry = modifiableToEntry.remove(modifiable);
+		if (entry != null)
+		{
+			if (entry.path != null)
+			{
+				pathToEntries.computeIfPresent(entry.path, (path, entries) -> {
+					entries.remove(entry);
+					return entries.isEmpty() ? null : entries;
+				});
+			}
+			else
+			{
+				polledEntries.remove(entry);
+			}
+			return entry.modifiable;
+		}
+		return null;
+	}
+
+	@Override
+	public void start(final Duration pollFrequency)
+	{
+		// Construct task with the given polling frequency
+		task = new Task("Wicket-ModificationWatcher-WatchService");
+
+		task.run(pollFrequency, new ICode()
+		{
+			@Override
+			public void run(final Logger log)
+			{
+				checkModified(pollFrequency);
+			}
+		});
+	}
+
+	/**
+	 * Waits for the events of the watch service and notifies the listeners of the modified files,
+	 * then polls the entries which are not located in a file.
+	 *
+	 * @param timeout
+	 *            how long to wait for the first event
+	 */
+	protected void checkModified(final Duration timeout)
+	{
+		final Set<Path> paths = new HashSet<>();
+		boolean overflow;
+		try
+		{
+			overflow = takeEvents(timeout, paths);
+		}
+		catch (InterruptedException | ClosedWatchServiceException e)
+		{
+			log.debug("Stopped waiting for events: {}", e.toString());
+			return;
+		}
+
+		ThreadContext.setApplication(application);
+		try
+		{
+			if (overflow)
+			{
+				// events got lost, check all files
+				log.debug("Watch service overflow, checking all {} files", pathToEntries.size());
+				pathToEntries.values().forEach(this::check);
+			}
+			else
+			{
+				for (Path path : paths)
+				{
+					Set<Entry> entries = pathToEntries.get(path);
+					if (entries != null)
+					{
+						check(entries);
+					}
+				}
+			}
+			check(polledEntries);
+		}
+		finally
+		{
+			ThreadContext.setApplication(null);
+		}
+	}
+
+	/**
+	 * Waits for the first event for at most the given timeout, then collects the paths of the
+	 * events until the watched folders are quiet for the debounce duration. As long as events keep
+	 * arriving no listener is notified, so the polled entries are checked late while e.g. a build
+	 * copies many files.
+	 *
+	 * @param timeout
+	 *            how long to wait for the first event
+	 * @param paths
+	 *            the paths of the events
+	 * @return {@code true} if events got lost
+	 * @throws InterruptedException
+	 */
+	private boolean takeEvents(final Duration timeout, final Set<Path> paths)
+		throws InterruptedException
+	{
+		boolean overflow = false;
+
+		WatchKey watchKey = watchService.poll(timeout.getMilliseconds(), TimeUnit.MILLISECONDS);
+		while (watchKey != null)
+		{
+			final Path folder = (Path)watchKey.watchable();
+			for (WatchEvent<?> event : watchKey.pollEvents())
+			{
+				if (event.kind() == OVERFLOW)
+				{
+					overflow = true;
+				}
+				else
+				{
+					Path path = folder.resolve((Path)event.context());
+					paths.add(path);
+
+					if (event.kind() == ENTRY_CREATE)
+					{
+						entryCreated(path);
+					}
+				}
+			}
+
+			if (watchKey.reset() == false)
+			{
+				// the folder is gone
+				folders.remove(folder);
+			}
+
+			watchKey = watchService.poll(debounce.getMilliseconds(), TimeUnit.MILLISECONDS);
+		}
+
+		return overflow;
+	}
+
+	/**
+	 * Notifies the listeners of the modified entries.
+	 *
+	 * @param entries
+	 */
+	private void check(final Set<Entry> entries)
+	{
+		for (Entry entry : entries.toArray(new Entry[0]))
+		{
+			// If the modifiable has been modified after the last known
+			// modification time
+			final Time modifiableLastModified = entry.modifiable.lastModifiedTime();
+			if ((modifiableLastModified != null) &&
+				modifiableLastModified.after(entry.lastModifiedTime))
+			{
+				// Update timestamp
+				entry.lastModifiedTime = modifiableLastModified;
+
+				// Notify all listeners that the modifiable was modified
+				entry.listeners.notifyListeners(entry.modifiable);
+			}
+		}
+	}
+
+	/**
+	 * Called when a file or folder is created in a watched folder. New folders are watched too, new
+	 * files might provide markup or properties which were not found before.
+	 *
+	 * @param path
+	 *            the new path entry
+	 */
+	protected void entryCreated(final Path path)
+	{
+		if (Files.isDirectory(path))
+		{
+			watchTree(path);
+			return;
+		}
+
+		final String fileName = path.getFileName().toString();
+		final Path classpathFolder = getClasspathFolder(path);
+		if (classpathFolder == null)
+		{
+			return;
+		}
+
+		final Application previous = ThreadContext.getApplication();
+		ThreadContext.setApplication(application);
+		try
+		{
+			if (fileName.endsWith(".properties") || fileName.endsWith(".properties.xml"))
+			{
+				log.debug("Properties file '{}' created, clearing the properties caches", path);
+				application.getResourceSettings().getPropertiesFactory().clearCache();
+				application.getResourceSettings().getLocalizer().clearCache();
+			}
+			else
+			{
+				removeMissingMarkup(classpathFolder.relativize(path));
+			}
+		}
+		finally
+		{
+			ThreadContext.setApplication(previous);
+		}
+	}
+
+	/**
+	 * Removes the {@link Markup#NO_MARKUP} entries from the markup cache which might be satisfied
+	 * by the new file, i.e. the ones for the same class and extension.
+	 *
+	 * @param relativePath
+	 *            the path of the new file relative to its classpath folder
+	 */
+	private void removeMissingMarkup(final Path relativePath)
+	{
+		IMarkupCache markupCache = application.getMarkupSettings()
+			.getMarkupFactory()
+			.getMarkupCache();
+		if (markupCache instanceof MarkupCache == false)
+		{
+			return;
+		}
+
+		String path = Strings.replaceAll(relativePath.toString(), File.separator, ".").toString();
+		int extensionIndex = path.lastIndexOf('.');
+		if (extensionIndex == -1)
+		{
+			return;
+		}
+		String extension = path.substring(extensionIndex);
+
+		// a markup file is named after the class, followed by variation, style and locale
+		String fileName = path.substring(0, extensionIndex);
+
+		MarkupCache.ICache<String, Markup> cache = ((MarkupCache)markupCache).getMarkupCache();
+		for (String key : new ArrayList<>(cache.getKeys()))
+		{
+			if (key.endsWith(extension) && cache.get(key) == Markup.NO_MARKUP)
+			{
+				String className = getClassName(key.substring(0, key.length() - extension.length()));
+				if (className == null ? key.equals(path)
+					: (fileName.equals(className) || fileName.startsWith(className + '_')))
+				{
+					log.debug("Markup file created, removing not found entry '{}'", key);
+					markupCache.removeMarkup(key);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the class name part of a markup cache key, which is followed by the variation, style
+	 * and locale as {@link DefaultMarkupCacheKeyProvider} builds it. Since a class name may
+	 * contain underscores too, the longest part naming a class is taken.
+	 *
+	 * @param key
+	 *            the markup cache key without its extension
+	 * @return the class name or {@code null} if the key does not start with one
+	 */
+	private String getClassName(final String key)
+	{
+		IClassResolver classResolver = application.getApplicationSettings().getClassResolver();
+		String className = key;
+		while (true)
+		{
+			try
+			{
+				classResolver.resolveClass(className);
+				return className;
+			}
+			catch (ClassNotFoundException | LinkageError e)
+			{
+				int suffixIndex = className.lastIndexOf('_');
+				if (suffixIndex <= className.lastIndexOf('.'))
+				{
+					return null;
+				}
+				className = className.substring(0, suffixIndex);
+			}
+		}
+	}
+
+	@Override
+	public void destroy()
+	{
+		try
+		{
+			if (task != null)
+			{
+				task.interrupt();
+			}
+		}
+		finally
+		{
+			IOUtils.closeQuietly(watchService);
+		}
+	}
+
+	@Override
+	public final Set<IModifiable> getEntries()
+	{
+		return modifiableToEntry.keySet();
+	}
+
+	/**
+	 * Gets the path of the file a modifiable is located in.
+	 *
+	 * @param modifiable
+	 *            the modifiable
+	 * @return the path of the file or {@code null} if it has to be polled
+	 */
+	protected Path getPath(final IModifiable modifiable)
+	{
+		Path path = null;
+		if (modifiable instanceof MarkupResourceStream)
+		{
+			return getPath(((MarkupResourceStream)modifiable).getResource());
+		}
+		else if (modifiable instanceof FileResourceStream)
+		{
+			path = ((FileResourceStream)modifiable).getFile().toPath();
+		}
+		else if (modifiable instanceof FileSystemResourceStream)
+		{
+			path = ((FileSystemResourceStream)modifiable).getPath();
+		}
+		else if (modifiable instanceof IFixedLocationResourceStream)
+		{
+			String location = ((IFixedLocationResourceStream)modifiable).locationAsString();
+			if (location != null && location.startsWith("file:"))
+			{
+				try
+				{
+					path = Paths.get(URI.create(location));
+				}
+				catch (IllegalArgumentException e)
+				{
+					log.debug("Cannot watch '{}': {}", location, e.getMessage());
+				}
+			}
+		}
+
+		if (path != null && path.getFileSystem() == FileSystems.getDefault())
+		{
+			return path.toAbsolutePath();
+		}
+		return null;
+	}
+
+	/**
+	 * @param path
+	 * @return the classpath folder containing the path, {@code null} if none
+	 */
+	private Path getClasspathFolder(final Path path)
+	{
+		for (Path classpathFolder : classpathFolders)
+		{
+			if (path.startsWith(classpathFolder))
+			{
+				return classpathFolder;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Registers all classpath folder entries and their subfolders in the watch service.
+	 */
+	private void registerClasspathFolders()
+	{
+		String classpath = System.getProperty("java.class.path");
+
+		String[] classPathEntries = Strings.split(classpath, File.pathSeparatorChar);
+		for (String classPathEntry : classPathEntries)
+		{
+			if (classPathEntry.endsWith(".jar") == false)
+			{
+				Path folder = Paths.get(classPathEntry).toAbsolutePath();
+				if (Files.isDirectory(folder))
+				{
+					classpathFolders.add(folder);
+					watchTree(folder);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Watches a folder and all its subfolders.
+	 *
+	 * @param folder
+	 */
+	private void watchTree(final Path folder)
+	{
+		try
+		{
+			Files.walkFileTree(folder, new SimpleFileVisitor<Path>()
+			{
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+				{
+					watch(dir);
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		}
+		catch (IOException iox)
+		{
+			log.warn("Cannot register folder '" + folder + "' to be watched.", iox);
+		}
+	}
+
+	/**
+	 * Registers a folder in the watch service.
+	 *
+	 * @param folder
+	 * @return {@code true} if the folder is watched
+	 */
+	private boolean watch(final Path folder)
+	{
+		if (folder == null)
+		{
+			return false;
+		}
+		if (folders.contains(folder))
+		{
+			return true;
+		}
+
+		try
+		{
+			log.debug("Registering folder '{}' to the watching service", folder);
+			folder.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+			folders.add(folder);
+			return true;
+		}
+		catch (IOException | ClosedWatchServiceException e)
+		{
+			log.debug("Cannot register folder '{}' to be watched: {}", folder, e.toString());
+			return false;
+		}
+	}
+}
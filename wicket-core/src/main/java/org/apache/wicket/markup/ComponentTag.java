@@ -23,6 +23,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.wicket.Component;
 import org.apache.wicket.MarkupContainer;
@@ -124,6 +125,12 @@ public class ComponentTag extends MarkupElement
 	/** Filters and Handlers may add their own attributes to the tag */
 	private Map<String, Object> userData;
 
+	/**
+	 * True if the behaviors and the user data are the ones of the immutable tag this tag is a copy
+	 * of, and have to be copied before they are modified.
+	 */
+	private boolean sharedProperties;
+
 	private IAutoComponentFactory autoComponentFactory;
 
 	/**
@@ -208,6 +215,7 @@ public class ComponentTag extends MarkupElement
 	{
 		Args.notNull(behavior, "behavior");
 
+		unshareProperties();
 		if (behaviors == null)
 		{
 			behaviors = Generics.newArrayList();
@@ -285,7 +293,7 @@ public class ComponentTag extends MarkupElement
 	 */
 	public final String getAttribute(String name)
 	{
-		return xmlTag.getAttributes().getString(name);
+		return xmlTag.getReadOnlyAttributes().getString(name);
 	}
 
 	/**
@@ -417,6 +425,9 @@ public class ComponentTag extends MarkupElement
 	public final void makeImmutable()
 	{
 		xmlTag.makeImmutable();
+
+		// behaviors and user data may still be added, but not to the tag this one is a copy of
+		unshareProperties();
 	}
 
 	/**
@@ -455,13 +466,42 @@ public class ComponentTag extends MarkupElement
 		{
 			dest.setMarkupClass(markupClassRef.get());
 		}
-		if (behaviors != null)
+		if (xmlTag.isMutable())
 		{
-			dest.behaviors = new ArrayList<>(behaviors);
+			if (behaviors != null)
+			{
+				dest.behaviors = new ArrayList<>(behaviors);
+			}
+			if (userData != null)
+			{
+				dest.userData = new HashMap<>(userData);
+			}
+		}
+		else
+		{
+			// the properties of an immutable tag are copied only if the copy modifies them
+			dest.behaviors = behaviors;
+			dest.userData = userData;
+			dest.sharedProperties = true;
 		}
-		if (userData != null)
+	}
+
+	/**
+	 * Copies the behaviors and the user data shared with the immutable tag this tag is a copy of.
+	 */
+	private void unshareProperties()
+	{
+		if (sharedProperties)
 		{
-			dest.userData = new HashMap<>(userData);
+			if (behaviors != null)
+			{
+				behaviors = new ArrayList<>(behaviors);
+			}
+			if (userData != null)
+			{
+				userData = new HashMap<>(userData);
+			}
+			sharedProperties = false;
 		}
 	}
 
@@ -738,9 +778,10 @@ public class ComponentTag extends MarkupElement
 			namespacePrefix = namespace + ":";
 		}
 
-		if (getAttributes().size() > 0)
+		final IValueMap attributes = xmlTag.getReadOnlyAttributes();
+		if (attributes.size() > 0)
 		{
-			for (String key : getAttributes().keySet())
+			for (String key : attributes.keySet())
 			{
 				if (key == null)
 				{
@@ -952,6 +993,19 @@ public class ComponentTag extends MarkupElement
 		return userData.get(key);
 	}
 
+	/**
+	 * @return the keys of the user data, empty if there is none
+	 */
+	Set<String> getUserDataKeys()
+	{
+		if (userData == null)
+		{
+			return Collections.emptySet();
+		}
+
+		return userData.keySet();
+	}
+
 	/**
 	 * Sets userData.
 	 * 
@@ -962,6 +1016,7 @@ public class ComponentTag extends MarkupElement
 	 */
 	public void setUserData(final String key, final Object value)
 	{
+		unshareProperties();
 		if (userData == null)
 		{
 			userData = new HashMap<>();
@@ -70,4 +70,18 @@ public interface IMarkupFragment extends Iterable<MarkupElement>
 	 * @return markup string
 	 */
 	String toString(final boolean markupOnly);
+
+	/**
+	 * Gets the index of the tag closing the open tag at the given index, which allows to skip a
+	 * component's markup without walking through it.
+	 * 
+	 * @param index
+	 *            Index of an open tag
+	 * @return the index of the close tag, or -1 if the element is not an open tag with a close tag
+	 *         or the index is not known
+	 */
+	default int getCloseTagIndex(final int index)
+	{
+		return -1;
+	}
 }
@@ -18,6 +18,7 @@ package org.apache.wicket.markup;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -48,6 +49,12 @@ public class Markup extends AbstractMarkupFragment
 	/** The associated markup file */
 	private final MarkupResourceStream markupResourceStream;
 
+	/**
+	 * The indexes of the close tags by the indexes of their open tags. Computed when the markup is
+	 * made immutable or on first use, and reset when the markup is modified.
+	 */
+	private volatile int[] closeTagIndexes;
+
 	/**
 	 * Take the markup string, parse it and return the Markup (list of MarkupElements).
 	 * <p>
@@ -145,6 +152,7 @@ public class Markup extends AbstractMarkupFragment
 		}
 
 		markupElements.set(index, elem);
+		closeTagIndexes = null;
 	}
 
 	/**
@@ -171,6 +179,7 @@ public class Markup extends AbstractMarkupFragment
 	final public void addMarkupElement(final MarkupElement markupElement)
 	{
 		markupElements.add(markupElement);
+		closeTagIndexes = null;
 	}
 
 	/**
@@ -182,6 +191,7 @@ public class Markup extends AbstractMarkupFragment
 	final public void addMarkupElement(final int pos, final MarkupElement markupElement)
 	{
 		markupElements.add(pos, markupElement);
+		closeTagIndexes = null;
 	}
 
 	/**
@@ -199,6 +209,70 @@ public class Markup extends AbstractMarkupFragment
 		}
 
 		markupElements = Collections.unmodifiableList(markupElements);
+		closeTagIndexes = findCloseTags();
+	}
+
+	@Override
+	public final int getCloseTagIndex(final int index)
+	{
+		int[] indexes = closeTagIndexes;
+		if (indexes == null)
+		{
+			indexes = findCloseTags();
+			closeTagIndexes = indexes;
+		}
+		return (index >= 0 && index < indexes.length) ? indexes[index] : -1;
+	}
+
+	/**
+	 * Finds the close tag of each open tag, just like
+	 * {@link MarkupStream#skipToMatchingCloseTag(ComponentTag)} does, in one pass keeping the
+	 * open tags on a stack. A close tag usually closes the innermost open tag, the ones below it
+	 * are only tested for markup which is not well nested.
+	 * 
+	 * @return the indexes of the close tags by the indexes of their open tags, -1 for all other
+	 *         elements
+	 */
+	private int[] findCloseTags()
+	{
+		final int size = markupElements.size();
+		final int[] indexes = new int[size];
+		Arrays.fill(indexes, -1);
+
+		// the indexes of the open tags not closed yet
+		int[] open = new int[16];
+		int depth = 0;
+
+		for (int i = 0; i < size; i++)
+		{
+			MarkupElement element = markupElements.get(i);
+			if (element instanceof ComponentTag)
+			{
+				ComponentTag tag = (ComponentTag)element;
+				if (tag.isClose())
+				{
+					for (int k = depth - 1; k >= 0; k--)
+					{
+						if (tag.closes(markupElements.get(open[k])))
+						{
+							indexes[open[k]] = i;
+							System.arraycopy(open, k + 1, open, k, depth - k - 1);
+							depth--;
+							break;
+						}
+					}
+				}
+				else if (tag.isOpen() && tag.hasNoCloseTag() == false)
+				{
+					if (depth == open.length)
+					{
+						open = Arrays.copyOf(open, depth * 2);
+					}
+					open[depth++] = i;
+				}
+			}
+		}
+		return indexes;
 	}
 
 	@Override
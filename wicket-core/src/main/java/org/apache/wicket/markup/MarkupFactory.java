@@ -53,6 +53,9 @@ public class MarkupFactory
 	/** The markup resource stream provider used by MarkupCache */
 	private IMarkupResourceStreamProvider markupResourceStreamProvider = null;
 
+	/** The snapshot of parsed markup, if any */
+	private volatile MarkupSnapshot markupSnapshot = null;
+
 	/**
 	 * @return Gets the markup factory registered with the Wicket application
 	 */
@@ -118,6 +121,18 @@ public class MarkupFactory
 		};
 	}
 
+	/**
+	 * Identifies how this factory parses markup, so a {@link MarkupSnapshot} written while markup
+	 * was parsed differently is ignored. Override it if custom {@link IMarkupFilter}s are added to
+	 * the parsers, returning a value which changes with them, e.g. their version.
+	 * 
+	 * @return the name of the class by default
+	 */
+	public String getFingerprint()
+	{
+		return getClass().getName();
+	}
+
 	/**
 	 * Subclasses can override this to use custom parsers.
 	 * 
@@ -178,6 +193,30 @@ public class MarkupFactory
 		return markupCache != null;
 	}
 
+	/**
+	 * Gets the snapshot of parsed markup which is consulted before parsing a markup resource.
+	 * 
+	 * @return the snapshot or {@code null} if there is none, the default
+	 */
+	public MarkupSnapshot getMarkupSnapshot()
+	{
+		return markupSnapshot;
+	}
+
+	/**
+	 * Sets the snapshot of parsed markup which is consulted before parsing a markup resource.
+	 * 
+	 * @param markupSnapshot
+	 *            the snapshot or {@code null} to always parse the markup
+	 * @return {@code this}
+	 * @see MarkupSnapshot
+	 */
+	public MarkupFactory setMarkupSnapshot(final MarkupSnapshot markupSnapshot)
+	{
+		this.markupSnapshot = markupSnapshot;
+		return this;
+	}
+
 	/**
 	 * Get the markup associated with the container.
 	 * 
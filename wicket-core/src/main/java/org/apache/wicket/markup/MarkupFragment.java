@@ -106,6 +106,11 @@ public class MarkupFragment extends AbstractMarkupFragment
 				endIndex = markupSize;
 			}
 		}
+		else if (markup.getCloseTagIndex(startIndex) > startIndex)
+		{
+			// the close tag is known already
+			endIndex = markup.getCloseTagIndex(startIndex);
+		}
 		else
 		{
 			for (endIndex = startIndex + 1; endIndex < markupSize; endIndex++)
@@ -131,6 +136,22 @@ public class MarkupFragment extends AbstractMarkupFragment
 		size = endIndex - startIndex + 1;
 	}
 
+	@Override
+	public final int getCloseTagIndex(final int index)
+	{
+		if ((index < 0) || (index >= size))
+		{
+			return -1;
+		}
+
+		int closeTagIndex = markup.getCloseTagIndex(startIndex + index);
+		if ((closeTagIndex < 0) || (closeTagIndex >= startIndex + size))
+		{
+			return -1;
+		}
+		return closeTagIndex - startIndex;
+	}
+
 	@Override
 	public final MarkupElement get(final int index)
 	{
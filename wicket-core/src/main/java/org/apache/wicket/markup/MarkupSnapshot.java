@@ -0,0 +1,795 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.behavior.Behavior;
+import org.apache.wicket.markup.ComponentTag.IAutoComponentFactory;
+import org.apache.wicket.markup.parser.XmlTag;
+import org.apache.wicket.markup.parser.XmlTag.TagType;
+import org.apache.wicket.markup.parser.filter.EnclosureHandler;
+import org.apache.wicket.markup.parser.filter.HtmlHeaderSectionHandler;
+import org.apache.wicket.markup.parser.filter.RelativePathPrefixHandler;
+import org.apache.wicket.markup.parser.filter.WicketMessageTagHandler.AttributeLocalizer;
+import org.apache.wicket.settings.MarkupSettings;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.resource.ResourceStreamNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A snapshot of parsed markup which can be written to a file and read at the next start of the
+ * application, so markup is not parsed again on each start.
+ * <p>
+ * The snapshot holds the markup as returned by the {@link MarkupParser}, i.e. before it is merged
+ * with inherited markup, keyed by the cache key of its {@link IMarkupCacheKeyProvider}. Each entry
+ * records the checksum of the markup resource it was parsed from: an entry is validated lazily the
+ * first time its markup is loaded and parsed again if the resource changed meanwhile. A snapshot
+ * written by another version of Wicket, with other {@link MarkupSettings} or another
+ * {@link MarkupFactory#getFingerprint() fingerprint of the markup factory} is ignored.
+ * </p>
+ * <p>
+ * Markup with tags carrying behaviors, auto component factories or user data other than those
+ * added by Wicket's own markup filters cannot be restored and is parsed as before.
+ * </p>
+ * To use a snapshot, put the following code in your application:
+ * 
+ * <pre>
+ * private final MarkupSnapshot snapshot = new MarkupSnapshot(this);
+ * 
+ * protected void init()
+ * {
+ * 	super.init();
+ * 
+ * 	snapshot.read(file);
+ * 	getMarkupSettings().getMarkupFactory().setMarkupSnapshot(snapshot);
+ * }
+ * 
+ * protected void onDestroy()
+ * {
+ * 	snapshot.write(file);
+ * 
+ * 	super.onDestroy();
+ * }
+ * </pre>
+ * 
+ * @see MarkupFactory#setMarkupSnapshot(MarkupSnapshot)
+ */
+public class MarkupSnapshot
+{
+	private static final Logger log = LoggerFactory.getLogger(MarkupSnapshot.class);
+
+	/** Identifies a snapshot file */
+	private static final int MAGIC = 0x574d4b53;
+
+	/** The version of the file format */
+	private static final int FORMAT = 1;
+
+	private static final byte RAW_MARKUP = 0;
+	private static final byte COMPONENT_TAG = 1;
+	private static final byte WICKET_TAG = 2;
+
+	private static final byte SHARED_BEHAVIOR = 0;
+	private static final byte ATTRIBUTE_LOCALIZER = 1;
+
+	private static final byte STRING_DATA = 0;
+	private static final byte BOOLEAN_DATA = 1;
+	private static final byte CONTAINER_INFO_DATA = 2;
+
+	private static final int AUTOLINK = 0x01;
+	private static final int MODIFIED = 0x02;
+	private static final int IGNORE = 0x04;
+	private static final int AUTO_COMPONENT = 0x08;
+	private static final int NO_CLOSE_TAG = 0x10;
+	private static final int RENDER_RAW = 0x20;
+	private static final int CONTAINS_WICKET_ID = 0x40;
+
+	/**
+	 * The behaviors and factories shared by all tags, referenced by their index.
+	 */
+	private static final List<Object> SHARED = Arrays.asList(
+		RelativePathPrefixHandler.RELATIVE_PATH_BEHAVIOR, RelativePathPrefixHandler.FACTORY,
+		EnclosureHandler.FACTORY, HtmlHeaderSectionHandler.HTML_HEADER_FACTORY,
+		HtmlHeaderSectionHandler.HTML_HEADER_ITEMS_FACTORY);
+
+	/**
+	 * Identifies the version of Wicket and the settings the markup was parsed with.
+	 */
+	private final String fingerprint;
+
+	private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * Construct.
+	 * 
+	 * @param application
+	 *            the application parsing the markup
+	 */
+	public MarkupSnapshot(final Application application)
+	{
+		this(fingerprint(application));
+	}
+
+	/**
+	 * Construct.
+	 * 
+	 * @param fingerprint
+	 *            identifies the version of Wicket and the settings the markup is parsed with
+	 */
+	MarkupSnapshot(final String fingerprint)
+	{
+		this.fingerprint = Args.notNull(fingerprint, "fingerprint");
+	}
+
+	private static String fingerprint(final Application application)
+	{
+		MarkupSettings settings = application.getMarkupSettings();
+		return application.getFrameworkSettings().getVersion() + ';' +
+			settings.getMarkupFactory().getFingerprint() + ';' +
+			settings.getDefaultMarkupEncoding() + ';' + settings.getAutomaticLinking() + ';' +
+			settings.getCompressWhitespace() + ';' + settings.getStripComments() + ';' +
+			settings.getStripWicketTags();
+	}
+
+	/**
+	 * @return the number of markups in this snapshot
+	 */
+	public int size()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * @return the number of markups restored from this snapshot
+	 */
+	public long getHitCount()
+	{
+		return hits.sum();
+	}
+
+	/**
+	 * @return the number of markups which were not in this snapshot or changed meanwhile
+	 */
+	public long getMissCount()
+	{
+		return misses.sum();
+	}
+
+	/**
+	 * Computes the checksum of a markup resource.
+	 * 
+	 * @param markupResourceStream
+	 * @return the checksum
+	 * @throws IOException
+	 * @throws ResourceStreamNotFoundException
+	 */
+	public static long checksum(final MarkupResourceStream markupResourceStream)
+		throws IOException, ResourceStreamNotFoundException
+	{
+		CRC32 crc = new CRC32();
+		InputStream in = markupResourceStream.getResource().getInputStream();
+		try
+		{
+			byte[] buffer = new byte[4096];
+			int read;
+			while ((read = in.read(buffer)) != -1)
+			{
+				crc.update(buffer, 0, read);
+			}
+		}
+		finally
+		{
+			// closing the resource lets the parser open it again
+			markupResourceStream.close();
+		}
+		return crc.getValue();
+	}
+
+	/**
+	 * Restores the parsed markup of a resource.
+	 * 
+	 * @param markupResourceStream
+	 *            the markup resource
+	 * @param checksum
+	 *            the checksum of the resource
+	 * @return the markup or {@code null} if the snapshot does not hold the markup of the resource
+	 *         or the resource changed
+	 */
+	public Markup getMarkup(final MarkupResourceStream markupResourceStream, final long checksum)
+	{
+		String cacheKey = markupResourceStream.getCacheKey();
+		if (cacheKey == null)
+		{
+			return null;
+		}
+
+		Entry entry = entries.get(cacheKey);
+		if (entry == null || entry.checksum != checksum ||
+			entry.location.equals(String.valueOf(markupResourceStream.locationAsString())) == false)
+		{
+			log.debug("Markup not in snapshot or changed: {}", cacheKey);
+			misses.increment();
+			return null;
+		}
+
+		try
+		{
+			Markup markup = decode(markupResourceStream, entry.data);
+			hits.increment();
+			return markup;
+		}
+		catch (IOException | RuntimeException e)
+		{
+			log.warn("Cannot restore the markup " + cacheKey + " from the snapshot", e);
+			entries.remove(cacheKey, entry);
+			misses.increment();
+			return null;
+		}
+	}
+
+	/**
+	 * Adds the parsed markup of a resource, replacing any previous one.
+	 * 
+	 * @param markup
+	 *            the markup as returned by the parser
+	 * @param checksum
+	 *            the checksum of the resource the markup was parsed from
+	 */
+	public void putMarkup(final Markup markup, final long checksum)
+	{
+		MarkupResourceStream markupResourceStream = markup.getMarkupResourceStream();
+		String cacheKey = markupResourceStream.getCacheKey();
+		if (cacheKey == null)
+		{
+			return;
+		}
+
+		try
+		{
+			byte[] data = encode(markup);
+			if (data == null)
+			{
+				log.debug("Markup cannot be stored in the snapshot: {}", cacheKey);
+				entries.remove(cacheKey);
+			}
+			else
+			{
+				entries.put(cacheKey, new Entry(
+					String.valueOf(markupResourceStream.locationAsString()), checksum, data));
+			}
+		}
+		catch (IOException e)
+		{
+			throw new WicketRuntimeException(e);
+		}
+	}
+
+	/**
+	 * Reads a snapshot from a file, replacing the markup in this snapshot. A missing file, a file
+	 * written by another version of Wicket or with other settings is ignored.
+	 * 
+	 * @param file
+	 *            the file
+	 * @return the number of markups read
+	 */
+	public int read(final File file)
+	{
+		Args.notNull(file, "file");
+
+		entries.clear();
+		if (file.exists() == false)
+		{
+			return 0;
+		}
+
+		try (DataInputStream in = new DataInputStream(
+			new BufferedInputStream(Files.newInputStream(file.toPath()))))
+		{
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT ||
+				fingerprint.equals(in.readUTF()) == false)
+			{
+				log.info("Ignoring the markup snapshot {} written by another version or with other settings",
+					file);
+				return 0;
+			}
+
+			int count = in.readInt();
+			for (int i = 0; i < count; i++)
+			{
+				String cacheKey = in.readUTF();
+				String location = in.readUTF();
+				long checksum = in.readLong();
+				byte[] data = new byte[in.readInt()];
+				in.readFully(data);
+
+				entries.put(cacheKey, new Entry(location, checksum, data));
+			}
+		}
+		catch (IOException | RuntimeException e)
+		{
+			log.warn("Cannot read the markup snapshot " + file, e);
+			entries.clear();
+		}
+
+		log.info("Read {} markups from the snapshot {}", entries.size(), file);
+		return entries.size();
+	}
+
+	/**
+	 * Writes this snapshot to a file, replacing the file atomically.
+	 * 
+	 * @param file
+	 *            the file
+	 * @throws IOException
+	 */
+	public void write(final File file) throws IOException
+	{
+		Args.notNull(file, "file");
+
+		File temp = new File(file.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(
+			new BufferedOutputStream(Files.newOutputStream(temp.toPath()))))
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT);
+			out.writeUTF(fingerprint);
+
+			// write the entries present now
+			Map<String, Entry> current = new HashMap<>(entries);
+			out.writeInt(current.size());
+			for (Map.Entry<String, Entry> entry : current.entrySet())
+			{
+				out.writeUTF(entry.getKey());
+				out.writeUTF(entry.getValue().location);
+				out.writeLong(entry.getValue().checksum);
+				out.writeInt(entry.getValue().data.length);
+				out.write(entry.getValue().data);
+			}
+		}
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Encodes the markup.
+	 * 
+	 * @param markup
+	 * @return the encoded markup or {@code null} if the markup cannot be restored
+	 * @throws IOException
+	 */
+	private byte[] encode(final Markup markup) throws IOException
+	{
+		if (markup.getClass() != Markup.class)
+		{
+			return null;
+		}
+
+		MarkupResourceStream markupResourceStream = markup.getMarkupResourceStream();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		writeString(out, markupResourceStream.getEncoding());
+		writeString(out, markupResourceStream.getDoctype());
+		writeString(out, markupResourceStream.getWicketNamespace());
+
+		out.writeInt(markup.size());
+		for (int i = 0; i < markup.size(); i++)
+		{
+			MarkupElement element = markup.get(i);
+			if (element.getClass() == RawMarkup.class)
+			{
+				out.writeByte(RAW_MARKUP);
+				writeString(out, element.toCharSequence());
+			}
+			else if (element.getClass() == ComponentTag.class ||
+				element.getClass() == WicketTag.class)
+			{
+				out.writeByte(element instanceof WicketTag ? WICKET_TAG : COMPONENT_TAG);
+				if (encodeTag(out, markup, (ComponentTag)element) == false)
+				{
+					return null;
+				}
+			}
+			else
+			{
+				return null;
+			}
+		}
+
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private boolean encodeTag(final DataOutput out, final Markup markup, final ComponentTag tag)
+		throws IOException
+	{
+		XmlTag xmlTag = tag.getXmlTag();
+		if (xmlTag.isMutable() || tag.getMarkupClass() != null)
+		{
+			return false;
+		}
+
+		writeString(out, xmlTag.getName());
+		writeString(out, xmlTag.getNamespace());
+		out.writeByte(xmlTag.getType().ordinal());
+
+		// the text is discarded when a tag with attributes is made immutable
+		out.writeBoolean(xmlTag.getLength() > 0);
+		if (xmlTag.getLength() > 0)
+		{
+			writeString(out, xmlTag.toCharSequence());
+			out.writeInt(xmlTag.getPos());
+			out.writeInt(xmlTag.getLineNumber());
+			out.writeInt(xmlTag.getColumnNumber());
+		}
+
+		if (xmlTag.hasAttributes())
+		{
+			out.writeInt(xmlTag.getAttributes().size());
+			for (Map.Entry<String, Object> attribute : xmlTag.getAttributes().entrySet())
+			{
+				Object value = attribute.getValue();
+				if (value != null && value instanceof CharSequence == false)
+				{
+					return false;
+				}
+				writeString(out, attribute.getKey());
+				writeString(out, (CharSequence)value);
+			}
+		}
+		else
+		{
+			out.writeInt(0);
+		}
+
+		writeString(out, tag.getId());
+
+		int flags = 0;
+		flags |= tag.isAutolinkEnabled() ? AUTOLINK : 0;
+		flags |= tag.isModified() ? MODIFIED : 0;
+		flags |= tag.isIgnore() ? IGNORE : 0;
+		flags |= tag.isAutoComponentTag() ? AUTO_COMPONENT : 0;
+		flags |= tag.hasNoCloseTag() ? NO_CLOSE_TAG : 0;
+		flags |= tag.getFlag(ComponentTag.RENDER_RAW) ? RENDER_RAW : 0;
+		flags |= tag.containsWicketId() ? CONTAINS_WICKET_ID : 0;
+		out.writeByte(flags);
+
+		int openTagIndex = -1;
+		if (xmlTag.getOpenTag() != null)
+		{
+			ComponentTag openTag = tag.getOpenTag();
+			if (openTag == null || openTag.getXmlTag() != xmlTag.getOpenTag())
+			{
+				return false;
+			}
+			openTagIndex = indexOf(markup, openTag);
+			if (openTagIndex == -1)
+			{
+				return false;
+			}
+		}
+		if (tag.hasBehaviors())
+		{
+			ByteArrayOutputStream behaviorBytes = new ByteArrayOutputStream();
+			DataOutputStream behaviorOut = new DataOutputStream(behaviorBytes);
+			int count = 0;
+			for (Iterator<? extends Behavior> iter = tag.getBehaviors(); iter.hasNext(); count++)
+			{
+				Behavior behavior = iter.next();
+				if (behavior.getClass() == AttributeLocalizer.class)
+				{
+					behaviorOut.writeByte(ATTRIBUTE_LOCALIZER);
+					writeString(behaviorOut,
+						((AttributeLocalizer)behavior).getWicketMessageAttrName());
+				}
+				else if (indexOfShared(behavior) != -1)
+				{
+					behaviorOut.writeByte(SHARED_BEHAVIOR);
+					behaviorOut.writeInt(indexOfShared(behavior));
+				}
+				else
+				{
+					return false;
+				}
+			}
+			out.writeInt(count);
+			out.write(behaviorBytes.toByteArray());
+		}
+		else
+		{
+			out.writeInt(0);
+		}
+
+		IAutoComponentFactory factory = tag.getAutoComponentFactory();
+		int factoryIndex = -1;
+		if (factory != null)
+		{
+			factoryIndex = indexOfShared(factory);
+			if (factoryIndex == -1)
+			{
+				return false;
+			}
+		}
+		out.writeInt(factoryIndex);
+
+		out.writeInt(tag.getUserDataKeys().size());
+		for (String key : tag.getUserDataKeys())
+		{
+			Object value = tag.getUserData(key);
+			writeString(out, key);
+			if (value instanceof String)
+			{
+				out.writeByte(STRING_DATA);
+				writeString(out, (String)value);
+			}
+			else if (value instanceof Boolean)
+			{
+				out.writeByte(BOOLEAN_DATA);
+				out.writeBoolean((Boolean)value);
+			}
+			else if (value != null &&
+				value == markup.getMarkupResourceStream().getContainerInfo())
+			{
+				out.writeByte(CONTAINER_INFO_DATA);
+			}
+			else
+			{
+				return false;
+			}
+		}
+
+		out.writeInt(openTagIndex);
+		return true;
+	}
+
+	/**
+	 * Decodes the markup.
+	 * 
+	 * @param markupResourceStream
+	 *            the resource of the markup
+	 * @param data
+	 *            the encoded markup
+	 * @return the markup
+	 * @throws IOException
+	 */
+	private Markup decode(final MarkupResourceStream markupResourceStream, final byte[] data)
+		throws IOException
+	{
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+
+		markupResourceStream.setEncoding(readString(in));
+		String doctype = readString(in);
+		if (doctype != null)
+		{
+			// the stream keeps the doctype without its declaration
+			markupResourceStream.setDoctype("!DOCTYPE " + doctype);
+		}
+		markupResourceStream.setWicketNamespace(readString(in));
+
+		Markup markup = new Markup(markupResourceStream);
+		int size = in.readInt();
+		int[] openTagIndexes = new int[size];
+		for (int i = 0; i < size; i++)
+		{
+			openTagIndexes[i] = -1;
+			byte kind = in.readByte();
+			if (kind == RAW_MARKUP)
+			{
+				markup.addMarkupElement(new RawMarkup(readString(in)));
+			}
+			else
+			{
+				ComponentTag tag = decodeTag(in, markup, kind == WICKET_TAG);
+				openTagIndexes[i] = in.readInt();
+				markup.addMarkupElement(tag);
+			}
+		}
+
+		// an open tag might follow the tags referencing it
+		for (int i = 0; i < size; i++)
+		{
+			if (openTagIndexes[i] != -1)
+			{
+				((ComponentTag)markup.get(i)).setOpenTag(
+					(ComponentTag)markup.get(openTagIndexes[i]));
+			}
+		}
+
+		markup.makeImmutable();
+		return markup;
+	}
+
+	private ComponentTag decodeTag(final DataInput in, final Markup markup,
+		final boolean wicketTag) throws IOException
+	{
+		String name = readString(in);
+		String namespace = readString(in);
+		TagType type = TagType.values()[in.readByte()];
+
+		XmlTag xmlTag;
+		if (in.readBoolean())
+		{
+			xmlTag = new XmlTag(readString(in), in.readInt(), in.readInt(), in.readInt(), type);
+		}
+		else
+		{
+			xmlTag = new XmlTag();
+			xmlTag.setType(type);
+		}
+		xmlTag.setName(name);
+		xmlTag.setNamespace(namespace);
+
+		int attributeCount = in.readInt();
+		for (int i = 0; i < attributeCount; i++)
+		{
+			xmlTag.getAttributes().put(readString(in), readString(in));
+		}
+
+		ComponentTag tag = wicketTag ? new WicketTag(xmlTag) : new ComponentTag(xmlTag);
+		tag.setId(readString(in));
+
+		int flags = in.readByte();
+		tag.enableAutolink((flags & AUTOLINK) != 0);
+		tag.setModified((flags & MODIFIED) != 0);
+		tag.setIgnore((flags & IGNORE) != 0);
+		tag.setAutoComponentTag((flags & AUTO_COMPONENT) != 0);
+		tag.setHasNoCloseTag((flags & NO_CLOSE_TAG) != 0);
+		tag.setFlag(ComponentTag.RENDER_RAW, (flags & RENDER_RAW) != 0);
+		tag.setContainsWicketId((flags & CONTAINS_WICKET_ID) != 0);
+
+		int behaviorCount = in.readInt();
+		for (int i = 0; i < behaviorCount; i++)
+		{
+			if (in.readByte() == ATTRIBUTE_LOCALIZER)
+			{
+				tag.addBehavior(new AttributeLocalizer(readString(in)));
+			}
+			else
+			{
+				tag.addBehavior((Behavior)SHARED.get(in.readInt()));
+			}
+		}
+
+		int factoryIndex = in.readInt();
+		if (factoryIndex != -1)
+		{
+			tag.setAutoComponentFactory((IAutoComponentFactory)SHARED.get(factoryIndex));
+		}
+
+		int userDataCount = in.readInt();
+		for (int i = 0; i < userDataCount; i++)
+		{
+			String key = readString(in);
+			byte kind = in.readByte();
+			if (kind == STRING_DATA)
+			{
+				tag.setUserData(key, readString(in));
+			}
+			else if (kind == BOOLEAN_DATA)
+			{
+				tag.setUserData(key, in.readBoolean());
+			}
+			else
+			{
+				tag.setUserData(key, markup.getMarkupResourceStream().getContainerInfo());
+			}
+		}
+
+		return tag;
+	}
+
+	private static int indexOf(final Markup markup, final MarkupElement element)
+	{
+		for (int i = 0; i < markup.size(); i++)
+		{
+			if (markup.get(i) == element)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static int indexOfShared(final Object object)
+	{
+		for (int i = 0; i < SHARED.size(); i++)
+		{
+			if (SHARED.get(i) == object)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Writes a string of any length, {@link DataOutput#writeUTF(String)} being limited to 64k.
+	 */
+	private static void writeString(final DataOutput out, final CharSequence string)
+		throws IOException
+	{
+		if (string == null)
+		{
+			out.writeInt(-1);
+		}
+		else
+		{
+			byte[] bytes = string.toString().getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	private static String readString(final DataInput in) throws IOException
+	{
+		int length = in.readInt();
+		if (length == -1)
+		{
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * The encoded markup of a resource.
+	 */
+	private static class Entry
+	{
+		private final String location;
+
+		private final long checksum;
+
+		private final byte[] data;
+
+		private Entry(final String location, final long checksum, final byte[] data)
+		{
+			this.location = location;
+			this.checksum = checksum;
+			this.data = data;
+		}
+	}
+}
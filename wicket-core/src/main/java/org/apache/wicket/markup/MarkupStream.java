@@ -359,11 +359,20 @@ public class MarkupStream
 			// must have been detected by the HtmlHandler earlier on.
 			if (startTag.hasNoCloseTag() == false)
 			{
-				// Skip <tag>
-				next();
+				int closeTagIndex = markup.getCloseTagIndex(currentIndex);
+				if (closeTagIndex > currentIndex)
+				{
+					// Jump to </tag>
+					setCurrentIndex(closeTagIndex);
+				}
+				else
+				{
+					// Skip <tag>
+					next();
 
-				// Skip nested components
-				skipToMatchingCloseTag(startTag);
+					// Skip nested components
+					skipToMatchingCloseTag(startTag);
+				}
 			}
 
 			// Skip </tag>
@@ -503,7 +512,7 @@ public class MarkupStream
 	public final String getTagAttribute(final String name, final boolean withWicketNamespace)
 	{
 		String attr = (withWicketNamespace ? attr = getWicketNamespace() + ":" + name : name);
-		return getTag().getAttributes().getString(attr);
+		return getTag().getAttribute(attr);
 	}
 
 	/**
@@ -0,0 +1,282 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.Page;
+import org.apache.wicket.Session;
+import org.apache.wicket.ThreadContext;
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.mock.MockWebRequest;
+import org.apache.wicket.protocol.http.BufferedWebResponse;
+import org.apache.wicket.request.Url;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.util.lang.Args;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads the markup of pages and panels into the {@link IMarkupCache markup cache} ahead of the
+ * first request, in parallel.
+ * <p>
+ * Markup is located, parsed and merged with inherited markup the first time a container is
+ * rendered, so the first requests after a deployment are considerably slower than the following
+ * ones. Warming up the cache while the application starts moves this work out of the request
+ * path:
+ * </p>
+ * 
+ * <pre>
+ * protected void init()
+ * {
+ * 	super.init();
+ * 
+ * 	new MarkupWarmUp(this).add(HomePage.class).add(AddressPanel.class).addLocale(Locale.GERMAN).warmUp();
+ * }
+ * </pre>
+ * <p>
+ * Since the markup of a container depends on its locale, style and variation, each container is
+ * instantiated in a temporary request cycle: pages with the application's {@link Application#getPageFactory()
+ * page factory}, other containers with a constructor taking the component id. Containers which
+ * cannot be instantiated this way - or should not be, because their constructors have side effects -
+ * must not be added. A container failing to load is logged and skipped, it does not fail the
+ * startup.
+ * </p>
+ * 
+ * @see MarkupFactory#getMarkup(MarkupContainer, boolean)
+ */
+public class MarkupWarmUp
+{
+	private static final Logger log = LoggerFactory.getLogger(MarkupWarmUp.class);
+
+	private final Application application;
+
+	private final Set<Class<? extends MarkupContainer>> containerClasses = new LinkedHashSet<>();
+
+	private final Set<Locale> locales = new LinkedHashSet<>();
+
+	private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+	/**
+	 * Construct.
+	 * 
+	 * @param application
+	 *            the application to load the markup for
+	 */
+	public MarkupWarmUp(final Application application)
+	{
+		this.application = Args.notNull(application, "application");
+	}
+
+	/**
+	 * Adds a page or another container to load the markup for.
+	 * 
+	 * @param containerClass
+	 *            a page class or a class of a container with a constructor taking the component id
+	 * @return {@code this}
+	 */
+	public MarkupWarmUp add(final Class<? extends MarkupContainer> containerClass)
+	{
+		containerClasses.add(Args.notNull(containerClass, "containerClass"));
+		return this;
+	}
+
+	/**
+	 * Adds a locale to load the markup for. Without any locale the markup is loaded for the
+	 * locale of a new session only.
+	 * 
+	 * @param locale
+	 *            the locale
+	 * @return {@code this}
+	 */
+	public MarkupWarmUp addLocale(final Locale locale)
+	{
+		locales.add(Args.notNull(locale, "locale"));
+		return this;
+	}
+
+	/**
+	 * Sets the pool loading the markup, by default the {@link ForkJoinPool#commonPool() common
+	 * pool}.
+	 * 
+	 * @param pool
+	 *            the pool
+	 * @return {@code this}
+	 */
+	public MarkupWarmUp setPool(final ForkJoinPool pool)
+	{
+		this.pool = Args.notNull(pool, "pool");
+		return this;
+	}
+
+	/**
+	 * Loads the markup of all added containers for all added locales, waiting until all are
+	 * loaded.
+	 * 
+	 * @return the number of loaded markups
+	 */
+	public int warmUp()
+	{
+		List<Locale> warmUpLocales = locales.isEmpty() ? Collections.singletonList(null)
+			: new ArrayList<>(locales);
+
+		List<Callable<Boolean>> tasks = new ArrayList<>();
+		for (Class<? extends MarkupContainer> containerClass : containerClasses)
+		{
+			for (Locale locale : warmUpLocales)
+			{
+				tasks.add(() -> load(containerClass, locale));
+			}
+		}
+
+		long start = System.nanoTime();
+		int loaded = 0;
+		for (Future<Boolean> future : pool.invokeAll(tasks))
+		{
+			try
+			{
+				if (future.get())
+				{
+					loaded++;
+				}
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				break;
+			}
+			catch (ExecutionException e)
+			{
+				log.warn("Markup warm up failed", e.getCause());
+			}
+		}
+
+		log.info("Loaded {} of {} markups in {} ms", loaded, tasks.size(),
+			(System.nanoTime() - start) / 1_000_000);
+		return loaded;
+	}
+
+	/**
+	 * Loads the markup of a container in a temporary request cycle of the application.
+	 * 
+	 * @param containerClass
+	 * @param locale
+	 *            the locale or {@code null} for the locale of a new session
+	 * @return whether the markup was loaded
+	 */
+	private boolean load(final Class<? extends MarkupContainer> containerClass,
+		final Locale locale)
+	{
+		ThreadContext oldContext = ThreadContext.detach();
+		RequestCycle cycle = null;
+		try
+		{
+			ThreadContext.setApplication(application);
+
+			MockWebRequest request = new MockWebRequest(Url.parse("/"));
+			if (locale != null)
+			{
+				request.setLocale(locale);
+			}
+			BufferedWebResponse response = new BufferedWebResponse(null);
+			cycle = application.createRequestCycle(request, response);
+			ThreadContext.setRequestCycle(cycle);
+
+			// a temporary session, never bound to the session store
+			Session session = application.newSession(request, response);
+			ThreadContext.setSession(session);
+
+			Markup markup = MarkupFactory.get().getMarkup(newContainer(containerClass), false);
+			if (markup == null)
+			{
+				log.warn("No markup found for {}", containerClass.getName());
+				return false;
+			}
+			return true;
+		}
+		catch (RuntimeException e)
+		{
+			log.warn("Could not load the markup of " + containerClass.getName(), e);
+			return false;
+		}
+		finally
+		{
+			try
+			{
+				if (cycle != null)
+				{
+					// let the detach listeners and the instantiated pages clean up
+					cycle.detach();
+				}
+			}
+			finally
+			{
+				ThreadContext.restore(oldContext);
+			}
+		}
+	}
+
+	/**
+	 * Creates an instance of the container class, adding it to a page unless it is a page itself.
+	 * 
+	 * @param containerClass
+	 * @return the container
+	 */
+	@SuppressWarnings("unchecked")
+	private MarkupContainer newContainer(final Class<? extends MarkupContainer> containerClass)
+	{
+		if (Page.class.isAssignableFrom(containerClass))
+		{
+			return application.getPageFactory().newPage((Class<? extends Page>)containerClass);
+		}
+
+		MarkupContainer container;
+		try
+		{
+			container = containerClass.getConstructor(String.class).newInstance("warmUp");
+		}
+		catch (ReflectiveOperationException e)
+		{
+			throw new WicketRuntimeException("Cannot instantiate " + containerClass.getName() +
+				" with a component id", e);
+		}
+
+		// the markup type of a container is the one of its page
+		new WarmUpPage().add(container);
+		return container;
+	}
+
+	/**
+	 * The page of a container which is not a page itself.
+	 */
+	private static class WarmUpPage extends WebPage
+	{
+		private static final long serialVersionUID = 1L;
+	}
+}
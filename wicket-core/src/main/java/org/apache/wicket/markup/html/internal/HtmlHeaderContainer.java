@@ -34,6 +34,7 @@ import org.apache.wicket.markup.head.internal.HeaderResponse;
 import org.apache.wicket.markup.html.TransparentWebMarkupContainer;
 import org.apache.wicket.markup.html.WebMarkupContainer;
 import org.apache.wicket.markup.renderStrategy.AbstractHeaderRenderStrategy;
+import org.apache.wicket.protocol.http.StreamingWebResponse;
 import org.apache.wicket.request.Response;
 import org.apache.wicket.response.StringResponse;
 
@@ -313,6 +314,23 @@ public class HtmlHeaderContainer extends TransparentWebMarkupContainer
 		return true;
 	}
 
+	/**
+	 * Sends the rendered &lt;head&gt; to the client right away if the page is streamed.
+	 * 
+	 * @see org.apache.wicket.settings.RequestCycleSettings#setStreamingRender(boolean)
+	 */
+	@Override
+	protected void onRender()
+	{
+		super.onRender();
+
+		Response response = getResponse();
+		if (response instanceof StreamingWebResponse)
+		{
+			((StreamingWebResponse)response).startStreaming();
+		}
+	}
+
 	@Override
 	protected void onAfterRender() {
 		super.onAfterRender();
@@ -23,6 +23,7 @@ import org.apache.wicket.markup.Markup;
 import org.apache.wicket.markup.MarkupFactory;
 import org.apache.wicket.markup.MarkupParser;
 import org.apache.wicket.markup.MarkupResourceStream;
+import org.apache.wicket.markup.MarkupSnapshot;
 import org.apache.wicket.util.resource.ResourceStreamNotFoundException;
 
 /**
@@ -41,13 +42,28 @@ public class SimpleMarkupLoader implements IMarkupLoader
 
 	/**
 	 * Uses {@link MarkupFactory#newMarkupParser(MarkupResourceStream)} and
-	 * {@link MarkupParser#parse()} to load the Markup.
+	 * {@link MarkupParser#parse()} to load the Markup, unless the
+	 * {@link MarkupFactory#getMarkupSnapshot() snapshot} holds the parsed markup already.
 	 */
 	@Override
 	public final Markup loadMarkup(final MarkupContainer container,
 		final MarkupResourceStream markupResourceStream, final IMarkupLoader baseLoader,
 		final boolean enforceReload) throws IOException, ResourceStreamNotFoundException
 	{
-		return MarkupFactory.get().newMarkupParser(markupResourceStream).parse();
+		MarkupFactory factory = MarkupFactory.get();
+		MarkupSnapshot snapshot = factory.getMarkupSnapshot();
+		if (snapshot == null)
+		{
+			return factory.newMarkupParser(markupResourceStream).parse();
+		}
+
+		long checksum = MarkupSnapshot.checksum(markupResourceStream);
+		Markup markup = snapshot.getMarkup(markupResourceStream, checksum);
+		if (markup == null)
+		{
+			markup = factory.newMarkupParser(markupResourceStream).parse();
+			snapshot.putMarkup(markup, checksum);
+		}
+		return markup;
 	}
 }
@@ -62,9 +62,15 @@ public final class XmlPullParser implements IXmlPullParser
 	/** temporary variable which will hold the name of the closing tag. */
 	private String skipUntilText;
 
-	/** The last substring selected from the input */
+	/** The last substring selected from the input, {@code null} if not copied yet */
 	private CharSequence lastText;
 
+	/** The start of the last text selected from the input */
+	private int lastTextStart;
+
+	/** The end of the last text selected from the input */
+	private int lastTextEnd;
+
 	/** Everything in between &lt;!DOCTYPE ... &gt; */
 	private CharSequence doctype;
 
@@ -135,7 +141,7 @@ public final class XmlPullParser implements IXmlPullParser
 		}
 
 		input.setPosition(pos);
-		lastText = input.getSubstring(startIndex, pos);
+		selectText(startIndex, pos);
 		lastType = HttpTagType.BODY;
 
 		// Check that the tag is properly closed
@@ -188,13 +194,13 @@ public final class XmlPullParser implements IXmlPullParser
 			if (openBracketIndex == -1)
 			{
 				// There is no next matching tag.
-				lastText = input.getSubstring(-1);
+				selectText(input.getPositionMarker(), input.size());
 				input.setPosition(input.size());
 				lastType = HttpTagType.BODY;
 				return lastType;
 			}
 
-			lastText = input.getSubstring(openBracketIndex);
+			selectText(Math.min(input.getPositionMarker(), openBracketIndex), openBracketIndex);
 			input.setPosition(openBracketIndex);
 			lastType = HttpTagType.BODY;
 			return lastType;
@@ -225,9 +231,10 @@ public final class XmlPullParser implements IXmlPullParser
 		// Get the complete tag text
 		lastText = input.getSubstring(openBracketIndex, closeBracketIndex + 1);
 
-		// Get the tagtext between open and close brackets
-		String tagText = lastText.subSequence(1, lastText.length() - 1).toString();
-		if (tagText.length() == 0)
+		// The tagtext between open and close brackets
+		int tagTextStart = openBracketIndex + 1;
+		int tagTextEnd = closeBracketIndex;
+		if (tagTextStart == tagTextEnd)
 		{
 			throw new ParseException("Found empty tag: '<>' at" + getLineAndColumnText(),
 				input.getPosition());
@@ -237,25 +244,33 @@ public final class XmlPullParser implements IXmlPullParser
 		final TagType type;
 
 		// If the tag ends in '/', it's a "simple" tag like <foo/>
-		if (tagText.endsWith("/"))
+		if (input.charAt(tagTextEnd - 1) == '/')
 		{
 			type = TagType.OPEN_CLOSE;
-			tagText = tagText.substring(0, tagText.length() - 1);
+			tagTextEnd--;
 		}
-		else if (tagText.startsWith("/"))
+		else if (input.charAt(tagTextStart) == '/')
 		{
 			// The tag text starts with a '/', it's a simple close tag
 			type = TagType.CLOSE;
-			tagText = tagText.substring(1);
+			tagTextStart++;
 		}
 		else
 		{
 			// It must be an open tag
 			type = TagType.OPEN;
+		}
 
+		// Copy the tagtext once its bounds are known
+		String tagText = input.getSubstring(tagTextStart, tagTextEnd).toString();
+
+		if (type == TagType.OPEN)
+		{
 			// If open tag and starts with "s" like "script" or "style", than ...
 			if ((tagText.length() > STYLE.length()) &&
-				((tagText.charAt(0) == 's') || (tagText.charAt(0) == 'S')))
+				((tagText.charAt(0) == 's') || (tagText.charAt(0) == 'S')) &&
+				(tagText.regionMatches(true, 0, SCRIPT, 0, SCRIPT.length()) ||
+					tagText.regionMatches(true, 0, STYLE, 0, STYLE.length())))
 			{
 				final String lowerCase = tagText.toLowerCase(Locale.ROOT);
 				if (lowerCase.startsWith(SCRIPT))
@@ -473,9 +488,27 @@ public final class XmlPullParser implements IXmlPullParser
 	@Override
 	public final CharSequence getString()
 	{
+		if (lastText == null)
+		{
+			lastText = input.getSubstring(lastTextStart, lastTextEnd);
+		}
 		return lastText;
 	}
 
+	/**
+	 * Selects a text of the input as the last text, which is copied only if requested by
+	 * {@link #getString()}.
+	 * 
+	 * @param fromPos
+	 * @param toPos
+	 */
+	private void selectText(final int fromPos, final int toPos)
+	{
+		lastText = null;
+		lastTextStart = fromPos;
+		lastTextEnd = toPos;
+	}
+
 	/**
 	 * @return The next XML tag
 	 * @throws ParseException
@@ -650,9 +683,10 @@ public final class XmlPullParser implements IXmlPullParser
 		final TagNameParser tagnameParser = new TagNameParser(tagText);
 		if (tagnameParser.matcher().lookingAt())
 		{
-			// Extract the tag from the pattern matcher
-			tag.name = tagnameParser.getName();
-			tag.namespace = tagnameParser.getNamespace();
+			// Extract the tag from the pattern matcher, names are shared by all tags
+			tag.name = tagnameParser.getName().intern();
+			String namespace = tagnameParser.getNamespace();
+			tag.namespace = namespace != null ? namespace.intern() : null;
 
 			// Are we at the end? Then there are no attributes, so we just
 			// return the tag
@@ -679,19 +713,33 @@ public final class XmlPullParser implements IXmlPullParser
 				pos = attributeParser.matcher().end(0);
 
 				// Chop off double quotes or single quotes
+				int valueStart = 0;
+				int valueEnd = value.length();
 				if (value.startsWith("\"") || value.startsWith("\'"))
 				{
-					value = value.substring(1, value.length() - 1);
+					valueStart++;
+					valueEnd--;
 				}
 
 				// Trim trailing whitespace
-				value = value.trim();
+				while ((valueStart < valueEnd) && (value.charAt(valueStart) <= ' '))
+				{
+					valueStart++;
+				}
+				while ((valueStart < valueEnd) && (value.charAt(valueEnd - 1) <= ' '))
+				{
+					valueEnd--;
+				}
+				value = value.substring(valueStart, valueEnd);
 
 				// Unescape
-				value = Strings.unescapeMarkup(value).toString();
+				if (value.indexOf('&') != -1)
+				{
+					value = Strings.unescapeMarkup(value).toString();
+				}
 
-				// Get key
-				final String key = attributeParser.getKey();
+				// Get key, names are shared by all tags
+				final String key = attributeParser.getKey().intern();
 
 				// Put the attribute in the attributes hash
 				if (null != tag.getAttributes().put(key, value))
@@ -62,6 +62,12 @@ public class XmlTag
 	/** Attribute map. */
 	private IValueMap attributes;
 
+	/**
+	 * True if the attribute map is the immutable one of the tag this tag is a copy of, and has to be
+	 * copied before it is modified.
+	 */
+	private boolean sharedAttributes;
+
 	/** Name of tag, such as "img" or "input". */
 	String name;
 
@@ -102,6 +108,26 @@ public class XmlTag
 		this.type = type;
 	}
 
+	/**
+	 * Construct a tag with the text it was parsed from, e.g. when restoring a tag from a
+	 * {@link org.apache.wicket.markup.MarkupSnapshot}.
+	 * 
+	 * @param text
+	 *            the full text of the tag
+	 * @param pos
+	 *            the position of the tag in the parsed input
+	 * @param line
+	 *            the line number
+	 * @param col
+	 *            the column number
+	 * @param type
+	 */
+	public XmlTag(final CharSequence text, final int pos, final int line, final int col,
+		final TagType type)
+	{
+		this(new TextSegment(text, pos, line, col), type);
+	}
+
 	/**
 	 * Gets whether this tag closes the provided open tag.
 	 * 
@@ -129,7 +155,7 @@ public class XmlTag
 		{
 			return false;
 		}
-		return getAttributes().equals(that.getAttributes());
+		return getReadOnlyAttributes().equals(that.getReadOnlyAttributes());
 	}
 
 	/**
@@ -139,7 +165,13 @@ public class XmlTag
 	 */
 	public IValueMap getAttributes()
 	{
-		if (attributes == null)
+		if (sharedAttributes)
+		{
+			// copy on write
+			attributes = new ValueMap(attributes);
+			sharedAttributes = false;
+		}
+		else if (attributes == null)
 		{
 			if ((copyOf == this) || (copyOf == null) || (copyOf.attributes == null))
 			{
@@ -153,6 +185,21 @@ public class XmlTag
 		return attributes;
 	}
 
+	/**
+	 * Gets this tag's attributes for reading only, without copying the attributes shared with the
+	 * immutable tag this tag is a copy of.
+	 * 
+	 * @return The tag's attributes, which must not be modified
+	 */
+	public IValueMap getReadOnlyAttributes()
+	{
+		if (attributes == null)
+		{
+			return getAttributes();
+		}
+		return attributes;
+	}
+
 	/**
 	 * @return true if there 1 or more attributes.
 	 */
@@ -240,7 +287,7 @@ public class XmlTag
 	 */
 	public CharSequence getAttribute(final String key)
 	{
-		return getAttributes().getCharSequence(key);
+		return getReadOnlyAttributes().getCharSequence(key);
 	}
 
 	/**
@@ -303,9 +350,19 @@ public class XmlTag
 		if (isMutable)
 		{
 			isMutable = false;
+			// shared attributes are immutable already, they must not be copied on write anymore
+			sharedAttributes = false;
 			if (attributes != null)
 			{
-				attributes.makeImmutable();
+				if (attributes.isEmpty())
+				{
+					// share the empty map among all tags without attributes
+					attributes = ValueMap.EMPTY_MAP;
+				}
+				else
+				{
+					attributes.makeImmutable();
+				}
 				text = null;
 			}
 		}
@@ -349,7 +406,16 @@ public class XmlTag
 		dest.copyOf = copyOf;
 		if (attributes != null)
 		{
-			dest.attributes = new ValueMap(attributes);
+			if (isMutable)
+			{
+				dest.attributes = new ValueMap(attributes);
+			}
+			else
+			{
+				// the immutable attributes are copied only if the copy modifies them
+				dest.attributes = attributes;
+				dest.sharedAttributes = true;
+			}
 		}
 	}
 
@@ -582,7 +648,7 @@ public class XmlTag
 
 		buffer.append(name);
 
-		final IValueMap attributes = getAttributes();
+		final IValueMap attributes = getReadOnlyAttributes();
 		if (attributes.size() > 0)
 		{
 			final Iterator<String> iterator = attributes.keySet().iterator();
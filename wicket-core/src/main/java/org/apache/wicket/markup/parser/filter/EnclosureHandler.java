@@ -53,7 +53,8 @@ public final class EnclosureHandler extends AbstractMarkupFilter implements ICom
 {
 	private static final long serialVersionUID = 1L;
 
-	private static final IAutoComponentFactory FACTORY = new IAutoComponentFactory()
+	/** The factory of the {@link Enclosure}s */
+	public static final IAutoComponentFactory FACTORY = new IAutoComponentFactory()
 	{
 		@Override
 		public Component newComponent(MarkupContainer container, ComponentTag tag)
@@ -78,7 +78,8 @@ public final class HtmlHeaderSectionHandler extends AbstractMarkupFilter
 	/** The Markup available so far for the resource */
 	private final Markup markup;
 
-	private static final IAutoComponentFactory HTML_HEADER_FACTORY = new IAutoComponentFactory()
+	/** The factory of the {@link HtmlHeaderContainer}s */
+	public static final IAutoComponentFactory HTML_HEADER_FACTORY = new IAutoComponentFactory()
 	{
 		@Override
 		public Component newComponent(MarkupContainer container, ComponentTag tag)
@@ -87,7 +88,8 @@ public final class HtmlHeaderSectionHandler extends AbstractMarkupFilter
 		}
 	};
 	
-	private static final IAutoComponentFactory HTML_HEADER_ITEMS_FACTORY = new IAutoComponentFactory()
+	/** The factory of the {@link HtmlHeaderItemsContainer}s */
+	public static final IAutoComponentFactory HTML_HEADER_ITEMS_FACTORY = new IAutoComponentFactory()
 	{
 		@Override
 		public Component newComponent(MarkupContainer container, ComponentTag tag)
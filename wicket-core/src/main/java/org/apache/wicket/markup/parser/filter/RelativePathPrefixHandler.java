@@ -99,7 +99,8 @@ public final class RelativePathPrefixHandler extends AbstractMarkupFilter
 		}
 	};
 	
-	private static final IAutoComponentFactory FACTORY = new IAutoComponentFactory()
+	/** The factory of the transparent containers of tags with relative paths */
+	public static final IAutoComponentFactory FACTORY = new IAutoComponentFactory()
 	{
 		@Override
 		public Component newComponent(MarkupContainer container, ComponentTag tag)
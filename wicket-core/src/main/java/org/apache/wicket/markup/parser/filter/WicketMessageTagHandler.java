@@ -117,6 +117,14 @@ public final class WicketMessageTagHandler extends AbstractMarkupFilter
 		{
 			this.wicketMessageAttrName = wicketMessageAttrName;
 		}
+
+		/**
+		 * @return the name of the attribute with the keys to localize
+		 */
+		public String getWicketMessageAttrName()
+		{
+			return wicketMessageAttrName;
+		}
 		
 		@Override
 		public void onComponentTag(final Component component, final ComponentTag tag)
@@ -16,28 +16,21 @@
  */
 package org.apache.wicket.pageStore;
 
-import java.util.Iterator;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
-
-import org.apache.wicket.util.lang.Args;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Facade for {@link IDataStore} that does the actual saving in worker thread.
+ * Facade for {@link IDataStore} that does the actual saving in worker threads.
  * <p>
- * Creates an {@link Entry} for each triple (sessionId, pageId, data) and puts it in
- * {@link #entries} queue if there is room. Acts as producer.<br/>
- * Later {@link PageSavingRunnable} reads in blocking manner from {@link #entries} and saves each
- * entry. Acts as consumer.
+ * Puts each triple (sessionId, pageId, data) in a queue if there is room. Acts as producer.<br/>
+ * Later a pool of page saving threads reads in blocking manner from the queue and saves each
+ * entry. Acts as consumers.
  * </p>
- * It starts only one instance of {@link PageSavingRunnable} because all we need is to make the page
- * storing asynchronous. We don't want to write concurrently in the wrapped {@link IDataStore},
- * though it may happen in the extreme case when the queue is full. These cases should be avoided.
+ * The pages are partitioned by session id among the page saving threads, so the pages of a session
+ * are never written concurrently and in the order they were stored. Data stored again for a page
+ * still waiting in the queue replaces the waiting data, so only the latest data is written. We
+ * don't want to write concurrently in the wrapped {@link IDataStore} for the same session, though
+ * it may happen in the extreme case when the queue is full. These cases should be avoided.
  *
  * @author Matej Knopp
  */
@@ -46,36 +39,28 @@ public class AsynchronousDataStore implements IDataStore
 	/** Log for reporting. */
 	private static final Logger log = LoggerFactory.getLogger(AsynchronousDataStore.class);
 
-	/**
-	 * The time to wait when adding an {@link Entry} into the entries. In millis.
-	 */
-	private static final long OFFER_WAIT = 30L;
-
-	/**
-	 * The time to wait for an entry to save with the wrapped {@link IDataStore}. In millis.
-	 */
-	private static final long POLL_WAIT = 1000L;
-
-	/**
-	 * The page saving thread.
-	 */
-	private Thread pageSavingThread;
-
 	/**
 	 * The wrapped {@link IDataStore} that actually stores that pages
 	 */
 	private final IDataStore dataStore;
 
 	/**
-	 * The queue where the entries which have to be saved are temporary stored
+	 * The queue where the data which has to be saved is temporary stored
 	 */
-	private final BlockingQueue<Entry> entries;
+	private final PageSavingQueue<byte[]> queue;
 
 	/**
-	 * A map 'sessionId:::pageId' -> {@link Entry}. Used for fast retrieval of {@link Entry}s which
-	 * are not yet stored by the wrapped {@link IDataStore}
+	 * Construct.
+	 *
+	 * @param dataStore
+	 *            the wrapped {@link IDataStore} that actually saved the data
+	 * @param capacity
+	 *            the capacity of the queue that delays the saving
 	 */
-	private final ConcurrentMap<String, Entry> entryMap;
+	public AsynchronousDataStore(final IDataStore dataStore, final int capacity)
+	{
+		this(dataStore, capacity, 1);
+	}
 
 	/**
 	 * Construct.
@@ -84,61 +69,36 @@ public class AsynchronousDataStore implements IDataStore
 	 *            the wrapped {@link IDataStore} that actually saved the data
 	 * @param capacity
 	 *            the capacity of the queue that delays the saving
+	 * @param threads
+	 *            the number of page saving threads
 	 */
-	public AsynchronousDataStore(final IDataStore dataStore, final int capacity)
+	public AsynchronousDataStore(final IDataStore dataStore, final int capacity, final int threads)
 	{
 		this.dataStore = dataStore;
-		entries = new LinkedBlockingQueue<>(capacity);
-		entryMap = new ConcurrentHashMap<>();
-
-		pageSavingThread = new Thread(new PageSavingRunnable(), "Wicket-AsyncDataStore-PageSavingThread");
-		pageSavingThread.setDaemon(true);
-		pageSavingThread.start();
+		queue = new PageSavingQueue<>("Wicket-AsyncDataStore-PageSavingThread", capacity, threads,
+			dataStore::storeData);
 	}
 
 	@Override
 	public void destroy()
 	{
-		final Thread thread = pageSavingThread;
-		pageSavingThread = null;
-		if (thread != null && thread.isAlive())
-		{
-			try
-			{
-				thread.join();
-			} catch (InterruptedException e)
-			{
-				log.error(e.getMessage(), e);
-			}
-		}
+		queue.destroy();
 
 		dataStore.destroy();
 	}
 
-	/**
-	 * Little helper
-	 *
-	 * @param sessionId
-	 * @param id
-	 * @return Entry
-	 */
-	private Entry getEntry(final String sessionId, final int id)
-	{
-		return entryMap.get(getKey(sessionId, id));
-	}
-
 	@Override
 	public byte[] getData(final String sessionId, final int id)
 	{
-		Entry entry = getEntry(sessionId, id);
-		if (entry != null)
+		byte[] data = queue.get(sessionId, id);
+		if (data != null)
 		{
 			log.debug(
 				"Returning the data of a non-stored entry with sessionId '{}' and pageId '{}'",
 				sessionId, id);
-			return entry.data;
+			return data;
 		}
-		byte[] data = dataStore.getData(sessionId, id);
+		data = dataStore.getData(sessionId, id);
 
 		log.debug("Returning the data of a stored entry with sessionId '{}' and pageId '{}'",
 			sessionId, id);
@@ -155,15 +115,7 @@ public class AsynchronousDataStore implements IDataStore
 	@Override
 	public void removeData(final String sessionId, final int id)
 	{
-		String key = getKey(sessionId, id);
-		if (key != null)
-		{
-			Entry entry = entryMap.remove(key);
-			if (entry != null)
-			{
-				entries.remove(entry);
-			}
-		}
+		queue.remove(sessionId, id);
 
 		dataStore.removeData(sessionId, id);
 	}
@@ -171,26 +123,13 @@ public class AsynchronousDataStore implements IDataStore
 	@Override
 	public void removeData(final String sessionId)
 	{
-		for (Iterator<Entry> itor = entries.iterator(); itor.hasNext();)
-		{
-			Entry entry = itor.next();
-			if (entry != null) // this check is not needed in JDK6
-			{
-				String entrySessionId = entry.sessionId;
-
-				if (sessionId.equals(entrySessionId))
-				{
-					entryMap.remove(getKey(entry));
-					itor.remove();
-				}
-			}
-		}
+		queue.remove(sessionId);
 
 		dataStore.removeData(sessionId);
 	}
 
 	/**
-	 * Save the entry in the queue if there is a room or directly pass it to the wrapped
+	 * Save the data in the queue if there is a room or directly pass it to the wrapped
 	 * {@link IDataStore} if there is no such
 	 *
 	 * @see org.apache.wicket.pageStore.IDataStore#storeData(java.lang.String, int, byte[])
@@ -198,141 +137,15 @@ public class AsynchronousDataStore implements IDataStore
 	@Override
 	public void storeData(final String sessionId, final int id, final byte[] data)
 	{
-		if (pageSavingThread == null)
-		{
-			return;
-		}
-		Entry entry = new Entry(sessionId, id, data);
-		String key = getKey(entry);
-		entryMap.put(key, entry);
-
-		try
-		{
-			boolean added = entries.offer(entry, OFFER_WAIT, TimeUnit.MILLISECONDS);
-
-			if (added == false)
-			{
-				log.debug("Storing synchronously data with id '{}' in session '{}'", id, sessionId);
-				entryMap.remove(key);
-				dataStore.storeData(sessionId, id, data);
-			}
-		}
-		catch (InterruptedException e)
-		{
-			log.error(e.getMessage(), e);
-			if (pageSavingThread != null)
-			{
-				entryMap.remove(key);
-				dataStore.storeData(sessionId, id, data);
-			}
-		}
+		queue.store(sessionId, id, data);
 	}
 
 	/**
-	 *
-	 * @param pageId
-	 * @param sessionId
-	 * @return generated key
+	 * @return the metrics of the queue
 	 */
-	private static String getKey(final String sessionId, final int pageId)
+	public AsynchronousStoreMetrics getMetrics()
 	{
-		return pageId + ":::" + sessionId;
-	}
-
-	/**
-	 *
-	 * @param entry
-	 * @return generated key
-	 */
-	private static String getKey(final Entry entry)
-	{
-		return getKey(entry.sessionId, entry.pageId);
-	}
-
-	/**
-	 * The structure used for an entry in the queue
-	 */
-	private static class Entry
-	{
-		private final String sessionId;
-		private final int pageId;
-		private final byte data[];
-
-		public Entry(final String sessionId, final int pageId, final byte data[])
-		{
-			this.sessionId = Args.notNull(sessionId, "sessionId");
-			this.pageId = pageId;
-			this.data = Args.notNull(data, "data");
-		}
-
-		@Override
-		public int hashCode()
-		{
-			final int prime = 31;
-			int result = 1;
-			result = prime * result + pageId;
-			result = prime * result + ((sessionId == null) ? 0 : sessionId.hashCode());
-			return result;
-		}
-
-		@Override
-		public boolean equals(Object obj)
-		{
-			if (this == obj)
-				return true;
-			if (obj == null)
-				return false;
-			if (getClass() != obj.getClass())
-				return false;
-			Entry other = (Entry)obj;
-			if (pageId != other.pageId)
-				return false;
-			if (sessionId == null)
-			{
-				if (other.sessionId != null)
-					return false;
-			}
-			else if (!sessionId.equals(other.sessionId))
-				return false;
-			return true;
-		}
-
-		@Override
-		public String toString()
-		{
-			return "Entry [sessionId=" + sessionId + ", pageId=" + pageId + "]";
-		}
-
-	}
-
-	/**
-	 * The thread that acts as consumer of {@link Entry}ies
-	 */
-	private class PageSavingRunnable implements Runnable
-	{
-		@Override
-		public void run()
-		{
-			while (pageSavingThread != null)
-			{
-				Entry entry = null;
-				try
-				{
-					entry = entries.poll(POLL_WAIT, TimeUnit.MILLISECONDS);
-				}
-				catch (InterruptedException e)
-				{
-					log.debug("PageSavingRunnable:: Interrupted...");
-				}
-
-				if (entry != null && pageSavingThread != null)
-				{
-					log.debug("PageSavingRunnable:: Saving asynchronously: {}...", entry);
-					dataStore.storeData(entry.sessionId, entry.pageId, entry.data);
-					entryMap.remove(getKey(entry));
-				}
-			}
-		}
+		return queue.getMetrics();
 	}
 
 	@Override
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Metrics of {@link AsynchronousDataStore} and {@link AsynchronousPageStore}.
+ *
+ * @see AsynchronousDataStore#getMetrics()
+ * @see AsynchronousPageStore#getMetrics()
+ */
+public class AsynchronousStoreMetrics
+{
+	private final IntSupplier queueSize;
+
+	private final LongAdder queued = new LongAdder();
+
+	private final LongAdder coalesced = new LongAdder();
+
+	private final LongAdder synchronous = new LongAdder();
+
+	private final LongAdder dropped = new LongAdder();
+
+	private final LongAdder saved = new LongAdder();
+
+	private final LongAdder saveNanos = new LongAdder();
+
+	private final LongAccumulator maxSaveNanos = new LongAccumulator(Math::max, 0L);
+
+	AsynchronousStoreMetrics(final IntSupplier queueSize)
+	{
+		this.queueSize = queueSize;
+	}
+
+	void queued()
+	{
+		queued.increment();
+	}
+
+	void coalesced()
+	{
+		coalesced.increment();
+	}
+
+	void synchronous()
+	{
+		synchronous.increment();
+	}
+
+	void dropped()
+	{
+		dropped.increment();
+	}
+
+	void saved(final long nanos)
+	{
+		saved.increment();
+		saveNanos.add(nanos);
+		maxSaveNanos.accumulate(nanos);
+	}
+
+	/**
+	 * @return the number of pages currently waiting to be saved
+	 */
+	public int getQueueSize()
+	{
+		return queueSize.getAsInt();
+	}
+
+	/**
+	 * @return the number of pages queued for saving asynchronously
+	 */
+	public long getQueuedCount()
+	{
+		return queued.sum();
+	}
+
+	/**
+	 * @return the number of pages which replaced a previous version still waiting in the queue
+	 */
+	public long getCoalescedCount()
+	{
+		return coalesced.sum();
+	}
+
+	/**
+	 * @return the number of pages saved synchronously because the queue was full
+	 */
+	public long getSynchronousCount()
+	{
+		return synchronous.sum();
+	}
+
+	/**
+	 * @return the number of pages dropped because the store was already destroyed
+	 */
+	public long getDroppedCount()
+	{
+		return dropped.sum();
+	}
+
+	/**
+	 * @return the number of pages saved by the wrapped store, asynchronously or synchronously
+	 */
+	public long getSavedCount()
+	{
+		return saved.sum();
+	}
+
+	/**
+	 * @return the average time it took the wrapped store to save a page
+	 */
+	public Duration getAverageSaveTime()
+	{
+		long count = saved.sum();
+		return Duration.ofNanos(count > 0 ? saveNanos.sum() / count : 0L);
+	}
+
+	/**
+	 * @return the maximum time it took the wrapped store to save a page
+	 */
+	public Duration getMaxSaveTime()
+	{
+		return Duration.ofNanos(maxSaveNanos.get());
+	}
+
+	@Override
+	public String toString()
+	{
+		return "AsynchronousStoreMetrics [queueSize=" + getQueueSize() + ", queued=" +
+			getQueuedCount() + ", coalesced=" + getCoalescedCount() + ", synchronous=" +
+			getSynchronousCount() + ", dropped=" + getDroppedCount() + ", saved=" +
+			getSavedCount() + ", averageSaveTime=" + getAverageSaveTime() + ", maxSaveTime=" +
+			getMaxSaveTime() + "]";
+	}
+}
@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * A byte level delta of two versions of a serialized page, used by {@link DeltaDataStore}.
+ * <p>
+ * The blocks of the base are indexed by a hash, then a rolling hash of the new version finds the
+ * blocks it shares with the base. The delta consists of instructions copying ranges of the base
+ * and of literal bytes for the rest, so a small change in a page results in a small delta even if
+ * it shifts all following bytes.
+ * </p>
+ */
+final class BinaryDelta
+{
+	/**
+	 * The size of the indexed blocks, the shortest range copied from the base.
+	 */
+	private static final int BLOCK_SIZE = 16;
+
+	/**
+	 * The multiplier of the rolling hash.
+	 */
+	private static final int MULTIPLIER = 0x01000193;
+
+	/**
+	 * {@code MULTIPLIER ^ (BLOCK_SIZE - 1)}, removes the leaving byte from the rolling hash.
+	 */
+	private static final int OUT_MULTIPLIER;
+
+	static
+	{
+		int multiplier = 1;
+		for (int i = 1; i < BLOCK_SIZE; i++)
+		{
+			multiplier *= MULTIPLIER;
+		}
+		OUT_MULTIPLIER = multiplier;
+	}
+
+	private static final int LITERAL = 0;
+
+	private static final int COPY = 1;
+
+	private BinaryDelta()
+	{
+	}
+
+	/**
+	 * Writes the delta from the base to the target.
+	 *
+	 * @param base
+	 *            the previous version
+	 * @param target
+	 *            the new version
+	 * @param out
+	 *            the stream the delta is written to
+	 */
+	static void diff(final byte[] base, final byte[] target, final ByteArrayOutputStream out)
+	{
+		writeVarint(out, target.length);
+
+		int literalStart = 0;
+		if (base.length >= BLOCK_SIZE && target.length >= BLOCK_SIZE)
+		{
+			final int[] table = index(base);
+			final int mask = table.length - 1;
+
+			int position = 0;
+			int hash = hash(target, 0);
+			while (position + BLOCK_SIZE <= target.length)
+			{
+				int match = table[mix(hash) & mask] - 1;
+				if (match >= 0 && regionMatches(base, match, target, position, BLOCK_SIZE))
+				{
+					// extend the match backwards into the pending literal and forwards
+					int start = position;
+					while (start > literalStart && match > 0 && base[match - 1] == target[start - 1])
+					{
+						start--;
+						match--;
+					}
+					int end = position + BLOCK_SIZE;
+					int baseEnd = match + (end - start);
+					while (end < target.length && baseEnd < base.length &&
+						target[end] == base[baseEnd])
+					{
+						end++;
+						baseEnd++;
+					}
+
+					writeLiteral(out, target, literalStart, start - literalStart);
+					writeVarint(out, ((end - start) << 1) | COPY);
+					writeVarint(out, match);
+
+					position = end;
+					literalStart = end;
+					if (position + BLOCK_SIZE <= target.length)
+					{
+						hash = hash(target, position);
+					}
+				}
+				else
+				{
+					if (position + BLOCK_SIZE < target.length)
+					{
+						hash = (hash - (target[position] & 0xFF) * OUT_MULTIPLIER) * MULTIPLIER +
+							(target[position + BLOCK_SIZE] & 0xFF);
+					}
+					position++;
+				}
+			}
+		}
+		writeLiteral(out, target, literalStart, target.length - literalStart);
+	}
+
+	/**
+	 * Applies a delta to the base.
+	 *
+	 * @param base
+	 *            the previous version
+	 * @param delta
+	 *            the delta created by {@link #diff(byte[], byte[], ByteArrayOutputStream)}
+	 * @param offset
+	 *            the offset of the delta in the array
+	 * @return the new version
+	 * @throws IllegalArgumentException
+	 *             if the delta is corrupt or doesn't belong to the base
+	 */
+	static byte[] patch(final byte[] base, final byte[] delta, final int offset)
+	{
+		try
+		{
+			final int[] position = { offset };
+			final byte[] target = new byte[readVarint(delta, position)];
+			int targetPosition = 0;
+			while (position[0] < delta.length)
+			{
+				int instruction = readVarint(delta, position);
+				int length = instruction >>> 1;
+				if ((instruction & 1) == LITERAL)
+				{
+					System.arraycopy(delta, position[0], target, targetPosition, length);
+					position[0] += length;
+				}
+				else
+				{
+					System.arraycopy(base, readVarint(delta, position), target, targetPosition,
+						length);
+				}
+				targetPosition += length;
+			}
+
+			if (targetPosition != target.length)
+			{
+				throw new IllegalArgumentException("Delta is truncated");
+			}
+			return target;
+		}
+		catch (IndexOutOfBoundsException | NegativeArraySizeException e)
+		{
+			throw new IllegalArgumentException("Corrupt delta", e);
+		}
+	}
+
+	/**
+	 * Indexes the non overlapping blocks of the base by their hash.
+	 *
+	 * @param base
+	 * @return a table of the block offsets plus one, indexed by the mixed hash of the block
+	 */
+	private static int[] index(final byte[] base)
+	{
+		int blocks = base.length / BLOCK_SIZE;
+		int[] table = new int[Integer.highestOneBit(blocks) << 2];
+		int mask = table.length - 1;
+		for (int offset = 0; offset + BLOCK_SIZE <= base.length; offset += BLOCK_SIZE)
+		{
+			int slot = mix(hash(base, offset)) & mask;
+			if (table[slot] == 0)
+			{
+				table[slot] = offset + 1;
+			}
+		}
+		return table;
+	}
+
+	private static int hash(final byte[] data, final int offset)
+	{
+		int hash = 0;
+		for (int i = offset; i < offset + BLOCK_SIZE; i++)
+		{
+			hash = hash * MULTIPLIER + (data[i] & 0xFF);
+		}
+		return hash;
+	}
+
+	private static int mix(final int hash)
+	{
+		int h = hash * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private static boolean regionMatches(final byte[] a, final int aOffset, final byte[] b,
+		final int bOffset, final int length)
+	{
+		for (int i = 0; i < length; i++)
+		{
+			if (a[aOffset + i] != b[bOffset + i])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void writeLiteral(final ByteArrayOutputStream out, final byte[] data,
+		final int offset, final int length)
+	{
+		if (length > 0)
+		{
+			writeVarint(out, (length << 1) | LITERAL);
+			out.write(data, offset, length);
+		}
+	}
+
+	private static void writeVarint(final ByteArrayOutputStream out, int value)
+	{
+		while ((value & ~0x7F) != 0)
+		{
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	private static int readVarint(final byte[] data, final int[] position)
+	{
+		int value = 0;
+		int shift = 0;
+		int b;
+		do
+		{
+			b = data[position[0]++];
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		}
+		while ((b & 0x80) != 0);
+		return value;
+	}
+}
@@ -0,0 +1,455 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Facade for {@link IDataStore} that writes subsequent versions of a page as deltas.
+ * <p>
+ * The first data of a page is written as a full base. Data stored again for the same page id, e.g.
+ * after an Ajax request changed a label, is written as a binary delta against that base under a
+ * separate id of the wrapped store. The page is reconstructed from the base and the delta when it
+ * is read. The base is rewritten (rebased) when the delta grows beyond half of the data or after a
+ * number of versions, so deltas stay small. The base is rewritten as well once the session wrote
+ * more than a horizon of bytes after it, so it is not evicted by the wrapped store while its deltas
+ * are still in use.
+ * </p>
+ * <p>
+ * The length and checksum of each base written are kept in memory, so storing a delta reads only
+ * the base. A page without known base, e.g. after a restart, is written as a new base.
+ * </p>
+ * <p>
+ * A delta is stored under the negative id {@code -pageId - 2} of the wrapped store (the id
+ * {@code -1} is reserved by {@link PageWindowManager}) and carries the length and checksum of its
+ * base, so a delta outliving its base is ignored.
+ * </p>
+ * To store pages as deltas in {@link DiskDataStore}, put the following code in your application's
+ * init:
+ *
+ * <pre>
+ * getStoreSettings().setDeltaVersions(true);
+ * </pre>
+ *
+ * @see #getWrittenBytes()
+ */
+public class DeltaDataStore implements IDataStore
+{
+	private static final Logger log = LoggerFactory.getLogger(DeltaDataStore.class);
+
+	/**
+	 * The default number of deltas written before the base is rewritten.
+	 */
+	public static final int DEFAULT_REBASE_INTERVAL = 50;
+
+	/**
+	 * The default number of bytes written for a session before a base is rewritten, half of the
+	 * default {@link org.apache.wicket.settings.StoreSettings#getMaxSizePerSession()}.
+	 */
+	public static final Bytes DEFAULT_REBASE_HORIZON = Bytes.megabytes(5);
+
+	/**
+	 * The length of the base, its checksum and the number of deltas since the base was written.
+	 */
+	private static final int HEADER_SIZE = 12;
+
+	/**
+	 * The number of locks striping the pages.
+	 */
+	private static final int LOCK_COUNT = 64;
+
+	private final IDataStore dataStore;
+
+	private final int rebaseInterval;
+
+	private final long rebaseHorizon;
+
+	/**
+	 * The bases written by this store, per session.
+	 */
+	private final ConcurrentMap<String, SessionBases> sessions = new ConcurrentHashMap<>();
+
+	/**
+	 * Serializes the writing and reading of base and delta of a page.
+	 */
+	private final Object[] locks = new Object[LOCK_COUNT];
+
+	private final LongAdder storedBytes = new LongAdder();
+
+	private final LongAdder writtenBytes = new LongAdder();
+
+	private final LongAdder baseCount = new LongAdder();
+
+	private final LongAdder deltaCount = new LongAdder();
+
+	/**
+	 * Construct.
+	 *
+	 * @param dataStore
+	 *            the wrapped {@link IDataStore} that actually stores the bases and deltas
+	 */
+	public DeltaDataStore(final IDataStore dataStore)
+	{
+		this(dataStore, DEFAULT_REBASE_INTERVAL);
+	}
+
+	/**
+	 * Construct.
+	 *
+	 * @param dataStore
+	 *            the wrapped {@link IDataStore} that actually stores the bases and deltas
+	 * @param rebaseInterval
+	 *            the number of deltas written before the base is rewritten
+	 */
+	public DeltaDataStore(final IDataStore dataStore, final int rebaseInterval)
+	{
+		this(dataStore, rebaseInterval, DEFAULT_REBASE_HORIZON);
+	}
+
+	/**
+	 * Construct.
+	 *
+	 * @param dataStore
+	 *            the wrapped {@link IDataStore} that actually stores the bases and deltas
+	 * @param rebaseInterval
+	 *            the number of deltas written before the base is rewritten
+	 * @param rebaseHorizon
+	 *            the number of bytes written for a session before a base is rewritten, should be
+	 *            below the size the wrapped store keeps per session
+	 */
+	public DeltaDataStore(final IDataStore dataStore, final int rebaseInterval,
+		final Bytes rebaseHorizon)
+	{
+		this.dataStore = Args.notNull(dataStore, "dataStore");
+		this.rebaseInterval = Args.withinRange(1, Integer.MAX_VALUE, rebaseInterval,
+			"rebaseInterval");
+		this.rebaseHorizon = Args.notNull(rebaseHorizon, "rebaseHorizon").bytes();
+		for (int i = 0; i < LOCK_COUNT; i++)
+		{
+			locks[i] = new Object();
+		}
+	}
+
+	@Override
+	public byte[] getData(final String sessionId, final int id)
+	{
+		if (id < 0)
+		{
+			return dataStore.getData(sessionId, id);
+		}
+
+		byte[] base;
+		byte[] delta;
+		Base known;
+		synchronized (getLock(sessionId, id))
+		{
+			base = dataStore.getData(sessionId, id);
+			if (base == null)
+			{
+				return null;
+			}
+			delta = dataStore.getData(sessionId, deltaId(id));
+			SessionBases session = sessions.get(sessionId);
+			known = session != null ? session.bases.get(id) : null;
+		}
+
+		if (delta == null)
+		{
+			return base;
+		}
+		if (known != null ? known.matches(delta) == false : belongsTo(delta, base) == false)
+		{
+			return base;
+		}
+
+		try
+		{
+			return BinaryDelta.patch(base, delta, HEADER_SIZE);
+		}
+		catch (IllegalArgumentException e)
+		{
+			log.warn("Cannot apply the delta of page with id '{}' in session '{}': {}", id,
+				sessionId, e.getMessage());
+			return null;
+		}
+	}
+
+	@Override
+	public void removeData(final String sessionId, final int id)
+	{
+		if (id >= 0)
+		{
+			synchronized (getLock(sessionId, id))
+			{
+				SessionBases session = sessions.get(sessionId);
+				if (session != null)
+				{
+					session.bases.remove(id);
+				}
+				dataStore.removeData(sessionId, deltaId(id));
+				dataStore.removeData(sessionId, id);
+			}
+		}
+		else
+		{
+			dataStore.removeData(sessionId, id);
+		}
+	}
+
+	@Override
+	public void removeData(final String sessionId)
+	{
+		sessions.remove(sessionId);
+		dataStore.removeData(sessionId);
+	}
+
+	@Override
+	public void storeData(final String sessionId, final int id, final byte[] data)
+	{
+		storedBytes.add(data.length);
+		SessionBases session = sessions.computeIfAbsent(sessionId, key -> new SessionBases());
+		if (id < 0)
+		{
+			write(session, sessionId, id, data);
+			return;
+		}
+
+		synchronized (getLock(sessionId, id))
+		{
+			Base known = session.bases.get(id);
+
+			byte[] delta = null;
+			if (known != null && known.sequence < rebaseInterval &&
+				session.writtenBytes.get() - known.writtenAt <= rebaseHorizon)
+			{
+				byte[] base = dataStore.getData(sessionId, id);
+				if (base != null && base.length == known.length)
+				{
+					delta = createDelta(base, known, known.sequence + 1, data);
+					if (delta.length > data.length / 2)
+					{
+						delta = null;
+					}
+				}
+			}
+
+			if (delta != null)
+			{
+				write(session, sessionId, deltaId(id), delta);
+				known.sequence++;
+				deltaCount.increment();
+				log.debug("Stored page with id '{}' in session '{}' as delta: {} of {} bytes", id,
+					sessionId, delta.length, data.length);
+			}
+			else
+			{
+				// write the base before removing the delta, a stale delta is ignored anyway
+				write(session, sessionId, id, data);
+				session.bases.put(id,
+					new Base(data.length, checksum(data), session.writtenBytes.get()));
+				baseCount.increment();
+				if (known == null || known.sequence > 0)
+				{
+					dataStore.removeData(sessionId, deltaId(id));
+				}
+				log.debug("Stored page with id '{}' in session '{}' as base: {} bytes", id,
+					sessionId, data.length);
+			}
+		}
+	}
+
+	private void write(final SessionBases session, final String sessionId, final int id,
+		final byte[] data)
+	{
+		dataStore.storeData(sessionId, id, data);
+		session.writtenBytes.addAndGet(data.length);
+		writtenBytes.add(data.length);
+	}
+
+	private static byte[] createDelta(final byte[] base, final Base known, final int sequence,
+		final byte[] data)
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+		byte[] header = ByteBuffer.allocate(HEADER_SIZE)
+			.putInt(known.length)
+			.putInt(known.checksum)
+			.putInt(sequence)
+			.array();
+		out.write(header, 0, HEADER_SIZE);
+		BinaryDelta.diff(base, data, out);
+		return out.toByteArray();
+	}
+
+	/**
+	 * @param delta
+	 * @param base
+	 * @return whether the delta was created for the base
+	 */
+	private static boolean belongsTo(final byte[] delta, final byte[] base)
+	{
+		if (delta.length < HEADER_SIZE)
+		{
+			return false;
+		}
+		ByteBuffer header = ByteBuffer.wrap(delta);
+		return header.getInt(0) == base.length && header.getInt(4) == checksum(base);
+	}
+
+	private static int checksum(final byte[] data)
+	{
+		CRC32 crc = new CRC32();
+		crc.update(data, 0, data.length);
+		return (int)crc.getValue();
+	}
+
+	/**
+	 * @param id
+	 *            the id of a page
+	 * @return the id the delta of the page is stored under in the wrapped store
+	 */
+	private static int deltaId(final int id)
+	{
+		return -id - 2;
+	}
+
+	private Object getLock(final String sessionId, final int id)
+	{
+		return locks[((31 * id + sessionId.hashCode()) & Integer.MAX_VALUE) % LOCK_COUNT];
+	}
+
+	/**
+	 * @return the number of bytes stored in this store
+	 */
+	public long getStoredBytes()
+	{
+		return storedBytes.sum();
+	}
+
+	/**
+	 * @return the number of bytes written to the wrapped store, bases and deltas
+	 */
+	public long getWrittenBytes()
+	{
+		return writtenBytes.sum();
+	}
+
+	/**
+	 * @return the number of pages written as full base
+	 */
+	public long getBaseCount()
+	{
+		return baseCount.sum();
+	}
+
+	/**
+	 * @return the number of pages written as delta
+	 */
+	public long getDeltaCount()
+	{
+		return deltaCount.sum();
+	}
+
+	@Override
+	public void destroy()
+	{
+		dataStore.destroy();
+	}
+
+	@Override
+	public boolean isReplicated()
+	{
+		return dataStore.isReplicated();
+	}
+
+	@Override
+	public boolean canBeAsynchronous()
+	{
+		return dataStore.canBeAsynchronous();
+	}
+
+	/**
+	 * The bases written for a session.
+	 */
+	private static class SessionBases
+	{
+		/**
+		 * The bytes written to the wrapped store for the session.
+		 */
+		private final AtomicLong writtenBytes = new AtomicLong();
+
+		private final ConcurrentMap<Integer, Base> bases = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * A base written for a page.
+	 */
+	private static class Base
+	{
+		private final int length;
+
+		private final int checksum;
+
+		/**
+		 * The bytes written for the session when the base was written.
+		 */
+		private final long writtenAt;
+
+		/**
+		 * The number of deltas written for the base, guarded by the lock of the page.
+		 */
+		private int sequence;
+
+		private Base(final int length, final int checksum, final long writtenAt)
+		{
+			this.length = length;
+			this.checksum = checksum;
+			this.writtenAt = writtenAt;
+		}
+
+		/**
+		 * @param delta
+		 * @return whether the delta was created for this base
+		 */
+		private boolean matches(final byte[] delta)
+		{
+			if (delta.length < HEADER_SIZE)
+			{
+				return false;
+			}
+			ByteBuffer header = ByteBuffer.wrap(delta);
+			return header.getInt(0) == length && header.getInt(4) == checksum;
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return "DeltaDataStore [stored=" + getStoredBytes() + ", written=" + getWrittenBytes() +
+			", bases=" + getBaseCount() + ", deltas=" + getDeltaCount() + "]";
+	}
+}
@@ -34,6 +34,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.pageStore.PageWindowManager.PageWindow;
@@ -164,11 +166,8 @@ public class DiskDataStore implements IDataStore
 		if (sessionEntry != null)
 		{
 			log.debug("Removing data for pages in session with id '{}'", sessionId);
-			synchronized (sessionEntry)
-			{
-				sessionEntryMap.remove(sessionEntry.sessionId);
-				sessionEntry.unbind();
-			}
+			sessionEntryMap.remove(sessionEntry.sessionId);
+			sessionEntry.unbind();
 		}
 	}
 
@@ -281,7 +280,8 @@ public class DiskDataStore implements IDataStore
 	}
 
 	/**
-	 * 
+	 * The pages of a session. Pages are loaded concurrently, while saving and removing pages is
+	 * exclusive.
 	 */
 	protected static class SessionEntry implements Serializable
 	{
@@ -289,14 +289,16 @@ public class DiskDataStore implements IDataStore
 
 		private final String sessionId;
 		private transient DiskDataStore diskDataStore;
+		private transient ReadWriteLock lock = new ReentrantReadWriteLock();
 		private String fileName;
 		private PageWindowManager manager;
-		private boolean unbound = false;
+		private volatile boolean unbound = false;
 
 		protected SessionEntry(DiskDataStore diskDataStore, String sessionId)
 		{
 			this.diskDataStore = diskDataStore;
 			this.sessionId = sessionId;
+			manager = new PageWindowManager(diskDataStore.maxSizePerPageSession.bytes());
 		}
 
 		public PageWindowManager getManager()
@@ -331,15 +333,22 @@ public class DiskDataStore implements IDataStore
 		 * @param pageId
 		 * @param data
 		 */
-		public synchronized void savePage(int pageId, byte data[])
+		public void savePage(int pageId, byte data[])
 		{
-			if (unbound)
+			// only save page that has some data
+			if (data == null)
 			{
 				return;
 			}
-			// only save page that has some data
-			if (data != null)
+
+			lock.writeLock().lock();
+			try
 			{
+				if (unbound)
+				{
+					return;
+				}
+
 				// allocate window for page
 				PageWindow window = getManager().createPageWindow(pageId, data.length);
 
@@ -367,6 +376,10 @@ public class DiskDataStore implements IDataStore
 						pageId);
 				}
 			}
+			finally
+			{
+				lock.writeLock().unlock();
+			}
 		}
 
 		/**
@@ -374,13 +387,21 @@ public class DiskDataStore implements IDataStore
 		 * 
 		 * @param pageId
 		 */
-		public synchronized void removePage(int pageId)
+		public void removePage(int pageId)
 		{
-			if (unbound)
+			lock.writeLock().lock();
+			try
 			{
-				return;
+				if (unbound)
+				{
+					return;
+				}
+				getManager().removePage(pageId);
+			}
+			finally
+			{
+				lock.writeLock().unlock();
 			}
-			getManager().removePage(pageId);
 		}
 
 		/**
@@ -443,33 +464,55 @@ public class DiskDataStore implements IDataStore
 		 * @param id
 		 * @return page data or null if the page is no longer in pagemap file
 		 */
-		public synchronized byte[] loadPage(int id)
+		public byte[] loadPage(int id)
 		{
-			if (unbound)
+			lock.readLock().lock();
+			try
 			{
-				return null;
+				if (unbound)
+				{
+					return null;
+				}
+				byte[] result = null;
+				PageWindow window = getManager().getPageWindow(id);
+				if (window != null)
+				{
+					result = loadPage(window);
+				}
+				return result;
 			}
-			byte[] result = null;
-			PageWindow window = getManager().getPageWindow(id);
-			if (window != null)
+			finally
 			{
-				result = loadPage(window);
+				lock.readLock().unlock();
 			}
-			return result;
 		}
 
 		/**
 		 * Deletes all files for this session.
 		 */
-		public synchronized void unbind()
+		public void unbind()
 		{
-			File sessionFolder = diskDataStore.getSessionFolder(sessionId, false);
-			if (sessionFolder.exists())
+			lock.writeLock().lock();
+			try
+			{
+				File sessionFolder = diskDataStore.getSessionFolder(sessionId, false);
+				if (sessionFolder.exists())
+				{
+					Files.removeFolder(sessionFolder);
+					cleanup(sessionFolder);
+				}
+				unbound = true;
+			}
+			finally
 			{
-				Files.removeFolder(sessionFolder);
-				cleanup(sessionFolder);
+				lock.writeLock().unlock();
 			}
-			unbound = true;
+		}
+
+		private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+		{
+			in.defaultReadObject();
+			lock = new ReentrantReadWriteLock();
 		}
 
 		/**
@@ -0,0 +1,397 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.util.lang.Args;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The queue of pages waiting to be saved by a pool of page saving threads, used by
+ * {@link AsynchronousDataStore} and {@link AsynchronousPageStore}.
+ * <p>
+ * The pages are partitioned by session id, each partition having its own queue and thread, so the
+ * pages of a session are saved in the order they were stored. A page stored again while its
+ * previous version is still waiting in the queue replaces that version instead of being queued a
+ * second time, so only the latest version is saved.
+ * </p>
+ * When the queue of a partition is full the page is saved synchronously by the calling thread.
+ *
+ * @param <T>
+ *            the type of the saved page
+ */
+class PageSavingQueue<T>
+{
+	/** Log for reporting. */
+	private static final Logger log = LoggerFactory.getLogger(PageSavingQueue.class);
+
+	/**
+	 * The time to wait when adding a key into a queue. In millis.
+	 */
+	private static final long OFFER_WAIT = 30L;
+
+	/**
+	 * The time to wait for a key of a page to save. In millis.
+	 */
+	private static final long POLL_WAIT = 1000L;
+
+	/**
+	 * Saves a page.
+	 *
+	 * @param <T>
+	 *            the type of the saved page
+	 */
+	interface Saver<T>
+	{
+		/**
+		 * @param sessionId
+		 * @param pageId
+		 * @param page
+		 */
+		void save(String sessionId, int pageId, T page);
+	}
+
+	private final Saver<T> saver;
+
+	/**
+	 * The queues of the keys of the pages to save, one per partition.
+	 */
+	private final BlockingQueue<Key>[] queues;
+
+	/**
+	 * The page saving threads, one per partition.
+	 */
+	private final Thread[] threads;
+
+	/**
+	 * The pages which are not yet saved.
+	 */
+	private final ConcurrentMap<Key, Entry<T>> entries = new ConcurrentHashMap<>();
+
+	private final AsynchronousStoreMetrics metrics = new AsynchronousStoreMetrics(this::size);
+
+	private volatile boolean destroyed = false;
+
+	/**
+	 * Construct.
+	 *
+	 * @param name
+	 *            the name of the page saving threads
+	 * @param capacity
+	 *            the capacity of the queues, divided among the partitions
+	 * @param threadCount
+	 *            the number of partitions and page saving threads
+	 * @param saver
+	 *            saves the pages
+	 */
+	@SuppressWarnings("unchecked")
+	PageSavingQueue(final String name, final int capacity, final int threadCount,
+		final Saver<T> saver)
+	{
+		Args.withinRange(1, Integer.MAX_VALUE, capacity, "capacity");
+		Args.withinRange(1, Integer.MAX_VALUE, threadCount, "threadCount");
+		this.saver = Args.notNull(saver, "saver");
+
+		int partitionCapacity = Math.max(1, (capacity + threadCount - 1) / threadCount);
+		queues = new BlockingQueue[threadCount];
+		threads = new Thread[threadCount];
+		for (int i = 0; i < threadCount; i++)
+		{
+			queues[i] = new LinkedBlockingQueue<>(partitionCapacity);
+			threads[i] = new Thread(new PageSavingRunnable(queues[i]),
+				threadCount == 1 ? name : name + "-" + i);
+			threads[i].setDaemon(true);
+			threads[i].start();
+		}
+	}
+
+	/**
+	 * @return the metrics of this queue
+	 */
+	AsynchronousStoreMetrics getMetrics()
+	{
+		return metrics;
+	}
+
+	/**
+	 * @return the number of pages waiting to be saved
+	 */
+	private int size()
+	{
+		int size = 0;
+		for (BlockingQueue<Key> queue : queues)
+		{
+			size += queue.size();
+		}
+		return size;
+	}
+
+	/**
+	 * Returns a page which is not saved yet.
+	 *
+	 * @param sessionId
+	 * @param pageId
+	 * @return the page or {@code null} if there is no such page waiting to be saved
+	 */
+	T get(final String sessionId, final int pageId)
+	{
+		Entry<T> entry = entries.get(new Key(sessionId, pageId));
+		return entry != null ? entry.page : null;
+	}
+
+	/**
+	 * Queues the page for saving, or saves it right away if the queue is full.
+	 *
+	 * @param sessionId
+	 * @param pageId
+	 * @param page
+	 */
+	void store(final String sessionId, final int pageId, final T page)
+	{
+		if (destroyed)
+		{
+			metrics.dropped();
+			return;
+		}
+
+		final Key key = new Key(sessionId, pageId);
+		final Entry<T> entry = new Entry<>(Args.notNull(page, "page"));
+		final boolean[] coalesced = new boolean[1];
+		entries.compute(key, (k, previous) -> {
+			// take over the place in the queue of a previous version which is still waiting
+			coalesced[0] = previous != null && previous.queued;
+			entry.queued = true;
+			return entry;
+		});
+
+		if (coalesced[0])
+		{
+			log.debug("Replaced the queued page with id '{}' in session '{}'", pageId, sessionId);
+			metrics.coalesced();
+			return;
+		}
+
+		boolean added = false;
+		try
+		{
+			added = getQueue(sessionId).offer(key, OFFER_WAIT, TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException e)
+		{
+			log.error(e.getMessage(), e);
+			if (destroyed)
+			{
+				entries.remove(key, entry);
+				metrics.dropped();
+				return;
+			}
+		}
+
+		if (added)
+		{
+			log.debug("Offered for saving asynchronously page with id '{}' in session '{}'",
+				pageId, sessionId);
+			metrics.queued();
+		}
+		else
+		{
+			// the entry might have been replaced meanwhile by a later version taking over its place
+			@SuppressWarnings("unchecked")
+			final Entry<T>[] unqueued = new Entry[1];
+			entries.computeIfPresent(key, (k, current) -> {
+				if (current.queued)
+				{
+					unqueued[0] = current;
+					return null;
+				}
+				return current;
+			});
+
+			if (unqueued[0] != null)
+			{
+				log.debug("Saving synchronously page with id '{}' in session '{}'", pageId,
+					sessionId);
+				metrics.synchronous();
+				save(key, unqueued[0].page);
+			}
+		}
+	}
+
+	/**
+	 * Removes a page waiting to be saved.
+	 *
+	 * @param sessionId
+	 * @param pageId
+	 */
+	void remove(final String sessionId, final int pageId)
+	{
+		// the key left in the queue is skipped when there is no entry for it anymore
+		entries.remove(new Key(sessionId, pageId));
+	}
+
+	/**
+	 * Removes all pages of a session waiting to be saved.
+	 *
+	 * @param sessionId
+	 */
+	void remove(final String sessionId)
+	{
+		entries.keySet().removeIf(key -> key.sessionId.equals(sessionId));
+	}
+
+	/**
+	 * Stops the page saving threads, discarding the pages not saved yet.
+	 */
+	void destroy()
+	{
+		destroyed = true;
+		for (Thread thread : threads)
+		{
+			if (thread.isAlive())
+			{
+				try
+				{
+					thread.join();
+				}
+				catch (InterruptedException e)
+				{
+					log.error(e.getMessage(), e);
+				}
+			}
+		}
+	}
+
+	private BlockingQueue<Key> getQueue(final String sessionId)
+	{
+		return queues[(sessionId.hashCode() & Integer.MAX_VALUE) % queues.length];
+	}
+
+	private void save(final Key key, final T page)
+	{
+		long start = System.nanoTime();
+		saver.save(key.sessionId, key.pageId, page);
+		metrics.saved(System.nanoTime() - start);
+	}
+
+	/**
+	 * The key of a page in a session.
+	 */
+	private static class Key
+	{
+		private final String sessionId;
+		private final int pageId;
+
+		private Key(final String sessionId, final int pageId)
+		{
+			this.sessionId = Args.notNull(sessionId, "sessionId");
+			this.pageId = pageId;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return 31 * pageId + sessionId.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (this == obj)
+				return true;
+			if (obj == null || getClass() != obj.getClass())
+				return false;
+			Key other = (Key)obj;
+			return pageId == other.pageId && sessionId.equals(other.sessionId);
+		}
+
+		@Override
+		public String toString()
+		{
+			return "Key [sessionId=" + sessionId + ", pageId=" + pageId + "]";
+		}
+	}
+
+	/**
+	 * A page waiting to be saved.
+	 */
+	private static class Entry<T>
+	{
+		private final T page;
+
+		/**
+		 * Whether the key of the entry is still in the queue, only modified while the entry is
+		 * computed in {@link PageSavingQueue#entries}.
+		 */
+		private boolean queued;
+
+		private Entry(final T page)
+		{
+			this.page = page;
+		}
+	}
+
+	/**
+	 * The thread that acts as consumer of the queue of a partition.
+	 */
+	private class PageSavingRunnable implements Runnable
+	{
+		private final BlockingQueue<Key> queue;
+
+		private PageSavingRunnable(final BlockingQueue<Key> queue)
+		{
+			this.queue = queue;
+		}
+
+		@Override
+		public void run()
+		{
+			while (destroyed == false)
+			{
+				Key key = null;
+				try
+				{
+					key = queue.poll(POLL_WAIT, TimeUnit.MILLISECONDS);
+				}
+				catch (InterruptedException e)
+				{
+					log.debug("PageSavingRunnable:: Interrupted...");
+				}
+
+				if (key != null && destroyed == false)
+				{
+					// take the latest version, any later version has to be queued again
+					Entry<T> entry = entries.computeIfPresent(key, (k, e) -> {
+						e.queued = false;
+						return e;
+					});
+					if (entry != null)
+					{
+						log.debug("PageSavingRunnable:: Saving asynchronously: {}...", key);
+						save(key, entry.page);
+						entries.remove(key, entry);
+					}
+				}
+			}
+		}
+	}
+}
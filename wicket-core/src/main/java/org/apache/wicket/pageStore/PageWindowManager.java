@@ -16,9 +16,12 @@
  */
 package org.apache.wicket.pageStore;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.StampedLock;
 
 import org.apache.wicket.util.collections.IntHashMap;
 
@@ -28,6 +31,9 @@ import org.apache.wicket.util.collections.IntHashMap;
  * The pages are stored inside the file in a cyclic way. Newer pages are placed after older ones,
  * until the maximum file size is reached. After that, the next page is stored in the beginning of
  * the file.
+ * <p>
+ * The windows are guarded by a {@link StampedLock}: modifications are exclusive, while lookups of
+ * single windows are optimistic and proceed without blocking as long as no modification interferes.
  * 
  * @author Matej Knopp
  */
@@ -54,20 +60,24 @@ public class PageWindowManager implements Serializable
 		private int filePartSize;
 	}
 
+	/** guards {@link #windows} and the indices */
+	private transient StampedLock lock = new StampedLock();
+
 	/** list of PageWindowInternal objects */
 	private final List<PageWindowInternal> windows = new ArrayList<PageWindowInternal>();
 
 	/**
 	 * map from page id to list of pagewindow indices (referring to the windows list) - to improve
 	 * searching speed the index must be cleaned when the instances in the windows list change their
-	 * indexes (e.g. items are shifted on page window removal)
+	 * indexes (e.g. items are shifted on page window removal). It is rebuilt before the write lock
+	 * is released, so readers never find it cleaned.
 	 */
-	private IntHashMap<Integer> idToWindowIndex = null;
+	private IntHashMap<Integer> idToWindowIndex = new IntHashMap<Integer>();
 
 	/**
 	 * Inversed index of #idToWindowIndex
 	 */
-	private IntHashMap<Integer> windowIndexToPageId = null;
+	private IntHashMap<Integer> windowIndexToPageId = new IntHashMap<Integer>();
 
 	/** index of last added page */
 	private int indexPointer = -1;
@@ -321,13 +331,17 @@ public class PageWindowManager implements Serializable
 	}
 
 	/**
-	 * Public (read only) version of page window.
+	 * Public (read only) snapshot of a page window.
 	 * 
 	 * @author Matej Knopp
 	 */
 	public static class PageWindow
 	{
-		private final PageWindowInternal pageWindowInternal;
+		private final int pageId;
+
+		private final int filePartOffset;
+
+		private final int filePartSize;
 
 		/**
 		 * Construct.
@@ -336,7 +350,9 @@ public class PageWindowManager implements Serializable
 		 */
 		private PageWindow(PageWindowInternal pageWindowInternal)
 		{
-			this.pageWindowInternal = pageWindowInternal;
+			pageId = pageWindowInternal.pageId;
+			filePartOffset = pageWindowInternal.filePartOffset;
+			filePartSize = pageWindowInternal.filePartSize;
 		}
 
 		/**
@@ -344,7 +360,7 @@ public class PageWindowManager implements Serializable
 		 */
 		public int getPageId()
 		{
-			return pageWindowInternal.pageId;
+			return pageId;
 		}
 
 		/**
@@ -352,7 +368,7 @@ public class PageWindowManager implements Serializable
 		 */
 		public int getFilePartOffset()
 		{
-			return pageWindowInternal.filePartOffset;
+			return filePartOffset;
 		}
 
 		/**
@@ -360,7 +376,7 @@ public class PageWindowManager implements Serializable
 		 */
 		public int getFilePartSize()
 		{
-			return pageWindowInternal.filePartSize;
+			return filePartSize;
 		}
 	}
 
@@ -371,7 +387,24 @@ public class PageWindowManager implements Serializable
 	 * @param size
 	 * @return page window
 	 */
-	public synchronized PageWindow createPageWindow(int pageId, int size)
+	public PageWindow createPageWindow(int pageId, int size)
+	{
+		long stamp = lock.writeLock();
+		try
+		{
+			return createPageWindowInternal(pageId, size);
+		}
+		finally
+		{
+			if (idToWindowIndex == null)
+			{
+				rebuildIndices();
+			}
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	private PageWindow createPageWindowInternal(int pageId, int size)
 	{
 		int index = getWindowIndex(pageId);
 
@@ -403,10 +436,46 @@ public class PageWindowManager implements Serializable
 	 * @param pageId
 	 * @return page window or null
 	 */
-	public synchronized PageWindow getPageWindow(int pageId)
+	public PageWindow getPageWindow(int pageId)
 	{
-		int index = getWindowIndex(pageId);
-		if (index != -1)
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0L)
+		{
+			try
+			{
+				PageWindow window = findPageWindow(pageId);
+				if (lock.validate(stamp))
+				{
+					return window;
+				}
+			}
+			catch (RuntimeException e)
+			{
+				// inconsistent state seen during a concurrent modification, validation would fail
+			}
+		}
+
+		stamp = lock.readLock();
+		try
+		{
+			return findPageWindow(pageId);
+		}
+		finally
+		{
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Looks up the page window without modifying any state, so it is safe to call it optimistically.
+	 * 
+	 * @param pageId
+	 * @return page window or null
+	 */
+	private PageWindow findPageWindow(int pageId)
+	{
+		Integer index = idToWindowIndex.get(pageId);
+		if (index != null)
 		{
 			return new PageWindow(windows.get(index));
 		}
@@ -418,26 +487,34 @@ public class PageWindowManager implements Serializable
 	 * 
 	 * @param pageId
 	 */
-	public synchronized void removePage(int pageId)
+	public void removePage(int pageId)
 	{
-		int index = getWindowIndex(pageId);
-		if (index != -1)
+		long stamp = lock.writeLock();
+		try
 		{
-			PageWindowInternal window = windows.get(index);
-			removeWindowIndex(pageId);
-			if (index == windows.size() - 1)
+			int index = getWindowIndex(pageId);
+			if (index != -1)
 			{
-				windows.remove(index);
-				totalSize -= window.filePartSize;
-				if (indexPointer == index)
+				PageWindowInternal window = windows.get(index);
+				removeWindowIndex(pageId);
+				if (index == windows.size() - 1)
 				{
-					--indexPointer;
+					windows.remove(index);
+					totalSize -= window.filePartSize;
+					if (indexPointer == index)
+					{
+						--indexPointer;
+					}
+				}
+				else
+				{
+					window.pageId = -1;
 				}
 			}
-			else
-			{
-				window.pageId = -1;
-			}
+		}
+		finally
+		{
+			lock.unlockWrite(stamp);
 		}
 	}
 
@@ -447,7 +524,20 @@ public class PageWindowManager implements Serializable
 	 * @param count
 	 * @return list of page windows
 	 */
-	public synchronized List<PageWindow> getLastPageWindows(int count)
+	public List<PageWindow> getLastPageWindows(int count)
+	{
+		long stamp = lock.readLock();
+		try
+		{
+			return getLastPageWindowsInternal(count);
+		}
+		finally
+		{
+			lock.unlockRead(stamp);
+		}
+	}
+
+	private List<PageWindow> getLastPageWindowsInternal(int count)
 	{
 		List<PageWindow> result = new ArrayList<PageWindow>();
 
@@ -499,8 +589,29 @@ public class PageWindowManager implements Serializable
 	 * 
 	 * @return total size
 	 */
-	public synchronized int getTotalSize()
+	public int getTotalSize()
+	{
+		long stamp = lock.tryOptimisticRead();
+		int result = totalSize;
+		if (lock.validate(stamp) == false)
+		{
+			stamp = lock.readLock();
+			try
+			{
+				result = totalSize;
+			}
+			finally
+			{
+				lock.unlockRead(stamp);
+			}
+		}
+		return result;
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
 	{
-		return totalSize;
+		in.defaultReadObject();
+		lock = new StampedLock();
+		rebuildIndices();
 	}
 }
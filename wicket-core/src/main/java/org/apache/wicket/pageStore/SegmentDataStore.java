@@ -0,0 +1,1030 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.util.file.Files;
+import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A data store implementation which appends the pages of each session to a memory-mapped segment
+ * file.
+ * <p>
+ * Contrary to {@link DiskDataStore} the segment file of a session is opened once and kept open
+ * while the session is active. Pages are appended to the mapped region of the segment and are read
+ * back by copying them out of it, so neither storing nor loading a page opens a file or issues a
+ * system call. Reads of a session may proceed concurrently, only writes are exclusive.
+ * </p>
+ * <p>
+ * The number of open segments is bounded: when it is exceeded, the least recently used segment is
+ * closed and unmapped, so idle sessions hold neither a file descriptor nor a mapping. A closed
+ * segment is reopened and recovered from its file when its session is accessed again.
+ * </p>
+ * <p>
+ * Overwritten and removed pages leave garbage in the segment. As soon as the garbage exceeds the
+ * maximum size per session, the segment is queued for compaction, which rewrites the live pages into
+ * a fresh segment in a background thread. When the live pages alone exceed the maximum size, the
+ * oldest ones are evicted.
+ * </p>
+ * <p>
+ * Every record in a segment is self-describing (type, page id, length and data), so the pages of a
+ * session are recovered by scanning its segment when the session is accessed after a restart.
+ * </p>
+ * To use it override {@link org.apache.wicket.DefaultPageManagerProvider#newDataStore()}.
+ *
+ * @see DiskDataStore
+ */
+public class SegmentDataStore implements IDataStore
+{
+	private static final Logger log = LoggerFactory.getLogger(SegmentDataStore.class);
+
+	/**
+	 * The time to wait for a segment to compact. In millis.
+	 */
+	private static final long POLL_WAIT = 1000L;
+
+	private static final String SEGMENT_FILE_SUFFIX = ".segment";
+
+	private static final String COMPACTION_FILE_SUFFIX = ".compact";
+
+	/**
+	 * The default maximum number of segments kept open.
+	 */
+	public static final int DEFAULT_MAX_OPEN_SEGMENTS = 1000;
+
+	private final String applicationName;
+
+	private final File fileStoreFolder;
+
+	private final Bytes maxSizePerSession;
+
+	private final ConcurrentMap<String, Segment> segments;
+
+	private final int maxOpenSegments;
+
+	/**
+	 * The segments which were accessed, least recently used first. Guarded by itself.
+	 */
+	private final LinkedHashMap<Segment, Boolean> openSegments = new LinkedHashMap<>(16, 0.75f,
+		true);
+
+	/**
+	 * The segments waiting for compaction
+	 */
+	private final BlockingQueue<Segment> compactions;
+
+	/**
+	 * The compaction thread.
+	 */
+	private volatile Thread compactionThread;
+
+	/**
+	 * Construct.
+	 *
+	 * @param applicationName
+	 * @param fileStoreFolder
+	 * @param maxSizePerSession
+	 *            the maximum size of the live pages per session, must not exceed 1 gigabyte because
+	 *            the segments are mapped in a single region
+	 */
+	public SegmentDataStore(final String applicationName, final File fileStoreFolder,
+		final Bytes maxSizePerSession)
+	{
+		this(applicationName, fileStoreFolder, maxSizePerSession, DEFAULT_MAX_OPEN_SEGMENTS);
+	}
+
+	/**
+	 * Construct.
+	 *
+	 * @param applicationName
+	 * @param fileStoreFolder
+	 * @param maxSizePerSession
+	 *            the maximum size of the live pages per session, must not exceed 1 gigabyte because
+	 *            the segments are mapped in a single region
+	 * @param maxOpenSegments
+	 *            the maximum number of segments kept open, each one holding a file descriptor and
+	 *            a mapping
+	 */
+	public SegmentDataStore(final String applicationName, final File fileStoreFolder,
+		final Bytes maxSizePerSession, final int maxOpenSegments)
+	{
+		this.maxOpenSegments = Args.withinRange(1, Integer.MAX_VALUE, maxOpenSegments,
+			"maxOpenSegments");
+		this.applicationName = applicationName;
+		this.fileStoreFolder = fileStoreFolder;
+		this.maxSizePerSession = Args.notNull(maxSizePerSession, "maxSizePerSession");
+		Args.withinRange(1L, Bytes.gigabytes(1).bytes(), maxSizePerSession.bytes(),
+			"maxSizePerSession");
+		segments = new ConcurrentHashMap<>();
+		compactions = new LinkedBlockingQueue<>();
+
+		try
+		{
+			File storeFolder = getStoreFolder();
+			if (storeFolder.exists() == false && storeFolder.mkdirs() == false)
+			{
+				log.warn("Cannot create file store folder for some reason.");
+			}
+		}
+		catch (SecurityException e)
+		{
+			throw new WicketRuntimeException(
+				"SecurityException occurred while creating SegmentDataStore. Consider using a non-disk based IDataStore implementation. "
+					+ "See org.apache.wicket.Application.setPageManagerProvider(IPageManagerProvider)",
+				e);
+		}
+
+		compactionThread = new Thread(new CompactionRunnable(),
+			"Wicket-SegmentDataStore-CompactionThread");
+		compactionThread.setDaemon(true);
+		compactionThread.start();
+	}
+
+	/**
+	 * Closes all segments. The segment files are kept, so the pages survive a restart.
+	 *
+	 * @see org.apache.wicket.pageStore.IDataStore#destroy()
+	 */
+	@Override
+	public void destroy()
+	{
+		log.debug("Destroying...");
+		final Thread thread = compactionThread;
+		compactionThread = null;
+		if (thread != null && thread.isAlive())
+		{
+			try
+			{
+				thread.join();
+			}
+			catch (InterruptedException e)
+			{
+				log.error(e.getMessage(), e);
+			}
+		}
+
+		for (Segment segment : segments.values())
+		{
+			segment.close();
+		}
+		segments.clear();
+		synchronized (openSegments)
+		{
+			openSegments.clear();
+		}
+		log.debug("Destroyed.");
+	}
+
+	@Override
+	public byte[] getData(final String sessionId, final int id)
+	{
+		byte[] pageData = null;
+		Segment segment = getSegment(sessionId, false);
+		if (segment != null)
+		{
+			pageData = segment.loadPage(id);
+			touch(segment);
+		}
+
+		if (log.isDebugEnabled())
+		{
+			log.debug("Returning data{} for page with id '{}' in session with id '{}'",
+				pageData != null ? "" : "(null)", id, sessionId);
+		}
+		return pageData;
+	}
+
+	@Override
+	public boolean isReplicated()
+	{
+		return false;
+	}
+
+	@Override
+	public void removeData(final String sessionId, final int id)
+	{
+		Segment segment = getSegment(sessionId, false);
+		if (segment != null)
+		{
+			if (log.isDebugEnabled())
+			{
+				log.debug("Removing data for page with id '{}' in session with id '{}'", id,
+					sessionId);
+			}
+			segment.removePage(id);
+			touch(segment);
+		}
+	}
+
+	@Override
+	public void removeData(final String sessionId)
+	{
+		Segment segment = segments.remove(sessionId);
+		if (segment == null)
+		{
+			segment = newSegment(sessionId);
+		}
+
+		log.debug("Removing data for pages in session with id '{}'", sessionId);
+		compactions.remove(segment);
+		synchronized (openSegments)
+		{
+			openSegments.remove(segment);
+		}
+		segment.delete();
+	}
+
+	@Override
+	public void storeData(final String sessionId, final int id, final byte[] data)
+	{
+		Segment segment = getSegment(sessionId, true);
+		log.debug("Storing data for page with id '{}' in session with id '{}'", id, sessionId);
+		if (segment.savePage(id, data))
+		{
+			scheduleCompaction(segment);
+		}
+		touch(segment);
+	}
+
+	/**
+	 * Marks the segment as the most recently used one and closes the least recently used segments
+	 * exceeding the maximum number of open segments. Called after accessing a segment, so a segment
+	 * closed meanwhile and reopened by the access is tracked again.
+	 *
+	 * @param segment
+	 */
+	private void touch(final Segment segment)
+	{
+		List<Segment> idle = null;
+		synchronized (openSegments)
+		{
+			openSegments.put(segment, Boolean.TRUE);
+			if (openSegments.size() > maxOpenSegments)
+			{
+				idle = new ArrayList<>();
+				Iterator<Segment> iterator = openSegments.keySet().iterator();
+				while (openSegments.size() > maxOpenSegments)
+				{
+					idle.add(iterator.next());
+					iterator.remove();
+				}
+			}
+		}
+
+		if (idle != null)
+		{
+			for (Segment eldest : idle)
+			{
+				log.debug("Releasing idle segment {}", eldest);
+				eldest.release();
+			}
+		}
+	}
+
+	/**
+	 * Queues the given segment for compaction by the background thread, if it is not already
+	 * queued.
+	 *
+	 * @param segment
+	 */
+	private void scheduleCompaction(final Segment segment)
+	{
+		if (compactionThread != null && segment.compactionScheduled.compareAndSet(false, true))
+		{
+			compactions.add(segment);
+		}
+	}
+
+	/**
+	 * Returns the segment of the given session. A segment left over by a previous run is picked up
+	 * even if {@code create} is {@code false}.
+	 *
+	 * @param sessionId
+	 * @param create
+	 * @return the segment or {@code null} if there is none and {@code create} is {@code false}
+	 */
+	protected Segment getSegment(final String sessionId, final boolean create)
+	{
+		Segment segment = segments.get(sessionId);
+		if (segment == null && (create || getSegmentFile(sessionId).exists()))
+		{
+			segment = segments.computeIfAbsent(sessionId, this::newSegment);
+		}
+		return segment;
+	}
+
+	/**
+	 * Creates the segment of the given session.
+	 *
+	 * @param sessionId
+	 * @return the segment
+	 */
+	protected Segment newSegment(final String sessionId)
+	{
+		return new Segment(getSegmentFile(sessionId), maxSizePerSession.bytes());
+	}
+
+	/**
+	 * This folder contains sub-folders with the segment files of the sessions.
+	 *
+	 * @return the folder where the pages are stored
+	 */
+	protected File getStoreFolder()
+	{
+		return new File(fileStoreFolder, applicationName + "-segmentstore");
+	}
+
+	/**
+	 * Returns the segment file of the specified session. The segments are partitioned in
+	 * sub-folders named after the hash code of the session id to avoid problems with file systems
+	 * allowing a limited number of entries in a directory.
+	 *
+	 * @param sessionId
+	 * @return the segment file
+	 */
+	protected File getSegmentFile(String sessionId)
+	{
+		sessionId = sessionId.replace('*', '_');
+		sessionId = sessionId.replace('/', '_');
+		sessionId = sessionId.replace(':', '_');
+
+		String partition = String.valueOf(Math.abs(sessionId.hashCode() % 9973));
+
+		return new File(new File(getStoreFolder(), partition), sessionId + SEGMENT_FILE_SUFFIX);
+	}
+
+	@Override
+	public boolean canBeAsynchronous()
+	{
+		return true;
+	}
+
+	/**
+	 * The append-only, memory-mapped file with the pages of a single session.
+	 * <p>
+	 * Each record consists of a type byte, the page id, the length of the data and the data. The
+	 * type byte is written last, so a record is either complete or terminates the segment.
+	 */
+	protected static class Segment
+	{
+		private static final byte RECORD_END = 0;
+
+		private static final byte RECORD_PAGE = 1;
+
+		private static final byte RECORD_REMOVAL = 2;
+
+		private static final int HEADER_SIZE = 1 + 4 + 4;
+
+		/**
+		 * The initial size of the mapped region, doubled whenever it is exhausted.
+		 */
+		private static final int INITIAL_MAPPING_SIZE = 64 * 1024;
+
+		private final File file;
+
+		private final long maxSize;
+
+		private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+		/**
+		 * Page id to location of the data in the segment, in the order the pages were stored. Since
+		 * the segment is append-only this is also the order of the records in the file.
+		 */
+		private final LinkedHashMap<Integer, Location> index = new LinkedHashMap<>();
+
+		private final AtomicBoolean compactionScheduled = new AtomicBoolean(false);
+
+		private FileChannel channel;
+
+		private MappedByteBuffer buffer;
+
+		/** the position where the next record is appended */
+		private int position;
+
+		/** the size of the records of the live pages, including their headers */
+		private long liveSize;
+
+		private volatile boolean opened;
+
+		private boolean closed;
+
+		protected Segment(final File file, final long maxSize)
+		{
+			this.file = file;
+			this.maxSize = maxSize;
+		}
+
+		/**
+		 * Saves the serialized page.
+		 *
+		 * @param pageId
+		 * @param data
+		 * @return {@code true} if the segment should be compacted
+		 */
+		public boolean savePage(final int pageId, final byte[] data)
+		{
+			// only save page that has some data
+			if (data == null)
+			{
+				return false;
+			}
+
+			lock.writeLock().lock();
+			try
+			{
+				if (openIfNeeded() == false)
+				{
+					return false;
+				}
+
+				int offset = append(RECORD_PAGE, pageId, data);
+				if (offset == -1)
+				{
+					return false;
+				}
+				putLocation(pageId, new Location(offset, data.length));
+				return needsCompaction();
+			}
+			finally
+			{
+				lock.writeLock().unlock();
+			}
+		}
+
+		/**
+		 * Removes the page.
+		 *
+		 * @param pageId
+		 */
+		public void removePage(final int pageId)
+		{
+			lock.writeLock().lock();
+			try
+			{
+				if (openIfNeeded() && removeLocation(pageId) != null)
+				{
+					append(RECORD_REMOVAL, pageId, null);
+				}
+			}
+			finally
+			{
+				lock.writeLock().unlock();
+			}
+		}
+
+		/**
+		 * Loads the specified page data.
+		 *
+		 * @param pageId
+		 * @return page data or null if the page is no longer in the segment
+		 */
+		public byte[] loadPage(final int pageId)
+		{
+			while (true)
+			{
+				ensureOpened();
+				lock.readLock().lock();
+				try
+				{
+					if (closed)
+					{
+						return null;
+					}
+					if (opened == false)
+					{
+						// released meanwhile, reopen
+						continue;
+					}
+
+					Location location = index.get(pageId);
+					if (location == null)
+					{
+						return null;
+					}
+
+					byte[] data = new byte[location.length];
+					ByteBuffer view = buffer.duplicate();
+					view.position(location.offset + HEADER_SIZE);
+					view.get(data);
+					return data;
+				}
+				finally
+				{
+					lock.readLock().unlock();
+				}
+			}
+		}
+
+		/**
+		 * Rewrites the live pages into a new segment file, dropping the garbage of overwritten and
+		 * removed pages.
+		 */
+		protected void compact()
+		{
+			lock.writeLock().lock();
+			try
+			{
+				compactionScheduled.set(false);
+				if (closed || opened == false)
+				{
+					return;
+				}
+
+				File compacted = new File(file.getPath() + COMPACTION_FILE_SUFFIX);
+				FileChannel newChannel = FileChannel.open(compacted.toPath(),
+					StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+					StandardOpenOption.READ, StandardOpenOption.WRITE);
+				try
+				{
+					MappedByteBuffer newBuffer = newChannel.map(MapMode.READ_WRITE, 0,
+						mappingSize(INITIAL_MAPPING_SIZE, liveSize + 1));
+					int[] newOffsets = new int[index.size()];
+					int newPosition = 0;
+					int i = 0;
+					for (Location location : index.values())
+					{
+						int recordSize = HEADER_SIZE + location.length;
+						ByteBuffer record = buffer.duplicate();
+						record.position(location.offset).limit(location.offset + recordSize);
+						ByteBuffer target = newBuffer.duplicate();
+						target.position(newPosition);
+						target.put(record);
+
+						newOffsets[i++] = newPosition;
+						newPosition += recordSize;
+					}
+					newBuffer.put(newPosition, RECORD_END);
+
+					try
+					{
+						java.nio.file.Files.move(compacted.toPath(), file.toPath(),
+							StandardCopyOption.ATOMIC_MOVE);
+					}
+					catch (AtomicMoveNotSupportedException e)
+					{
+						java.nio.file.Files.move(compacted.toPath(), file.toPath(),
+							StandardCopyOption.REPLACE_EXISTING);
+					}
+
+					i = 0;
+					for (Location location : index.values())
+					{
+						location.offset = newOffsets[i++];
+					}
+					unmap(buffer);
+					IOUtils.closeQuietly(channel);
+					channel = newChannel;
+					buffer = newBuffer;
+					position = newPosition;
+				}
+				catch (IOException | RuntimeException e)
+				{
+					IOUtils.closeQuietly(newChannel);
+					Files.remove(compacted);
+					throw e;
+				}
+			}
+			catch (IOException e)
+			{
+				// keep on using the current segment
+				log.error("Error compacting segment " + file, e);
+			}
+			finally
+			{
+				lock.writeLock().unlock();
+			}
+		}
+
+		/**
+		 * Closes the segment, keeping its file.
+		 */
+		public void close()
+		{
+			lock.writeLock().lock();
+			try
+			{
+				if (closed == false)
+				{
+					closed = true;
+					unmapAndClose();
+				}
+			}
+			finally
+			{
+				lock.writeLock().unlock();
+			}
+		}
+
+		/**
+		 * Closes and unmaps the segment file of an idle session, keeping the segment usable: it is
+		 * reopened and recovered from its file on the next access.
+		 */
+		public void release()
+		{
+			lock.writeLock().lock();
+			try
+			{
+				if (closed == false && opened)
+				{
+					opened = false;
+					unmapAndClose();
+					position = 0;
+					liveSize = 0;
+				}
+			}
+			finally
+			{
+				lock.writeLock().unlock();
+			}
+		}
+
+		/**
+		 * @return {@code true} if the segment file is open
+		 */
+		public boolean isOpen()
+		{
+			return opened && closed == false;
+		}
+
+		private void unmapAndClose()
+		{
+			index.clear();
+			if (buffer != null)
+			{
+				buffer.force();
+				unmap(buffer);
+			}
+			buffer = null;
+			IOUtils.closeQuietly(channel);
+			channel = null;
+		}
+
+		/**
+		 * Closes the segment and deletes its file.
+		 */
+		public void delete()
+		{
+			lock.writeLock().lock();
+			try
+			{
+				closed = true;
+				index.clear();
+				if (buffer != null)
+				{
+					unmap(buffer);
+				}
+				buffer = null;
+				IOUtils.closeQuietly(channel);
+				Files.remove(file);
+
+				File partition = file.getParentFile();
+				String[] children = partition.list();
+				if (children != null && children.length == 0)
+				{
+					Files.removeFolder(partition);
+				}
+			}
+			finally
+			{
+				lock.writeLock().unlock();
+			}
+		}
+
+		private void ensureOpened()
+		{
+			if (opened == false)
+			{
+				lock.writeLock().lock();
+				try
+				{
+					openIfNeeded();
+				}
+				finally
+				{
+					lock.writeLock().unlock();
+				}
+			}
+		}
+
+		/**
+		 * Opens the segment if it was not yet or was released. Must be called with the write lock
+		 * held.
+		 *
+		 * @return {@code true} if the segment is usable
+		 */
+		private boolean openIfNeeded()
+		{
+			if (opened == false && closed == false)
+			{
+				open();
+				opened = true;
+			}
+			return closed == false;
+		}
+
+		/**
+		 * Opens the segment file, recovering the pages of an existing one.
+		 */
+		private void open()
+		{
+			try
+			{
+				Files.mkdirs(file.getParentFile());
+				channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+					StandardOpenOption.READ, StandardOpenOption.WRITE);
+				buffer = channel.map(MapMode.READ_WRITE, 0,
+					mappingSize(INITIAL_MAPPING_SIZE, channel.size()));
+				recover();
+			}
+			catch (IOException e)
+			{
+				closed = true;
+				IOUtils.closeQuietly(channel);
+				log.error("Cannot open segment " + file + ", its pages will not be stored", e);
+			}
+		}
+
+		/**
+		 * Rebuilds the index by scanning the records of the segment.
+		 */
+		private void recover()
+		{
+			int capacity = buffer.capacity();
+			while (position + HEADER_SIZE <= capacity)
+			{
+				byte type = buffer.get(position);
+				int pageId = buffer.getInt(position + 1);
+				int length = buffer.getInt(position + 5);
+				if (type == RECORD_PAGE && length >= 0 && position + HEADER_SIZE + length <= capacity)
+				{
+					putLocation(pageId, new Location(position, length));
+					position += HEADER_SIZE + length;
+				}
+				else if (type == RECORD_REMOVAL)
+				{
+					removeLocation(pageId);
+					position += HEADER_SIZE;
+				}
+				else
+				{
+					break;
+				}
+			}
+			buffer.put(position, RECORD_END);
+		}
+
+		/**
+		 * Appends a record.
+		 *
+		 * @return the offset of the record or -1 if it could not be appended
+		 */
+		private int append(final byte type, final int pageId, final byte[] data)
+		{
+			int length = data != null ? data.length : 0;
+			int offset = position;
+			if (ensureCapacity((long)offset + HEADER_SIZE + length + 1) == false)
+			{
+				return -1;
+			}
+
+			buffer.putInt(offset + 1, pageId);
+			buffer.putInt(offset + 5, length);
+			if (data != null)
+			{
+				ByteBuffer view = buffer.duplicate();
+				view.position(offset + HEADER_SIZE);
+				view.put(data);
+			}
+			position = offset + HEADER_SIZE + length;
+			buffer.put(position, RECORD_END);
+			buffer.put(offset, type);
+			return offset;
+		}
+
+		/**
+		 * Grows the mapped region so that it can hold at least the given number of bytes.
+		 */
+		private boolean ensureCapacity(final long required)
+		{
+			if (required <= buffer.capacity())
+			{
+				return true;
+			}
+			if (required > Integer.MAX_VALUE)
+			{
+				log.warn("Segment {} cannot grow beyond {} bytes", file, Integer.MAX_VALUE);
+				return false;
+			}
+
+			try
+			{
+				MappedByteBuffer previous = buffer;
+				buffer = channel.map(MapMode.READ_WRITE, 0,
+					mappingSize(buffer.capacity(), required));
+				unmap(previous);
+				return true;
+			}
+			catch (IOException e)
+			{
+				log.error("Error growing segment " + file, e);
+				return false;
+			}
+		}
+
+		private void putLocation(final int pageId, final Location location)
+		{
+			removeLocation(pageId);
+			index.put(pageId, location);
+			liveSize += HEADER_SIZE + location.length;
+
+			// evict the oldest pages, but always keep the latest one
+			Iterator<Location> eldest = index.values().iterator();
+			while (liveSize > maxSize && index.size() > 1)
+			{
+				liveSize -= HEADER_SIZE + eldest.next().length;
+				eldest.remove();
+			}
+		}
+
+		private Location removeLocation(final int pageId)
+		{
+			Location location = index.remove(pageId);
+			if (location != null)
+			{
+				liveSize -= HEADER_SIZE + location.length;
+			}
+			return location;
+		}
+
+		/**
+		 * @return {@code true} if the garbage in the segment exceeds the maximum size
+		 */
+		private boolean needsCompaction()
+		{
+			return position - liveSize > maxSize;
+		}
+
+		/**
+		 * Doubles the given size until it is at least the required size.
+		 */
+		private static long mappingSize(long size, final long required)
+		{
+			while (size < required)
+			{
+				size *= 2;
+			}
+			return Math.min(size, Integer.MAX_VALUE);
+		}
+
+		@Override
+		public String toString()
+		{
+			return "Segment [file=" + file + "]";
+		}
+	}
+
+	/**
+	 * Unmaps the buffer right away instead of waiting for it to be garbage collected. Must only be
+	 * called when no other thread can access the buffer or a view of it anymore.
+	 *
+	 * @param buffer
+	 */
+	private static void unmap(final MappedByteBuffer buffer)
+	{
+		if (UNMAPPER != null)
+		{
+			try
+			{
+				UNMAPPER.invoke(UNSAFE, buffer);
+			}
+			catch (ReflectiveOperationException | RuntimeException e)
+			{
+				log.debug("Cannot unmap a segment: {}", e.toString());
+			}
+		}
+	}
+
+	/**
+	 * {@code sun.misc.Unsafe#invokeCleaner(ByteBuffer)} or {@code null} if it is not accessible,
+	 * leaving the unmapping to the garbage collector.
+	 */
+	private static final Method UNMAPPER;
+
+	private static final Object UNSAFE;
+
+	static
+	{
+		Method unmapper = null;
+		Object unsafe = null;
+		try
+		{
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			unsafe = field.get(null);
+			unmapper = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+		}
+		catch (ReflectiveOperationException | RuntimeException e)
+		{
+			log.debug("Segments will be unmapped by the garbage collector: {}", e.toString());
+		}
+		UNMAPPER = unmapper;
+		UNSAFE = unsafe;
+	}
+
+	/**
+	 * The location of a page record in a segment.
+	 */
+	private static class Location
+	{
+		private int offset;
+
+		private final int length;
+
+		private Location(final int offset, final int length)
+		{
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+
+	/**
+	 * The thread that compacts the queued segments.
+	 */
+	private class CompactionRunnable implements Runnable
+	{
+		@Override
+		public void run()
+		{
+			while (compactionThread != null)
+			{
+				Segment segment = null;
+				try
+				{
+					segment = compactions.poll(POLL_WAIT, TimeUnit.MILLISECONDS);
+				}
+				catch (InterruptedException e)
+				{
+					log.debug("CompactionRunnable:: Interrupted...");
+				}
+
+				if (segment != null && compactionThread != null)
+				{
+					log.debug("CompactionRunnable:: Compacting {}...", segment);
+					try
+					{
+						segment.compact();
+					}
+					catch (RuntimeException e)
+					{
+						// keep on compacting the other segments, this one may be queued again
+						segment.compactionScheduled.set(false);
+						log.error("Error compacting segment " + segment.file, e);
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,720 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * A {@link SecondLevelPageCache} bounded by a global weight, e.g. the number of bytes of the pages,
+ * and by a number of pages per session.
+ * <p>
+ * The pages are looked up in a hash map by session and page id. The eviction follows the W-TinyLFU
+ * policy: a new page enters a small <em>window</em> ordered by recency. A page leaving the window
+ * is admitted into the <em>main</em> area only if it has been accessed at least as often as the
+ * page it would evict there, as estimated by a compact frequency sketch. So pages used repeatedly,
+ * e.g. the page of an Ajax heavy dialog, survive bursts of pages used only once.
+ * </p>
+ * <p>
+ * Neither lookups nor modifications block each other: the hash map is updated right away, while
+ * the eviction order is updated under a lock taken with {@code tryLock} only. Modifications are
+ * queued and applied by whichever thread gets the lock, so the cache may exceed its bounds
+ * briefly. The recency and frequency of a hit are recorded only if the lock is free.
+ * </p>
+ *
+ * @param <P>
+ *            the type of the cached pages
+ */
+public class WeightedPageCache<P> implements SecondLevelPageCache<String, Integer, P>
+{
+	/**
+	 * The share of the weight reserved for the window, in percent.
+	 */
+	private static final int WINDOW_PERCENT = 20;
+
+	private final long maxWeight;
+
+	private final long maxWindowWeight;
+
+	private final int maxEntriesPerSession;
+
+	private final ConcurrentMap<Key, Node<P>> nodes = new ConcurrentHashMap<>();
+
+	/**
+	 * Guards the order of the nodes, the sessions and the sketch.
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/**
+	 * The modifications of {@link #nodes} not yet applied to the order.
+	 */
+	private final ConcurrentLinkedQueue<Runnable> writeBuffer = new ConcurrentLinkedQueue<>();
+
+	private final NodeList<P> window = new NodeList<>();
+
+	private final NodeList<P> main = new NodeList<>();
+
+	private final Map<String, NodeList<P>> sessions = new HashMap<>();
+
+	private final FrequencySketch sketch = new FrequencySketch();
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Construct.
+	 *
+	 * @param maxWeight
+	 *            the maximum total weight of the cached pages
+	 * @param maxEntriesPerSession
+	 *            the maximum number of cached pages per session, {@code 0} disables the cache
+	 */
+	public WeightedPageCache(final long maxWeight, final int maxEntriesPerSession)
+	{
+		this.maxWeight = Args.withinRange(1L, Long.MAX_VALUE, maxWeight, "maxWeight");
+		this.maxEntriesPerSession = maxEntriesPerSession;
+		maxWindowWeight = Math.max(1L, maxWeight / 100 * WINDOW_PERCENT);
+	}
+
+	@Override
+	public P getPage(final String sessionId, final Integer pageId)
+	{
+		if (maxEntriesPerSession <= 0)
+		{
+			return null;
+		}
+		Args.notNull(sessionId, "sessionId");
+		Args.notNull(pageId, "pageId");
+
+		Key key = new Key(sessionId, pageId);
+		Node<P> node = nodes.get(key);
+		if (node == null)
+		{
+			misses.increment();
+		}
+		else
+		{
+			hits.increment();
+		}
+
+		if (lock.tryLock())
+		{
+			try
+			{
+				sketch.increment(key.hashCode());
+				// skip a node removed or replaced meanwhile
+				if (node != null && node.list != null && nodes.get(key) == node)
+				{
+					node.list.moveToHead(node);
+					sessions.get(sessionId).moveToHeadOfSession(node);
+				}
+				drainWriteBuffer();
+			}
+			finally
+			{
+				lock.unlock();
+			}
+			drain();
+		}
+		return node != null ? node.page : null;
+	}
+
+	/**
+	 * Caches the page with the weight {@code 1}.
+	 */
+	@Override
+	public void storePage(final String sessionId, final Integer pageId, final P page)
+	{
+		storePage(sessionId, pageId, page, 1L);
+	}
+
+	/**
+	 * Caches the page.
+	 *
+	 * @param sessionId
+	 *            the id of the session
+	 * @param pageId
+	 *            the id of the page
+	 * @param page
+	 *            the page
+	 * @param weight
+	 *            the weight of the page, e.g. its size in bytes
+	 */
+	public void storePage(final String sessionId, final Integer pageId, final P page,
+		final long weight)
+	{
+		if (maxEntriesPerSession <= 0)
+		{
+			return;
+		}
+		Args.notNull(sessionId, "sessionId");
+		Args.notNull(pageId, "pageId");
+		Args.notNull(page, "page");
+		Args.withinRange(0L, Long.MAX_VALUE, weight, "weight");
+
+		Key key = new Key(sessionId, pageId);
+		if (weight > maxWeight)
+		{
+			Node<P> removed = nodes.remove(key);
+			afterWrite(() -> remove(removed));
+			return;
+		}
+
+		Node<P> node = new Node<>(key, page, weight);
+		Node<P> replaced = nodes.put(key, node);
+		afterWrite(() -> {
+			remove(replaced);
+			add(node);
+		});
+	}
+
+	@Override
+	public P removePage(final String sessionId, final Integer pageId)
+	{
+		if (maxEntriesPerSession <= 0)
+		{
+			return null;
+		}
+		Args.notNull(sessionId, "sessionId");
+		Args.notNull(pageId, "pageId");
+
+		Node<P> node = nodes.remove(new Key(sessionId, pageId));
+		if (node == null)
+		{
+			return null;
+		}
+		afterWrite(() -> remove(node));
+		return node.page;
+	}
+
+	@Override
+	public void removePages(final String sessionId)
+	{
+		Args.notNull(sessionId, "sessionId");
+
+		lock.lock();
+		try
+		{
+			drainWriteBuffer();
+			NodeList<P> session = sessions.get(sessionId);
+			while (session != null && session.sessionTail != null)
+			{
+				Node<P> node = session.sessionTail;
+				nodes.remove(node.key, node);
+				remove(node);
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+		drain();
+	}
+
+	@Override
+	public void destroy()
+	{
+		lock.lock();
+		try
+		{
+			writeBuffer.clear();
+			nodes.clear();
+			sessions.clear();
+			window.clear();
+			main.clear();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Queues a modification of the order and applies the queued ones if the lock is free.
+	 *
+	 * @param task
+	 *            the modification
+	 */
+	private void afterWrite(final Runnable task)
+	{
+		writeBuffer.add(task);
+		drain();
+	}
+
+	/**
+	 * Applies the queued modifications unless another thread holds the lock. That thread checks
+	 * the queue again after releasing the lock, so no modification is left behind.
+	 */
+	private void drain()
+	{
+		while (writeBuffer.isEmpty() == false && lock.tryLock())
+		{
+			try
+			{
+				drainWriteBuffer();
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+	}
+
+	private void drainWriteBuffer()
+	{
+		Runnable task;
+		while ((task = writeBuffer.poll()) != null)
+		{
+			task.run();
+		}
+	}
+
+	/**
+	 * Links a node stored in {@link #nodes}, unless it was removed or replaced meanwhile.
+	 *
+	 * @param node
+	 */
+	private void add(final Node<P> node)
+	{
+		if (nodes.get(node.key) != node)
+		{
+			return;
+		}
+
+		String sessionId = node.key.sessionId;
+		window.addToHead(node);
+		sessions.computeIfAbsent(sessionId, id -> new NodeList<>()).addToHeadOfSession(node);
+		sketch.ensureCapacity(nodes.size());
+		sketch.increment(node.key.hashCode());
+
+		evict(sessionId);
+	}
+
+	/**
+	 * Evicts pages until the session and the cache are within their bounds.
+	 *
+	 * @param sessionId
+	 *            the session a page was added to
+	 */
+	private void evict(final String sessionId)
+	{
+		NodeList<P> session = sessions.get(sessionId);
+		while (session.sessionSize > maxEntriesPerSession)
+		{
+			evict(session.sessionTail);
+		}
+
+		while (window.weight > maxWindowWeight)
+		{
+			Node<P> candidate = window.tail;
+			window.remove(candidate);
+			main.addToHead(candidate);
+
+			while (window.weight + main.weight > maxWeight && candidate.list != null)
+			{
+				Node<P> victim = main.tail;
+				if (victim == candidate)
+				{
+					evict(candidate);
+				}
+				else if (sketch.frequency(candidate.key.hashCode()) >= sketch
+					.frequency(victim.key.hashCode()))
+				{
+					evict(victim);
+				}
+				else
+				{
+					evict(candidate);
+				}
+			}
+		}
+
+		while (window.weight + main.weight > maxWeight)
+		{
+			evict(main.tail != null ? main.tail : window.tail);
+		}
+	}
+
+	private void evict(final Node<P> node)
+	{
+		nodes.remove(node.key, node);
+		remove(node);
+		evictions.increment();
+	}
+
+	/**
+	 * Unlinks the node from its list and session.
+	 *
+	 * @param node
+	 *            the node removed from {@link #nodes} or {@code null}
+	 */
+	private void remove(final Node<P> node)
+	{
+		if (node != null && node.list != null)
+		{
+			node.list.remove(node);
+
+			NodeList<P> session = sessions.get(node.key.sessionId);
+			session.removeFromSession(node);
+			if (session.sessionSize == 0)
+			{
+				sessions.remove(node.key.sessionId);
+			}
+		}
+	}
+
+	/**
+	 * @return the number of cached pages
+	 */
+	public int getSize()
+	{
+		return nodes.size();
+	}
+
+	/**
+	 * @return the total weight of the cached pages
+	 */
+	public long getWeight()
+	{
+		long weight;
+		lock.lock();
+		try
+		{
+			drainWriteBuffer();
+			weight = window.weight + main.weight;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+		drain();
+		return weight;
+	}
+
+	/**
+	 * @return the number of lookups which found a page
+	 */
+	public long getHitCount()
+	{
+		return hits.sum();
+	}
+
+	/**
+	 * @return the number of lookups which didn't find a page
+	 */
+	public long getMissCount()
+	{
+		return misses.sum();
+	}
+
+	/**
+	 * @return the number of pages evicted to keep the cache within its bounds
+	 */
+	public long getEvictionCount()
+	{
+		return evictions.sum();
+	}
+
+	@Override
+	public String toString()
+	{
+		return getClass().getSimpleName() + " [size=" + getSize() + ", weight=" + getWeight() +
+			", hits=" + getHitCount() + ", misses=" + getMissCount() + ", evictions=" +
+			getEvictionCount() + "]";
+	}
+
+	/**
+	 * The key of a page in a session.
+	 */
+	private static class Key
+	{
+		private final String sessionId;
+
+		private final int pageId;
+
+		private final int hash;
+
+		private Key(final String sessionId, final int pageId)
+		{
+			this.sessionId = sessionId;
+			this.pageId = pageId;
+			hash = 31 * pageId + sessionId.hashCode();
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (this == obj)
+				return true;
+			if (obj == null || getClass() != obj.getClass())
+				return false;
+			Key other = (Key)obj;
+			return pageId == other.pageId && sessionId.equals(other.sessionId);
+		}
+	}
+
+	/**
+	 * A cached page, linked into the window or main list and into the list of its session.
+	 */
+	private static class Node<P>
+	{
+		private final Key key;
+
+		private final P page;
+
+		private final long weight;
+
+		/**
+		 * The list containing this node or {@code null} if removed.
+		 */
+		private NodeList<P> list;
+
+		private Node<P> previous;
+
+		private Node<P> next;
+
+		private Node<P> sessionPrevious;
+
+		private Node<P> sessionNext;
+
+		private Node(final Key key, final P page, final long weight)
+		{
+			this.key = key;
+			this.page = page;
+			this.weight = weight;
+		}
+	}
+
+	/**
+	 * A list of nodes ordered by recency, the head being the most recently used. Used either as
+	 * window or main list, or as the list of the nodes of a session.
+	 */
+	private static class NodeList<P>
+	{
+		private Node<P> head;
+
+		private Node<P> tail;
+
+		private long weight;
+
+		private Node<P> sessionHead;
+
+		private Node<P> sessionTail;
+
+		private int sessionSize;
+
+		private void addToHead(final Node<P> node)
+		{
+			node.list = this;
+			node.previous = null;
+			node.next = head;
+			if (head != null)
+			{
+				head.previous = node;
+			}
+			head = node;
+			if (tail == null)
+			{
+				tail = node;
+			}
+			weight += node.weight;
+		}
+
+		private void remove(final Node<P> node)
+		{
+			if (node.previous != null)
+			{
+				node.previous.next = node.next;
+			}
+			else
+			{
+				head = node.next;
+			}
+			if (node.next != null)
+			{
+				node.next.previous = node.previous;
+			}
+			else
+			{
+				tail = node.previous;
+			}
+			node.previous = null;
+			node.next = null;
+			node.list = null;
+			weight -= node.weight;
+		}
+
+		private void moveToHead(final Node<P> node)
+		{
+			if (head != node)
+			{
+				remove(node);
+				addToHead(node);
+			}
+		}
+
+		private void addToHeadOfSession(final Node<P> node)
+		{
+			node.sessionPrevious = null;
+			node.sessionNext = sessionHead;
+			if (sessionHead != null)
+			{
+				sessionHead.sessionPrevious = node;
+			}
+			sessionHead = node;
+			if (sessionTail == null)
+			{
+				sessionTail = node;
+			}
+			sessionSize++;
+		}
+
+		private void removeFromSession(final Node<P> node)
+		{
+			if (node.sessionPrevious != null)
+			{
+				node.sessionPrevious.sessionNext = node.sessionNext;
+			}
+			else
+			{
+				sessionHead = node.sessionNext;
+			}
+			if (node.sessionNext != null)
+			{
+				node.sessionNext.sessionPrevious = node.sessionPrevious;
+			}
+			else
+			{
+				sessionTail = node.sessionPrevious;
+			}
+			node.sessionPrevious = null;
+			node.sessionNext = null;
+			sessionSize--;
+		}
+
+		private void moveToHeadOfSession(final Node<P> node)
+		{
+			if (sessionHead != node)
+			{
+				removeFromSession(node);
+				addToHeadOfSession(node);
+			}
+		}
+
+		private void clear()
+		{
+			head = null;
+			tail = null;
+			weight = 0;
+		}
+	}
+
+	/**
+	 * A count-min sketch of 4 bit counters estimating how often a page was accessed recently. The
+	 * counters are halved periodically so the estimation follows changes of the access pattern.
+	 */
+	private static class FrequencySketch
+	{
+		private static final int MAX_WIDTH = 1 << 22;
+
+		private static final int[] SEEDS = { 0x97CB3127, 0xB0B7E0B5, 0x5A8C7E39, 0xDEADBEEF };
+
+		/**
+		 * 4 rows of counters, one per byte.
+		 */
+		private byte[] counters;
+
+		private int width;
+
+		private int additions;
+
+		private FrequencySketch()
+		{
+			resize(64);
+		}
+
+		private void ensureCapacity(final int size)
+		{
+			if (size > width && width < MAX_WIDTH)
+			{
+				resize(Math.min(MAX_WIDTH, Integer.highestOneBit(size) << 1));
+			}
+		}
+
+		private void resize(final int newWidth)
+		{
+			width = newWidth;
+			counters = new byte[4 * width];
+			additions = 0;
+		}
+
+		private int index(final int hash, final int row)
+		{
+			int h = (hash ^ (hash >>> 16)) * SEEDS[row];
+			return row * width + ((h ^ (h >>> 16)) & (width - 1));
+		}
+
+		private void increment(final int hash)
+		{
+			boolean added = false;
+			for (int row = 0; row < 4; row++)
+			{
+				int index = index(hash, row);
+				if (counters[index] < 15)
+				{
+					counters[index]++;
+					added = true;
+				}
+			}
+
+			if (added && ++additions >= 10 * width)
+			{
+				for (int i = 0; i < counters.length; i++)
+				{
+					counters[i] >>= 1;
+				}
+				additions /= 2;
+			}
+		}
+
+		private int frequency(final int hash)
+		{
+			int frequency = Integer.MAX_VALUE;
+			for (int row = 0; row < 4; row++)
+			{
+				frequency = Math.min(frequency, counters[index(hash, row)]);
+			}
+			return frequency;
+		}
+	}
+}
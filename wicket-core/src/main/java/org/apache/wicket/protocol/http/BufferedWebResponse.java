@@ -603,6 +603,26 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 		}
 	}
 
+	/**
+	 * Estimates the memory used by the buffered content, i.e. two bytes per written char plus the
+	 * written bytes.
+	 * 
+	 * @return the number of buffered bytes
+	 */
+	long getBufferedSize()
+	{
+		long size = 0;
+		if (charSequenceAction != null)
+		{
+			size += 2L * charSequenceAction.builder.length();
+		}
+		if (dataAction != null)
+		{
+			size += dataAction.stream.size();
+		}
+		return size;
+	}
+
 	@Override
 	public boolean isRedirect()
 	{
@@ -16,33 +16,116 @@
  */
 package org.apache.wicket.protocol.http;
 
-import java.util.Map;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
-import org.apache.wicket.util.collections.MostRecentlyUsedMap;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
 import org.apache.wicket.util.time.Duration;
 import org.apache.wicket.util.time.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
- * A map that contains the buffered responses. It has a constraint on the maximum entries that it
- * can contain, and a constraint on the duration of time an entry is considered valid/non-expired
+ * The buffered responses of {@link org.apache.wicket.settings.RequestCycleSettings.RenderStrategy#REDIRECT_TO_BUFFER}.
+ * It has a constraint on the total size of the buffered content, on the size of the buffered
+ * content of a single session, and on the duration of time an entry is considered
+ * valid/non-expired.
+ * <p>
+ * The responses are grouped by session, each session's responses being modified in the lock of
+ * its bin of a {@link ConcurrentHashMap}, so requests of different sessions do not contend. Since a
+ * buffered response is removed when the browser follows the redirect, the oldest responses are
+ * evicted first when the store is full. A session exceeding its share evicts its own responses
+ * only, so a single session cannot push out the responses of all others.
+ * </p>
+ * An evicted response forces the page to be rendered again when the browser follows the redirect,
+ * so evictions are counted.
  */
-class StoredResponsesMap extends MostRecentlyUsedMap<String, Object>
+public class StoredResponsesMap
 {
-	private static final long serialVersionUID = 1L;
+	private static final Logger log = LoggerFactory.getLogger(StoredResponsesMap.class);
 
 	/**
-	 * The actual object that is stored as a value of the map. It wraps the buffered response and
-	 * assigns it a creation time.
+	 * The key of a stored response, queued in {@link StoredResponsesMap#order} without the
+	 * response itself, so a removed response is not retained until its key is polled.
+	 */
+	private static class Key
+	{
+		private final String sessionId;
+
+		private final String url;
+
+		/** the time when the response is stored */
+		private final Time creationTime = Time.now();
+
+		/** whether the value is removed from the store already */
+		private volatile boolean removed;
+
+		private Key(String sessionId, String url)
+		{
+			this.sessionId = sessionId;
+			this.url = url;
+		}
+	}
+
+	/**
+	 * A stored response.
 	 */
 	private static class Value
 	{
+		private final Key key;
+
 		/** the original response to store */
-		private BufferedWebResponse response;
+		private final BufferedWebResponse response;
 
-		/** the time when this response is stored */
-		private Time creationTime;
+		private final long size;
+
+		private Value(String sessionId, String url, BufferedWebResponse response)
+		{
+			this.key = new Key(sessionId, url);
+			this.response = response;
+			this.size = response.getBufferedSize();
+		}
 	}
 
+	/**
+	 * The responses of a session, only accessed while computing its entry in
+	 * {@link StoredResponsesMap#sessions}.
+	 */
+	private static class SessionResponses
+	{
+		private final LinkedHashMap<String, Value> values = new LinkedHashMap<>();
+
+		private long size;
+	}
+
+	private final ConcurrentMap<String, SessionResponses> sessions = new ConcurrentHashMap<>();
+
+	/**
+	 * The keys of all stored values in the order they were stored, including removed ones until
+	 * they are polled.
+	 */
+	private final Queue<Key> order = new ConcurrentLinkedQueue<>();
+
+	private final AtomicLong size = new AtomicLong();
+
+	private final AtomicInteger count = new AtomicInteger();
+
+	private final LongAdder evictions = new LongAdder();
+
+	private final LongAdder expirations = new LongAdder();
+
+	private final long maxSize;
+
+	private final long maxSessionSize;
+
 	/**
 	 * The duration of time before a {@link Value} is considered as expired
 	 */
@@ -51,100 +134,263 @@ class StoredResponsesMap extends MostRecentlyUsedMap<String, Object>
 	/**
 	 * Construct.
 	 * 
-	 * @param maxEntries
-	 *            how much entries this map can contain
+	 * @param maxSize
+	 *            the maximum size of all buffered responses
+	 * @param maxSessionSize
+	 *            the maximum size of the buffered responses of a single session
 	 * @param lifetime
 	 *            the duration of time to keep an entry in the map before considering it expired
 	 */
-	public StoredResponsesMap(int maxEntries, Duration lifetime)
+	public StoredResponsesMap(Bytes maxSize, Bytes maxSessionSize, Duration lifetime)
 	{
-		super(maxEntries);
-
-		this.lifetime = lifetime;
+		this.maxSize = Args.notNull(maxSize, "maxSize").bytes();
+		this.maxSessionSize = Args.notNull(maxSessionSize, "maxSessionSize").bytes();
+		this.lifetime = Args.notNull(lifetime, "lifetime");
 	}
 
-	@Override
-	protected synchronized boolean removeEldestEntry(java.util.Map.Entry<String, Object> eldest)
+	/**
+	 * Stores a response, evicting the oldest responses if necessary.
+	 * 
+	 * @param sessionId
+	 * @param url
+	 * @param response
+	 * @return the response previously stored for the url or {@code null}
+	 */
+	BufferedWebResponse put(String sessionId, String url, BufferedWebResponse response)
 	{
-		boolean removed = super.removeEldestEntry(eldest);
-		if (removed == false)
-		{
-			Value value = (Value)eldest.getValue();
-			if (value != null)
+		Args.notNull(response, "response");
+
+		final Value value = new Value(sessionId, url, response);
+		final Value[] previous = new Value[1];
+		sessions.compute(sessionId, (id, responses) -> {
+			if (responses == null)
 			{
-				Duration elapsedTime = Time.now().subtract(value.creationTime);
-				if (lifetime.lessThanOrEqual(elapsedTime))
-				{
-					removedValue = value.response;
-					removed = true;
-				}
+				responses = new SessionResponses();
 			}
-		}
-		return removed;
+
+			previous[0] = responses.values.remove(url);
+			if (previous[0] != null)
+			{
+				removed(responses, previous[0]);
+			}
+
+			responses.values.put(url, value);
+			responses.size += value.size;
+			size.addAndGet(value.size);
+			count.incrementAndGet();
+
+			// keep the newest response even if it exceeds the share of the session
+			Iterator<Value> iterator = responses.values.values().iterator();
+			while (responses.size > maxSessionSize && responses.values.size() > 1)
+			{
+				Value eldest = iterator.next();
+				iterator.remove();
+				removed(responses, eldest);
+				evicted(eldest);
+			}
+			return responses;
+		});
+		order.add(value.key);
+
+		evict();
+
+		return previous[0] != null ? previous[0].response : null;
 	}
 
-	@Override
-	public BufferedWebResponse put(String key, Object bufferedResponse)
+	/**
+	 * @param sessionId
+	 * @param url
+	 * @return the stored response or {@code null} if there is none or it is expired
+	 */
+	BufferedWebResponse get(String sessionId, String url)
 	{
-		if (!(bufferedResponse instanceof BufferedWebResponse))
-		{
-			throw new IllegalArgumentException(StoredResponsesMap.class.getSimpleName() +
-				" can store only instances of " + BufferedWebResponse.class.getSimpleName());
-		}
-
-		Value value = new Value();
-		value.creationTime = Time.now();
-		value.response = (BufferedWebResponse)bufferedResponse;
+		final Value[] value = new Value[1];
+		sessions.computeIfPresent(sessionId, (id, responses) -> {
+			value[0] = responses.values.get(url);
+			return responses;
+		});
 
-		Value oldValue;
-		synchronized (this)
+		if (value[0] != null && isExpired(value[0].key))
 		{
-			oldValue = (Value)super.put(key, value);
+			remove(value[0].key);
+			expirations.increment();
+			return null;
 		}
+		return value[0] != null ? value[0].response : null;
+	}
 
-		return oldValue != null ? oldValue.response : null;
+	/**
+	 * @param sessionId
+	 * @param url
+	 * @return {@code true} if there is a non-expired response
+	 */
+	boolean containsKey(String sessionId, String url)
+	{
+		return get(sessionId, url) != null;
 	}
 
-	@Override
-	public BufferedWebResponse get(Object key)
+	/**
+	 * Removes a stored response.
+	 * 
+	 * @param sessionId
+	 * @param url
+	 * @return the removed response or {@code null} if there was none or it was expired
+	 */
+	BufferedWebResponse remove(String sessionId, String url)
 	{
-		BufferedWebResponse result = null;
-		Value value;
-		synchronized (this)
-		{
-			value = (Value)super.get(key);
-		}
-		if (value != null)
-		{
-			Duration elapsedTime = Time.now().subtract(value.creationTime);
-			if (lifetime.greaterThan(elapsedTime))
+		final Value[] value = new Value[1];
+		sessions.computeIfPresent(sessionId, (id, responses) -> {
+			value[0] = responses.values.remove(url);
+			if (value[0] != null)
 			{
-				result = value.response;
+				removed(responses, value[0]);
 			}
-			else
+			return responses.values.isEmpty() ? null : responses;
+		});
+
+		if (value[0] != null && isExpired(value[0].key))
+		{
+			expirations.increment();
+			return null;
+		}
+		return value[0] != null ? value[0].response : null;
+	}
+
+	/**
+	 * Removes all responses of a session.
+	 * 
+	 * @param sessionId
+	 */
+	void removeSession(String sessionId)
+	{
+		sessions.computeIfPresent(sessionId, (id, responses) -> {
+			for (Value value : responses.values.values())
 			{
-				// expired, remove it
-				remove(key);
+				removed(responses, value);
 			}
-		}
-		return result;
+			return null;
+		});
 	}
 
-	@Override
-	public BufferedWebResponse remove(Object key)
+	/**
+	 * @return the number of stored responses
+	 */
+	public int size()
 	{
-		Value removedValue;
-		synchronized (this)
-		{
-			removedValue = (Value)super.remove(key);
-		}
+		return count.get();
+	}
 
-		return removedValue != null ? removedValue.response : null;
+	/**
+	 * @return the size of all stored responses in bytes
+	 */
+	public long getSizeInBytes()
+	{
+		return size.get();
+	}
+
+	/**
+	 * @return the number of responses evicted before the browser followed the redirect
+	 */
+	public long getEvictionCount()
+	{
+		return evictions.sum();
+	}
+
+	/**
+	 * @return the number of responses expired before the browser followed the redirect
+	 */
+	public long getExpirationCount()
+	{
+		return expirations.sum();
 	}
 
 	@Override
-	public void putAll(Map<? extends String, ?> m)
+	public String toString()
+	{
+		return "StoredResponsesMap [size=" + size() + ", bytes=" + getSizeInBytes() +
+			", evictions=" + getEvictionCount() + ", expirations=" + getExpirationCount() + "]";
+	}
+
+	private boolean isExpired(Key key)
+	{
+		return lifetime.lessThanOrEqual(Time.now().subtract(key.creationTime));
+	}
+
+	/**
+	 * Accounts for a value removed from the responses of its session.
+	 */
+	private void removed(SessionResponses responses, Value value)
 	{
-		throw new UnsupportedOperationException();
+		value.key.removed = true;
+		responses.size -= value.size;
+		size.addAndGet(-value.size);
+		count.decrementAndGet();
+	}
+
+	private void evicted(Value value)
+	{
+		evicted(value.key);
+	}
+
+	private void evicted(Key key)
+	{
+		evictions.increment();
+		log.debug("Evicted the buffered response for '{}' in session '{}'", key.url,
+			key.sessionId);
+	}
+
+	/**
+	 * Removes the value of a key unless it was removed already.
+	 * 
+	 * @return {@code true} if removed by this call
+	 */
+	private boolean remove(Key key)
+	{
+		final boolean[] removed = new boolean[1];
+		sessions.computeIfPresent(key.sessionId, (id, responses) -> {
+			Value value = responses.values.get(key.url);
+			if (value != null && value.key == key)
+			{
+				responses.values.remove(key.url);
+				removed(responses, value);
+				removed[0] = true;
+			}
+			return responses.values.isEmpty() ? null : responses;
+		});
+		return removed[0];
+	}
+
+	/**
+	 * Drops removed and expired values from the head of the queue and evicts the oldest values
+	 * while the store is full.
+	 */
+	private void evict()
+	{
+		Key head;
+		while ((head = order.peek()) != null)
+		{
+			if (head.removed)
+			{
+				order.remove(head);
+			}
+			else if (isExpired(head))
+			{
+				if (order.remove(head) && remove(head))
+				{
+					expirations.increment();
+				}
+			}
+			else if (size.get() > maxSize)
+			{
+				if (order.remove(head) && remove(head))
+				{
+					evicted(head);
+				}
+			}
+			else
+			{
+				break;
+			}
+		}
 	}
 }
@@ -0,0 +1,253 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http;
+
+import javax.servlet.http.Cookie;
+
+import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.time.Time;
+
+/**
+ * Response that buffers the output of a page until {@link #startStreaming()} is called and writes
+ * all further output directly to the original response.
+ * <p>
+ * The page is buffered until its &lt;head&gt; has been rendered, so a redirect or an exception
+ * before that point replaces the response just like with a {@link BufferedWebResponse}. Once
+ * streaming the response can no longer be reset: the client has received a part of the page
+ * already.
+ * </p>
+ * 
+ * @see org.apache.wicket.settings.RequestCycleSettings#setStreamingRender(boolean)
+ */
+public class StreamingWebResponse extends WebResponse
+{
+	private final WebResponse originalResponse;
+
+	/**
+	 * Buffer of the output until streaming starts.
+	 */
+	private final BufferedWebResponse bufferedResponse;
+
+	private boolean streaming = false;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param originalResponse
+	 */
+	public StreamingWebResponse(WebResponse originalResponse)
+	{
+		this.originalResponse = Args.notNull(originalResponse, "originalResponse");
+
+		bufferedResponse = new BufferedWebResponse(originalResponse);
+	}
+
+	/**
+	 * Writes the buffered output to the original response and flushes it to the client. All
+	 * further output is written directly to the original response.
+	 */
+	public void startStreaming()
+	{
+		if (streaming == false)
+		{
+			bufferedResponse.writeTo(originalResponse);
+			streaming = true;
+
+			originalResponse.flush();
+		}
+	}
+
+	/**
+	 * @return {@code true} if output has been written to the original response already
+	 */
+	public boolean isStreaming()
+	{
+		return streaming;
+	}
+
+	/**
+	 * Writes the buffered output to the given response, only possible as long as this response
+	 * is not streaming.
+	 * 
+	 * @param response
+	 */
+	public void writeTo(WebResponse response)
+	{
+		checkBuffering();
+
+		bufferedResponse.writeTo(response);
+	}
+
+	/**
+	 * Transfers the buffered meta data to the given response, only possible as long as this
+	 * response is not streaming.
+	 * 
+	 * @param response
+	 */
+	public void writeMetaData(WebResponse response)
+	{
+		checkBuffering();
+
+		bufferedResponse.writeMetaData(response);
+	}
+
+	private void checkBuffering()
+	{
+		if (streaming)
+		{
+			throw new IllegalStateException("Response is streaming already!");
+		}
+	}
+
+	/**
+	 * @return buffered response if not streaming yet, the original response otherwise
+	 */
+	private WebResponse getTarget()
+	{
+		if (streaming)
+		{
+			return originalResponse;
+		}
+		else
+		{
+			return bufferedResponse;
+		}
+	}
+
+	@Override
+	public void addCookie(Cookie cookie)
+	{
+		getTarget().addCookie(cookie);
+	}
+
+	@Override
+	public void clearCookie(Cookie cookie)
+	{
+		getTarget().clearCookie(cookie);
+	}
+
+	@Override
+	public void flush()
+	{
+		getTarget().flush();
+	}
+
+	@Override
+	public boolean isRedirect()
+	{
+		return getTarget().isRedirect();
+	}
+
+	@Override
+	public void sendError(int sc, String msg)
+	{
+		getTarget().sendError(sc, msg);
+	}
+
+	@Override
+	public void sendRedirect(String url)
+	{
+		getTarget().sendRedirect(url);
+	}
+
+	@Override
+	public void setContentLength(long length)
+	{
+		getTarget().setContentLength(length);
+	}
+
+	@Override
+	public void setContentType(String mimeType)
+	{
+		getTarget().setContentType(mimeType);
+	}
+
+	@Override
+	public void setDateHeader(String name, Time date)
+	{
+		getTarget().setDateHeader(name, date);
+	}
+
+	@Override
+	public void setHeader(String name, String value)
+	{
+		getTarget().setHeader(name, value);
+	}
+
+	@Override
+	public void addHeader(String name, String value)
+	{
+		getTarget().addHeader(name, value);
+	}
+
+	@Override
+	public void setStatus(int sc)
+	{
+		getTarget().setStatus(sc);
+	}
+
+	@Override
+	public void disableCaching()
+	{
+		getTarget().disableCaching();
+	}
+
+	@Override
+	public String encodeURL(CharSequence url)
+	{
+		return originalResponse.encodeURL(url);
+	}
+
+	@Override
+	public String encodeRedirectURL(CharSequence url)
+	{
+		return originalResponse.encodeRedirectURL(url);
+	}
+
+	@Override
+	public void write(CharSequence sequence)
+	{
+		getTarget().write(sequence);
+	}
+
+	@Override
+	public void write(byte[] array)
+	{
+		getTarget().write(array);
+	}
+
+	@Override
+	public void write(byte[] array, int offset, int length)
+	{
+		getTarget().write(array, offset, length);
+	}
+
+	@Override
+	public void reset()
+	{
+		checkBuffering();
+
+		bufferedResponse.reset();
+	}
+
+	@Override
+	public Object getContainerResponse()
+	{
+		return originalResponse.getContainerResponse();
+	}
+}
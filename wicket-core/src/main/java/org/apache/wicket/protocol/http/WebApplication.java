@@ -70,6 +70,7 @@ import org.apache.wicket.request.resource.JavaScriptResourceReference;
 import org.apache.wicket.request.resource.ResourceReference;
 import org.apache.wicket.resource.bundles.ReplacementResourceBundleReference;
 import org.apache.wicket.session.HttpSessionStore;
+import org.apache.wicket.settings.RequestCycleSettings;
 import org.apache.wicket.util.crypt.CharEncoding;
 import org.apache.wicket.util.file.FileCleaner;
 import org.apache.wicket.util.file.IFileCleaner;
@@ -654,6 +655,12 @@ public abstract class WebApplication extends Application
 	{
 		super.sessionUnbound(sessionId);
 
+		StoredResponsesMap responses = storedResponses;
+		if (sessionId != null && responses != null)
+		{
+			responses.removeSession(sessionId);
+		}
+
 		IRequestLogger logger = getRequestLogger();
 		if (logger != null)
 		{
@@ -958,12 +965,48 @@ public abstract class WebApplication extends Application
 			+ "********************************************************************\n");
 	}
 
-	/*
-	 * Can contain at most 1000 responses and each entry can live at most one minute. For now there
-	 * is no need to configure these parameters externally.
+	/**
+	 * The buffered responses, created on first use so the settings made in {@link #init()} apply.
 	 */
-	private final StoredResponsesMap storedResponses = new StoredResponsesMap(1000,
-		Duration.seconds(60));
+	private volatile StoredResponsesMap storedResponses;
+
+	/**
+	 * @return the buffered responses of
+	 *         {@link org.apache.wicket.settings.RequestCycleSettings.RenderStrategy#REDIRECT_TO_BUFFER},
+	 *         e.g. to monitor their size and evictions
+	 */
+	public StoredResponsesMap getStoredResponses()
+	{
+		StoredResponsesMap responses = storedResponses;
+		if (responses == null)
+		{
+			synchronized (this)
+			{
+				responses = storedResponses;
+				if (responses == null)
+				{
+					responses = newStoredResponsesMap();
+					storedResponses = responses;
+				}
+			}
+		}
+		return responses;
+	}
+
+	/**
+	 * Creates the buffered responses of
+	 * {@link org.apache.wicket.settings.RequestCycleSettings.RenderStrategy#REDIRECT_TO_BUFFER}.
+	 * Each entry can live at most one minute.
+	 * 
+	 * @return the buffered responses
+	 * @see RequestCycleSettings#setBufferedResponsesMaxSize(org.apache.wicket.util.lang.Bytes)
+	 */
+	protected StoredResponsesMap newStoredResponsesMap()
+	{
+		RequestCycleSettings settings = getRequestCycleSettings();
+		return new StoredResponsesMap(settings.getBufferedResponsesMaxSize(),
+			settings.getBufferedResponsesMaxSizePerSession(), Duration.seconds(60));
+	}
 
 	/**
 	 * 
@@ -973,8 +1016,11 @@ public abstract class WebApplication extends Application
 	 */
 	public boolean hasBufferedResponse(String sessionId, Url url)
 	{
-		String key = sessionId + url.toString();
-		return storedResponses.containsKey(key);
+		if (sessionId == null)
+		{
+			return false;
+		}
+		return getStoredResponses().containsKey(sessionId, url.toString());
 	}
 
 	/**
@@ -987,8 +1033,11 @@ public abstract class WebApplication extends Application
 	 */
 	public BufferedWebResponse getAndRemoveBufferedResponse(String sessionId, Url url)
 	{
-		String key = sessionId + url.toString();
-		return storedResponses.remove(key);
+		if (sessionId == null)
+		{
+			return null;
+		}
+		return getStoredResponses().remove(sessionId, url.toString());
 	}
 
 	/**
@@ -1007,8 +1056,7 @@ public abstract class WebApplication extends Application
 			return;
 		}
 
-		String key = sessionId + url.toString();
-		storedResponses.put(key, response);
+		getStoredResponses().put(sessionId, url.toString(), response);
 	}
 
 	@Override
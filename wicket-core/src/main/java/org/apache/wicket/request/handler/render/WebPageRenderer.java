@@ -25,14 +25,19 @@ import org.apache.wicket.core.request.handler.RenderPageRequestHandler.RedirectP
 import org.apache.wicket.feedback.FeedbackCollector;
 import org.apache.wicket.feedback.FeedbackMessage;
 import org.apache.wicket.protocol.http.BufferedWebResponse;
+import org.apache.wicket.protocol.http.StreamingRenderException;
+import org.apache.wicket.protocol.http.StreamingWebResponse;
 import org.apache.wicket.protocol.http.WebApplication;
 import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.RequestHandlerExecutor.ReplaceHandlerException;
 import org.apache.wicket.request.Request;
 import org.apache.wicket.request.Url;
 import org.apache.wicket.request.component.IRequestablePage;
 import org.apache.wicket.request.cycle.RequestCycle;
 import org.apache.wicket.request.http.WebRequest;
 import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.settings.RequestCycleSettings;
+import org.apache.wicket.util.lang.Exceptions;
 import org.apache.wicket.util.lang.Objects;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -147,6 +152,107 @@ public class WebPageRenderer extends PageRenderer
 		}
 	}
 
+	/**
+	 * Whether the page should be streamed to the client while rendering.
+	 * 
+	 * @return {@code true} if streaming is enabled and no response filter needs the complete
+	 *         markup
+	 * @see org.apache.wicket.settings.RequestCycleSettings#setStreamingRender(boolean)
+	 */
+	protected boolean isStreamingRender()
+	{
+		RequestCycleSettings settings = Application.get().getRequestCycleSettings();
+
+		return settings.isStreamingRender() && settings.getResponseFilters() == null;
+	}
+
+	/**
+	 * Renders the page into a {@link StreamingWebResponse}, which sends the output to the client
+	 * once the &lt;head&gt; has been rendered.
+	 * <p>
+	 * As long as nothing has been sent, a request handler scheduled during render or an exception
+	 * replaces the output just like with {@link #renderPage(Url, RequestCycle)}. Afterwards the
+	 * response can no longer be replaced: request handlers are dropped and exceptions are wrapped
+	 * in a {@link StreamingRenderException}, so no error page is appended to the partial page.
+	 * </p>
+	 * 
+	 * @param targetUrl
+	 * @param requestCycle
+	 */
+	protected void streamPage(Url targetUrl, RequestCycle requestCycle)
+	{
+		// get the page before checking for a scheduled request handler because
+		// the page may call setResponsePage in its constructor
+		IRequestablePage requestablePage = getPage();
+
+		if (requestCycle.getRequestHandlerScheduledAfterCurrent() != null)
+		{
+			// no need to render
+			return;
+		}
+
+		// keep the original response
+		final WebResponse originalResponse = (WebResponse)requestCycle.getResponse();
+
+		StreamingWebResponse response = new StreamingWebResponse(originalResponse);
+
+		// keep the original base URL
+		Url originalBaseUrl = requestCycle.getUrlRenderer().setBaseUrl(targetUrl);
+
+		try
+		{
+			requestCycle.setResponse(response);
+			requestablePage.renderPage();
+
+			if (requestCycle.getRequestHandlerScheduledAfterCurrent() != null)
+			{
+				if (response.isStreaming())
+				{
+					logger.warn(
+						"Ignoring the request handler scheduled while streaming page '{}', the response is sent already",
+						requestablePage.getClass().getName());
+					requestCycle.scheduleRequestHandlerAfterCurrent(null);
+				}
+				else
+				{
+					// see renderPage()
+					originalResponse.reset();
+					response.writeMetaData(originalResponse);
+				}
+			}
+			else if (response.isStreaming() == false)
+			{
+				// the page has no <head>
+				response.writeTo(originalResponse);
+			}
+		}
+		catch (RuntimeException e)
+		{
+			if (response.isStreaming() == false)
+			{
+				throw e;
+			}
+
+			if (Exceptions.findCause(e, ReplaceHandlerException.class) != null)
+			{
+				logger.warn(
+					"Ignoring the request handler replacing the streaming page '{}', the response is sent already",
+					requestablePage.getClass().getName());
+			}
+			else
+			{
+				throw new StreamingRenderException("Rendering failed while streaming page '" +
+					requestablePage.getClass().getName() + "', the response is incomplete", e);
+			}
+		}
+		finally
+		{
+			// restore original response and base URL
+			requestCycle.setResponse(originalResponse);
+			requestCycle.getUrlRenderer().setBaseUrl(originalBaseUrl);
+		}
+	}
+
 	/**
 	 * 
 	 * @param url
@@ -192,10 +298,17 @@ public class WebPageRenderer extends PageRenderer
 
 		if (shouldRenderPageAndWriteResponse(requestCycle, currentUrl, targetUrl))
 		{
-			BufferedWebResponse response = renderPage(currentUrl, requestCycle);
-			if (response != null)
+			if (isStreamingRender())
 			{
-				response.writeTo((WebResponse)requestCycle.getResponse());
+				streamPage(currentUrl, requestCycle);
+			}
+			else
+			{
+				BufferedWebResponse response = renderPage(currentUrl, requestCycle);
+				if (response != null)
+				{
+					response.writeTo((WebResponse)requestCycle.getResponse());
+				}
 			}
 		}
 		else if (shouldRedirectToTargetUrl(requestCycle, currentUrl, targetUrl))
@@ -139,6 +139,7 @@ public abstract class AbstractResource implements IResource
 		private String contentRange = null;
 		private ContentRangeType contentRangeType = null;
 		private String textEncoding;
+		private String contentEncoding;
 		private long contentLength = -1;
 		private Time lastModified = null;
 		private WriteCallback writeCallback;
@@ -373,6 +374,29 @@ public abstract class AbstractResource implements IResource
 			return textEncoding;
 		}
 
+		/**
+		 * Sets the content encoding (e.g. {@code gzip}) the data has been encoded with. The data
+		 * and its content length have to be the encoded ones.
+		 * 
+		 * @param contentEncoding
+		 *            content encoding of the body
+		 *
+		 * @return {@code this}, for chaining.
+		 */
+		public ResourceResponse setContentEncoding(String contentEncoding)
+		{
+			this.contentEncoding = contentEncoding;
+			return this;
+		}
+
+		/**
+		 * @return content encoding of the body or {@code null} if the body is not encoded
+		 */
+		public String getContentEncoding()
+		{
+			return contentEncoding;
+		}
+
 		/**
 		 * Sets the content length (in bytes) of the data. Content length is optional but it's
 		 * recommended to set it so that the browser can show download progress.
@@ -720,6 +744,81 @@ public abstract class AbstractResource implements IResource
 		}
 	}
 
+	/**
+	 * Checks whether the client accepts the given content encoding, as announced by the
+	 * {@code Accept-Encoding} request header.
+	 *
+	 * @param attributes
+	 *            the attributes to get the request from
+	 * @param contentEncoding
+	 *            the content encoding, e.g. {@code gzip}
+	 * @return {@code true} if the content encoding is accepted with a quality greater than zero
+	 */
+	protected boolean isContentEncodingAccepted(final Attributes attributes,
+		final String contentEncoding)
+	{
+		Request request = attributes.getRequest();
+		if (request instanceof WebRequest == false)
+		{
+			return false;
+		}
+
+		String acceptEncoding = ((WebRequest)request).getHeader("Accept-Encoding");
+		if (Strings.isEmpty(acceptEncoding))
+		{
+			return false;
+		}
+
+		Boolean wildcard = null;
+		for (String coding : Strings.split(acceptEncoding, ','))
+		{
+			String name = coding;
+			boolean accepted = true;
+			int semicolon = coding.indexOf(';');
+			if (semicolon != -1)
+			{
+				name = coding.substring(0, semicolon);
+				accepted = isQualityPositive(coding.substring(semicolon + 1));
+			}
+			name = name.trim();
+
+			if (name.equalsIgnoreCase(contentEncoding))
+			{
+				return accepted;
+			}
+			else if ("*".equals(name))
+			{
+				wildcard = accepted;
+			}
+		}
+		return Boolean.TRUE.equals(wildcard);
+	}
+
+	/**
+	 * @param parameters
+	 *            the parameters of a coding in the {@code Accept-Encoding} header
+	 * @return {@code false} if the parameters contain a quality of zero
+	 */
+	private static boolean isQualityPositive(final String parameters)
+	{
+		for (String parameter : Strings.split(parameters, ';'))
+		{
+			String trimmed = parameter.trim();
+			if (trimmed.startsWith("q=") || trimmed.startsWith("Q="))
+			{
+				try
+				{
+					return Double.parseDouble(trimmed.substring(2).trim()) > 0;
+				}
+				catch (NumberFormatException e)
+				{
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
 	protected void setRequestRangeMetaData(WebRequest webRequest)
 	{
 		String rangeHeader = webRequest.getHeader("range");
@@ -864,6 +963,13 @@ public abstract class AbstractResource implements IResource
 				webResponse.setContentLength(contentLength);
 			}
 
+			// 8. Content Encoding
+			String contentEncoding = resourceResponse.getContentEncoding();
+			if (contentEncoding != null)
+			{
+				webResponse.setHeader("Content-Encoding", contentEncoding);
+			}
+
 			// add custom headers and values
 			final HttpHeaderCollection headers = resourceResponse.getHeaders();
 
@@ -17,6 +17,7 @@
 package org.apache.wicket.request.resource;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
@@ -24,6 +25,7 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Locale;
 import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.http.HttpServletResponse;
 
@@ -42,15 +44,19 @@ import org.apache.wicket.request.resource.caching.IStaticCacheableResource;
 import org.apache.wicket.resource.IScopeAwareTextResourceProcessor;
 import org.apache.wicket.resource.ITextResourceCompressor;
 import org.apache.wicket.response.StringResponse;
+import org.apache.wicket.settings.ResourceSettings;
 import org.apache.wicket.util.io.IOUtils;
 import org.apache.wicket.util.lang.Classes;
 import org.apache.wicket.util.lang.Packages;
+import org.apache.wicket.util.listener.IChangeListener;
 import org.apache.wicket.util.resource.IFixedLocationResourceStream;
 import org.apache.wicket.util.resource.IResourceStream;
 import org.apache.wicket.util.resource.ResourceStreamNotFoundException;
 import org.apache.wicket.util.resource.ResourceStreamWrapper;
 import org.apache.wicket.util.string.Strings;
 import org.apache.wicket.util.time.Time;
+import org.apache.wicket.util.watch.IModifiable;
+import org.apache.wicket.util.watch.IModificationWatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -82,6 +88,9 @@ public class PackageResource extends AbstractResource implements IStaticCacheabl
 
 	private static final long serialVersionUID = 1L;
 
+	/** The name of the gzip content encoding */
+	private static final String GZIP = "gzip";
+
 	/**
 	 * Exception thrown when the creation of a package resource is not allowed.
 	 */
@@ -355,18 +364,35 @@ public class PackageResource extends AbstractResource implements IStaticCacheabl
 
 			try
 			{
-				// read resource data to get the content length
-				InputStream inputStream = resourceStream.getInputStream();
-
+				InputStream inputStream = null;
 				byte[] bytes = null;
 				// send Content-Length header
 				if (readBuffered)
 				{
-					bytes = IOUtils.toByteArray(inputStream);
+					if (isGzipNegotiated(contentType))
+					{
+						// the content depends on the encodings accepted by the client
+						resourceResponse.getHeaders().addHeader("Vary", "Accept-Encoding");
+						if (isContentEncodingAccepted(attributes, GZIP))
+						{
+							bytes = getGzippedBytes(resourceStream);
+							if (bytes != null)
+							{
+								resourceResponse.setContentEncoding(GZIP);
+							}
+						}
+					}
+
+					if (bytes == null)
+					{
+						// read resource data to get the content length
+						bytes = IOUtils.toByteArray(resourceStream.getInputStream());
+					}
 					resourceResponse.setContentLength(bytes.length);
 				}
 				else
 				{
+					inputStream = resourceStream.getInputStream();
 					resourceResponse.setContentLength(resourceStream.length().bytes());
 				}
 
@@ -413,6 +439,137 @@ public class PackageResource extends AbstractResource implements IStaticCacheabl
 		return resourceResponse;
 	}
 
+	/**
+	 * Checks whether the content of this resource is negotiated with the {@code Accept-Encoding}
+	 * header of the request.
+	 * 
+	 * @param contentType
+	 *            the content type of the resource, may be {@code null}
+	 * @return {@code true} if gzip compressed content might be sent
+	 */
+	private boolean isGzipNegotiated(final String contentType)
+	{
+		if (Application.exists() == false)
+		{
+			return false;
+		}
+		ResourceSettings settings = Application.get().getResourceSettings();
+		return (settings.isGzipPackageResources() || settings.getUsePrecompressedResources()) &&
+			isGzipSupported(contentType);
+	}
+
+	/**
+	 * Checks whether content of the given type is worth compressing. By default textual content,
+	 * e.g. JavaScript, CSS, JSON, XML or SVG, is compressed, while images and archives which are
+	 * compressed already are not.
+	 * 
+	 * @param contentType
+	 *            the content type of the resource, may be {@code null}
+	 * @return {@code true} if the content should be sent gzip compressed
+	 */
+	protected boolean isGzipSupported(final String contentType)
+	{
+		if (contentType == null)
+		{
+			return false;
+		}
+		String type = contentType.toLowerCase(Locale.ROOT);
+		return type.startsWith("text/") || type.contains("javascript") || type.contains("json") ||
+			type.contains("xml") || type.contains("svg");
+	}
+
+	/**
+	 * Gets the gzip compressed content of the resource, either a pre-compressed sibling or the
+	 * compressed processed content.
+	 * 
+	 * @param resourceStream
+	 *            the resource stream
+	 * @return the compressed content or {@code null} if it should be sent uncompressed
+	 */
+	private byte[] getGzippedBytes(final IResourceStream resourceStream)
+		throws IOException, ResourceStreamNotFoundException
+	{
+		ResourceSettings settings = Application.get().getResourceSettings();
+		if (settings.getUsePrecompressedResources())
+		{
+			byte[] precompressed = getPrecompressedBytes(resourceStream);
+			if (precompressed != null)
+			{
+				return precompressed;
+			}
+		}
+
+		if (settings.isGzipPackageResources())
+		{
+			if (resourceStream instanceof ProcessingResourceStream)
+			{
+				return ((ProcessingResourceStream)resourceStream).getGzippedBytes();
+			}
+			return gzip(IOUtils.toByteArray(resourceStream.getInputStream()));
+		}
+		return null;
+	}
+
+	/**
+	 * Reads the pre-compressed sibling of the resource, i.e. {@code x.js.gz} for {@code x.js} with
+	 * the same style, variation and locale.
+	 * 
+	 * @param resourceStream
+	 *            the resource stream
+	 * @return the content of the sibling or {@code null} if there is none
+	 */
+	private byte[] getPrecompressedBytes(final IResourceStream resourceStream)
+		throws IOException, ResourceStreamNotFoundException
+	{
+		int dot = absolutePath.lastIndexOf('.');
+		if (dot == -1)
+		{
+			return null;
+		}
+
+		IResourceStream precompressed = Application.get()
+			.getResourceSettings()
+			.getResourceStreamLocator()
+			.locate(getScope(), absolutePath.substring(0, dot), resourceStream.getStyle(),
+				resourceStream.getVariation(), resourceStream.getLocale(),
+				absolutePath.substring(dot + 1) + ".gz", true);
+		if (precompressed == null)
+		{
+			return null;
+		}
+
+		try
+		{
+			return IOUtils.toByteArray(precompressed.getInputStream());
+		}
+		finally
+		{
+			IOUtils.closeQuietly(precompressed);
+		}
+	}
+
+	/**
+	 * @param bytes
+	 *            the content
+	 * @return the gzip compressed content
+	 */
+	private static byte[] gzip(final byte[] bytes)
+	{
+		try
+		{
+			ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 3 + 32);
+			try (GZIPOutputStream gzip = new GZIPOutputStream(out))
+			{
+				gzip.write(bytes);
+			}
+			return out.toByteArray();
+		}
+		catch (IOException e)
+		{
+			throw new WicketRuntimeException("Unable to compress the resource", e);
+		}
+	}
+
 	/**
 	 * Gives a chance to modify the resource going to be written in the response
 	 * 
@@ -590,7 +747,7 @@ public class PackageResource extends AbstractResource implements IStaticCacheabl
 
 		if (resourceStream != null)
 		{
-			resourceStream = new ProcessingResourceStream(resourceStream);
+			resourceStream = new ProcessingResourceStream(resourceStream, style, locale);
 		}
 		return resourceStream;
 	}
@@ -602,14 +759,32 @@ public class PackageResource extends AbstractResource implements IStaticCacheabl
 	{
 		private static final long serialVersionUID = 1L;
 
-		private ProcessingResourceStream(IResourceStream delegate)
+		private final String style;
+
+		private final Locale locale;
+
+		private ProcessingResourceStream(IResourceStream delegate, String style, Locale locale)
 		{
 			super(delegate);
+			this.style = style;
+			this.locale = locale;
 		}
 
 		@Override
 		public InputStream getInputStream() throws ResourceStreamNotFoundException
 		{
+			ProcessedResourceCache cache = getCache();
+			ProcessedKey key = null;
+			if (cache != null)
+			{
+				key = newKey(null);
+				byte[] processedBytes = cache.get(key);
+				if (processedBytes != null)
+				{
+					return new ByteArrayInputStream(processedBytes);
+				}
+			}
+
 			byte[] bytes = null;
 			InputStream inputStream = super.getInputStream();
 
@@ -643,6 +818,10 @@ public class PackageResource extends AbstractResource implements IStaticCacheabl
 			if (bytes != null)
 			{
 				byte[] processedBytes = processResponse(attributes, bytes);
+				if (key != null)
+				{
+					put(cache, key, processedBytes);
+				}
 				return new ByteArrayInputStream(processedBytes);
 			}
 			else
@@ -650,6 +829,89 @@ public class PackageResource extends AbstractResource implements IStaticCacheabl
 				return inputStream;
 			}
 		}
+
+		/**
+		 * Gets the gzip compressed processed content, compressing it only if it is not cached yet.
+		 * 
+		 * @return the compressed content
+		 */
+		private byte[] getGzippedBytes() throws IOException, ResourceStreamNotFoundException
+		{
+			ProcessedResourceCache cache = getCache();
+			ProcessedKey key = null;
+			if (cache != null)
+			{
+				key = newKey(GZIP);
+				byte[] gzippedBytes = cache.get(key);
+				if (gzippedBytes != null)
+				{
+					return gzippedBytes;
+				}
+			}
+
+			byte[] gzippedBytes = gzip(IOUtils.toByteArray(getInputStream()));
+			if (key != null)
+			{
+				put(cache, key, gzippedBytes);
+			}
+			return gzippedBytes;
+		}
+
+		/**
+		 * @return the cache of the processed content or {@code null} if it should not be cached
+		 */
+		private ProcessedResourceCache getCache()
+		{
+			if (readBuffered && isCachingEnabled() && Application.exists())
+			{
+				return Application.get().getResourceSettings().getProcessedResourceCache();
+			}
+			return null;
+		}
+
+		/**
+		 * @param contentEncoding
+		 *            the content encoding of the cached content, {@code null} for the plain one
+		 * @return the key of the processed content in the cache
+		 */
+		private ProcessedKey newKey(final String contentEncoding)
+		{
+			Time lastModified = lastModifiedTime();
+			return new ProcessedKey(PackageResource.this.getClass().getName(),
+				new CacheKey(scopeName, absolutePath, locale, style, variation),
+				lastModified != null ? lastModified.getMilliseconds() : -1L, getCompress(),
+				getTextEncoding(), contentEncoding);
+		}
+
+		/**
+		 * Caches the processed content, removing it when the resource is modified. The resource
+		 * is watched as long as the content is cached.
+		 */
+		private void put(final ProcessedResourceCache cache, final ProcessedKey key,
+			final byte[] content)
+		{
+			final IModificationWatcher watcher = Application.get()
+				.getResourceSettings()
+				.getResourceWatcher(true);
+			if (watcher == null)
+			{
+				cache.put(key, content);
+				return;
+			}
+
+			// a modifiable of its own, so removing it leaves other watched content alone
+			final IResourceStream delegate = getDelegate();
+			final IModifiable watched = delegate::lastModifiedTime;
+			watcher.add(watched, new IChangeListener<IModifiable>()
+			{
+				@Override
+				public void onChange(IModifiable modifiable)
+				{
+					cache.remove(key);
+				}
+			});
+			cache.put(key, content, () -> watcher.remove(watched));
+		}
 	}
 
 	/**
@@ -839,6 +1101,65 @@ public class PackageResource extends AbstractResource implements IStaticCacheabl
 		}
 	}
 
+	/**
+	 * The key of the processed content of a resource in the {@link ProcessedResourceCache}.
+	 */
+	private static class ProcessedKey
+	{
+		private final String type;
+		private final CacheKey cacheKey;
+		private final long lastModified;
+		private final boolean compress;
+		private final String textEncoding;
+		private final String contentEncoding;
+
+		private ProcessedKey(String type, CacheKey cacheKey, long lastModified, boolean compress,
+			String textEncoding, String contentEncoding)
+		{
+			this.type = type;
+			this.cacheKey = cacheKey;
+			this.lastModified = lastModified;
+			this.compress = compress;
+			this.textEncoding = textEncoding;
+			this.contentEncoding = contentEncoding;
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (this == o)
+				return true;
+			if (!(o instanceof ProcessedKey))
+				return false;
+
+			ProcessedKey other = (ProcessedKey)o;
+
+			return lastModified == other.lastModified && compress == other.compress &&
+				type.equals(other.type) && cacheKey.equals(other.cacheKey) &&
+				Objects.equals(textEncoding, other.textEncoding) &&
+				Objects.equals(contentEncoding, other.contentEncoding);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			int result = type.hashCode();
+			result = 31 * result + cacheKey.hashCode();
+			result = 31 * result + Long.hashCode(lastModified);
+			result = 31 * result + Boolean.hashCode(compress);
+			result = 31 * result + (textEncoding != null ? textEncoding.hashCode() : 0);
+			result = 31 * result + (contentEncoding != null ? contentEncoding.hashCode() : 0);
+			return result;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "ProcessedKey{type='" + type + "', cacheKey=" + cacheKey + ", lastModified=" +
+				lastModified + ", contentEncoding=" + contentEncoding + '}';
+		}
+	}
+
 	/**
 	 * If the package resource should be read buffered.<br>
 	 * <br>
@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.resource;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+
+/**
+ * An application wide cache of the processed content of {@link PackageResource}s, e.g. the output
+ * of the configured JavaScript or CSS compressor, so a resource is not processed again for each
+ * browser requesting it.
+ * <p>
+ * The cache is bounded by the number of bytes it holds and evicts the least recently used content
+ * first. The content is keyed by the resource and the last modification time of its stream, so a
+ * modified resource is processed again.
+ * </p>
+ * <p>
+ * Content may be cached with a callback run when it leaves the cache for any reason, e.g. to stop
+ * watching the resource for modifications.
+ * </p>
+ *
+ * @see org.apache.wicket.settings.ResourceSettings#getProcessedResourceCache()
+ */
+public class ProcessedResourceCache
+{
+	/** The default maximum size of the cache */
+	public static final Bytes DEFAULT_MAX_SIZE = Bytes.megabytes(10);
+
+	private final long maxSize;
+
+	private final Map<Object, Entry> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+	private long size;
+
+	private long hits;
+
+	private long misses;
+
+	/**
+	 * Construct.
+	 */
+	public ProcessedResourceCache()
+	{
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Construct.
+	 *
+	 * @param maxSize
+	 *            the maximum number of bytes held by the cache
+	 */
+	public ProcessedResourceCache(final Bytes maxSize)
+	{
+		this.maxSize = Args.notNull(maxSize, "maxSize").bytes();
+	}
+
+	/**
+	 * @param key
+	 *            the key of the resource
+	 * @return the processed content of the resource or {@code null} if not cached
+	 */
+	public synchronized byte[] get(final Object key)
+	{
+		Entry entry = cache.get(key);
+		if (entry != null)
+		{
+			hits++;
+			return entry.content;
+		}
+		misses++;
+		return null;
+	}
+
+	/**
+	 * Caches the processed content of a resource, evicting the least recently used content if
+	 * necessary. Content larger than the cache is not cached.
+	 *
+	 * @param key
+	 *            the key of the resource
+	 * @param content
+	 *            the processed content, must not be modified afterwards
+	 */
+	public void put(final Object key, final byte[] content)
+	{
+		put(key, content, null);
+	}
+
+	/**
+	 * Caches the processed content of a resource, evicting the least recently used content if
+	 * necessary. Content larger than the cache is not cached.
+	 *
+	 * @param key
+	 *            the key of the resource
+	 * @param content
+	 *            the processed content, must not be modified afterwards
+	 * @param onRemove
+	 *            run once the content is removed, evicted or replaced, right away if it is not
+	 *            cached at all; may be {@code null}
+	 */
+	public void put(final Object key, final byte[] content, final Runnable onRemove)
+	{
+		Args.notNull(key, "key");
+		Args.notNull(content, "content");
+
+		List<Entry> removed = new ArrayList<>();
+		Entry entry = new Entry(content, onRemove);
+		synchronized (this)
+		{
+			removeEntry(key, removed);
+			if (content.length > maxSize)
+			{
+				removed.add(entry);
+			}
+			else
+			{
+				cache.put(key, entry);
+				size += content.length;
+
+				Iterator<Entry> iterator = cache.values().iterator();
+				while (size > maxSize)
+				{
+					Entry eldest = iterator.next();
+					size -= eldest.content.length;
+					iterator.remove();
+					removed.add(eldest);
+				}
+			}
+		}
+		onRemove(removed);
+	}
+
+	/**
+	 * Removes the content of a resource.
+	 *
+	 * @param key
+	 *            the key of the resource
+	 */
+	public void remove(final Object key)
+	{
+		List<Entry> removed = new ArrayList<>(1);
+		synchronized (this)
+		{
+			removeEntry(key, removed);
+		}
+		onRemove(removed);
+	}
+
+	/**
+	 * Removes all content, e.g. because the processing changed.
+	 */
+	public void clear()
+	{
+		List<Entry> removed;
+		synchronized (this)
+		{
+			removed = new ArrayList<>(cache.values());
+			cache.clear();
+			size = 0;
+		}
+		onRemove(removed);
+	}
+
+	private void removeEntry(final Object key, final List<Entry> removed)
+	{
+		Entry entry = cache.remove(key);
+		if (entry != null)
+		{
+			size -= entry.content.length;
+			removed.add(entry);
+		}
+	}
+
+	/**
+	 * Runs the callbacks of removed entries, outside of the lock of the cache.
+	 */
+	private static void onRemove(final List<Entry> removed)
+	{
+		for (Entry entry : removed)
+		{
+			if (entry.onRemove != null)
+			{
+				entry.onRemove.run();
+			}
+		}
+	}
+
+	/**
+	 * @return the number of cached resources
+	 */
+	public synchronized int getCount()
+	{
+		return cache.size();
+	}
+
+	/**
+	 * @return the number of bytes held by the cache
+	 */
+	public synchronized long getSize()
+	{
+		return size;
+	}
+
+	/**
+	 * @return the number of lookups which found the processed content
+	 */
+	public synchronized long getHitCount()
+	{
+		return hits;
+	}
+
+	/**
+	 * @return the number of lookups which didn't find the processed content
+	 */
+	public synchronized long getMissCount()
+	{
+		return misses;
+	}
+
+	/**
+	 * @return the ratio of lookups which found the processed content
+	 */
+	public synchronized double getHitRatio()
+	{
+		long lookups = hits + misses;
+		return lookups > 0 ? (double)hits / lookups : 0d;
+	}
+
+	private static final class Entry
+	{
+		private final byte[] content;
+
+		private final Runnable onRemove;
+
+		private Entry(final byte[] content, final Runnable onRemove)
+		{
+			this.content = content;
+			this.onRemove = onRemove;
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return "ProcessedResourceCache [count=" + getCount() + ", size=" + getSize() + ", hits=" +
+			getHitCount() + ", misses=" + getMissCount() + "]";
+	}
+}
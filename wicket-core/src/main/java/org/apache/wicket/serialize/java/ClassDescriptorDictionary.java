@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.core.util.lang.WicketObjects;
+import org.apache.wicket.util.lang.Args;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An application wide dictionary of class descriptors used by {@link DictionaryJavaSerializer}.
+ * <p>
+ * Each class is assigned an id the first time it is serialized, so serialized objects refer to
+ * classes by their id instead of a full description. The ids are assigned in the order the classes
+ * are serialized. Each dictionary has a random version, so data serialized with another dictionary
+ * is recognized.
+ * </p>
+ * <p>
+ * A dictionary kept in memory is lost on restart, along with the meaning of its ids. A dictionary
+ * backed by a file keeps its version and ids across restarts, so serialized data stays readable. If
+ * a class changed in the meantime (its name, serialVersionUID or fields) it gets a new id and data
+ * referring to the old one is recognized as stale.
+ * </p>
+ */
+public class ClassDescriptorDictionary
+{
+	private static final Logger log = LoggerFactory.getLogger(ClassDescriptorDictionary.class);
+
+	private final long version;
+
+	/**
+	 * The file the registered classes are appended to, {@code null} if kept in memory only.
+	 */
+	private File file;
+
+	private final ConcurrentMap<Class<?>, Integer> ids = new ConcurrentHashMap<>();
+
+	/**
+	 * The descriptors indexed by their id, replaced on each registration.
+	 */
+	private volatile ObjectStreamClass[] descriptors = new ObjectStreamClass[0];
+
+	/**
+	 * Construct a dictionary kept in memory.
+	 */
+	public ClassDescriptorDictionary()
+	{
+		this(new SecureRandom().nextLong());
+	}
+
+	/**
+	 * Construct a dictionary backed by the given file, loading the version and the classes of an
+	 * existing one.
+	 *
+	 * @param file
+	 *            the file to keep the dictionary in, e.g. in the
+	 *            {@link org.apache.wicket.settings.StoreSettings#getFileStoreFolder() file store
+	 *            folder}
+	 */
+	public ClassDescriptorDictionary(final File file)
+	{
+		this.file = Args.notNull(file, "file");
+
+		List<String> lines = Collections.emptyList();
+		if (file.exists())
+		{
+			try
+			{
+				lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+			}
+			catch (IOException e)
+			{
+				throw new WicketRuntimeException("Cannot read class dictionary " + file, e);
+			}
+		}
+
+		if (lines.isEmpty())
+		{
+			version = new SecureRandom().nextLong();
+			append(Long.toHexString(version));
+		}
+		else
+		{
+			version = Long.parseUnsignedLong(lines.get(0), 16);
+			load(lines.subList(1, lines.size()));
+		}
+	}
+
+	/**
+	 * Construct.
+	 *
+	 * @param version
+	 *            the version of the dictionary
+	 */
+	ClassDescriptorDictionary(final long version)
+	{
+		this.version = version;
+	}
+
+	/**
+	 * @return the version of this dictionary
+	 */
+	public long getVersion()
+	{
+		return version;
+	}
+
+	/**
+	 * @return the number of registered classes
+	 */
+	public int size()
+	{
+		return descriptors.length;
+	}
+
+	/**
+	 * Returns the id of the class described by the given descriptor, registering the class if
+	 * necessary.
+	 *
+	 * @param descriptor
+	 *            the descriptor of a local class
+	 * @return the id of the class
+	 */
+	public int getId(final ObjectStreamClass descriptor)
+	{
+		Class<?> type = Args.notNull(descriptor.forClass(), "descriptor.forClass()");
+		Integer id = ids.get(type);
+		if (id == null)
+		{
+			id = register(type);
+		}
+		return id;
+	}
+
+	private synchronized int register(final Class<?> type)
+	{
+		Integer id = ids.get(type);
+		if (id == null)
+		{
+			ObjectStreamClass[] current = descriptors;
+			ObjectStreamClass[] updated = Arrays.copyOf(current, current.length + 1);
+			updated[current.length] = ObjectStreamClass.lookupAny(type);
+			append(fingerprint(updated[current.length]) + " " + type.getName());
+			descriptors = updated;
+
+			id = current.length;
+			ids.put(type, id);
+		}
+		return id;
+	}
+
+	/**
+	 * Registers the classes of a file, keeping the ids of classes which cannot be resolved or
+	 * changed unused.
+	 *
+	 * @param lines
+	 *            the fingerprint and the name of each class
+	 */
+	private void load(final List<String> lines)
+	{
+		List<ObjectStreamClass> loaded = new ArrayList<>(lines.size());
+		for (String line : lines)
+		{
+			int separator = line.indexOf(' ');
+			String name = line.substring(separator + 1);
+
+			ObjectStreamClass descriptor = null;
+			Class<?> type = WicketObjects.resolveClass(name);
+			if (type != null && ids.containsKey(type) == false)
+			{
+				descriptor = ObjectStreamClass.lookupAny(type);
+				if (line.substring(0, separator).equals(fingerprint(descriptor)))
+				{
+					ids.put(type, loaded.size());
+				}
+				else
+				{
+					log.debug("Class {} changed, data referring to it is stale", name);
+					descriptor = null;
+				}
+			}
+			loaded.add(descriptor);
+		}
+		descriptors = loaded.toArray(new ObjectStreamClass[0]);
+	}
+
+	/**
+	 * Appends a line to the file of this dictionary. If that fails the file is removed, so the ids
+	 * assigned afterwards are never mistaken for the ones of a restarted dictionary.
+	 *
+	 * @param line
+	 */
+	private void append(final String line)
+	{
+		if (file == null)
+		{
+			return;
+		}
+
+		try
+		{
+			Files.write(file.toPath(), Collections.singletonList(line), StandardCharsets.UTF_8,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		}
+		catch (IOException e)
+		{
+			log.error("Cannot write class dictionary " + file + ", keeping it in memory", e);
+			if (file.delete() == false)
+			{
+				log.error("Cannot remove class dictionary {}, remove it before a restart", file);
+			}
+			file = null;
+		}
+	}
+
+	/**
+	 * Computes the fingerprint of a class, which changes with its name, serialVersionUID or
+	 * serializable fields.
+	 *
+	 * @param descriptor
+	 *            the descriptor of the class
+	 * @return the fingerprint
+	 */
+	private static String fingerprint(final ObjectStreamClass descriptor)
+	{
+		long hash = descriptor.getSerialVersionUID();
+		for (ObjectStreamField field : descriptor.getFields())
+		{
+			hash = 31 * hash + field.getName().hashCode();
+			hash = 31 * hash + field.getTypeCode();
+			if (field.getTypeString() != null)
+			{
+				hash = 31 * hash + field.getTypeString().hashCode();
+			}
+		}
+		return Long.toHexString(hash);
+	}
+
+	/**
+	 * @param id
+	 *            the id of a class
+	 * @return the descriptor of the class or {@code null} if there is no class with this id
+	 */
+	public ObjectStreamClass getDescriptor(final int id)
+	{
+		ObjectStreamClass[] current = descriptors;
+		return id >= 0 && id < current.length ? current[id] : null;
+	}
+}
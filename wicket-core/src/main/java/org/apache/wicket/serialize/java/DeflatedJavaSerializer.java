@@ -21,6 +21,8 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
@@ -38,12 +40,24 @@ import java.util.zip.InflaterInputStream;
  * getFrameworkSettings().setSerializer(new DeflatedJavaSerializer(getApplicationKey()));
  * </pre>
  * 
+ * The {@code Deflater}s and {@code Inflater}s are reset and reused by later (de)serializations,
+ * keeping at most a few instances per processor.
+ * 
  * @author papegaaij
  */
 public class DeflatedJavaSerializer extends JavaSerializer
 {
 	private static final int COMPRESS_BUF_SIZE = 4 * 1024;
 
+	/**
+	 * The maximum number of idle {@code Deflater}s and {@code Inflater}s kept for reuse.
+	 */
+	private static final int POOL_SIZE = 2 * Runtime.getRuntime().availableProcessors();
+
+	private final BlockingQueue<Deflater> deflaters = new ArrayBlockingQueue<>(POOL_SIZE);
+
+	private final BlockingQueue<Inflater> inflaters = new ArrayBlockingQueue<>(POOL_SIZE);
+
 	/**
 	 * Construct.
 	 * 
@@ -57,8 +71,7 @@ public class DeflatedJavaSerializer extends JavaSerializer
 	@Override
 	protected ObjectOutputStream newObjectOutputStream(OutputStream out) throws IOException
 	{
-		return super.newObjectOutputStream(new DeflaterOutputStream(out, createDeflater(),
-			COMPRESS_BUF_SIZE));
+		return super.newObjectOutputStream(new PooledDeflaterOutputStream(out));
 	}
 
 	/**
@@ -75,7 +88,96 @@ public class DeflatedJavaSerializer extends JavaSerializer
 	@Override
 	protected ObjectInputStream newObjectInputStream(InputStream in) throws IOException
 	{
-		return super.newObjectInputStream(new InflaterInputStream(in, new Inflater(),
-			COMPRESS_BUF_SIZE));
+		return super.newObjectInputStream(new PooledInflaterInputStream(in));
+	}
+
+	private Deflater acquireDeflater()
+	{
+		Deflater deflater = deflaters.poll();
+		return deflater != null ? deflater : createDeflater();
+	}
+
+	private void releaseDeflater(final Deflater deflater)
+	{
+		deflater.reset();
+		if (deflaters.offer(deflater) == false)
+		{
+			deflater.end();
+		}
+	}
+
+	private Inflater acquireInflater()
+	{
+		Inflater inflater = inflaters.poll();
+		return inflater != null ? inflater : new Inflater();
+	}
+
+	private void releaseInflater(final Inflater inflater)
+	{
+		inflater.reset();
+		if (inflaters.offer(inflater) == false)
+		{
+			inflater.end();
+		}
+	}
+
+	/**
+	 * Gives the {@code Deflater} back to the pool when closed.
+	 */
+	private class PooledDeflaterOutputStream extends DeflaterOutputStream
+	{
+		private boolean closed = false;
+
+		private PooledDeflaterOutputStream(final OutputStream out)
+		{
+			super(out, acquireDeflater(), COMPRESS_BUF_SIZE);
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			if (closed == false)
+			{
+				closed = true;
+				try
+				{
+					super.close();
+				}
+				finally
+				{
+					releaseDeflater(def);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gives the {@code Inflater} back to the pool when closed.
+	 */
+	private class PooledInflaterInputStream extends InflaterInputStream
+	{
+		private boolean closed = false;
+
+		private PooledInflaterInputStream(final InputStream in)
+		{
+			super(in, acquireInflater(), COMPRESS_BUF_SIZE);
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			if (closed == false)
+			{
+				closed = true;
+				try
+				{
+					super.close();
+				}
+				finally
+				{
+					releaseInflater(inf);
+				}
+			}
+		}
 	}
 }
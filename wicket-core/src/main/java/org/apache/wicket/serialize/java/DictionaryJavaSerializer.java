@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize.java;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+
+import org.apache.wicket.util.lang.Args;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link JavaSerializer} that writes the ids of a {@link ClassDescriptorDictionary} instead of
+ * full class descriptors.
+ * <p>
+ * Plain Java serialization describes each class (name, serialVersionUID, flags and fields) once per
+ * serialized page, so the bytes of a page are dominated by the descriptors of {@code Component},
+ * {@code MarkupContainer}, models and behaviors. This serializer shares the descriptors of all pages
+ * in an application wide dictionary: pages get smaller and the classes are resolved without a class
+ * loader lookup when deserializing.
+ * </p>
+ * <p>
+ * Since the dictionary is built at runtime, pages serialized before a restart cannot be deserialized
+ * and are treated as expired, unless the dictionary is backed by a file.
+ * </p>
+ * To use this serializer, put the following code in your application's init:
+ *
+ * <pre>
+ * getFrameworkSettings().setSerializer(new DictionaryJavaSerializer(getApplicationKey()));
+ * </pre>
+ *
+ * or, to keep the pages of a file based page store readable across restarts:
+ *
+ * <pre>
+ * File dictionary = new File(getStoreSettings().getFileStoreFolder(), "class-dictionary");
+ * getFrameworkSettings().setSerializer(
+ * 	new DictionaryJavaSerializer(getApplicationKey(), new ClassDescriptorDictionary(dictionary)));
+ * </pre>
+ */
+public class DictionaryJavaSerializer extends JavaSerializer
+{
+	private static final Logger log = LoggerFactory.getLogger(DictionaryJavaSerializer.class);
+
+	private final ClassDescriptorDictionary dictionary;
+
+	/**
+	 * Construct.
+	 *
+	 * @param applicationKey
+	 *            the name of the application
+	 */
+	public DictionaryJavaSerializer(final String applicationKey)
+	{
+		this(applicationKey, new ClassDescriptorDictionary());
+	}
+
+	/**
+	 * Construct.
+	 *
+	 * @param applicationKey
+	 *            the name of the application
+	 * @param dictionary
+	 *            the dictionary of class descriptors
+	 */
+	public DictionaryJavaSerializer(final String applicationKey,
+		final ClassDescriptorDictionary dictionary)
+	{
+		super(applicationKey);
+		this.dictionary = Args.notNull(dictionary, "dictionary");
+	}
+
+	/**
+	 * @return the dictionary of class descriptors
+	 */
+	public ClassDescriptorDictionary getDictionary()
+	{
+		return dictionary;
+	}
+
+	/**
+	 * Deserializes the object, or returns {@code null} if it was serialized with another
+	 * dictionary.
+	 */
+	@Override
+	public Object deserialize(final byte[] data)
+	{
+		try
+		{
+			return super.deserialize(data);
+		}
+		catch (RuntimeException e)
+		{
+			if (e.getCause() instanceof StaleDictionaryException)
+			{
+				log.debug("Ignoring data serialized with another dictionary: {}",
+					e.getCause().getMessage());
+				return null;
+			}
+			throw e;
+		}
+	}
+
+	@Override
+	protected ObjectOutputStream newObjectOutputStream(final OutputStream out) throws IOException
+	{
+		return new SerializationCheckerObjectOutputStream(out,
+			new DictionaryObjectOutputStream(out, dictionary));
+	}
+
+	@Override
+	protected ObjectInputStream newObjectInputStream(final InputStream in) throws IOException
+	{
+		return new DictionaryObjectInputStream(in, dictionary);
+	}
+
+	/**
+	 * Writes the version of the dictionary in the stream header and class ids instead of class
+	 * descriptors.
+	 */
+	private static class DictionaryObjectOutputStream extends ObjectOutputStream
+	{
+		private final ClassDescriptorDictionary dictionary;
+
+		private DictionaryObjectOutputStream(final OutputStream out,
+			final ClassDescriptorDictionary dictionary) throws IOException
+		{
+			super(writeVersion(out, dictionary));
+			this.dictionary = dictionary;
+		}
+
+		private static OutputStream writeVersion(final OutputStream out,
+			final ClassDescriptorDictionary dictionary) throws IOException
+		{
+			long version = dictionary.getVersion();
+			for (int i = 56; i >= 0; i -= 8)
+			{
+				out.write((int)(version >>> i));
+			}
+			return out;
+		}
+
+		@Override
+		protected void writeClassDescriptor(final ObjectStreamClass desc) throws IOException
+		{
+			int id = dictionary.getId(desc);
+			while ((id & ~0x7F) != 0)
+			{
+				writeByte((id & 0x7F) | 0x80);
+				id >>>= 7;
+			}
+			writeByte(id);
+		}
+	}
+
+	/**
+	 * Reads the version of the dictionary from the stream header and class ids instead of class
+	 * descriptors.
+	 */
+	private static class DictionaryObjectInputStream extends ClassResolverObjectInputStream
+	{
+		private final ClassDescriptorDictionary dictionary;
+
+		private DictionaryObjectInputStream(final InputStream in,
+			final ClassDescriptorDictionary dictionary) throws IOException
+		{
+			super(checkVersion(in, dictionary));
+			this.dictionary = dictionary;
+		}
+
+		@Override
+		protected ObjectStreamClass readClassDescriptor() throws IOException
+		{
+			int id = 0;
+			int shift = 0;
+			int b;
+			do
+			{
+				b = readUnsignedByte();
+				id |= (b & 0x7F) << shift;
+				shift += 7;
+			}
+			while ((b & 0x80) != 0);
+
+			ObjectStreamClass descriptor = dictionary.getDescriptor(id);
+			if (descriptor == null)
+			{
+				// not registered since a restart or changed meanwhile
+				throw new StaleDictionaryException("Unknown class id " + id);
+			}
+			return descriptor;
+		}
+
+		@Override
+		protected Class<?> resolveClass(final ObjectStreamClass desc)
+			throws IOException, ClassNotFoundException
+		{
+			// the descriptors of the dictionary are local ones
+			Class<?> type = desc.forClass();
+			return type != null ? type : super.resolveClass(desc);
+		}
+
+		private static InputStream checkVersion(final InputStream in,
+			final ClassDescriptorDictionary dictionary) throws IOException
+		{
+			long version = 0;
+			for (int i = 0; i < 8; i++)
+			{
+				int b = in.read();
+				if (b < 0)
+				{
+					throw new StreamCorruptedException("Missing dictionary version");
+				}
+				version = (version << 8) | b;
+			}
+
+			if (version != dictionary.getVersion())
+			{
+				throw new StaleDictionaryException("Expected dictionary version " +
+					dictionary.getVersion() + " but was " + version);
+			}
+			return in;
+		}
+	}
+
+	/**
+	 * Thrown when data serialized with another dictionary is deserialized.
+	 */
+	private static class StaleDictionaryException extends StreamCorruptedException
+	{
+		private static final long serialVersionUID = 1L;
+
+		private StaleDictionaryException(final String message)
+		{
+			super(message);
+		}
+	}
+}
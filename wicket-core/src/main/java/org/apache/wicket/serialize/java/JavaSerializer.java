@@ -52,6 +52,17 @@ import org.slf4j.LoggerFactory;
 public class JavaSerializer implements ISerializer
 {
 	private static final Logger log = LoggerFactory.getLogger(JavaSerializer.class);
+
+	/**
+	 * The initial size of the buffers the objects are serialized into.
+	 */
+	private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+
+	/**
+	 * The buffer kept by each thread for its next serialization. Holds a JDK class only, so the
+	 * threads of a container do not keep the application's class loader.
+	 */
+	private static final ThreadLocal<ByteArrayOutputStream> BUFFER = new ThreadLocal<>();
 	/**
 	 * The key of the application which can be used later to find the proper {@link IClassResolver}
 	 */
@@ -71,9 +82,9 @@ public class JavaSerializer implements ISerializer
 	@Override
 	public byte[] serialize(final Object object)
 	{
+		final ByteArrayOutputStream out = acquireBuffer();
 		try
 		{
-			final ByteArrayOutputStream out = new ByteArrayOutputStream();
 			ObjectOutputStream oos = null;
 			try
 			{
@@ -99,9 +110,57 @@ public class JavaSerializer implements ISerializer
 			log.error("Error serializing object " + object.getClass() + " [object=" + object + "]",
 				e);
 		}
+		finally
+		{
+			releaseBuffer(out);
+		}
 		return null;
 	}
 
+	/**
+	 * Takes the buffer of the current thread, or creates a new one if the thread has none or
+	 * already uses it.
+	 *
+	 * @return an empty buffer
+	 */
+	private ByteArrayOutputStream acquireBuffer()
+	{
+		ByteArrayOutputStream buffer = BUFFER.get();
+		if (buffer == null)
+		{
+			return new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+		}
+		BUFFER.remove();
+		return buffer;
+	}
+
+	/**
+	 * Keeps the buffer for the next serialization of the current thread, unless it grew beyond
+	 * {@link #getMaxRetainedBufferSize()}.
+	 *
+	 * @param buffer
+	 */
+	private void releaseBuffer(final ByteArrayOutputStream buffer)
+	{
+		if (buffer.size() <= getMaxRetainedBufferSize())
+		{
+			buffer.reset();
+			BUFFER.set(buffer);
+		}
+	}
+
+	/**
+	 * Returns the maximum size of the serialization buffer each thread keeps for reuse. Buffers of
+	 * larger objects are discarded after their serialization, so a single big page doesn't occupy
+	 * memory in each thread forever.
+	 *
+	 * @return the maximum size of a retained buffer in bytes, {@code 0} to disable the reuse
+	 */
+	protected int getMaxRetainedBufferSize()
+	{
+		return 256 * 1024;
+	}
+
 	@Override
 	public Object deserialize(final byte[] data)
 	{
@@ -179,9 +238,9 @@ public class JavaSerializer implements ISerializer
 	/**
 	 * Extend {@link ObjectInputStream} to add framework class resolution logic.
 	 */
-	private static class ClassResolverObjectInputStream extends ObjectInputStream
+	static class ClassResolverObjectInputStream extends ObjectInputStream
 	{
-		public ClassResolverObjectInputStream(InputStream in) throws IOException
+		ClassResolverObjectInputStream(InputStream in) throws IOException
 		{
 			super(in);
 		}
@@ -348,16 +407,29 @@ public class JavaSerializer implements ISerializer
 	 *     This is done so to save some CPU time to make the checks for no reason.
 	 * </p>
 	 */
-	private static class SerializationCheckerObjectOutputStream extends ObjectOutputStream
+	static class SerializationCheckerObjectOutputStream extends ObjectOutputStream
 	{
 		private final OutputStream outputStream;
 
 		private final ObjectOutputStream oos;
 
 		private SerializationCheckerObjectOutputStream(OutputStream outputStream) throws IOException
+		{
+			this(outputStream, new ObjectOutputStream(outputStream));
+		}
+
+		/**
+		 * @param outputStream
+		 *            the stream the delegate writes to
+		 * @param oos
+		 *            the stream doing the actual writing
+		 * @throws IOException
+		 */
+		SerializationCheckerObjectOutputStream(OutputStream outputStream, ObjectOutputStream oos)
+			throws IOException
 		{
 			this.outputStream = outputStream;
-			oos = new ObjectOutputStream(outputStream);
+			this.oos = oos;
 		}
 
 		@Override
@@ -22,6 +22,7 @@ import java.util.List;
 
 import org.apache.wicket.response.filter.IResponseFilter;
 import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
 import org.apache.wicket.util.time.Duration;
 
 /**
@@ -173,6 +174,18 @@ public class RequestCycleSettings
 
 	private int exceptionRetryCount = 10;
 
+	/** True if pages should be streamed to the client while rendering */
+	private boolean streamingRender = false;
+
+	/**
+	 * The maximum size of all buffered responses of {@link RenderStrategy#REDIRECT_TO_BUFFER}, room
+	 * for a thousand pages of 100,000 characters.
+	 */
+	private Bytes bufferedResponsesMaxSize = Bytes.megabytes(200);
+
+	/** The maximum size of the buffered responses of a single session */
+	private Bytes bufferedResponsesMaxSizePerSession = Bytes.megabytes(20);
+
 // ****************************************************************************
 // IRequestCycleSettings Implementation
 // ****************************************************************************
@@ -418,4 +431,96 @@ public class RequestCycleSettings
 	{
 		return exceptionRetryCount;
 	}
+
+	/**
+	 * Sets whether pages rendered directly to the client are streamed while rendering, instead of
+	 * being buffered until the whole page is rendered.
+	 * <p>
+	 * When streaming, the page is buffered until its &lt;head&gt; has been rendered, then the
+	 * buffered output is flushed to the client and the rest of the page is written as it is
+	 * rendered. This reduces the time to the first byte and the memory needed for large pages.
+	 * </p>
+	 * <p>
+	 * A redirect or an exception before the &lt;head&gt; has been sent is handled as usual. After
+	 * that the response can no longer be replaced: the client receives an incomplete page and the
+	 * output of any redirect or error page is discarded. Streaming is not used for Ajax requests,
+	 * redirects to buffer or when {@link IResponseFilter}s are configured, because these need the
+	 * complete markup. Note that development mode configures a filter by default.
+	 * </p>
+	 * 
+	 * @param streamingRender
+	 *            {@code true} if pages should be streamed, defaults to {@code false}
+	 * @return {@code this} object for chaining
+	 * @see org.apache.wicket.protocol.http.StreamingWebResponse
+	 */
+	public RequestCycleSettings setStreamingRender(boolean streamingRender)
+	{
+		this.streamingRender = streamingRender;
+		return this;
+	}
+
+	/**
+	 * @return {@code true} if pages rendered directly to the client are streamed while rendering
+	 */
+	public boolean isStreamingRender()
+	{
+		return streamingRender;
+	}
+
+	/**
+	 * Sets the maximum size of all responses buffered for
+	 * {@link RenderStrategy#REDIRECT_TO_BUFFER}. When it is exceeded the oldest responses are
+	 * evicted and their pages rendered again when the browser follows the redirect. A buffered
+	 * character takes two bytes.
+	 * <p>
+	 * Must be set in {@link org.apache.wicket.Application#init()}, it is ignored once the first
+	 * response was buffered.
+	 * </p>
+	 * 
+	 * @param maxSize
+	 *            the maximum size, defaults to 200 megabytes
+	 * @return {@code this} object for chaining
+	 */
+	public RequestCycleSettings setBufferedResponsesMaxSize(Bytes maxSize)
+	{
+		this.bufferedResponsesMaxSize = Args.notNull(maxSize, "maxSize");
+		return this;
+	}
+
+	/**
+	 * @return the maximum size of all responses buffered for
+	 *         {@link RenderStrategy#REDIRECT_TO_BUFFER}
+	 */
+	public Bytes getBufferedResponsesMaxSize()
+	{
+		return bufferedResponsesMaxSize;
+	}
+
+	/**
+	 * Sets the maximum size of the responses buffered for a single session, so one session cannot
+	 * evict the responses of all others.
+	 * <p>
+	 * Must be set in {@link org.apache.wicket.Application#init()}, it is ignored once the first
+	 * response was buffered.
+	 * </p>
+	 * 
+	 * @param maxSizePerSession
+	 *            the maximum size, defaults to 20 megabytes
+	 * @return {@code this} object for chaining
+	 * @see #setBufferedResponsesMaxSize(Bytes)
+	 */
+	public RequestCycleSettings setBufferedResponsesMaxSizePerSession(Bytes maxSizePerSession)
+	{
+		this.bufferedResponsesMaxSizePerSession = Args.notNull(maxSizePerSession,
+			"maxSizePerSession");
+		return this;
+	}
+
+	/**
+	 * @return the maximum size of the responses buffered for a single session
+	 */
+	public Bytes getBufferedResponsesMaxSizePerSession()
+	{
+		return bufferedResponsesMaxSizePerSession;
+	}
 }
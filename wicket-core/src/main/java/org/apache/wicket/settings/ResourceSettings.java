@@ -35,6 +35,7 @@ import org.apache.wicket.markup.head.ResourceAggregator.RecordedHeaderItem;
 import org.apache.wicket.markup.html.IPackageResourceGuard;
 import org.apache.wicket.markup.html.SecurePackageResourceGuard;
 import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.request.resource.ProcessedResourceCache;
 import org.apache.wicket.request.resource.caching.FilenameWithVersionResourceCachingStrategy;
 import org.apache.wicket.request.resource.caching.IResourceCachingStrategy;
 import org.apache.wicket.request.resource.caching.NoOpResourceCachingStrategy;
@@ -173,6 +174,13 @@ public class ResourceSettings implements IPropertiesFactoryContext
 
 	private boolean encodeJSessionId = false;
 
+	/** cache of the processed content of package resources */
+	private ProcessedResourceCache processedResourceCache = new ProcessedResourceCache();
+
+	private boolean gzipPackageResources = false;
+
+	private boolean usePrecompressedResources = false;
+
 	/**
 	 * Configures Wicket's default ResourceLoaders.<br>
 	 * For an example in {@code FooApplication} let {@code bar.Foo} extend {@link Component}, this
@@ -568,6 +576,7 @@ public class ResourceSettings implements IPropertiesFactoryContext
 	{
 		IJavaScriptCompressor old = javascriptCompressor;
 		javascriptCompressor = compressor;
+		clearProcessedResourceCache();
 		return old;
 	}
 
@@ -598,6 +607,7 @@ public class ResourceSettings implements IPropertiesFactoryContext
 	{
 		ICssCompressor old = cssCompressor;
 		cssCompressor = compressor;
+		clearProcessedResourceCache();
 		return old;
 	}
 
@@ -770,4 +780,85 @@ public class ResourceSettings implements IPropertiesFactoryContext
 		this.encodeJSessionId = encodeJSessionId;
 		return this;
 	}
+
+	/**
+	 * Gets the cache of the processed content of package resources, e.g. the output of the
+	 * JavaScript and CSS compressors.
+	 *
+	 * @return the cache or {@code null} if the content is processed on each request
+	 */
+	public ProcessedResourceCache getProcessedResourceCache()
+	{
+		return processedResourceCache;
+	}
+
+	/**
+	 * Sets the cache of the processed content of package resources.
+	 *
+	 * @param cache
+	 *            the cache or {@code null} to process the content on each request
+	 * @return {@code this} object for chaining
+	 */
+	public ResourceSettings setProcessedResourceCache(ProcessedResourceCache cache)
+	{
+		processedResourceCache = cache;
+		return this;
+	}
+
+	/**
+	 * Sets whether textual package resources are sent gzip compressed to clients accepting the
+	 * {@code gzip} content encoding. The compressed content is kept in the
+	 * {@link #getProcessedResourceCache() processed resource cache}, so each resource is compressed
+	 * only once. Disable this when a servlet filter or a proxy compresses the responses already.
+	 *
+	 * @param gzipPackageResources
+	 *            {@code true} to compress package resources
+	 * @return {@code this} object for chaining
+	 */
+	public ResourceSettings setGzipPackageResources(boolean gzipPackageResources)
+	{
+		this.gzipPackageResources = gzipPackageResources;
+		return this;
+	}
+
+	/**
+	 * @return Whether textual package resources are sent gzip compressed.
+	 */
+	public boolean isGzipPackageResources()
+	{
+		return gzipPackageResources;
+	}
+
+	/**
+	 * Sets whether to use pre-compressed package resources when available. Pre-compressed resources
+	 * are detected by name: the gzip compressed version of {@code x.js} is expected to be called
+	 * {@code x.js.gz}, e.g. as generated at build time. It is sent as is to clients accepting the
+	 * {@code gzip} content encoding, so it has to contain the final content of the resource.
+	 *
+	 * @param usePrecompressedResources
+	 *            The new value for the setting
+	 * @return {@code this} object for chaining
+	 */
+	public ResourceSettings setUsePrecompressedResources(boolean usePrecompressedResources)
+	{
+		this.usePrecompressedResources = usePrecompressedResources;
+		return this;
+	}
+
+	/**
+	 * @return Whether pre-compressed resources will be used.
+	 */
+	public boolean getUsePrecompressedResources()
+	{
+		return usePrecompressedResources;
+	}
+
+	private void clearProcessedResourceCache()
+	{
+		ProcessedResourceCache cache = processedResourceCache;
+		if (cache != null)
+		{
+			cache.clear();
+		}
+	}
 }
@@ -50,6 +50,8 @@ public class StoreSettings
 
 	private static final int DEFAULT_ASYNCHRONOUS_QUEUE_CAPACITY = 100;
 
+	private static final int DEFAULT_ASYNCHRONOUS_THREADS = 1;
+
 	private int inmemoryCacheSize = DEFAULT_CACHE_SIZE;
 
 	private Bytes maxSizePerSession = DEFAULT_MAX_SIZE_PER_SESSION;
@@ -58,8 +60,12 @@ public class StoreSettings
 
 	private int asynchronousQueueCapacity = DEFAULT_ASYNCHRONOUS_QUEUE_CAPACITY;
 
+	private int asynchronousThreads = DEFAULT_ASYNCHRONOUS_THREADS;
+
 	private boolean isAsynchronous = true;
 
+	private boolean deltaVersions = false;
+
 	/**
 	 * Construct.
 	 * 
@@ -192,6 +198,35 @@ public class StoreSettings
 		return this;
 	}
 
+	/**
+	 * @return the number of threads saving the pages asynchronously
+	 * @see org.apache.wicket.pageStore.AsynchronousDataStore
+	 */
+	public int getAsynchronousThreads()
+	{
+		return asynchronousThreads;
+	}
+
+	/**
+	 * Sets the number of threads saving the pages asynchronously. The pages are partitioned among
+	 * the threads by session id, so the pages of a session are always saved by the same thread.
+	 *
+	 * @param threads
+	 *            the number of threads
+	 * @see org.apache.wicket.pageStore.AsynchronousDataStore
+	 * @return {@code this} object for chaining
+	 */
+	public StoreSettings setAsynchronousThreads(int threads)
+	{
+		if (threads < 1)
+		{
+			throw new IllegalArgumentException(
+				"The number of asynchronous threads should be at least 1.");
+		}
+		asynchronousThreads = threads;
+		return this;
+	}
+
 	/**
 	 * Sets a flag whether to wrap the configured {@link org.apache.wicket.pageStore.IDataStore} with
 	 * {@link org.apache.wicket.pageStore.AsynchronousDataStore}. By doing this the HTTP worker thread will not wait for the
@@ -214,4 +249,27 @@ public class StoreSettings
 	{
 		return isAsynchronous;
 	}
+
+	/**
+	 * Sets a flag whether to wrap the configured {@link org.apache.wicket.pageStore.IDataStore}
+	 * with {@link org.apache.wicket.pageStore.DeltaDataStore}, so data stored again for a page is
+	 * written as a delta against its previous data.
+	 *
+	 * @param deltaVersions
+	 *            {@code true} to write deltas, {@code false} - otherwise
+	 * @return {@code this} object for chaining
+	 */
+	public StoreSettings setDeltaVersions(boolean deltaVersions)
+	{
+		this.deltaVersions = deltaVersions;
+		return this;
+	}
+
+	/**
+	 * @return {@code true} if data stored again for a page is written as a delta
+	 */
+	public boolean isDeltaVersions()
+	{
+		return deltaVersions;
+	}
 }
@@ -17,6 +17,7 @@
 package org.apache.wicket;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -257,6 +258,113 @@ class LocalizerTest
 		}
 	}
 
+	/**
+	 * Properties of components with the same path share the cache entry
+	 */
+	@Test
+	void cacheStatistics()
+	{
+		Session.get().setLocale(Locale.ENGLISH);
+		Application.get().getResourceSettings().getStringResourceLoaders().add(
+			new ComponentStringResourceLoader());
+		Localizer cached = new Localizer();
+		Localizer.Cache cache = cached.getCache();
+
+		MyMockPage page = new MyMockPage();
+		assertEquals("value 1", cached.getString("null", page.drop1));
+		assertEquals(0, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+
+		MyMockPage other = new MyMockPage();
+		assertEquals("value 1", cached.getString("null", other.drop1));
+		assertEquals(1, cache.getHitCount());
+
+		assertEquals("value 2", cached.getString("null", other.drop2));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(2, cache.size());
+	}
+
+	/**
+	 * The cache does not grow beyond its maximum size
+	 */
+	@Test
+	void cacheBounded()
+	{
+		Localizer bounded = new Localizer()
+		{
+			@Override
+			protected Cache newCache()
+			{
+				return new Cache(10);
+			}
+		};
+
+		for (int i = 0; i < 100; i++)
+		{
+			bounded.getString("key" + i, null, "default");
+		}
+		assertTrue(bounded.getCache().size() <= 10);
+		assertEquals(90, bounded.getCache().getEvictionCount());
+		assertEquals(100, bounded.getCache().getMissCount());
+	}
+
+	/**
+	 * The interned component paths are cleared together with the cache once too many were
+	 * interned
+	 */
+	@Test
+	void pathsBounded()
+	{
+		Localizer bounded = new Localizer()
+		{
+			@Override
+			protected Cache newCache()
+			{
+				return new Cache(10);
+			}
+		};
+		Localizer.Cache first = bounded.getCache();
+
+		WebPage page = new MyMockPage();
+		for (int i = 0; i < 100; i++)
+		{
+			Label label = new Label("label" + i);
+			page.add(label);
+			bounded.getString("key", label, "default");
+		}
+		assertNotSame(first, bounded.getCache());
+		assertTrue(bounded.getCache().size() <= 10);
+	}
+
+	/**
+	 * The protected cache hooks are used by getString
+	 */
+	@Test
+	void cacheHooks()
+	{
+		Localizer hooked = new Localizer()
+		{
+			@Override
+			protected CacheKey getCacheKey(String key, Component component, Locale locale,
+				String style, String variation)
+			{
+				return new CacheKey(key, "custom", locale, style, variation);
+			}
+
+			@Override
+			protected String getFromCache(CacheKey cacheKey)
+			{
+				return "test.string".equals(cacheKey.getKey()) ? "hooked"
+					: super.getFromCache(cacheKey);
+			}
+		};
+
+		assertEquals("hooked", hooked.getString("test.string", null, "default"));
+		assertEquals("default", hooked.getString("missing", null, "default"));
+		assertEquals("default", hooked.getString("missing", null, "default"));
+		assertEquals(1, hooked.getCache().getHitCount());
+	}
+
 	public static class MyMockPage extends WebPage
 	{
 		private static final long serialVersionUID = 1L;
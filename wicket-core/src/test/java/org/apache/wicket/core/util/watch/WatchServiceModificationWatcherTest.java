@@ -0,0 +1,398 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.core.util.watch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.Localizer;
+import org.apache.wicket.markup.IMarkupCache;
+import org.apache.wicket.markup.Markup;
+import org.apache.wicket.markup.MarkupCache;
+import org.apache.wicket.markup.MarkupFactory;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.resource.IPropertiesChangeListener;
+import org.apache.wicket.resource.IPropertiesFactory;
+import org.apache.wicket.resource.Properties;
+import org.apache.wicket.settings.ResourceSettings;
+import org.apache.wicket.util.WicketTestTag;
+import org.apache.wicket.util.resource.FileResourceStream;
+import org.apache.wicket.util.tester.WicketTestCase;
+import org.apache.wicket.util.time.Duration;
+import org.apache.wicket.util.time.Time;
+import org.apache.wicket.util.watch.IModifiable;
+import org.apache.wicket.util.watch.IModificationWatcher;
+import org.apache.wicket.util.watch.ModificationWatcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for {@link WatchServiceModificationWatcher}
+ */
+class WatchServiceModificationWatcherTest extends WicketTestCase
+{
+	private static final Logger log = LoggerFactory.getLogger(WatchServiceModificationWatcherTest.class);
+
+	private static final Duration POLL_FREQUENCY = Duration.milliseconds(100);
+
+	private Path folder;
+
+	private WatchServiceModificationWatcher watcher;
+
+	@BeforeEach
+	void before() throws IOException
+	{
+		folder = Files.createTempDirectory("wicket-watch");
+		watcher = new WatchServiceModificationWatcher(tester.getApplication(), POLL_FREQUENCY);
+	}
+
+	@AfterEach
+	void after()
+	{
+		watcher.destroy();
+		org.apache.wicket.util.file.Files.removeFolder(folder.toFile());
+	}
+
+	@Test
+	void modified() throws Exception
+	{
+		File file = newFile("modified.html");
+		AtomicInteger changes = new AtomicInteger();
+		watcher.add(new FileResourceStream(file), modifiable -> changes.incrementAndGet());
+
+		touch(file, 1);
+
+		awaitChanges(changes, 1);
+		assertEquals(1, changes.get());
+	}
+
+	/**
+	 * Modifications in a row are notified once, even if they keep arriving for longer than the
+	 * poll frequency
+	 */
+	@Test
+	void debounce() throws Exception
+	{
+		watcher.setDebounce(Duration.milliseconds(400));
+
+		File file = newFile("debounce.html");
+		AtomicInteger changes = new AtomicInteger();
+		watcher.add(new FileResourceStream(file), modifiable -> changes.incrementAndGet());
+
+		for (int i = 1; i <= 10; i++)
+		{
+			touch(file, i);
+			Thread.sleep(POLL_FREQUENCY.getMilliseconds());
+		}
+
+		awaitChanges(changes, 1);
+		Thread.sleep(1000);
+		assertEquals(1, changes.get());
+	}
+
+	/**
+	 * A new markup file removes the not found entries of its class from the markup cache
+	 */
+	@Test
+	void markupCreated() throws Exception
+	{
+		IMarkupCache markupCache = MarkupFactory.get().getMarkupCache();
+		assertNull(markupCache.getMarkup(new MissingMarkupPage(), MissingMarkupPage.class,
+			false));
+		assertNull(markupCache.getMarkup(new OtherMissingMarkupPage(),
+			OtherMissingMarkupPage.class, false));
+		assertEquals(2, noMarkupKeys().size());
+
+		watcher.entryCreated(getClasspathFolder().resolve(
+			MissingMarkupPage.class.getName().replace('.', File.separatorChar) + "_de.html"));
+
+		Set<String> keys = noMarkupKeys();
+		assertEquals(1, keys.size());
+		assertTrue(keys.iterator().next().startsWith(OtherMissingMarkupPage.class.getName()));
+	}
+
+	/**
+	 * A new markup file of a class with an underscore in its name does not remove the not found
+	 * entries of the classes with a longer name
+	 */
+	@Test
+	void markupCreatedForUnderscoredClass() throws Exception
+	{
+		IMarkupCache markupCache = MarkupFactory.get().getMarkupCache();
+		assertNull(markupCache.getMarkup(new MissingMarkup_1(), MissingMarkup_1.class, false));
+		assertNull(markupCache.getMarkup(new MissingMarkup_2(), MissingMarkup_2.class, false));
+		assertEquals(2, noMarkupKeys().size());
+
+		watcher.entryCreated(getClasspathFolder().resolve(
+			MissingMarkup_1.class.getName().replace('.', File.separatorChar) + ".html"));
+
+		Set<String> keys = noMarkupKeys();
+		assertEquals(1, keys.size());
+		assertTrue(keys.iterator().next().startsWith(MissingMarkup_2.class.getName() + '_'));
+	}
+
+	/**
+	 * A new properties file clears the properties and localizer caches
+	 */
+	@Test
+	void propertiesCreated() throws Exception
+	{
+		ResourceSettings settings = tester.getApplication().getResourceSettings();
+		final IPropertiesFactory propertiesFactory = settings.getPropertiesFactory();
+		final AtomicInteger cleared = new AtomicInteger();
+		settings.setPropertiesFactory(new IPropertiesFactory()
+		{
+			@Override
+			public void addListener(IPropertiesChangeListener listener)
+			{
+				propertiesFactory.addListener(listener);
+			}
+
+			@Override
+			public void clearCache()
+			{
+				cleared.incrementAndGet();
+				propertiesFactory.clearCache();
+			}
+
+			@Override
+			public Properties load(Class<?> clazz, String path)
+			{
+				return propertiesFactory.load(clazz, path);
+			}
+		});
+		Localizer localizer = settings.getLocalizer();
+		assertEquals("default", localizer.getString("watch.missing", null, "default"));
+		Localizer.Cache cache = localizer.getCache();
+
+		watcher.entryCreated(getClasspathFolder().resolve(
+			getClass().getName().replace('.', File.separatorChar) + ".properties"));
+
+		assertEquals(1, cleared.get());
+		assertNotSame(cache, localizer.getCache());
+	}
+
+	/**
+	 * Only the listeners of the modified file are notified
+	 */
+	@Test
+	void otherFile() throws Exception
+	{
+		File file = newFile("file.html");
+		File other = newFile("other.html");
+		AtomicInteger changes = new AtomicInteger();
+		AtomicInteger otherChanges = new AtomicInteger();
+		watcher.add(new FileResourceStream(file), modifiable -> changes.incrementAndGet());
+		watcher.add(new FileResourceStream(other), modifiable -> otherChanges.incrementAndGet());
+
+		touch(file, 1);
+
+		awaitChanges(changes, 1);
+		Thread.sleep(500);
+		assertEquals(0, otherChanges.get());
+	}
+
+	@Test
+	void removed() throws Exception
+	{
+		File file = newFile("removed.html");
+		FileResourceStream resourceStream = new FileResourceStream(file);
+		AtomicInteger changes = new AtomicInteger();
+		watcher.add(resourceStream, modifiable -> changes.incrementAndGet());
+		watcher.remove(resourceStream);
+
+		touch(file, 1);
+
+		Thread.sleep(500);
+		assertEquals(0, changes.get());
+		assertTrue(watcher.getEntries().isEmpty());
+	}
+
+	/**
+	 * Modifiables not located in a file are polled
+	 */
+	@Test
+	void polled() throws Exception
+	{
+		final Time[] lastModified = { Time.now() };
+		IModifiable modifiable = () -> lastModified[0];
+		AtomicInteger changes = new AtomicInteger();
+		watcher.add(modifiable, m -> changes.incrementAndGet());
+
+		lastModified[0] = lastModified[0].add(Duration.seconds(1));
+
+		awaitChanges(changes, 1);
+		assertEquals(1, changes.get());
+	}
+
+	/**
+	 * Compares the CPU usage with {@link ModificationWatcher} for many watched files
+	 */
+	@Test
+	@Tag(WicketTestTag.SLOW)
+	void performance() throws Exception
+	{
+		final int count = 5000;
+		final long millis = 5000;
+
+		File[] files = new File[count];
+		for (int i = 0; i < count; i++)
+		{
+			files[i] = newFile("file" + i + ".html");
+		}
+
+		ModificationWatcher polling = new ModificationWatcher(POLL_FREQUENCY);
+		try
+		{
+			long cpu = measure(polling, "ModificationWatcher Task", files, millis);
+			log.info("ModificationWatcher: {} ms CPU for {} files in {} ms", cpu, count, millis);
+		}
+		finally
+		{
+			polling.destroy();
+		}
+
+		long cpu = measure(watcher, "Wicket-ModificationWatcher-WatchService Task", files,
+			millis);
+		log.info("WatchServiceModificationWatcher: {} ms CPU for {} files in {} ms", cpu, count,
+			millis);
+	}
+
+	private long measure(IModificationWatcher watcher, String threadName, File[] files,
+		long millis) throws InterruptedException
+	{
+		for (File file : files)
+		{
+			watcher.add(new FileResourceStream(file), modifiable -> {
+			});
+		}
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		long threadId = -1;
+		for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds()))
+		{
+			if (info != null && threadName.equals(info.getThreadName()))
+			{
+				threadId = info.getThreadId();
+			}
+		}
+
+		long start = threads.getThreadCpuTime(threadId);
+		Thread.sleep(millis);
+		return (threads.getThreadCpuTime(threadId) - start) / 1000000;
+	}
+
+	private Set<String> noMarkupKeys()
+	{
+		MarkupCache.ICache<String, Markup> cache = ((MarkupCache)MarkupFactory.get()
+			.getMarkupCache()).getMarkupCache();
+		Set<String> keys = new HashSet<>();
+		for (String key : cache.getKeys())
+		{
+			if (cache.get(key) == Markup.NO_MARKUP)
+			{
+				keys.add(key);
+			}
+		}
+		return keys;
+	}
+
+	private Path getClasspathFolder() throws URISyntaxException
+	{
+		return Paths.get(getClass().getProtectionDomain().getCodeSource().getLocation().toURI());
+	}
+
+	private File newFile(String name) throws IOException
+	{
+		Path path = folder.resolve(name);
+		Files.write(path, "<html></html>".getBytes(StandardCharsets.UTF_8));
+		return path.toFile();
+	}
+
+	/**
+	 * Modifies a file and moves its modification time ahead, since the resolution of the file
+	 * system might be too coarse.
+	 */
+	private static void touch(File file, int seconds) throws IOException
+	{
+		Files.write(file.toPath(), ("<html>" + seconds + "</html>").getBytes(
+			StandardCharsets.UTF_8));
+		file.setLastModified(System.currentTimeMillis() + seconds * 1000L);
+	}
+
+	private static void awaitChanges(AtomicInteger changes, int expected)
+		throws InterruptedException
+	{
+		long end = System.currentTimeMillis() + 10000;
+		while (changes.get() < expected && System.currentTimeMillis() < end)
+		{
+			Thread.sleep(20);
+		}
+	}
+
+	/**
+	 * A page without markup
+	 */
+	private static class MissingMarkupPage extends WebPage
+	{
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * Another page without markup
+	 */
+	private static class OtherMissingMarkupPage extends WebPage
+	{
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * A page without markup with an underscore in its name
+	 */
+	private static class MissingMarkup_1 extends WebPage
+	{
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * Another page without markup with an underscore in its name
+	 */
+	private static class MissingMarkup_2 extends WebPage
+	{
+		private static final long serialVersionUID = 1L;
+	}
+}
@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.behavior.Behavior;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+import org.apache.wicket.markup.parser.XmlTag;
+import org.apache.wicket.markup.parser.XmlTag.TagType;
+import org.apache.wicket.util.WicketTestTag;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.tester.WicketTestCase;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for {@link ComponentTag}
+ */
+class ComponentTagTest extends WicketTestCase
+{
+	private static final Logger log = LoggerFactory.getLogger(ComponentTagTest.class);
+
+	/**
+	 * A mutable copy shares the attributes of the immutable tag until it modifies them
+	 */
+	@Test
+	void copyOnWrite()
+	{
+		ComponentTag tag = newImmutableTag();
+
+		ComponentTag first = tag.mutable();
+		ComponentTag second = tag.mutable();
+		assertSame(tag.getXmlTag().getReadOnlyAttributes(),
+			first.getXmlTag().getReadOnlyAttributes());
+
+		first.put("class", "first");
+		first.remove("title");
+
+		assertEquals("first", first.getAttribute("class"));
+		assertNull(first.getAttribute("title"));
+		assertEquals("cell", second.getAttribute("class"));
+		assertEquals("a title", second.getAttribute("title"));
+		assertEquals("cell", tag.getAttribute("class"));
+		assertEquals("<td class=\"cell\" title=\"a title\">", second.toString());
+	}
+
+	/**
+	 * A mutable copy shares the behaviors and user data of the immutable tag until it modifies
+	 * them
+	 */
+	@Test
+	void copyOnWriteProperties()
+	{
+		ComponentTag tag = newImmutableTag();
+
+		ComponentTag copy = tag.mutable();
+		copy.addBehavior(new Behavior()
+		{
+			private static final long serialVersionUID = 1L;
+		});
+		copy.setUserData("key", "copy");
+
+		assertEquals(2, count(copy.getBehaviors()));
+		assertEquals(1, count(tag.getBehaviors()));
+		assertEquals("copy", copy.getUserData("key"));
+		assertEquals("tag", tag.getUserData("key"));
+	}
+
+	/**
+	 * A mutable copy made immutable cannot be modified anymore
+	 */
+	@Test
+	void copyMadeImmutable()
+	{
+		ComponentTag tag = newImmutableTag();
+
+		ComponentTag copy = tag.mutable();
+		copy.makeImmutable();
+
+		assertThrows(UnsupportedOperationException.class,
+			() -> copy.getAttributes().put("class", "copy"));
+		assertEquals("cell", copy.getAttribute("class"));
+		assertEquals("cell", tag.getAttribute("class"));
+
+		copy.setUserData("key", "copy");
+		assertEquals("tag", tag.getUserData("key"));
+	}
+
+	/**
+	 * Immutable tags without attributes share an empty map
+	 */
+	@Test
+	void emptyAttributes()
+	{
+		XmlTag first = new XmlTag();
+		first.put("class", "cell");
+		first.remove("class");
+		first.makeImmutable();
+
+		XmlTag second = new XmlTag();
+		second.put("title", "a title");
+		second.remove("title");
+		second.makeImmutable();
+
+		assertSame(first.getReadOnlyAttributes(), second.getReadOnlyAttributes());
+		assertFalse(first.hasAttributes());
+	}
+
+	/**
+	 * Logs the bytes allocated per request rendering a page with a repeater
+	 */
+	@Test
+	@Tag(WicketTestTag.SLOW)
+	void repeaterAllocation()
+	{
+		final int warmup = 50;
+		final int iterations = 200;
+
+		for (int i = 0; i < warmup; i++)
+		{
+			tester.startPage(new RepeaterPage(1000));
+		}
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		long start = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+		for (int i = 0; i < iterations; i++)
+		{
+			tester.startPage(new RepeaterPage(1000));
+		}
+		long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - start;
+
+		log.info("{} bytes allocated per request rendering 1000 rows", allocated / iterations);
+	}
+
+	private static ComponentTag newImmutableTag()
+	{
+		ComponentTag tag = new ComponentTag("td", TagType.OPEN);
+		tag.put("class", "cell");
+		tag.put("title", "a title");
+		tag.addBehavior(new Behavior()
+		{
+			private static final long serialVersionUID = 1L;
+		});
+		tag.setUserData("key", "tag");
+		tag.makeImmutable();
+		return tag;
+	}
+
+	private static int count(Iterator<?> iterator)
+	{
+		int count = 0;
+		while (iterator.hasNext())
+		{
+			iterator.next();
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * A page rendering a table with a repeater
+	 */
+	public static class RepeaterPage extends WebPage implements IMarkupResourceStreamProvider
+	{
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Construct.
+		 * 
+		 * @param rows
+		 *            the number of rows
+		 */
+		public RepeaterPage(int rows)
+		{
+			List<Integer> list = new ArrayList<>();
+			for (int i = 0; i < rows; i++)
+			{
+				list.add(i);
+			}
+
+			add(new ListView<Integer>("rows", list)
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void populateItem(ListItem<Integer> item)
+				{
+					item.add(new Label("number", item.getModel()));
+					item.add(new Label("square", item.getModelObject() * item.getModelObject()));
+				}
+			});
+		}
+
+		@Override
+		public IResourceStream getMarkupResourceStream(MarkupContainer container,
+			Class<?> containerClass)
+		{
+			return new StringResourceStream("<html><body><table>" +
+				"<tr wicket:id=\"rows\" class=\"row\">" +
+				"<td wicket:id=\"number\" class=\"number\" title=\"number\"></td>" +
+				"<td wicket:id=\"square\" class=\"square\" title=\"square\"></td>" +
+				"</tr></table></body></html>");
+		}
+	}
+}
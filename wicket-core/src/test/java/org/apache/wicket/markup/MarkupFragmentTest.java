@@ -21,7 +21,9 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.wicket.util.WicketTestTag;
 import org.apache.wicket.util.tester.WicketTestCase;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -131,4 +133,88 @@ class MarkupFragmentTest extends WicketTestCase
 		// elements from iterator should match the ones from the get(i) method
 		assertEquals(iteratorElements, getElements);
 	}
+
+	/**
+	 * The index of the close tag is known for each open tag
+	 */
+	@Test
+	void closeTagIndex()
+	{
+		Markup markup = Markup.of(
+			"<body wicket:id='body'><div wicket:id='a'><span wicket:id='b'/></div><br><div wicket:id='c'> text </div></body>");
+
+		// <body>, <div a>, <span b>, </span>, </div>, <br>, <div c>, raw, </div>, </body>
+		assertEquals(9, markup.getCloseTagIndex(0));
+		assertEquals(4, markup.getCloseTagIndex(1));
+		assertEquals(3, markup.getCloseTagIndex(2));
+		assertEquals(-1, markup.getCloseTagIndex(3));
+		assertEquals(-1, markup.getCloseTagIndex(5));
+		assertEquals(8, markup.getCloseTagIndex(6));
+		assertEquals(-1, markup.getCloseTagIndex(markup.size()));
+
+		IMarkupFragment fragment = new MarkupFragment(markup, 6);
+		assertEquals(3, fragment.size());
+		assertEquals(2, fragment.getCloseTagIndex(0));
+
+		MarkupStream stream = new MarkupStream(markup);
+		stream.setCurrentIndex(1);
+		stream.skipComponent();
+		assertEquals(5, stream.getCurrentIndex());
+	}
+
+	/**
+	 * Compares skipping components with the close tag indexes and by walking the markup
+	 */
+	@Test
+	@Tag(WicketTestTag.SLOW)
+	void skipComponentPerformance()
+	{
+		StringBuilder html = new StringBuilder("<body wicket:id='body'>");
+		for (int i = 0; i < 100; i++)
+		{
+			html.append("<div wicket:id='row").append(i).append("'>");
+			for (int j = 0; j < 10; j++)
+			{
+				html.append("<p>text</p><span wicket:id='cell").append(j).append("'>cell</span>");
+			}
+			html.append("</div>");
+		}
+		html.append("</body>");
+		Markup markup = Markup.of(html.toString());
+
+		final int iterations = 2000;
+		long indexed = 0;
+		long walked = 0;
+		for (int round = 0; round < 2; round++)
+		{
+			long start = System.nanoTime();
+			for (int i = 0; i < iterations; i++)
+			{
+				MarkupStream stream = new MarkupStream(markup);
+				stream.next();
+				while (stream.atOpenTag())
+				{
+					stream.skipComponent();
+				}
+			}
+			indexed = (System.nanoTime() - start) / iterations;
+
+			start = System.nanoTime();
+			for (int i = 0; i < iterations; i++)
+			{
+				MarkupStream stream = new MarkupStream(markup);
+				stream.next();
+				while (stream.atOpenTag())
+				{
+					ComponentTag tag = stream.getTag();
+					stream.next();
+					stream.skipToMatchingCloseTag(tag);
+					stream.next();
+				}
+			}
+			walked = (System.nanoTime() - start) / iterations;
+		}
+
+		LOG.info("Skipping {} components: indexed {} ns, walked {} ns", 100, indexed, walked);
+	}
 }
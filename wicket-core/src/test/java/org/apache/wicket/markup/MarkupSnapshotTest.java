@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.wicket.Page;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.tester.WicketTestCase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link MarkupSnapshot}
+ */
+class MarkupSnapshotTest extends WicketTestCase
+{
+	private File file;
+
+	/**
+	 * @throws IOException
+	 */
+	@BeforeEach
+	void before() throws IOException
+	{
+		file = File.createTempFile("markup", ".snapshot");
+		file.delete();
+	}
+
+	/**
+	 * Delete the snapshot file
+	 */
+	@AfterEach
+	void after()
+	{
+		file.delete();
+	}
+
+	/**
+	 * Pages render the same with markup restored from a snapshot
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void roundTrip() throws IOException
+	{
+		MarkupFactory factory = tester.getApplication().getMarkupSettings().getMarkupFactory();
+
+		MarkupSnapshot snapshot = new MarkupSnapshot(tester.getApplication());
+		factory.setMarkupSnapshot(snapshot);
+		String parsed = render(MarkupSnapshotPage.class) +
+			render(MarkupInheritanceExtension_1.class);
+		assertEquals(0, snapshot.getHitCount());
+		assertTrue(snapshot.size() >= 3, "size: " + snapshot.size());
+		snapshot.write(file);
+
+		// as after a restart
+		factory.getMarkupCache().clear();
+		snapshot = new MarkupSnapshot(tester.getApplication());
+		factory.setMarkupSnapshot(snapshot);
+		int read = snapshot.read(file);
+		assertEquals(read, snapshot.size());
+
+		String restored = render(MarkupSnapshotPage.class) +
+			render(MarkupInheritanceExtension_1.class);
+		assertEquals(read, snapshot.getHitCount());
+		assertEquals(0, snapshot.getMissCount());
+		assertEquals(parsed, restored);
+	}
+
+	/**
+	 * The markup of a changed resource is not restored
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	void changedResource() throws Exception
+	{
+		MarkupSnapshot snapshot = new MarkupSnapshot("test");
+
+		MarkupResourceStream stream = newStream("<span wicket:id='a' class='x'>a</span>");
+		Markup markup = new MarkupParser(stream).parse();
+		snapshot.putMarkup(markup, MarkupSnapshot.checksum(stream));
+
+		stream = newStream("<span wicket:id='a' class='x'>a</span>");
+		Markup restored = snapshot.getMarkup(stream, MarkupSnapshot.checksum(stream));
+		assertNotNull(restored);
+		assertEquals(markup.toString(true), restored.toString(true));
+
+		stream = newStream("<span wicket:id='b'>b</span>");
+		assertNull(snapshot.getMarkup(stream, MarkupSnapshot.checksum(stream)));
+		assertEquals(1, snapshot.getHitCount());
+		assertEquals(1, snapshot.getMissCount());
+	}
+
+	/**
+	 * Markup with tags which cannot be restored is not stored
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	void unsupportedMarkup() throws Exception
+	{
+		MarkupSnapshot snapshot = new MarkupSnapshot("test");
+
+		// inline enclosures have a factory per tag
+		MarkupResourceStream stream = newStream(
+			"<div wicket:enclosure='a'><span wicket:id='a'>a</span></div>");
+		snapshot.putMarkup(new MarkupParser(stream).parse(), MarkupSnapshot.checksum(stream));
+
+		assertEquals(0, snapshot.size());
+	}
+
+	/**
+	 * A snapshot written with another version or settings is ignored
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	void otherFingerprint() throws Exception
+	{
+		MarkupSnapshot snapshot = new MarkupSnapshot("one");
+		MarkupResourceStream stream = newStream("<span wicket:id='a'>a</span>");
+		snapshot.putMarkup(new MarkupParser(stream).parse(), MarkupSnapshot.checksum(stream));
+		snapshot.write(file);
+
+		assertEquals(1, new MarkupSnapshot("one").read(file));
+		assertEquals(0, new MarkupSnapshot("two").read(file));
+	}
+
+	/**
+	 * A snapshot written with another fingerprint of the markup factory, e.g. because of a changed
+	 * custom filter, is ignored
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	void otherMarkupFactoryFingerprint() throws Exception
+	{
+		MarkupSnapshot snapshot = new MarkupSnapshot(tester.getApplication());
+		MarkupResourceStream stream = newStream("<span wicket:id='a'>a</span>");
+		snapshot.putMarkup(new MarkupParser(stream).parse(), MarkupSnapshot.checksum(stream));
+		snapshot.write(file);
+		assertEquals(1, new MarkupSnapshot(tester.getApplication()).read(file));
+
+		tester.getApplication().getMarkupSettings().setMarkupFactory(new MarkupFactory()
+		{
+			@Override
+			public String getFingerprint()
+			{
+				return super.getFingerprint() + ";myFilter-2";
+			}
+		});
+		assertEquals(0, new MarkupSnapshot(tester.getApplication()).read(file));
+	}
+
+	private MarkupResourceStream newStream(String markup)
+	{
+		MarkupResourceStream stream = new MarkupResourceStream(new StringResourceStream(markup));
+		stream.setCacheKey("key");
+		return stream;
+	}
+
+	private String render(Class<? extends Page> pageClass)
+	{
+		tester.startPage(pageClass);
+		return tester.getLastResponseAsString();
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.request.cycle.IRequestCycleListener;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.util.WicketTestTag;
+import org.apache.wicket.util.tester.WicketTestCase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for {@link MarkupWarmUp}
+ */
+class MarkupWarmUpTest extends WicketTestCase
+{
+	private static final Logger log = LoggerFactory.getLogger(MarkupWarmUpTest.class);
+
+	private MarkupCache cache;
+
+	/**
+	 * Use a fresh cache for each test
+	 */
+	@BeforeEach
+	void before()
+	{
+		cache = new MarkupCache();
+
+		Application.get().getMarkupSettings().setMarkupFactory(new MarkupFactory()
+		{
+			@Override
+			public IMarkupCache getMarkupCache()
+			{
+				return cache;
+			}
+		});
+	}
+
+	/**
+	 * The markup of pages and panels, including their base markup, is loaded into the cache
+	 */
+	@Test
+	void warmUp()
+	{
+		int loaded = new MarkupWarmUp(tester.getApplication()).add(MarkupInheritanceExtension_1.class)
+			.add(MarkupInheritanceExtensionPanel_6.class)
+			.warmUp();
+
+		assertEquals(2, loaded);
+		// the extensions and their base markup
+		int size = cache.size();
+		assertEquals(4, size);
+
+		// nothing left to load on the first request
+		tester.startPage(MarkupInheritanceExtension_1.class);
+		tester.assertRenderedPage(MarkupInheritanceExtension_1.class);
+		assertEquals(size, cache.size());
+	}
+
+	/**
+	 * The markup is loaded for each locale
+	 */
+	@Test
+	void locales()
+	{
+		// the second cache created holds the cache keys
+		List<MarkupCache.ICache<?, ?>> caches = new ArrayList<>();
+		cache = new MarkupCache()
+		{
+			@Override
+			protected <K, V> ICache<K, V> newCacheImplementation()
+			{
+				ICache<K, V> implementation = super.newCacheImplementation();
+				caches.add(implementation);
+				return implementation;
+			}
+		};
+
+		int loaded = new MarkupWarmUp(tester.getApplication()).add(MarkupInheritanceExtension_1.class)
+			.addLocale(Locale.ENGLISH)
+			.addLocale(Locale.GERMAN)
+			.warmUp();
+
+		assertEquals(2, loaded);
+		Collection<?> keys = caches.get(1).getKeys();
+		String className = MarkupInheritanceExtension_1.class.getName();
+		assertTrue(keys.contains(className + "_en.html"), keys.toString());
+		assertTrue(keys.contains(className + "_de.html"), keys.toString());
+	}
+
+	/**
+	 * The temporary request cycle of the warm up is detached
+	 */
+	@Test
+	void detached()
+	{
+		AtomicInteger detached = new AtomicInteger();
+		tester.getApplication().getRequestCycleListeners().add(new IRequestCycleListener()
+		{
+			@Override
+			public void onDetach(RequestCycle cycle)
+			{
+				detached.incrementAndGet();
+			}
+		});
+
+		new MarkupWarmUp(tester.getApplication()).add(MarkupInheritanceExtension_1.class)
+			.addLocale(Locale.ENGLISH)
+			.addLocale(Locale.GERMAN)
+			.warmUp();
+
+		assertEquals(2, detached.get());
+	}
+
+	/**
+	 * A container which cannot be instantiated is skipped
+	 */
+	@Test
+	void notInstantiable()
+	{
+		int loaded = new MarkupWarmUp(tester.getApplication()).add(NoIdContainer.class)
+			.add(MarkupInheritanceExtension_1.class)
+			.warmUp();
+
+		assertEquals(1, loaded);
+	}
+
+	/**
+	 * Compares the first request with and without warm up
+	 */
+	@Test
+	@Tag(WicketTestTag.SLOW)
+	void firstRequestLatency()
+	{
+		long cold = firstRequest();
+
+		cache = new MarkupCache();
+		long start = System.nanoTime();
+		new MarkupWarmUp(tester.getApplication()).add(MarkupInheritanceExtension_1.class).warmUp();
+		long warmUp = System.nanoTime() - start;
+
+		long warm = firstRequest();
+
+		log.info("First request: cold {} µs, warm {} µs, warm up {} µs", cold / 1000, warm / 1000,
+			warmUp / 1000);
+	}
+
+	private long firstRequest()
+	{
+		long start = System.nanoTime();
+		tester.startPage(MarkupInheritanceExtension_1.class);
+		return System.nanoTime() - start;
+	}
+
+	/**
+	 * A container without a constructor taking the component id
+	 */
+	public static class NoIdContainer extends WebMarkupContainer
+	{
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Construct.
+		 */
+		public NoIdContainer()
+		{
+			super("noId");
+		}
+	}
+}
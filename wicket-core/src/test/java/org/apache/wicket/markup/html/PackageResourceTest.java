@@ -19,9 +19,14 @@ package org.apache.wicket.markup.html;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Locale;
+import java.util.zip.GZIPInputStream;
 
 import org.apache.wicket.Application;
 import org.apache.wicket.SharedResources;
@@ -30,6 +35,7 @@ import org.apache.wicket.request.resource.JavaScriptPackageResource;
 import org.apache.wicket.request.resource.PackageResource;
 import org.apache.wicket.request.resource.PackageResourceReference;
 import org.apache.wicket.request.resource.ResourceReference;
+import org.apache.wicket.util.io.IOUtils;
 import org.apache.wicket.util.lang.Packages;
 import org.apache.wicket.util.tester.WicketTestCase;
 import org.junit.jupiter.api.BeforeEach;
@@ -193,4 +199,98 @@ public class PackageResourceTest extends WicketTestCase
 		final String contentType = tester.getLastResponse().getContentType();
 		assertEquals("text/javascript; charset=" + encoding, contentType);
 	}
+
+	/**
+	 * Textual package resources are sent gzip compressed to clients accepting it
+	 */
+	@Test
+	void gzip() throws IOException
+	{
+		application.getResourceSettings().setGzipPackageResources(true);
+
+		tester.getRequest().addHeader("Accept-Encoding", "gzip, deflate");
+		tester.startResource(newJavaScriptResource("packaged3.js"));
+		assertEquals("gzip", tester.getLastResponse().getHeader("Content-Encoding"));
+		assertEquals("Accept-Encoding", tester.getLastResponse().getHeader("Vary"));
+		assertEquals("TEST", gunzip(tester.getLastResponse().getBinaryContent()));
+		// both the plain and the compressed content are cached
+		assertEquals(2, application.getResourceSettings().getProcessedResourceCache().getCount());
+
+		tester.startResource(newJavaScriptResource("packaged3.js"));
+		assertNull(tester.getLastResponse().getHeader("Content-Encoding"));
+		assertEquals("Accept-Encoding", tester.getLastResponse().getHeader("Vary"));
+		assertEquals("TEST", tester.getLastResponseAsString());
+	}
+
+	/**
+	 * A quality of zero excludes an encoding
+	 */
+	@Test
+	void gzipNotAccepted()
+	{
+		application.getResourceSettings().setGzipPackageResources(true);
+
+		tester.getRequest().addHeader("Accept-Encoding", "gzip;q=0, *");
+		tester.startResource(newJavaScriptResource("packaged3.js"));
+		assertNull(tester.getLastResponse().getHeader("Content-Encoding"));
+		assertEquals("TEST", tester.getLastResponseAsString());
+
+		tester.getRequest().addHeader("Accept-Encoding", "br, *;q=0.5");
+		tester.startResource(newJavaScriptResource("packaged3.js"));
+		assertEquals("gzip", tester.getLastResponse().getHeader("Content-Encoding"));
+	}
+
+	/**
+	 * Binary package resources are not compressed
+	 */
+	@Test
+	void gzipOnlyText()
+	{
+		application.getResourceSettings().setGzipPackageResources(true);
+
+		tester.getRequest().addHeader("Accept-Encoding", "gzip");
+		tester.startResource(new PackageResource(PackageResourceTest.class,
+			"form/imagebutton/Beer_de_DE.gif", null, null, null)
+		{
+			private static final long serialVersionUID = 1L;
+		});
+		assertNull(tester.getLastResponse().getHeader("Content-Encoding"));
+		assertNull(tester.getLastResponse().getHeader("Vary"));
+	}
+
+	/**
+	 * A pre-compressed sibling is sent as is
+	 */
+	@Test
+	void precompressed() throws IOException
+	{
+		application.getResourceSettings().setUsePrecompressedResources(true);
+
+		tester.getRequest().addHeader("Accept-Encoding", "gzip");
+		tester.startResource(newJavaScriptResource("packaged4.js"));
+		assertEquals("gzip", tester.getLastResponse().getHeader("Content-Encoding"));
+		assertEquals("PRECOMPRESSED", gunzip(tester.getLastResponse().getBinaryContent()));
+
+		// no sibling and no compression on the fly
+		tester.getRequest().addHeader("Accept-Encoding", "gzip");
+		tester.startResource(newJavaScriptResource("packaged3.js"));
+		assertNull(tester.getLastResponse().getHeader("Content-Encoding"));
+		assertEquals("TEST", tester.getLastResponseAsString());
+	}
+
+	private static PackageResource newJavaScriptResource(String name)
+	{
+		return new PackageResource(PackageResourceTest.class, name, null, null, null)
+		{
+			private static final long serialVersionUID = 1L;
+		};
+	}
+
+	private static String gunzip(byte[] bytes) throws IOException
+	{
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes)))
+		{
+			return new String(IOUtils.toByteArray(in), StandardCharsets.UTF_8);
+		}
+	}
 }
@@ -23,11 +23,17 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.UnsupportedEncodingException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.text.ParseException;
 
 import org.apache.wicket.markup.parser.IXmlPullParser.HttpTagType;
+import org.apache.wicket.util.WicketTestTag;
 import org.apache.wicket.util.resource.StringResourceStream;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Quite some tests are already with MarkupParser.
@@ -36,6 +42,8 @@ import org.junit.jupiter.api.Test;
  */
 class XmlPullParserTest
 {
+	private static final Logger log = LoggerFactory.getLogger(XmlPullParserTest.class);
+
 	/**
 	 * 
 	 * @throws Exception
@@ -459,4 +467,73 @@ class XmlPullParserTest
 		type = parser.next();
 		assertEquals(HttpTagType.CONDITIONAL_COMMENT_ENDIF, type);
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Measures time and allocation of parsing a large template
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	@Tag(WicketTestTag.SLOW)
+	final void performance() throws Exception
+	{
+		StringBuilder template = new StringBuilder("<html xmlns:wicket><head><title>Test</title>");
+		template.append("<script type=\"text/javascript\">var a = '<b>' < 1;</script></head><body>");
+		for (int i = 0; i < 500; i++)
+		{
+			template.append("<div class=\"row\" wicket:id=\"row").append(i).append("\">\n");
+			template.append("  <!-- row ").append(i).append(" -->\n");
+			template.append("  <a href=\"page.html?id=").append(i);
+			template.append("&amp;x=1\" title='Link &quot;").append(i).append("&quot;'>link</a>\n");
+			template.append("  <form wicket:id=\"form\" method=\"post\"><input type=\"text\" ");
+			template.append("wicket:id=\"name\" value=\"\" size=\"20\"/><br/>\n");
+			template.append("  <select wicket:id=\"choice\"><option>one</option></select></form>\n");
+			template.append("  <wicket:message key=\"label\">Label</wicket:message>\n");
+			template.append("  <img src=\"image.png\" alt=\"\" style=\"border: 0\"/></div>\n");
+		}
+		template.append("</body></html>");
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		boolean allocation = threads instanceof com.sun.management.ThreadMXBean;
+
+		int tags = 0;
+		for (int i = 0; i < 100; i++)
+		{
+			tags = parse(template);
+		}
+
+		final int iterations = 200;
+		long allocated = allocation
+			? ((com.sun.management.ThreadMXBean)threads).getThreadAllocatedBytes(
+				Thread.currentThread().getId()) : 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++)
+		{
+			parse(template);
+		}
+		long time = (System.nanoTime() - start) / iterations;
+		if (allocation)
+		{
+			allocated = (((com.sun.management.ThreadMXBean)threads).getThreadAllocatedBytes(
+				Thread.currentThread().getId()) - allocated) / iterations;
+		}
+
+		log.info("{} chars, {} tags: {} µs, {} bytes allocated per parse", template.length(),
+			tags, time / 1000, allocated);
+	}
+
+	private int parse(CharSequence template) throws Exception
+	{
+		final XmlPullParser parser = new XmlPullParser();
+		parser.parse(template);
+
+		int tags = 0;
+		XmlTag tag;
+		while ((tag = parser.nextTag()) != null)
+		{
+			tag.getAttributes();
+			tags++;
+		}
+		return tags;
+	}
+}
@@ -25,16 +25,25 @@ import java.security.SecureRandom;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntFunction;
 
 import org.apache.wicket.pageStore.PageWindowManager;
 import org.apache.wicket.pageStore.PageWindowManager.PageWindow;
+import org.apache.wicket.util.WicketTestTag;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * @author Matej Knopp
  */
 public class PageWindowManagerTest
 {
+	private static final Logger log = LoggerFactory.getLogger(PageWindowManagerTest.class);
+
 	/**
 	 * https://issues.apache.org/jira/browse/WICKET-4572
 	 */
@@ -228,6 +237,96 @@ public class PageWindowManagerTest
 		executorService.shutdown();
 	}
 
+	/**
+	 * Reads windows from many threads while a single thread keeps creating windows, once with the
+	 * optimistic lookups of {@link PageWindowManager} and once serialized on the manager's monitor
+	 * as it was done before.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	@Tag(WicketTestTag.SLOW)
+	void concurrentReads() throws Exception
+	{
+		PageWindowManager manager = new PageWindowManager(100000L);
+
+		long optimistic = measureReads(manager, manager::getPageWindow,
+			(id) -> manager.createPageWindow(id, 100));
+		long serialized = measureReads(manager, (id) -> {
+			synchronized (manager)
+			{
+				return manager.getPageWindow(id);
+			}
+		}, (id) -> {
+			synchronized (manager)
+			{
+				return manager.createPageWindow(id, 100);
+			}
+		});
+
+		log.info("Optimistic reads: {} reads/s, serialized reads: {} reads/s", optimistic,
+			serialized);
+	}
+
+	/**
+	 * @return reads per second
+	 */
+	private long measureReads(PageWindowManager manager, IntFunction<PageWindow> reader,
+		IntFunction<PageWindow> writer) throws Exception
+	{
+		final int readers = 8;
+		final int reads = 200000;
+
+		for (int i = 0; i < 100; i++)
+		{
+			manager.createPageWindow(i, 100);
+		}
+
+		AtomicBoolean done = new AtomicBoolean(false);
+		ExecutorService executorService = Executors.newFixedThreadPool(readers + 1);
+		try
+		{
+			Future<?> writing = executorService.submit(() -> {
+				int i = 0;
+				while (done.get() == false)
+				{
+					PageWindow window = writer.apply(i++ % 100);
+					assertNotNull(window);
+				}
+			});
+
+			long start = System.nanoTime();
+			Future<?>[] reading = new Future<?>[readers];
+			for (int r = 0; r < readers; r++)
+			{
+				reading[r] = executorService.submit(() -> {
+					for (int i = 0; i < reads; i++)
+					{
+						PageWindow window = reader.apply(i % 100);
+						if (window != null)
+						{
+							assertEquals(100, window.getFilePartSize());
+						}
+					}
+				});
+			}
+			for (Future<?> future : reading)
+			{
+				future.get();
+			}
+			long duration = System.nanoTime() - start;
+
+			done.set(true);
+			writing.get();
+
+			return readers * reads * 1000000000L / duration;
+		}
+		finally
+		{
+			executorService.shutdown();
+		}
+	}
+
 	private static abstract class AbstractTask implements Runnable
 	{
 		/** the ids for the stored/removed pages */
@@ -16,10 +16,14 @@
  */
 package org.apache.wicket.pageStore;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 import java.security.SecureRandom;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.wicket.versioning.InMemoryPageStore;
 import org.junit.jupiter.api.Test;
@@ -77,6 +81,72 @@ public class AsynchronousDataStoreTest
 		DATA_STORE.destroy();
 	}
 
+	/**
+	 * Data stored again while the previous data is still waiting in the queue replaces it and is
+	 * written only once.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void coalesceQueuedData() throws Exception
+	{
+		final CountDownLatch saving = new CountDownLatch(1);
+		final CountDownLatch blocked = new CountDownLatch(1);
+		final CountDownLatch saved = new CountDownLatch(2);
+		IDataStore wrapped = new InMemoryPageStore()
+		{
+			@Override
+			public void storeData(String sessionId, int pageId, byte[] pageAsBytes)
+			{
+				saving.countDown();
+				try
+				{
+					blocked.await();
+				}
+				catch (InterruptedException e)
+				{
+					throw new RuntimeException(e);
+				}
+				super.storeData(sessionId, pageId, pageAsBytes);
+				saved.countDown();
+			}
+		};
+		AsynchronousDataStore dataStore = new AsynchronousDataStore(wrapped, 10, 2);
+		try
+		{
+			dataStore.storeData("s1", 1, new byte[] { 1 });
+			// wait until the first data is taken from the queue
+			saving.await(5, TimeUnit.SECONDS);
+
+			dataStore.storeData("s1", 1, new byte[] { 2 });
+			dataStore.storeData("s1", 1, new byte[] { 3 });
+			dataStore.storeData("s1", 1, new byte[] { 4 });
+			assertArrayEquals(new byte[] { 4 }, dataStore.getData("s1", 1));
+
+			blocked.countDown();
+			saved.await(5, TimeUnit.SECONDS);
+
+			assertArrayEquals(new byte[] { 4 }, wrapped.getData("s1", 1));
+
+			// the save is counted after the wrapped store returned
+			AsynchronousStoreMetrics metrics = dataStore.getMetrics();
+			long deadline = System.currentTimeMillis() + 5000;
+			while (metrics.getSavedCount() < 2 && System.currentTimeMillis() < deadline)
+			{
+				Thread.sleep(10);
+			}
+
+			assertEquals(2, metrics.getQueuedCount());
+			assertEquals(2, metrics.getCoalescedCount());
+			assertEquals(2, metrics.getSavedCount());
+			assertEquals(0, metrics.getSynchronousCount());
+		}
+		finally
+		{
+			dataStore.destroy();
+		}
+	}
+
 	private static abstract class AbstractTask implements Runnable
 	{
 		protected abstract void r();
@@ -0,0 +1,263 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.settings.StoreSettings;
+import org.apache.wicket.util.WicketTestTag;
+import org.apache.wicket.util.lang.Bytes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for {@link DeltaDataStore}
+ */
+public class DeltaDataStoreTest
+{
+	private static final Logger log = LoggerFactory.getLogger(DeltaDataStoreTest.class);
+
+	private final File fileStoreFolder = new StoreSettings(null).getFileStoreFolder();
+
+	private final Random random = new Random(42);
+
+	private DeltaDataStore store;
+
+	@BeforeEach
+	void before()
+	{
+		store = newStore(DeltaDataStore.DEFAULT_REBASE_INTERVAL);
+	}
+
+	@AfterEach
+	void after()
+	{
+		store.removeData("s1");
+		store.destroy();
+	}
+
+	private DeltaDataStore newStore(int rebaseInterval)
+	{
+		return new DeltaDataStore(new DiskDataStore("delta-" + UUID.randomUUID(), fileStoreFolder,
+			Bytes.megabytes(10)), rebaseInterval);
+	}
+
+	private byte[] data(int size)
+	{
+		byte[] data = new byte[size];
+		random.nextBytes(data);
+		return data;
+	}
+
+	/**
+	 * Changes a few bytes, inserts and removes some
+	 */
+	private byte[] edit(byte[] data)
+	{
+		byte[] edited = Arrays.copyOf(data, data.length);
+		for (int i = 0; i < 3; i++)
+		{
+			edited[random.nextInt(edited.length)]++;
+		}
+
+		int insert = random.nextInt(edited.length);
+		byte[] inserted = new byte[edited.length + 5];
+		System.arraycopy(edited, 0, inserted, 0, insert);
+		System.arraycopy(data(5), 0, inserted, insert, 5);
+		System.arraycopy(edited, insert, inserted, insert + 5, edited.length - insert);
+
+		int remove = random.nextInt(inserted.length - 7);
+		byte[] removed = new byte[inserted.length - 7];
+		System.arraycopy(inserted, 0, removed, 0, remove);
+		System.arraycopy(inserted, remove + 7, removed, remove, removed.length - remove);
+		return removed;
+	}
+
+	@Test
+	void binaryDelta()
+	{
+		byte[] base = data(10000);
+		for (int i = 0; i < 100; i++)
+		{
+			byte[] target = i % 10 == 0 ? data(random.nextInt(100)) : edit(base);
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			BinaryDelta.diff(base, target, out);
+			assertArrayEquals(target, BinaryDelta.patch(base, out.toByteArray(), 0));
+
+			base = target.length > 100 ? target : base;
+		}
+	}
+
+	@Test
+	void storeDeltas()
+	{
+		byte[] first = data(20000);
+		byte[] second = edit(first);
+		byte[] third = edit(second);
+
+		store.storeData("s1", 1, first);
+		store.storeData("s1", 1, second);
+		assertArrayEquals(second, store.getData("s1", 1));
+		store.storeData("s1", 1, third);
+		assertArrayEquals(third, store.getData("s1", 1));
+
+		assertEquals(1, store.getBaseCount());
+		assertEquals(2, store.getDeltaCount());
+		assertTrue(store.getWrittenBytes() < first.length + 1000,
+			"written: " + store.getWrittenBytes());
+		assertEquals(first.length + second.length + third.length, store.getStoredBytes());
+	}
+
+	@Test
+	void rebase()
+	{
+		store = newStore(2);
+
+		byte[] data = data(20000);
+		for (int i = 0; i < 4; i++)
+		{
+			store.storeData("s1", 1, data);
+			assertArrayEquals(data, store.getData("s1", 1));
+			data = edit(data);
+		}
+
+		assertEquals(2, store.getBaseCount());
+		assertEquals(2, store.getDeltaCount());
+	}
+
+	/**
+	 * Data unrelated to the previous data is written as a new base
+	 */
+	@Test
+	void rebaseUnrelated()
+	{
+		store.storeData("s1", 1, data(20000));
+		byte[] unrelated = data(20000);
+		store.storeData("s1", 1, unrelated);
+
+		assertArrayEquals(unrelated, store.getData("s1", 1));
+		assertEquals(2, store.getBaseCount());
+		assertEquals(0, store.getDeltaCount());
+	}
+
+	/**
+	 * A base is rewritten once the session wrote more than the horizon after it
+	 */
+	@Test
+	void rebaseHorizon()
+	{
+		store = new DeltaDataStore(new DiskDataStore("delta-" + UUID.randomUUID(),
+			fileStoreFolder, Bytes.megabytes(10)), DeltaDataStore.DEFAULT_REBASE_INTERVAL,
+			Bytes.bytes(30000));
+
+		byte[] first = data(20000);
+		store.storeData("s1", 1, first);
+		store.storeData("s1", 1, edit(first));
+		assertEquals(1, store.getBaseCount());
+
+		store.storeData("s1", 2, data(20000));
+		store.storeData("s1", 3, data(20000));
+		byte[] last = edit(first);
+		store.storeData("s1", 1, last);
+
+		assertArrayEquals(last, store.getData("s1", 1));
+		assertEquals(4, store.getBaseCount());
+		assertEquals(1, store.getDeltaCount());
+	}
+
+	/**
+	 * Storing a delta reads the base only
+	 */
+	@Test
+	void readsBaseOnly()
+	{
+		AtomicInteger reads = new AtomicInteger();
+		store = new DeltaDataStore(new DiskDataStore("delta-" + UUID.randomUUID(),
+			fileStoreFolder, Bytes.megabytes(10))
+		{
+			@Override
+			public byte[] getData(String sessionId, int id)
+			{
+				reads.incrementAndGet();
+				return super.getData(sessionId, id);
+			}
+		});
+
+		byte[] data = data(20000);
+		for (int i = 0; i < 5; i++)
+		{
+			store.storeData("s1", 1, data);
+			data = edit(data);
+		}
+
+		assertEquals(4, reads.get());
+		assertEquals(1, store.getBaseCount());
+	}
+
+	@Test
+	void remove()
+	{
+		byte[] first = data(20000);
+		store.storeData("s1", 1, first);
+		store.storeData("s1", 1, edit(first));
+		store.storeData("s1", 2, first);
+
+		store.removeData("s1", 1);
+		assertNull(store.getData("s1", 1));
+		assertArrayEquals(first, store.getData("s1", 2));
+
+		// starts with a new base
+		store.storeData("s1", 1, first);
+		assertArrayEquals(first, store.getData("s1", 1));
+	}
+
+	/**
+	 * Logs the bytes written for a page changed slightly by each of many requests
+	 */
+	@Test
+	@Tag(WicketTestTag.SLOW)
+	void writtenBytes()
+	{
+		final int requests = 1000;
+
+		byte[] data = data(100000);
+		for (int i = 0; i < requests; i++)
+		{
+			store.storeData("s1", 1, data);
+			data = edit(data);
+		}
+
+		log.info("Stored {} bytes in {} requests, written {} bytes ({} per request) in {} bases " +
+			"and {} deltas", store.getStoredBytes(), requests, store.getWrittenBytes(),
+			store.getWrittenBytes() / requests, store.getBaseCount(), store.getDeltaCount());
+	}
+}
@@ -0,0 +1,328 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.settings.StoreSettings;
+import org.apache.wicket.util.WicketTestTag;
+import org.apache.wicket.util.lang.Bytes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for {@link SegmentDataStore}
+ */
+public class SegmentDataStoreTest
+{
+	private static final Logger log = LoggerFactory.getLogger(SegmentDataStoreTest.class);
+
+	private final File fileStoreFolder = new StoreSettings(null).getFileStoreFolder();
+
+	private String applicationName;
+
+	private SegmentDataStore store;
+
+	@BeforeEach
+	void before()
+	{
+		applicationName = "segment-" + UUID.randomUUID();
+		store = new SegmentDataStore(applicationName, fileStoreFolder, Bytes.kilobytes(100));
+	}
+
+	@AfterEach
+	void after()
+	{
+		store.removeData("s1");
+		store.removeData("s2");
+		store.destroy();
+	}
+
+	private static byte[] data(int size, int seed)
+	{
+		byte[] data = new byte[size];
+		for (int i = 0; i < size; i++)
+		{
+			data[i] = (byte)(seed + i);
+		}
+		return data;
+	}
+
+	@Test
+	void storeAndLoad()
+	{
+		store.storeData("s1", 1, data(100, 1));
+		store.storeData("s1", 2, data(200, 2));
+		store.storeData("s2", 1, data(300, 3));
+
+		assertArrayEquals(data(100, 1), store.getData("s1", 1));
+		assertArrayEquals(data(200, 2), store.getData("s1", 2));
+		assertArrayEquals(data(300, 3), store.getData("s2", 1));
+		assertNull(store.getData("s2", 2));
+		assertNull(store.getData("s3", 1));
+	}
+
+	@Test
+	void overwriteAndRemove()
+	{
+		store.storeData("s1", 1, data(100, 1));
+		store.storeData("s1", 1, data(50, 2));
+		assertArrayEquals(data(50, 2), store.getData("s1", 1));
+
+		store.removeData("s1", 1);
+		assertNull(store.getData("s1", 1));
+
+		store.storeData("s1", 2, data(10, 3));
+		store.removeData("s1");
+		assertNull(store.getData("s1", 2));
+		assertFalse(store.getSegmentFile("s1").exists());
+	}
+
+	/**
+	 * The oldest pages are evicted when the live pages exceed the maximum size per session
+	 */
+	@Test
+	void evictOldestPages()
+	{
+		for (int i = 0; i < 10; i++)
+		{
+			store.storeData("s1", i, data(30 * 1024, i));
+		}
+
+		assertNull(store.getData("s1", 0));
+		assertNull(store.getData("s1", 6));
+		assertArrayEquals(data(30 * 1024, 7), store.getData("s1", 7));
+		assertArrayEquals(data(30 * 1024, 9), store.getData("s1", 9));
+	}
+
+	/**
+	 * The segment shrinks to its live pages when compacted
+	 */
+	@Test
+	void compact()
+	{
+		for (int i = 0; i < 100; i++)
+		{
+			store.storeData("s1", i % 3, data(10 * 1024, i));
+		}
+
+		store.getSegment("s1", false).compact();
+
+		assertArrayEquals(data(10 * 1024, 97), store.getData("s1", 1));
+		assertArrayEquals(data(10 * 1024, 98), store.getData("s1", 2));
+		assertArrayEquals(data(10 * 1024, 99), store.getData("s1", 0));
+		assertTrue(store.getSegmentFile("s1").length() < Bytes.kilobytes(100).bytes());
+
+		store.storeData("s1", 3, data(100, 3));
+		assertArrayEquals(data(100, 3), store.getData("s1", 3));
+	}
+
+	/**
+	 * The compaction thread keeps on compacting after a compaction failed
+	 */
+	@Test
+	void compactionFailure() throws Exception
+	{
+		AtomicInteger compactions = new AtomicInteger();
+		CountDownLatch compacted = new CountDownLatch(1);
+
+		store.destroy();
+		store = new SegmentDataStore(applicationName, fileStoreFolder, Bytes.kilobytes(100))
+		{
+			@Override
+			protected Segment newSegment(String sessionId)
+			{
+				return new Segment(getSegmentFile(sessionId), Bytes.kilobytes(100).bytes())
+				{
+					@Override
+					protected void compact()
+					{
+						if (compactions.incrementAndGet() == 1)
+						{
+							throw new IllegalStateException("Cannot compact");
+						}
+						super.compact();
+						compacted.countDown();
+					}
+				};
+			}
+		};
+
+		long end = System.currentTimeMillis() + 10000;
+		for (int i = 0; compacted.getCount() > 0 && System.currentTimeMillis() < end; i++)
+		{
+			store.storeData("s1", i % 3, data(10 * 1024, i));
+			Thread.sleep(5);
+		}
+
+		assertTrue(compacted.await(1, TimeUnit.SECONDS));
+		assertTrue(compactions.get() >= 2);
+	}
+
+	/**
+	 * The pages are recovered from the segment files after a restart
+	 */
+	@Test
+	void recover()
+	{
+		store.storeData("s1", 1, data(100, 1));
+		store.storeData("s1", 2, data(200, 2));
+		store.storeData("s1", 1, data(300, 3));
+		store.removeData("s1", 2);
+		store.destroy();
+
+		store = new SegmentDataStore(applicationName, fileStoreFolder, Bytes.kilobytes(100));
+
+		assertArrayEquals(data(300, 3), store.getData("s1", 1));
+		assertNull(store.getData("s1", 2));
+	}
+
+	/**
+	 * The least recently used segments are closed and reopened on access
+	 */
+	@Test
+	void closeIdleSegments()
+	{
+		store.destroy();
+		store = new SegmentDataStore(applicationName, fileStoreFolder, Bytes.kilobytes(100), 2);
+
+		store.storeData("s1", 1, data(100, 1));
+		store.storeData("s2", 1, data(100, 2));
+		store.storeData("s3", 1, data(100, 3));
+
+		assertFalse(store.getSegment("s1", false).isOpen());
+		assertTrue(store.getSegment("s2", false).isOpen());
+		assertTrue(store.getSegment("s3", false).isOpen());
+
+		store.storeData("s1", 2, data(200, 4));
+		assertArrayEquals(data(100, 1), store.getData("s1", 1));
+		assertArrayEquals(data(200, 4), store.getData("s1", 2));
+		assertFalse(store.getSegment("s2", false).isOpen());
+
+		assertArrayEquals(data(100, 2), store.getData("s2", 1));
+		assertArrayEquals(data(100, 3), store.getData("s3", 1));
+		assertFalse(store.getSegment("s1", false).isOpen());
+	}
+
+	/**
+	 * Compares the throughput of {@link SegmentDataStore} and {@link DiskDataStore} with many
+	 * threads storing and loading the pages of many sessions.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	@Tag(WicketTestTag.SLOW)
+	void throughput() throws Exception
+	{
+		IDataStore diskDataStore = new DiskDataStore(applicationName, fileStoreFolder,
+			Bytes.megabytes(1));
+		IDataStore segmentDataStore = new SegmentDataStore(applicationName, fileStoreFolder,
+			Bytes.megabytes(1));
+
+		try
+		{
+			// warm up
+			measure(diskDataStore, 500);
+			measure(segmentDataStore, 500);
+
+			long disk = measure(diskDataStore, 20000);
+			long segment = measure(segmentDataStore, 20000);
+
+			log.info("DiskDataStore: {} operations/s, SegmentDataStore: {} operations/s", disk,
+				segment);
+		}
+		finally
+		{
+			diskDataStore.destroy();
+			segmentDataStore.destroy();
+		}
+	}
+
+	/**
+	 * @return operations per second
+	 */
+	private long measure(final IDataStore dataStore, final int operations) throws Exception
+	{
+		final int sessions = 500;
+		final int threads = 16;
+		final byte[] page = data(8 * 1024, 0);
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		long start = System.nanoTime();
+		try
+		{
+			Future<?>[] futures = new Future<?>[threads];
+			for (int t = 0; t < threads; t++)
+			{
+				futures[t] = executor.submit(() -> {
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					for (int i = 0; i < operations / threads; i++)
+					{
+						String sessionId = "session" + random.nextInt(sessions);
+						int pageId = random.nextInt(10);
+						if (random.nextBoolean())
+						{
+							dataStore.storeData(sessionId, pageId, page);
+						}
+						else
+						{
+							byte[] data = dataStore.getData(sessionId, pageId);
+							if (data != null)
+							{
+								assertEquals(page.length, data.length);
+							}
+						}
+					}
+				});
+			}
+			for (Future<?> future : futures)
+			{
+				future.get();
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+		long duration = System.nanoTime() - start;
+
+		for (int s = 0; s < sessions; s++)
+		{
+			dataStore.removeData("session" + s);
+		}
+
+		return operations * 1000000000L / duration;
+	}
+}
@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.wicket.util.WicketTestTag;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for {@link WeightedPageCache}
+ */
+public class WeightedPageCacheTest
+{
+	private static final Logger log = LoggerFactory.getLogger(WeightedPageCacheTest.class);
+
+	@Test
+	void storeAndRemove()
+	{
+		WeightedPageCache<String> cache = new WeightedPageCache<>(100, 10);
+
+		cache.storePage("s1", 1, "page 1", 10);
+		cache.storePage("s1", 2, "page 2", 10);
+		cache.storePage("s2", 1, "page 3", 10);
+
+		assertEquals("page 1", cache.getPage("s1", 1));
+		assertEquals("page 3", cache.getPage("s2", 1));
+		assertNull(cache.getPage("s2", 2));
+		assertEquals(30, cache.getWeight());
+
+		assertEquals("page 2", cache.removePage("s1", 2));
+		assertNull(cache.getPage("s1", 2));
+
+		cache.removePages("s1");
+		assertNull(cache.getPage("s1", 1));
+		assertEquals("page 3", cache.getPage("s2", 1));
+		assertEquals(1, cache.getSize());
+		assertEquals(10, cache.getWeight());
+
+		assertEquals(3, cache.getHitCount());
+		assertEquals(3, cache.getMissCount());
+		assertEquals(0, cache.getEvictionCount());
+	}
+
+	@Test
+	void replace()
+	{
+		WeightedPageCache<String> cache = new WeightedPageCache<>(100, 10);
+
+		cache.storePage("s1", 1, "page 1", 10);
+		cache.storePage("s1", 1, "page 1 again", 20);
+
+		assertEquals("page 1 again", cache.getPage("s1", 1));
+		assertEquals(1, cache.getSize());
+		assertEquals(20, cache.getWeight());
+	}
+
+	@Test
+	void maxEntriesPerSession()
+	{
+		WeightedPageCache<String> cache = new WeightedPageCache<>(100, 2);
+
+		cache.storePage("s1", 1, "page 1", 1);
+		cache.storePage("s1", 2, "page 2", 1);
+		cache.getPage("s1", 1);
+		cache.storePage("s1", 3, "page 3", 1);
+		cache.storePage("s2", 1, "page 4", 1);
+
+		assertNotNull(cache.getPage("s1", 1));
+		assertNull(cache.getPage("s1", 2));
+		assertNotNull(cache.getPage("s1", 3));
+		assertNotNull(cache.getPage("s2", 1));
+		assertEquals(1, cache.getEvictionCount());
+	}
+
+	@Test
+	void maxWeight()
+	{
+		WeightedPageCache<String> cache = new WeightedPageCache<>(100, 100);
+
+		for (int i = 0; i < 20; i++)
+		{
+			cache.storePage("s" + i, 1, "page " + i, 10);
+			assertTrue(cache.getWeight() <= 100);
+		}
+		assertEquals(10, cache.getSize());
+		assertEquals(10, cache.getEvictionCount());
+
+		// the last page is always cached
+		assertNotNull(cache.getPage("s19", 1));
+
+		// a page heavier than the cache is not cached
+		cache.storePage("s20", 1, "page 20", 101);
+		assertNull(cache.getPage("s20", 1));
+	}
+
+	/**
+	 * A page used frequently survives a scan of pages used once
+	 */
+	@Test
+	void frequentPageSurvivesScan()
+	{
+		WeightedPageCache<String> cache = new WeightedPageCache<>(100, 100);
+
+		cache.storePage("hot", 1, "hot page", 10);
+		for (int i = 0; i < 10; i++)
+		{
+			assertNotNull(cache.getPage("hot", 1));
+		}
+
+		for (int i = 0; i < 100; i++)
+		{
+			cache.storePage("s" + i, 1, "page " + i, 10);
+		}
+
+		assertNotNull(cache.getPage("hot", 1));
+		assertNotNull(cache.getPage("s99", 1));
+	}
+
+	/**
+	 * The order is kept consistent with the pages while many threads modify the cache
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void concurrentModifications() throws Exception
+	{
+		WeightedPageCache<String> cache = new WeightedPageCache<>(500, 5);
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < 8; t++)
+		{
+			futures.add(executor.submit(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				for (int i = 0; i < 20000; i++)
+				{
+					String sessionId = "s" + random.nextInt(200);
+					int pageId = random.nextInt(10);
+					switch (random.nextInt(4))
+					{
+						case 0 :
+							cache.removePage(sessionId, pageId);
+							break;
+						case 1 :
+							cache.getPage(sessionId, pageId);
+							break;
+						default :
+							cache.storePage(sessionId, pageId, "page", 1);
+					}
+				}
+			}));
+		}
+		for (Future<?> future : futures)
+		{
+			future.get();
+		}
+		executor.shutdown();
+
+		assertTrue(cache.getWeight() <= 500);
+		assertEquals(cache.getSize(), cache.getWeight());
+	}
+
+	/**
+	 * Logs the hit rate for a skewed access pattern of many sessions
+	 */
+	@Test
+	@Tag(WicketTestTag.SLOW)
+	void hitRate()
+	{
+		final int sessions = 10000;
+		final int requests = 1000000;
+
+		WeightedPageCache<String> cache = new WeightedPageCache<>(sessions / 10, 3);
+		Random random = new Random(1);
+		long start = System.nanoTime();
+		for (int i = 0; i < requests; i++)
+		{
+			// a few sessions are much more active than the others
+			String sessionId = "s" + (int)(sessions * Math.pow(random.nextDouble(), 3));
+			int pageId = random.nextInt(3);
+			if (cache.getPage(sessionId, pageId) == null)
+			{
+				cache.storePage(sessionId, pageId, "page");
+			}
+		}
+		long duration = System.nanoTime() - start;
+
+		log.info("{}: hit rate {}%, {} ns per request", cache,
+			100 * cache.getHitCount() / requests, duration / requests);
+	}
+}
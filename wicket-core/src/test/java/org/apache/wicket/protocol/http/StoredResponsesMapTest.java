@@ -17,17 +17,25 @@
 package org.apache.wicket.protocol.http;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
+import org.apache.wicket.mock.MockApplication;
+import org.apache.wicket.request.Url;
+import org.apache.wicket.settings.RequestCycleSettings;
 import org.apache.wicket.util.WicketTestTag;
+import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.tester.WicketTester;
 import org.apache.wicket.util.time.Duration;
 import org.apache.wicket.util.time.Time;
 import org.junit.jupiter.api.Tag;
@@ -36,7 +44,6 @@ import org.junit.jupiter.api.Test;
 /**
  * @see <a href="https://issues.apache.org/jira/browse/WICKET-3209">WICKET-3209</a>
  */
-@Tag(WicketTestTag.SLOW)
 class StoredResponsesMapTest
 {
 	/**
@@ -46,16 +53,18 @@ class StoredResponsesMapTest
 	 * @throws Exception
 	 */
 	@Test
+	@Tag(WicketTestTag.SLOW)
 	void entriesLife2Seconds() throws Exception
 	{
-		StoredResponsesMap map = new StoredResponsesMap(1000, Duration.seconds(2));
+		StoredResponsesMap map = newMap(Duration.seconds(2));
 		assertEquals(0, map.size());
-		map.put("1", new BufferedWebResponse(null));
+		map.put("session", "1", new BufferedWebResponse(null));
 		assertEquals(1, map.size());
 		TimeUnit.SECONDS.sleep(3);
-		map.put("2", new BufferedWebResponse(null));
+		map.put("session", "2", new BufferedWebResponse(null));
 		assertEquals(1, map.size());
-		assertTrue(map.containsKey("2"));
+		assertTrue(map.containsKey("session", "2"));
+		assertEquals(1, map.getExpirationCount());
 	}
 
 	/**
@@ -68,27 +77,82 @@ class StoredResponsesMapTest
 	{
 		Time start = Time.now();
 		Duration timeout = Duration.milliseconds(50);
-		StoredResponsesMap map = new StoredResponsesMap(1000, timeout);
+		StoredResponsesMap map = newMap(timeout);
 		assertEquals(0, map.size());
-		map.put("1", new BufferedWebResponse(null));
+		map.put("session", "1", new BufferedWebResponse(null));
 		assertEquals(1, map.size());
 		TimeUnit.MILLISECONDS.sleep(timeout.getMilliseconds() * 2); // sleep for twice longer than the timeout
 		assertTrue(Time.now().subtract(start).compareTo(timeout) == 1, "The timeout has passed.");
-		Object value = map.get("1");
+		Object value = map.get("session", "1");
 		assertNull(value);
+		assertEquals(0, map.size());
 	}
 
 	/**
-	 * Verifies that {@link StoredResponsesMap} can have only {@link BufferedWebResponse} values
+	 * Verifies that a response is removed when it is taken
 	 */
 	@Test
-	void cannotPutArbitraryValue()
+	void remove()
 	{
-		StoredResponsesMap map = new StoredResponsesMap(1000, Duration.days(1));
-		assertThrows(IllegalArgumentException.class, () -> {
-			map.put("1", new Object());
-		});
+		StoredResponsesMap map = newMap(Duration.days(1));
+		BufferedWebResponse response = newResponse(10);
+		map.put("session", "1", response);
+		assertEquals(20, map.getSizeInBytes());
+
+		assertNull(map.remove("session", "2"));
+		assertNull(map.remove("other", "1"));
+		assertSame(response, map.remove("session", "1"));
+		assertNull(map.remove("session", "1"));
+		assertEquals(0, map.size());
+		assertEquals(0, map.getSizeInBytes());
+	}
+
+	/**
+	 * Verifies that the oldest responses are evicted when the total size is exceeded
+	 */
+	@Test
+	void boundedBySize()
+	{
+		StoredResponsesMap map = new StoredResponsesMap(Bytes.bytes(1000), Bytes.bytes(1000),
+			Duration.days(1));
+
+		for (int i = 0; i < 10; i++)
+		{
+			// 400 bytes each
+			map.put("session" + i, "url", newResponse(200));
+		}
 
+		assertEquals(2, map.size());
+		assertEquals(800, map.getSizeInBytes());
+		assertEquals(8, map.getEvictionCount());
+		assertNull(map.get("session7", "url"));
+		assertNotNull(map.get("session8", "url"));
+		assertNotNull(map.get("session9", "url"));
+	}
+
+	/**
+	 * Verifies that a session exceeding its share evicts only its own responses
+	 */
+	@Test
+	void sessionFairness()
+	{
+		StoredResponsesMap map = new StoredResponsesMap(Bytes.bytes(2000), Bytes.bytes(1000),
+			Duration.days(1));
+
+		map.put("other", "url", newResponse(200));
+		for (int i = 0; i < 10; i++)
+		{
+			map.put("greedy", "url" + i, newResponse(200));
+		}
+
+		assertNotNull(map.get("other", "url"));
+		assertEquals(3, map.size());
+		assertEquals(8, map.getEvictionCount());
+		assertNotNull(map.get("greedy", "url9"));
+
+		map.removeSession("greedy");
+		assertEquals(1, map.size());
+		assertEquals(400, map.getSizeInBytes());
 	}
 
 	/**
@@ -100,6 +164,7 @@ class StoredResponsesMapTest
 	 * @throws InterruptedException
 	 */
 	@Test
+	@Tag(WicketTestTag.SLOW)
 	void heavyLoad() throws InterruptedException
 	{
 		final int numberOfThreads = 100;
@@ -107,7 +172,7 @@ class StoredResponsesMapTest
 		final CountDownLatch startLatch = new CountDownLatch(numberOfThreads);
 		final CountDownLatch endLatch = new CountDownLatch(numberOfThreads);
 		final SecureRandom rnd = new SecureRandom();
-		final StoredResponsesMap map = new StoredResponsesMap(1000, Duration.seconds(60));
+		final StoredResponsesMap map = newMap(Duration.seconds(60));
 		final List<String> keys = new CopyOnWriteArrayList<String>();
 
 		final Runnable r = new Runnable()
@@ -130,12 +195,12 @@ class StoredResponsesMapTest
 				{
 					String key = "abc" + (rnd.nextDouble() * iterations);
 					keys.add(key);
-					map.put(key, new BufferedWebResponse(null));
+					map.put("session" + (i % 10), key, newResponse(i % 100));
 
 					int randomMax = keys.size() - 1;
 					int toRemove = randomMax == 0 ? 0 : rnd.nextInt(randomMax);
 					String key2 = keys.get(toRemove);
-					map.remove(key2);
+					map.remove("session" + (toRemove % 10), key2);
 				}
 				endLatch.countDown();
 			}
@@ -146,5 +211,60 @@ class StoredResponsesMapTest
 			new Thread(r).start();
 		}
 		endLatch.await();
+
+		assertTrue(map.getSizeInBytes() >= 0);
+		assertTrue(map.getSizeInBytes() <= Bytes.kilobytes(1).bytes());
+	}
+
+	/**
+	 * Verifies that the application creates the map from its settings, by default large enough for
+	 * a thousand pages of 100,000 characters, and handles requests without session
+	 */
+	@Test
+	void applicationSettings()
+	{
+		assertTrue(new RequestCycleSettings().getBufferedResponsesMaxSize().bytes() >= 1000L *
+			2 * 100000);
+
+		WicketTester tester = new WicketTester(new MockApplication()
+		{
+			@Override
+			protected void init()
+			{
+				super.init();
+				getRequestCycleSettings().setBufferedResponsesMaxSize(Bytes.bytes(1000))
+					.setBufferedResponsesMaxSizePerSession(Bytes.bytes(500));
+			}
+		});
+		try
+		{
+			WebApplication application = tester.getApplication();
+			Url url = Url.parse("page");
+			assertFalse(application.hasBufferedResponse(null, url));
+			assertNull(application.getAndRemoveBufferedResponse(null, url));
+
+			application.storeBufferedResponse("session", url, newResponse(200));
+			application.storeBufferedResponse("session", Url.parse("other"), newResponse(200));
+			assertFalse(application.hasBufferedResponse("session", url));
+			assertEquals(1, application.getStoredResponses().getEvictionCount());
+		}
+		finally
+		{
+			tester.destroy();
+		}
+	}
+
+	private static StoredResponsesMap newMap(Duration lifetime)
+	{
+		return new StoredResponsesMap(Bytes.kilobytes(1), Bytes.kilobytes(1), lifetime);
+	}
+
+	private static BufferedWebResponse newResponse(int chars)
+	{
+		BufferedWebResponse response = new BufferedWebResponse(null);
+		char[] content = new char[chars];
+		Arrays.fill(content, 'x');
+		response.write(new String(content));
+		return response;
 	}
 }
@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.handler.render;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.RestartResponseException;
+import org.apache.wicket.RuntimeConfigurationType;
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.markup.ComponentTag;
+import org.apache.wicket.markup.IMarkupResourceStreamProvider;
+import org.apache.wicket.markup.head.IHeaderResponse;
+import org.apache.wicket.markup.head.JavaScriptHeaderItem;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.mock.MockApplication;
+import org.apache.wicket.protocol.http.StreamingRenderException;
+import org.apache.wicket.protocol.http.StreamingWebResponse;
+import org.apache.wicket.protocol.http.WebApplication;
+import org.apache.wicket.request.Response;
+import org.apache.wicket.settings.RequestCycleSettings.RenderStrategy;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.tester.DummyHomePage;
+import org.apache.wicket.util.tester.WicketTestCase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link org.apache.wicket.settings.RequestCycleSettings#setStreamingRender(boolean)}
+ */
+class StreamingRenderTest extends WicketTestCase
+{
+	/**
+	 * Development mode configures a response filter, which disables streaming.
+	 */
+	@Override
+	protected WebApplication newApplication()
+	{
+		return new MockApplication()
+		{
+			@Override
+			public RuntimeConfigurationType getConfigurationType()
+			{
+				return RuntimeConfigurationType.DEPLOYMENT;
+			}
+		};
+	}
+
+	@BeforeEach
+	void before()
+	{
+		tester.getApplication()
+			.getRequestCycleSettings()
+			.setRenderStrategy(RenderStrategy.ONE_PASS_RENDER);
+	}
+
+	/**
+	 * The body of the page is written after the head has been sent, the output is the same as
+	 * when buffering.
+	 */
+	@Test
+	void sameOutputAsBuffered()
+	{
+		StreamingPage page = tester.startPage(new StreamingPage(null));
+		String buffered = tester.getLastResponseAsString();
+		assertFalse(page.streaming);
+
+		tester.getApplication().getRequestCycleSettings().setStreamingRender(true);
+
+		page = tester.startPage(new StreamingPage(null));
+		assertTrue(page.streaming);
+		assertEquals(buffered, tester.getLastResponseAsString());
+		assertTrue(buffered.contains("<script type=\"text/javascript\" >\n/*<![CDATA[*/\nstreaming\n"));
+	}
+
+	/**
+	 * Response filters need the complete markup, so the page is buffered.
+	 */
+	@Test
+	void noStreamingWithResponseFilters()
+	{
+		tester.getApplication().getRequestCycleSettings().setStreamingRender(true);
+		tester.getApplication().getRequestCycleSettings().addResponseFilter(
+			responseBuffer -> responseBuffer);
+
+		StreamingPage page = tester.startPage(new StreamingPage(null));
+		assertFalse(page.streaming);
+	}
+
+	/**
+	 * A redirect before the head has been sent replaces the response as usual.
+	 */
+	@Test
+	void redirectBeforeHead()
+	{
+		tester.getApplication().getRequestCycleSettings().setStreamingRender(true);
+
+		tester.startPage(new RedirectingPage());
+		tester.assertRenderedPage(DummyHomePage.class);
+	}
+
+	/**
+	 * After the head has been sent, the response can no longer be replaced by a redirect.
+	 */
+	@Test
+	void redirectAfterHead()
+	{
+		tester.getApplication().getRequestCycleSettings().setStreamingRender(true);
+
+		StreamingPage page = new StreamingPage(null);
+		page.redirect = true;
+		tester.startPage(page);
+
+		String response = tester.getLastResponseAsString();
+		assertTrue(response.contains("<span>body</span>"), response);
+		assertFalse(response.contains("DummyHomePage"), response);
+	}
+
+	/**
+	 * After the head has been sent, the response can no longer be replaced by a restart.
+	 */
+	@Test
+	void restartAfterHead()
+	{
+		tester.getApplication().getRequestCycleSettings().setStreamingRender(true);
+
+		tester.startPage(new StreamingPage(new RestartResponseException(DummyHomePage.class)));
+
+		String response = tester.getLastResponseAsString();
+		assertTrue(response.contains("</head>"), response);
+		assertFalse(response.contains("DummyHomePage"), response);
+	}
+
+	/**
+	 * After the head has been sent, the response is incomplete if rendering fails.
+	 */
+	@Test
+	void exceptionAfterHead()
+	{
+		tester.getApplication().getRequestCycleSettings().setStreamingRender(true);
+
+		assertThrows(StreamingRenderException.class,
+			() -> tester.startPage(new StreamingPage(new WicketRuntimeException("failed"))));
+
+		String response = tester.getLastResponseAsString();
+		assertTrue(response.contains("</head>"), response);
+		assertFalse(response.contains("<span>body</span>"), response);
+	}
+
+	/**
+	 * A page with a head contribution and a component in its body
+	 */
+	private static class StreamingPage extends WebPage implements IMarkupResourceStreamProvider
+	{
+		private static final long serialVersionUID = 1L;
+
+		private boolean streaming;
+
+		private boolean redirect;
+
+		private StreamingPage(final RuntimeException failure)
+		{
+			add(new WebMarkupContainer("body")
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void onComponentTag(ComponentTag tag)
+				{
+					super.onComponentTag(tag);
+
+					Response response = getResponse();
+					streaming = response instanceof StreamingWebResponse &&
+						((StreamingWebResponse)response).isStreaming();
+
+					if (redirect)
+					{
+						setResponsePage(DummyHomePage.class);
+					}
+					if (failure != null)
+					{
+						throw failure;
+					}
+				}
+			});
+		}
+
+		@Override
+		public void renderHead(IHeaderResponse response)
+		{
+			super.renderHead(response);
+
+			response.render(JavaScriptHeaderItem.forScript("streaming", null));
+		}
+
+		@Override
+		public IResourceStream getMarkupResourceStream(MarkupContainer container,
+			Class<?> containerClass)
+		{
+			return new StringResourceStream(
+				"<html><head><title>streaming</title></head><body><span wicket:id='body'>body</span></body></html>");
+		}
+	}
+
+	/**
+	 * A page redirecting before it is rendered
+	 */
+	private static class RedirectingPage extends WebPage implements IMarkupResourceStreamProvider
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected void onConfigure()
+		{
+			super.onConfigure();
+
+			throw new RestartResponseException(DummyHomePage.class);
+		}
+
+		@Override
+		public IResourceStream getMarkupResourceStream(MarkupContainer container,
+			Class<?> containerClass)
+		{
+			return new StringResourceStream("<html><body></body></html>");
+		}
+	}
+}
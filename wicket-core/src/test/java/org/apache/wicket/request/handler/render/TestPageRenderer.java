@@ -36,6 +36,7 @@ class TestPageRenderer extends WebPageRenderer
 	public boolean pageStateless;
 	public boolean redirectToBuffer;
 	public boolean sessionTemporary;
+	public boolean streamingRender;
 
 	public TestPageRenderer(RenderPageRequestHandler handler)
 	{
@@ -101,4 +102,10 @@ class TestPageRenderer extends WebPageRenderer
 	{
 		return sessionTemporary;
 	}
+
+	@Override
+	protected boolean isStreamingRender()
+	{
+		return streamingRender;
+	}
 }
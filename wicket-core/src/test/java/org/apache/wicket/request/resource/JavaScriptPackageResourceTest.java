@@ -20,6 +20,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import java.io.IOException;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.wicket.javascript.IJavaScriptCompressor;
 import org.apache.wicket.markup.html.PackageResourceTest;
@@ -27,6 +28,8 @@ import org.apache.wicket.mock.MockApplication;
 import org.apache.wicket.protocol.http.WebApplication;
 import org.apache.wicket.util.resource.ResourceStreamNotFoundException;
 import org.apache.wicket.util.tester.WicketTestCase;
+import org.apache.wicket.util.time.Duration;
+import org.apache.wicket.util.watch.IModificationWatcher;
 import org.junit.jupiter.api.Test;
 
 /**
@@ -152,4 +155,85 @@ class JavaScriptPackageResourceTest extends WicketTestCase
 		tester.startResource(resource);
 		assertEquals("TEST", tester.getLastResponseAsString());
 	}
+
+	/**
+	 * Tests that the compressed content is cached and reused by later requests
+	 */
+	@Test
+	void compressOnce()
+	{
+		final AtomicInteger compressions = new AtomicInteger();
+		tester.getApplication().getResourceSettings().setJavaScriptCompressor(original -> {
+			compressions.incrementAndGet();
+			return APP_COMPRESSED;
+		});
+		ProcessedResourceCache cache = tester.getApplication()
+			.getResourceSettings()
+			.getProcessedResourceCache();
+
+		JavaScriptPackageResource resource = new JavaScriptPackageResource(
+			PackageResourceTest.class, "packaged1.txt", null, null, null);
+		for (int i = 0; i < 3; i++)
+		{
+			tester.startResource(resource);
+			assertEquals(APP_COMPRESSED, tester.getLastResponseAsString());
+		}
+
+		assertEquals(1, compressions.get());
+		assertEquals(1, cache.getCount());
+		assertEquals(APP_COMPRESSED.length(), cache.getSize());
+		assertEquals(2, cache.getHitCount());
+
+		// a new compressor invalidates the cache
+		tester.getApplication().getResourceSettings().setJavaScriptCompressor(original -> "NEW");
+		tester.startResource(resource);
+		assertEquals("NEW", tester.getLastResponseAsString());
+	}
+
+	/**
+	 * Tests that the resource is watched only as long as its content is cached
+	 */
+	@Test
+	void unwatchRemovedContent()
+	{
+		tester.getApplication().getResourceSettings().setResourcePollFrequency(Duration.ONE_HOUR);
+		IModificationWatcher watcher = tester.getApplication()
+			.getResourceSettings()
+			.getResourceWatcher(true);
+		int watched = watcher.getEntries().size();
+		tester.getApplication().getResourceSettings().setJavaScriptCompressor(
+			original -> APP_COMPRESSED);
+
+		JavaScriptPackageResource resource = new JavaScriptPackageResource(
+			PackageResourceTest.class, "packaged1.txt", null, null, null);
+		tester.startResource(resource);
+		assertEquals(watched + 1, watcher.getEntries().size());
+
+		tester.getApplication().getResourceSettings().getProcessedResourceCache().clear();
+		assertEquals(watched, watcher.getEntries().size());
+	}
+
+	/**
+	 * Tests that the content is compressed on each request without cache
+	 */
+	@Test
+	void compressWithoutCache()
+	{
+		final AtomicInteger compressions = new AtomicInteger();
+		tester.getApplication().getResourceSettings().setJavaScriptCompressor(original -> {
+			compressions.incrementAndGet();
+			return APP_COMPRESSED;
+		});
+		tester.getApplication().getResourceSettings().setProcessedResourceCache(null);
+
+		JavaScriptPackageResource resource = new JavaScriptPackageResource(
+			PackageResourceTest.class, "packaged1.txt", null, null, null);
+		for (int i = 0; i < 3; i++)
+		{
+			tester.startResource(resource);
+			assertEquals(APP_COMPRESSED, tester.getLastResponseAsString());
+		}
+
+		assertEquals(3, compressions.get());
+	}
 }
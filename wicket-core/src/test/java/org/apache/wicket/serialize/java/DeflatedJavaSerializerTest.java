@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize.java;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import org.apache.wicket.serialize.ISerializer;
+import org.apache.wicket.util.WicketTestTag;
+import org.apache.wicket.util.tester.WicketTestCase;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for {@link DeflatedJavaSerializer} and the buffers reused by {@link JavaSerializer}
+ */
+class DeflatedJavaSerializerTest extends WicketTestCase
+{
+	private static final Logger log = LoggerFactory.getLogger(DeflatedJavaSerializerTest.class);
+
+	@Test
+	void roundTrip()
+	{
+		DeflatedJavaSerializer serializer = new DeflatedJavaSerializer(
+			tester.getApplication().getApplicationKey());
+
+		for (int i = 0; i < 10; i++)
+		{
+			ArrayList<String> list = newList(i * 100);
+			byte[] bytes = serializer.serialize(list);
+			assertEquals(list, serializer.deserialize(bytes));
+		}
+	}
+
+	@Test
+	void reuseDeflater()
+	{
+		final List<Deflater> created = new ArrayList<>();
+		DeflatedJavaSerializer serializer = new DeflatedJavaSerializer(
+			tester.getApplication().getApplicationKey())
+		{
+			@Override
+			protected Deflater createDeflater()
+			{
+				Deflater deflater = super.createDeflater();
+				created.add(deflater);
+				return deflater;
+			}
+		};
+
+		byte[] first = serializer.serialize(newList(100));
+		byte[] second = serializer.serialize(newList(100));
+
+		assertEquals(1, created.size());
+		assertArrayEquals(first, second);
+	}
+
+	/**
+	 * Serializations after one that grew the buffer beyond the retained size start with a new one
+	 */
+	@Test
+	void discardLargeBuffer()
+	{
+		JavaSerializer serializer = new JavaSerializer(tester.getApplication().getApplicationKey())
+		{
+			@Override
+			protected int getMaxRetainedBufferSize()
+			{
+				return 10 * 1024;
+			}
+		};
+
+		ArrayList<String> small = newList(10);
+		ArrayList<String> large = newList(10000);
+
+		assertEquals(small, serializer.deserialize(serializer.serialize(small)));
+		assertEquals(large, serializer.deserialize(serializer.serialize(large)));
+		assertEquals(small, serializer.deserialize(serializer.serialize(small)));
+
+		byte[] first = serializer.serialize(small);
+		byte[] second = serializer.serialize(small);
+		assertNotSame(first, second);
+		assertArrayEquals(first, second);
+	}
+
+	/**
+	 * Logs the bytes allocated per serialization with and without reused buffers and deflaters
+	 */
+	@Test
+	@Tag(WicketTestTag.SLOW)
+	void allocation()
+	{
+		assumeTrue(
+			ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+
+		String applicationKey = tester.getApplication().getApplicationKey();
+		ArrayList<String> list = newList(5000);
+
+		measure("JavaSerializer without reuse", new JavaSerializer(applicationKey)
+		{
+			@Override
+			protected int getMaxRetainedBufferSize()
+			{
+				return 0;
+			}
+		}, list);
+		measure("JavaSerializer", new JavaSerializer(applicationKey), list);
+		measure("DeflatedJavaSerializer", new DeflatedJavaSerializer(applicationKey), list);
+	}
+
+	private void measure(String name, ISerializer serializer, Object object)
+	{
+		final int warmup = 200;
+		final int iterations = 1000;
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory
+			.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+
+		byte[] bytes = null;
+		for (int i = 0; i < warmup; i++)
+		{
+			bytes = serializer.serialize(object);
+		}
+
+		long allocated = threads.getThreadAllocatedBytes(threadId);
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++)
+		{
+			bytes = serializer.serialize(object);
+		}
+		long duration = (System.nanoTime() - start) / iterations;
+		allocated = (threads.getThreadAllocatedBytes(threadId) - allocated) / iterations;
+
+		log.info("{}: {} bytes, serialize {} ns, allocated {} bytes", name, bytes.length, duration,
+			allocated);
+	}
+
+	private static ArrayList<String> newList(int size)
+	{
+		ArrayList<String> list = new ArrayList<>();
+		for (int i = 0; i < size; i++)
+		{
+			list.add("element " + i);
+		}
+		return list;
+	}
+}
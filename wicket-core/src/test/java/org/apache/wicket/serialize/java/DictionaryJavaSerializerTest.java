@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize.java;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.form.Form;
+import org.apache.wicket.markup.html.form.TextField;
+import org.apache.wicket.model.CompoundPropertyModel;
+import org.apache.wicket.model.Model;
+import org.apache.wicket.model.PropertyModel;
+import org.apache.wicket.serialize.ISerializer;
+import org.apache.wicket.util.WicketTestTag;
+import org.apache.wicket.util.tester.WicketTestCase;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for {@link DictionaryJavaSerializer}
+ */
+class DictionaryJavaSerializerTest extends WicketTestCase
+{
+	private static final Logger log = LoggerFactory.getLogger(DictionaryJavaSerializerTest.class);
+
+	@Test
+	void roundTrip()
+	{
+		DictionaryJavaSerializer serializer = new DictionaryJavaSerializer(
+			tester.getApplication().getApplicationKey());
+
+		WebPage page = newPage(10);
+		byte[] bytes = serializer.serialize(page);
+		WebPage deserialized = (WebPage)serializer.deserialize(bytes);
+
+		assertEquals("street 7", deserialized.get("row7:street").getDefaultModelObject());
+		assertEquals("city 7", deserialized.get("row7:form:city").getDefaultModelObject());
+		assertEquals("label 3", deserialized.get("row3:label").getDefaultModelObject());
+		assertTrue(serializer.getDictionary().size() > 0);
+	}
+
+	@Test
+	void smallerThanJavaSerializer()
+	{
+		String applicationKey = tester.getApplication().getApplicationKey();
+		WebPage page = newPage(10);
+
+		int java = new JavaSerializer(applicationKey).serialize(page).length;
+		int dictionary = new DictionaryJavaSerializer(applicationKey).serialize(page).length;
+
+		assertTrue(dictionary < java, "dictionary: " + dictionary + ", java: " + java);
+	}
+
+	/**
+	 * Data serialized with another dictionary, e.g. by a previous deployment, is ignored
+	 */
+	@Test
+	void otherDictionary()
+	{
+		String applicationKey = tester.getApplication().getApplicationKey();
+		byte[] bytes = new DictionaryJavaSerializer(applicationKey).serialize(newPage(1));
+
+		assertNull(new DictionaryJavaSerializer(applicationKey).deserialize(bytes));
+	}
+
+	/**
+	 * Data serialized with a dictionary backed by a file is read after a restart
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void restartWithFile() throws Exception
+	{
+		String applicationKey = tester.getApplication().getApplicationKey();
+		File folder = Files.createTempDirectory("dictionary").toFile();
+		try
+		{
+			File file = new File(folder, "class-dictionary");
+			byte[] bytes = new DictionaryJavaSerializer(applicationKey,
+				new ClassDescriptorDictionary(file)).serialize(newPage(3));
+
+			DictionaryJavaSerializer restarted = new DictionaryJavaSerializer(applicationKey,
+				new ClassDescriptorDictionary(file));
+			WebPage deserialized = (WebPage)restarted.deserialize(bytes);
+			assertEquals("street 2", deserialized.get("row2:street").getDefaultModelObject());
+
+			// a changed class gets a new id
+			List<String> lines = Files.readAllLines(file.toPath());
+			for (int i = 1; i < lines.size(); i++)
+			{
+				lines.set(i, lines.get(i).replaceFirst("^\\w+ ", "0 "));
+			}
+			Files.write(file.toPath(), lines);
+			restarted = new DictionaryJavaSerializer(applicationKey,
+				new ClassDescriptorDictionary(file));
+			assertNull(restarted.deserialize(bytes));
+			assertNotNull(restarted.deserialize(restarted.serialize(newPage(3))));
+		}
+		finally
+		{
+			org.apache.wicket.util.file.Files.removeFolder(folder);
+		}
+	}
+
+	/**
+	 * Compares time and size with {@link JavaSerializer} and {@link DeflatedJavaSerializer}
+	 */
+	@Test
+	@Tag(WicketTestTag.SLOW)
+	void performance()
+	{
+		String applicationKey = tester.getApplication().getApplicationKey();
+		WebPage page = newPage(50);
+
+		measure("JavaSerializer", new JavaSerializer(applicationKey), page);
+		measure("DeflatedJavaSerializer", new DeflatedJavaSerializer(applicationKey), page);
+		measure("DictionaryJavaSerializer", new DictionaryJavaSerializer(applicationKey), page);
+	}
+
+	private void measure(String name, ISerializer serializer, WebPage page)
+	{
+		final int warmup = 200;
+		final int iterations = 1000;
+
+		byte[] bytes = null;
+		for (int i = 0; i < warmup; i++)
+		{
+			bytes = serializer.serialize(page);
+			serializer.deserialize(bytes);
+		}
+
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++)
+		{
+			bytes = serializer.serialize(page);
+		}
+		long serialize = (System.nanoTime() - start) / iterations;
+
+		start = System.nanoTime();
+		for (int i = 0; i < iterations; i++)
+		{
+			serializer.deserialize(bytes);
+		}
+		long deserialize = (System.nanoTime() - start) / iterations;
+
+		log.info("{}: {} bytes, serialize {} ns, deserialize {} ns", name, bytes.length, serialize,
+			deserialize);
+	}
+
+	private static WebPage newPage(int rows)
+	{
+		WebPage page = new TestPage();
+		for (int i = 0; i < rows; i++)
+		{
+			Address address = new Address("street " + i, "city " + i);
+
+			WebMarkupContainer row = new WebMarkupContainer("row" + i);
+			row.add(new Label("label", Model.of("label " + i)));
+			row.add(new Label("street", new PropertyModel<>(address, "street")));
+
+			Form<Address> form = new Form<>("form", new CompoundPropertyModel<>(address));
+			form.add(new TextField<>("city"));
+			row.add(form);
+
+			page.add(row);
+		}
+		return page;
+	}
+
+	private static class TestPage extends WebPage
+	{
+		private static final long serialVersionUID = 1L;
+	}
+
+	private static class Address implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private String street;
+
+		private String city;
+
+		private Address(String street, String city)
+		{
+			this.street = street;
+			this.city = city;
+		}
+	}
+}
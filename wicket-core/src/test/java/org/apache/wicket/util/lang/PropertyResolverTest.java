@@ -34,6 +34,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.wicket.ConverterLocator;
 import org.apache.wicket.IConverterLocator;
@@ -48,10 +49,14 @@ import org.apache.wicket.core.util.lang.PropertyResolverConverter;
 import org.apache.wicket.util.convert.ConversionException;
 import org.apache.wicket.util.convert.IConverter;
 import org.apache.wicket.util.convert.converter.AbstractConverter;
+import org.apache.wicket.util.WicketTestTag;
 import org.apache.wicket.util.tester.WicketTestCase;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * @author jcompagner
@@ -60,6 +65,8 @@ import org.junit.jupiter.api.Test;
 public class PropertyResolverTest extends WicketTestCase
 {
 
+	private static final Logger log = LoggerFactory.getLogger(PropertyResolverTest.class);
+
 	private static final PropertyResolverConverter CONVERTER = new PropertyResolverConverter(
 		new ConverterLocator(), Locale.US);
 
@@ -775,6 +782,75 @@ public class PropertyResolverTest extends WicketTestCase
 		assertEquals("string2", PropertyResolver.getValue("nested.string", document));
 	}
 
+	/**
+	 * A compiled expression is evaluated on objects of different classes.
+	 */
+	@Test
+	void compiledExpressionOnOtherClass()
+	{
+		Address address = new Address();
+		address.setStreet("street");
+		assertEquals("street", PropertyResolver.getValue("street", address));
+
+		Map<String, String> map = new HashMap<>();
+		map.put("street", "mapStreet");
+		assertEquals("mapStreet", PropertyResolver.getValue("street", map));
+		assertEquals("street", PropertyResolver.getValue("street", address));
+	}
+
+	/**
+	 * A locator not caching its results is asked on every evaluation.
+	 */
+	@Test
+	void nonCachingLocator()
+	{
+		AtomicInteger located = new AtomicInteger();
+		PropertyResolver.setLocator(tester.getApplication(), (clz, exp) -> {
+			located.incrementAndGet();
+			return new DefaultPropertyLocator().get(clz, exp);
+		});
+
+		Address address = new Address();
+		address.setStreet("street");
+		assertEquals("street", PropertyResolver.getValue("street", address));
+		assertEquals("street", PropertyResolver.getValue("street", address));
+
+		assertEquals(2, located.get());
+	}
+
+	/**
+	 * Measures the resolving of a nested expression, as done by a {@code PropertyColumn}.
+	 */
+	@Test
+	@Tag(WicketTestTag.SLOW)
+	void performance()
+	{
+		Address address = new Address();
+		address.setStreet("street");
+		person.setAddress(address);
+
+		final int iterations = 1_000_000;
+		for (int run = 0; run < 3; run++)
+		{
+			long start = System.nanoTime();
+			for (int i = 0; i < iterations; i++)
+			{
+				PropertyResolver.getValue("address.street", person);
+			}
+			long get = (System.nanoTime() - start) / iterations;
+
+			start = System.nanoTime();
+			for (int i = 0; i < iterations; i++)
+			{
+				PropertyResolver.setValue("address.number", person, i, CONVERTER);
+			}
+			long set = (System.nanoTime() - start) / iterations;
+
+			log.info("getValue {} ns, setValue {} ns", get, set);
+		}
+		assertEquals("street", PropertyResolver.getValue("address.street", person));
+	}
+
 	class CustomGetAndSetLocator implements IPropertyLocator {
 
 		private IPropertyLocator locator = new DefaultPropertyLocator();
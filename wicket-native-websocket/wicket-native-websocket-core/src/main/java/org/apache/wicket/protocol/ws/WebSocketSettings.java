@@ -39,6 +39,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.servlet.http.HttpServletRequest;
+import java.time.Duration;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -132,10 +133,56 @@ public class WebSocketSettings
 	 */
 	private IWebSocketConnectionFilter connectionFilter;
 
+	/**
+	 * What to do when the queue of the messages sent asynchronously to a connection is full.
+	 */
+	public enum OverflowPolicy
+	{
+		/**
+		 * Drops the oldest queued message.
+		 */
+		DROP_OLDEST,
+
+		/**
+		 * Drops all queued messages and keeps only the new one. The dropped messages are not
+		 * merged into the new one, so this is only suitable when each message carries the
+		 * complete state, e.g. the latest value of a gauge, but not for Ajax responses updating a
+		 * part of the page.
+		 */
+		KEEP_LATEST,
+
+		/**
+		 * Closes the connection of the client which cannot keep up.
+		 */
+		CLOSE
+	}
+
+	/**
+	 * The default number of messages which may wait for an asynchronous send per connection.
+	 */
+	public static final int DEFAULT_ASYNC_SEND_QUEUE_SIZE = 64;
+
+	/**
+	 * The number of messages which may wait for an asynchronous send per connection.
+	 */
+	private int asyncSendQueueSize = DEFAULT_ASYNC_SEND_QUEUE_SIZE;
+
+	/**
+	 * What to do when the queue of the messages sent asynchronously to a connection is full.
+	 */
+	private OverflowPolicy asyncSendOverflowPolicy = OverflowPolicy.DROP_OLDEST;
+
+	/**
+	 * The time to collect the push messages for a page before processing them together.
+	 */
+	private Duration pushCoalescingWindow = Duration.ZERO;
+
 	/**
 	 * Set the executor for processing websocket push messages broadcasted to all sessions.
 	 * Default executor does all the processing in the caller thread. Using a proper thread pool is adviced
-	 * for applications that send push events from ajax calls to avoid page level deadlocks.
+	 * for applications that send push events from ajax calls to avoid page level deadlocks, e.g.
+	 * {@link org.apache.wicket.protocol.ws.concurrent.BoundedExecutor} or
+	 * {@link org.apache.wicket.protocol.ws.concurrent.VirtualThreadExecutor}.
 	 *
 	 * @param executor
 	 *            The executor used for processing push messages.
@@ -155,6 +202,87 @@ public class WebSocketSettings
 		return webSocketPushMessageExecutor;
 	}
 
+	/**
+	 * Sets the time to collect the push messages for a page before processing them together.
+	 * <p>
+	 * The push messages arriving within the window are delivered to the page in one request
+	 * cycle, so the components they update are rendered into a single response and the page is
+	 * stored once. The messages are processed after the window by the
+	 * {@link #getWebSocketPushMessageExecutor() push message executor}. With the default
+	 * {@link SameThreadExecutor} they are processed by a
+	 * {@link org.apache.wicket.protocol.ws.concurrent.BoundedExecutor} of the application
+	 * instead, so a page being rendered does not hold up the timer of the window. The messages
+	 * of a window the executor rejects are dropped, the later ones are processed as usual.
+	 * </p>
+	 * Default is {@link Duration#ZERO}, processing each push message right away.
+	 *
+	 * @param pushCoalescingWindow
+	 *            the window, e.g. a few milliseconds
+	 * @return {@code this} object for chaining
+	 */
+	public WebSocketSettings setPushCoalescingWindow(Duration pushCoalescingWindow)
+	{
+		Args.notNull(pushCoalescingWindow, "pushCoalescingWindow");
+		Args.isFalse(pushCoalescingWindow.isNegative(), "pushCoalescingWindow may not be negative");
+		this.pushCoalescingWindow = pushCoalescingWindow;
+		return this;
+	}
+
+	/**
+	 * @return the time to collect the push messages for a page before processing them together
+	 */
+	public Duration getPushCoalescingWindow()
+	{
+		return pushCoalescingWindow;
+	}
+
+	/**
+	 * Sets the number of messages which may wait per connection while a message is sent
+	 * asynchronously with {@link IWebSocketConnection#sendMessageAsync(String)}.
+	 *
+	 * @param asyncSendQueueSize
+	 *            the number of messages
+	 * @return {@code this} object for chaining
+	 */
+	public WebSocketSettings setAsyncSendQueueSize(int asyncSendQueueSize)
+	{
+		this.asyncSendQueueSize = Args.withinRange(1, Integer.MAX_VALUE, asyncSendQueueSize,
+			"asyncSendQueueSize");
+		return this;
+	}
+
+	/**
+	 * @return the number of messages which may wait per connection while a message is sent
+	 *         asynchronously
+	 */
+	public int getAsyncSendQueueSize()
+	{
+		return asyncSendQueueSize;
+	}
+
+	/**
+	 * Sets what to do when the queue of the messages sent asynchronously to a connection is full.
+	 *
+	 * @param asyncSendOverflowPolicy
+	 *            the policy
+	 * @return {@code this} object for chaining
+	 */
+	public WebSocketSettings setAsyncSendOverflowPolicy(OverflowPolicy asyncSendOverflowPolicy)
+	{
+		this.asyncSendOverflowPolicy = Args.notNull(asyncSendOverflowPolicy,
+			"asyncSendOverflowPolicy");
+		return this;
+	}
+
+	/**
+	 * @return what to do when the queue of the messages sent asynchronously to a connection is
+	 *         full
+	 */
+	public OverflowPolicy getAsyncSendOverflowPolicy()
+	{
+		return asyncSendOverflowPolicy;
+	}
+
 	/**
 	 * @return The registry that tracks all currently connected WebSocket clients
 	 */
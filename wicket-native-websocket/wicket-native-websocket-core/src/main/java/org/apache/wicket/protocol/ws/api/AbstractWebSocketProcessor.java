@@ -16,11 +16,22 @@
  */
 package org.apache.wicket.protocol.ws.api;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
 
 import org.apache.wicket.Application;
+import org.apache.wicket.IApplicationListener;
 import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.MetaDataKey;
 import org.apache.wicket.Page;
 import org.apache.wicket.Session;
 import org.apache.wicket.ThreadContext;
@@ -48,8 +59,11 @@ import org.apache.wicket.protocol.ws.api.message.IWebSocketPushMessage;
 import org.apache.wicket.protocol.ws.api.message.TextMessage;
 import org.apache.wicket.protocol.ws.api.registry.IKey;
 import org.apache.wicket.protocol.ws.api.registry.IWebSocketConnectionRegistry;
+import org.apache.wicket.protocol.ws.api.registry.IndexedWebSocketConnectionRegistry;
 import org.apache.wicket.protocol.ws.api.registry.PageIdKey;
 import org.apache.wicket.protocol.ws.api.registry.ResourceNameKey;
+import org.apache.wicket.protocol.ws.concurrent.BoundedExecutor;
+import org.apache.wicket.protocol.ws.concurrent.Executor;
 import org.apache.wicket.request.IRequestHandler;
 import org.apache.wicket.request.Url;
 import org.apache.wicket.request.cycle.IRequestCycleListener;
@@ -92,6 +106,18 @@ public abstract class AbstractWebSocketProcessor implements IWebSocketProcessor
 	private final IWebSocketConnectionFilter connectionFilter;
 	private final HttpServletRequest servletRequest;
 
+	/**
+	 * The key of the application's {@link PushCoalescing}.
+	 */
+	private static final MetaDataKey<PushCoalescing> PUSH_COALESCING = new MetaDataKey<PushCoalescing>()
+	{
+	};
+
+	/**
+	 * The push messages collected within the coalescing window, guarded by itself.
+	 */
+	private final List<IWebSocketPushMessage> pendingPushMessages = new ArrayList<>();
+
 	/**
 	 * Constructor.
 	 *
@@ -196,6 +222,98 @@ public abstract class AbstractWebSocketProcessor implements IWebSocketProcessor
 		broadcastMessage(new ErrorMessage(getApplication(), getSessionId(), key, t));
 	}
 
+	/**
+	 * Broadcasts a push message like {@link #broadcastMessage(IWebSocketMessage)}, unless a
+	 * {@link WebSocketSettings#setPushCoalescingWindow(Duration) coalescing window} is set: then the
+	 * push messages arriving within the window are broadcast together in one request cycle, so the
+	 * page is rendered, stored and sent to the client once.
+	 *
+	 * @param message
+	 *      the push message to broadcast
+	 */
+	public final void broadcastPushMessage(final IWebSocketPushMessage message)
+	{
+		Duration window = webSocketSettings.getPushCoalescingWindow();
+		if (window.isZero())
+		{
+			broadcastMessage(message);
+			return;
+		}
+
+		synchronized (pendingPushMessages)
+		{
+			pendingPushMessages.add(message);
+			if (pendingPushMessages.size() > 1)
+			{
+				// the processing of the pending messages is already scheduled
+				return;
+			}
+		}
+
+		final PushCoalescing pushCoalescing = getPushCoalescing(application);
+		try
+		{
+			pushCoalescing.timer.schedule(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					handOverPendingPushMessages(pushCoalescing);
+				}
+			}, window.toNanos(), TimeUnit.NANOSECONDS);
+		}
+		catch (RejectedExecutionException x)
+		{
+			LOG.debug("Dropping push message since the application is destroyed: {}", x.toString());
+			synchronized (pendingPushMessages)
+			{
+				pendingPushMessages.clear();
+			}
+		}
+	}
+
+	/**
+	 * Takes the pending push messages and hands them over to the push message executor. They are
+	 * taken before the hand over, so an executor rejecting or dropping the batch does not keep the
+	 * later push messages of this connection from being scheduled.
+	 */
+	private void handOverPendingPushMessages(final PushCoalescing pushCoalescing)
+	{
+		final List<IWebSocketPushMessage> messages;
+		synchronized (pendingPushMessages)
+		{
+			messages = new ArrayList<>(pendingPushMessages);
+			pendingPushMessages.clear();
+		}
+
+		IWebSocketConnection connection = connectionRegistry.getConnection(application, sessionId,
+			getRegistryKey());
+		Executor executor = webSocketSettings.getWebSocketPushMessageExecutor();
+		if (executor instanceof WebSocketSettings.SameThreadExecutor)
+		{
+			// the thread of the timer must not be blocked by rendering a page
+			executor = pushCoalescing.executor;
+		}
+		try
+		{
+			executor.run(connection != null ? connection : this, new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					LOG.debug("Broadcasting {} coalesced push messages", messages.size());
+					broadcastMessages(messages);
+				}
+			});
+		}
+		catch (RuntimeException x)
+		{
+			long dropped = pushCoalescing.droppedPushMessages.addAndGet(messages.size());
+			LOG.warn("Dropping {} coalesced push messages ({} in total) since the executor failed",
+				messages.size(), dropped, x);
+		}
+	}
+
 	/**
 	 * Exports the Wicket thread locals and broadcasts the received message from the client to all
 	 * interested components and behaviors in the page with id {@code #pageId}
@@ -210,6 +328,18 @@ public abstract class AbstractWebSocketProcessor implements IWebSocketProcessor
 	 */
 	public final void broadcastMessage(final IWebSocketMessage message)
 	{
+		broadcastMessages(Collections.singletonList(message));
+	}
+
+	/**
+	 * Broadcasts the messages in one request cycle, sharing the same request handler.
+	 *
+	 * @param messages
+	 *      the messages to broadcast, only push messages if there is more than one
+	 */
+	private void broadcastMessages(final List<? extends IWebSocketMessage> messages)
+	{
+		IWebSocketMessage message = messages.get(0);
 		IKey key = getRegistryKey();
 		IWebSocketConnection connection = connectionRegistry.getConnection(application, sessionId, key);
 
@@ -245,15 +375,26 @@ public abstract class AbstractWebSocketProcessor implements IWebSocketProcessor
 
 				if (page != null)
 				{
+					if (message instanceof ConnectedMessage && pageId != NO_PAGE_ID &&
+						connectionRegistry instanceof IndexedWebSocketConnectionRegistry)
+					{
+						((IndexedWebSocketConnectionRegistry)connectionRegistry).setPageClass(application,
+							sessionId, key, page.getClass());
+					}
+
 					WebSocketRequestHandler requestHandler = webSocketSettings.newWebSocketRequestHandler(page, connection);
 
-					WebSocketPayload payload = createEventPayload(message, requestHandler);
+					List<WebSocketPayload<?>> payloads = new ArrayList<>(messages.size());
+					for (IWebSocketMessage each : messages)
+					{
+						payloads.add(createEventPayload(each, requestHandler));
+					}
 
 					if (!(message instanceof ConnectedMessage || message instanceof ClosedMessage || message instanceof AbortedMessage)) {
 						requestCycle.scheduleRequestHandlerAfterCurrent(requestHandler);
 					}
 
-					IRequestHandler broadcastingHandler = new WebSocketMessageBroadcastHandler(pageId, resourceName, payload);
+					IRequestHandler broadcastingHandler = new WebSocketMessageBroadcastHandler(pageId, resourceName, payloads);
 					requestMapper.setHandler(broadcastingHandler);
 					requestCycle.processRequestAndDetach();
 				}
@@ -337,6 +478,72 @@ public abstract class AbstractWebSocketProcessor implements IWebSocketProcessor
 		return sessionId;
 	}
 
+	/**
+	 * @param application
+	 *            the application
+	 * @return the {@link PushCoalescing} of the application, created on first use
+	 */
+	private static PushCoalescing getPushCoalescing(Application application)
+	{
+		PushCoalescing pushCoalescing = application.getMetaData(PUSH_COALESCING);
+		if (pushCoalescing == null)
+		{
+			synchronized (application)
+			{
+				pushCoalescing = application.getMetaData(PUSH_COALESCING);
+				if (pushCoalescing == null)
+				{
+					pushCoalescing = new PushCoalescing();
+					application.setMetaData(PUSH_COALESCING, pushCoalescing);
+					application.getApplicationListeners().add(pushCoalescing);
+				}
+			}
+		}
+		return pushCoalescing;
+	}
+
+	/**
+	 * The timer scheduling the processing of the coalesced push messages of an application, and
+	 * the executor processing them if the push message executor would run them on the thread of
+	 * the timer. Both are shut down when the application is destroyed.
+	 */
+	private static class PushCoalescing implements IApplicationListener
+	{
+		/**
+		 * Only hands the messages over to an executor, its thread terminates when idle.
+		 */
+		private final ScheduledThreadPoolExecutor timer;
+
+		/**
+		 * Used instead of a {@link WebSocketSettings.SameThreadExecutor}.
+		 */
+		private final BoundedExecutor executor = new BoundedExecutor();
+
+		/**
+		 * The number of coalesced push messages dropped since the executor failed to take them.
+		 */
+		private final AtomicLong droppedPushMessages = new AtomicLong();
+
+		private PushCoalescing()
+		{
+			timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+				Thread thread = new Thread(runnable, "Wicket-WebSocket-PushCoalescing");
+				thread.setDaemon(true);
+				return thread;
+			});
+			timer.setKeepAliveTime(10, TimeUnit.SECONDS);
+			timer.allowCoreThreadTimeOut(true);
+			timer.setRemoveOnCancelPolicy(true);
+		}
+
+		@Override
+		public void onBeforeDestroyed(Application application)
+		{
+			timer.shutdownNow();
+			executor.shutdown();
+		}
+	}
+
 	private WebSocketPayload createEventPayload(IWebSocketMessage message, WebSocketRequestHandler handler)
 	{
 		final WebSocketPayload payload;
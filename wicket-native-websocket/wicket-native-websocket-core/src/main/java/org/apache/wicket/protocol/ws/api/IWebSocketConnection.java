@@ -66,6 +66,41 @@ public interface IWebSocketConnection
 	 */
 	IWebSocketConnection sendMessage(byte[] message, int offset, int length) throws IOException;
 
+	/**
+	 * Sends a text message to the client without waiting until it is written, so a slow client
+	 * does not block the caller. By default the message is sent synchronously.
+	 *
+	 * @param message
+	 *      the text message
+	 * @return {@code this} object, for chaining methods
+	 * @throws IOException when an IO error occurs during a synchronous write to the client
+	 * @see org.apache.wicket.protocol.ws.WebSocketSettings#setAsyncSendQueueSize(int)
+	 */
+	default IWebSocketConnection sendMessageAsync(String message) throws IOException
+	{
+		return sendMessage(message);
+	}
+
+	/**
+	 * Sends a binary message to the client without waiting until it is written, so a slow client
+	 * does not block the caller. By default the message is sent synchronously.
+	 *
+	 * @param message
+	 *      the binary message
+	 * @param offset
+	 *      the offset to read from
+	 * @param length
+	 *      how much data to read
+	 * @return {@code this} object, for chaining methods
+	 * @throws IOException when an IO error occurs during a synchronous write to the client
+	 * @see org.apache.wicket.protocol.ws.WebSocketSettings#setAsyncSendQueueSize(int)
+	 */
+	default IWebSocketConnection sendMessageAsync(byte[] message, int offset, int length)
+		throws IOException
+	{
+		return sendMessage(message, offset, length);
+	}
+
 	/**
 	 * Broadcasts a push message to the wicket page (and it's components) associated with this
 	 * connection. The components can then send messages or component updates to client by adding
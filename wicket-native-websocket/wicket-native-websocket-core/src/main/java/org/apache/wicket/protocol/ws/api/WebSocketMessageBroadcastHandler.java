@@ -16,6 +16,9 @@
  */
 package org.apache.wicket.protocol.ws.api;
 
+import java.util.Collections;
+import java.util.List;
+
 import org.apache.wicket.Application;
 import org.apache.wicket.Page;
 import org.apache.wicket.Session;
@@ -38,7 +41,7 @@ public class WebSocketMessageBroadcastHandler implements IRequestHandler
 {
 	private final int pageId;
 	private final String resourceName;
-	private final WebSocketPayload<?> payload;
+	private final List<? extends WebSocketPayload<?>> payloads;
 
 	/**
 	 * Constructor.
@@ -52,10 +55,27 @@ public class WebSocketMessageBroadcastHandler implements IRequestHandler
 	 *          The payload to broadcast
 	 */
 	WebSocketMessageBroadcastHandler(int pageId, String resourceName, WebSocketPayload<?> payload)
+	{
+		this(pageId, resourceName, Collections.singletonList(Args.notNull(payload, "payload")));
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param pageId
+	 *          The id of the page if {@link org.apache.wicket.protocol.ws.api.WebSocketBehavior}
+	 *          or {@value org.apache.wicket.protocol.ws.api.AbstractWebSocketProcessor#NO_PAGE_ID} if using a resource
+	 * @param resourceName
+	 *          The name of the shared {@link org.apache.wicket.protocol.ws.api.WebSocketResource}
+	 * @param payloads
+	 *          The payloads to broadcast one after the other, sharing the same request handler
+	 */
+	WebSocketMessageBroadcastHandler(int pageId, String resourceName,
+		List<? extends WebSocketPayload<?>> payloads)
 	{
 		this.pageId = pageId;
 		this.resourceName = resourceName;
-		this.payload = Args.notNull(payload, "payload");
+		this.payloads = Args.notEmpty(payloads, "payloads");
 	}
 
 	@Override
@@ -71,7 +91,10 @@ public class WebSocketMessageBroadcastHandler implements IRequestHandler
 				if (pageId != AbstractWebSocketProcessor.NO_PAGE_ID)
 				{
 					Page page = (Page) Session.get().getPageManager().getPage(pageId);
-					page.send(application, Broadcast.BREADTH, payload);
+					for (WebSocketPayload<?> payload : payloads)
+					{
+						page.send(application, Broadcast.BREADTH, payload);
+					}
 				}
 				else
 				{
@@ -80,7 +103,10 @@ public class WebSocketMessageBroadcastHandler implements IRequestHandler
 					if (resource instanceof WebSocketResource)
 					{
 						WebSocketResource wsResource = (WebSocketResource) resource;
-						wsResource.onPayload(payload);
+						for (WebSocketPayload<?> payload : payloads)
+						{
+							wsResource.onPayload(payload);
+						}
 					}
 					else
 					{
@@ -94,6 +120,6 @@ public class WebSocketMessageBroadcastHandler implements IRequestHandler
 		};
 
 		WebSocketSettings webSocketSettings = WebSocketSettings.Holder.get(application);
-		webSocketSettings.getSendPayloadExecutor().run(action);
+		webSocketSettings.getSendPayloadExecutor().run(payloads.get(0).getHandler().getConnection(), action);
 	}
 }
@@ -18,16 +18,25 @@ package org.apache.wicket.protocol.ws.api;
 
 import static java.util.Collections.singletonList;
 
+import java.io.IOException;
 import java.util.Collection;
+import java.util.function.Supplier;
 
 import org.apache.wicket.Application;
+import org.apache.wicket.Component;
+import org.apache.wicket.core.util.string.ComponentRenderer;
+import org.apache.wicket.page.XmlPartialPageUpdate;
 import org.apache.wicket.protocol.ws.WebSocketSettings;
 import org.apache.wicket.protocol.ws.api.message.ConnectedMessage;
 import org.apache.wicket.protocol.ws.api.message.IWebSocketPushMessage;
 import org.apache.wicket.protocol.ws.api.registry.IKey;
 import org.apache.wicket.protocol.ws.api.registry.IWebSocketConnectionRegistry;
+import org.apache.wicket.protocol.ws.api.registry.IndexedWebSocketConnectionRegistry;
 import org.apache.wicket.protocol.ws.concurrent.Executor;
 import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.string.Strings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Allows pushing events for processing to Pages that have active web sockets.
@@ -37,6 +46,8 @@ import org.apache.wicket.util.lang.Args;
  */
 public class WebSocketPushBroadcaster
 {
+	private static final Logger LOG = LoggerFactory.getLogger(WebSocketPushBroadcaster.class);
+
 	private final IWebSocketConnectionRegistry registry;
 
 	public WebSocketPushBroadcaster(IWebSocketConnectionRegistry registry)
@@ -109,6 +120,170 @@ public class WebSocketPushBroadcaster
 		process(application, wsConnections, message);
 	}
 
+	/**
+	 * Processes the given message in the pages whose Web Socket connections subscribed to the given
+	 * topic. Only the subscribers are visited, so the cost does not depend on the number of all
+	 * connections.
+	 *
+	 * Requires an {@link IndexedWebSocketConnectionRegistry}, see
+	 * {@link WebSocketSettings#setConnectionRegistry(IWebSocketConnectionRegistry)}.
+	 *
+	 * @param application
+	 *			The wicket application
+	 * @param topic
+	 *			The topic
+	 * @param message
+	 *			The push message event
+	 * @see IndexedWebSocketConnectionRegistry#subscribe(Application, String, IKey, String)
+	 * @see #broadcastAll(Application, IWebSocketPushMessage)
+	 */
+	public void broadcastTopic(Application application, String topic, IWebSocketPushMessage message)
+	{
+		Args.notNull(application, "application");
+		Args.notNull(message, "message");
+
+		process(application, getIndexedRegistry().getSubscribers(application, topic), message);
+	}
+
+	/**
+	 * Sends the given text to the Web Socket connections subscribed to the given topic.
+	 *
+	 * Requires an {@link IndexedWebSocketConnectionRegistry}, see
+	 * {@link WebSocketSettings#setConnectionRegistry(IWebSocketConnectionRegistry)}.
+	 *
+	 * @param application
+	 *			The wicket application
+	 * @param topic
+	 *			The topic
+	 * @param text
+	 *			The text to send
+	 * @see IndexedWebSocketConnectionRegistry#subscribe(Application, String, IKey, String)
+	 * @see #broadcastAll(Application, CharSequence)
+	 */
+	public void broadcastTopic(Application application, String topic, CharSequence text)
+	{
+		Args.notNull(application, "application");
+		Args.notNull(text, "text");
+
+		send(application, getIndexedRegistry().getSubscribers(application, topic), text.toString());
+	}
+
+	private IndexedWebSocketConnectionRegistry getIndexedRegistry()
+	{
+		if (registry instanceof IndexedWebSocketConnectionRegistry == false)
+		{
+			throw new IllegalStateException(
+				"Broadcasting to a topic requires an IndexedWebSocketConnectionRegistry but the registry is " +
+					registry.getClass().getName());
+		}
+		return (IndexedWebSocketConnectionRegistry)registry;
+	}
+
+	/**
+	 * Sends the given text, e.g. a JSON fragment, to all active Web Socket connections.
+	 *
+	 * Unlike {@link #broadcastAll(Application, IWebSocketPushMessage)} no page is loaded and nothing
+	 * is rendered per connection, the very same text is written to each of them. Use this for
+	 * payloads which do not depend on the session or the page, e.g. a ticker update, and
+	 * {@link #broadcastAll(Application, IWebSocketPushMessage)} for personalized content.
+	 *
+	 * This method can be invoked from any thread, even a non-wicket thread. By default all sending
+	 * is done in the caller thread. Use
+	 * {@link WebSocketSettings#setWebSocketPushMessageExecutor(org.apache.wicket.protocol.ws.concurrent.Executor)}
+	 * to move sending to background threads.
+	 *
+	 * The text is sent with {@link IWebSocketConnection#sendMessageAsync(String)}, so a slow client
+	 * does not delay the others if the connections support it. Connections which are closed or
+	 * fail to send are silently ignored.
+	 *
+	 * @param application
+	 *			The wicket application
+	 * @param text
+	 *			The text to send
+	 */
+	public void broadcastAll(Application application, CharSequence text)
+	{
+		Args.notNull(application, "application");
+		Args.notNull(text, "text");
+
+		Collection<IWebSocketConnection> wsConnections = registry.getConnections(application);
+		if (wsConnections == null)
+		{
+			return;
+		}
+		send(application, wsConnections, text.toString());
+	}
+
+	/**
+	 * Renders the given component once and sends it to all active Web Socket connections, where it
+	 * replaces the element with the same markup id.
+	 *
+	 * The component is rendered outside of any page and session, so it must not depend on them. Its
+	 * markup id has to be set with {@link Component#setMarkupId(String)} to match the element on
+	 * all pages. Header contributions of the component are not sent.
+	 *
+	 * @param application
+	 *			The wicket application
+	 * @param component
+	 *			Supplier of the component to render
+	 * @see #broadcastAll(Application, CharSequence)
+	 */
+	public void broadcastAll(Application application, Supplier<? extends Component> component)
+	{
+		Args.notNull(application, "application");
+		Args.notNull(component, "component");
+
+		final String[] markupId = new String[1];
+		CharSequence markup = new ComponentRenderer(application).renderComponent(() -> {
+			Component c = component.get();
+			Object id = c.getMarkupIdImpl();
+			if (id instanceof String == false)
+			{
+				throw new IllegalArgumentException(
+					"The markup id of a broadcast component has to be set with setMarkupId(): " + c);
+			}
+			markupId[0] = (String)id;
+			return c;
+		});
+
+		StringBuilder text = new StringBuilder(markup.length() + 128);
+		text.append(XmlPartialPageUpdate.START_ROOT_ELEMENT);
+		text.append("<component id=\"").append(markupId[0]).append("\" ><![CDATA[");
+		text.append(Strings.replaceAll(markup, "]]>", "]]]]><![CDATA[>"));
+		text.append("]]></component>");
+		text.append(XmlPartialPageUpdate.END_ROOT_ELEMENT);
+
+		broadcastAll(application, text);
+	}
+
+	private void send(final Application application, final Collection<IWebSocketConnection> wsConnections,
+	                  final String text)
+	{
+		WebSocketSettings webSocketSettings = WebSocketSettings.Holder.get(application);
+		Executor executor = webSocketSettings.getWebSocketPushMessageExecutor();
+		for (final IWebSocketConnection wsConnection : wsConnections)
+		{
+			executor.run(wsConnection, new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					if (wsConnection.isOpen())
+					{
+						try
+						{
+							wsConnection.sendMessageAsync(text);
+						}
+						catch (IOException | RuntimeException x)
+						{
+							LOG.debug("Cannot send to connection {}: {}", wsConnection, x.toString());
+						}
+					}
+				}
+			});
+		}
+	}
+
 	private void process(final Application application, final Collection<IWebSocketConnection> wsConnections,
 	                     final IWebSocketPushMessage message)
 	{
@@ -116,7 +291,7 @@ public class WebSocketPushBroadcaster
 		Executor executor = webSocketSettings.getWebSocketPushMessageExecutor();
 		for (final IWebSocketConnection wsConnection : wsConnections)
 		{
-			executor.run(new Runnable()
+			executor.run(wsConnection, new Runnable()
 			{
 				@Override
 				public void run()
@@ -60,6 +60,14 @@ public class WebSocketRequestHandler implements IWebSocketRequestHandler
 		this.connection = Args.notNull(connection, "connection");
 	}
 
+	/**
+	 * @return the web socket connection to the client
+	 */
+	public IWebSocketConnection getConnection()
+	{
+		return connection;
+	}
+
 	@Override
 	public void push(CharSequence message)
 	{
@@ -0,0 +1,409 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.ws.api.registry;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.Page;
+import org.apache.wicket.protocol.ws.api.IWebSocketConnection;
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * A registry that indexes the currently opened web socket connections, so broadcasts to a subset
+ * of them cost as much as the size of the subset and not the number of all connections.
+ * <p>
+ * Besides by session, the connections are indexed by
+ * <ul>
+ * <li>topic, a user-defined tag a connection subscribes to, e.g. in
+ * {@code WebSocketBehavior#onConnect(ConnectedMessage)}</li>
+ * <li>the class of the page, once the connection of a page is established</li>
+ * <li>the name of the shared resource for connections of a {@code WebSocketResource}</li>
+ * </ul>
+ * All returned collections are unmodifiable live views instead of snapshots: they are weakly
+ * consistent and reflect the connections opened and closed while iterating them.
+ * </p>
+ * To use this registry, put the following code in your application's init:
+ *
+ * <pre>
+ * WebSocketSettings.Holder.get(this).setConnectionRegistry(new IndexedWebSocketConnectionRegistry());
+ * </pre>
+ *
+ * @see org.apache.wicket.protocol.ws.api.WebSocketPushBroadcaster#broadcastTopic(Application,
+ *      String, org.apache.wicket.protocol.ws.api.message.IWebSocketPushMessage)
+ */
+public class IndexedWebSocketConnectionRegistry implements IWebSocketConnectionRegistry
+{
+	private static final MetaDataKey<Connections> KEY = new MetaDataKey<Connections>()
+	{
+	};
+
+	@Override
+	public IWebSocketConnection getConnection(Application application, String sessionId, IKey key)
+	{
+		Args.notNull(application, "application");
+		Args.notNull(sessionId, "sessionId");
+		Args.notNull(key, "key");
+
+		Connections connections = application.getMetaData(KEY);
+		if (connections == null)
+		{
+			return null;
+		}
+		ConcurrentMap<IKey, IWebSocketConnection> connectionsByKey = connections.bySession.get(sessionId);
+		return connectionsByKey != null ? connectionsByKey.get(key) : null;
+	}
+
+	@Override
+	public Collection<IWebSocketConnection> getConnections(Application application, String sessionId)
+	{
+		Args.notNull(application, "application");
+		Args.notNull(sessionId, "sessionId");
+
+		Connections connections = application.getMetaData(KEY);
+		if (connections == null)
+		{
+			return Collections.emptyList();
+		}
+		ConcurrentMap<IKey, IWebSocketConnection> connectionsByKey = connections.bySession.get(sessionId);
+		return connectionsByKey != null
+			? Collections.unmodifiableCollection(connectionsByKey.values())
+			: Collections.emptyList();
+	}
+
+	/**
+	 * Returns a live view of the currently active websockets. The connections might close at any
+	 * time.
+	 *
+	 * @param application
+	 *          The application
+	 * @return a collection of currently active websockets
+	 */
+	@Override
+	public Collection<IWebSocketConnection> getConnections(Application application)
+	{
+		Args.notNull(application, "application");
+
+		return Collections.unmodifiableSet(getOrCreateConnections(application).indexKeys.keySet());
+	}
+
+	/**
+	 * @param application
+	 *            the web application to look in
+	 * @param topic
+	 *            the topic
+	 * @return the connections subscribed to the topic
+	 * @see #subscribe(Application, String, IKey, String)
+	 */
+	public Collection<IWebSocketConnection> getSubscribers(Application application, String topic)
+	{
+		Args.notNull(topic, "topic");
+
+		return getIndexed(application, topic);
+	}
+
+	/**
+	 * @param application
+	 *            the web application to look in
+	 * @param pageClass
+	 *            the class of the pages
+	 * @return the connections of the pages of exactly this class
+	 */
+	public Collection<IWebSocketConnection> getConnectionsByPageClass(Application application,
+		Class<? extends Page> pageClass)
+	{
+		Args.notNull(pageClass, "pageClass");
+
+		return getIndexed(application, pageClass);
+	}
+
+	/**
+	 * @param application
+	 *            the web application to look in
+	 * @param resourceName
+	 *            the name of the shared resource
+	 * @return the connections of the {@code WebSocketResource} with this name
+	 */
+	public Collection<IWebSocketConnection> getConnectionsByResourceName(Application application,
+		String resourceName)
+	{
+		return getIndexed(application, new ResourceNameKey(resourceName));
+	}
+
+	/**
+	 * Subscribes a connection to a topic. Does nothing if there is no such connection.
+	 *
+	 * @param application
+	 *      the web application to look in
+	 * @param sessionId
+	 *      the http session id
+	 * @param key
+	 *      the web socket client key
+	 * @param topic
+	 *      the topic
+	 */
+	public void subscribe(Application application, String sessionId, IKey key, String topic)
+	{
+		Args.notNull(topic, "topic");
+
+		index(application, sessionId, key, topic);
+	}
+
+	/**
+	 * Unsubscribes a connection from a topic.
+	 *
+	 * @param application
+	 *      the web application to look in
+	 * @param sessionId
+	 *      the http session id
+	 * @param key
+	 *      the web socket client key
+	 * @param topic
+	 *      the topic
+	 */
+	public void unsubscribe(Application application, String sessionId, IKey key, String topic)
+	{
+		Args.notNull(topic, "topic");
+
+		IWebSocketConnection connection = getConnection(application, sessionId, key);
+		if (connection != null)
+		{
+			Connections connections = application.getMetaData(KEY);
+			connections.indexKeys.computeIfPresent(connection, (c, indexKeys) -> {
+				if (indexKeys.remove(topic))
+				{
+					connections.removeFromIndex(topic, c);
+				}
+				return indexKeys;
+			});
+		}
+	}
+
+	/**
+	 * Indexes the connection of a page by the class of the page. Called when the connection of the
+	 * page is established.
+	 *
+	 * @param application
+	 *      the web application to look in
+	 * @param sessionId
+	 *      the http session id
+	 * @param key
+	 *      the web socket client key
+	 * @param pageClass
+	 *      the class of the page
+	 */
+	public void setPageClass(Application application, String sessionId, IKey key,
+		Class<? extends Page> pageClass)
+	{
+		Args.notNull(pageClass, "pageClass");
+
+		index(application, sessionId, key, pageClass);
+	}
+
+	@Override
+	public void setConnection(Application application, String sessionId, IKey key, IWebSocketConnection connection)
+	{
+		Args.notNull(application, "application");
+		Args.notNull(sessionId, "sessionId");
+		Args.notNull(key, "key");
+
+		Connections connections = getOrCreateConnections(application);
+		IWebSocketConnection previous;
+		if (connection != null)
+		{
+			connections.indexKeys.putIfAbsent(connection, ConcurrentHashMap.newKeySet());
+			if (key instanceof ResourceNameKey)
+			{
+				index(connections, connection, key);
+			}
+			final IWebSocketConnection[] replaced = new IWebSocketConnection[1];
+			connections.bySession.compute(sessionId, (id, connectionsByKey) -> {
+				if (connectionsByKey == null)
+				{
+					connectionsByKey = new ConcurrentHashMap<>();
+				}
+				replaced[0] = connectionsByKey.put(key, connection);
+				return connectionsByKey;
+			});
+			previous = replaced[0];
+		}
+		else
+		{
+			final IWebSocketConnection[] removed = new IWebSocketConnection[1];
+			connections.bySession.computeIfPresent(sessionId, (id, connectionsByKey) -> {
+				removed[0] = connectionsByKey.remove(key);
+				return connectionsByKey.isEmpty() ? null : connectionsByKey;
+			});
+			previous = removed[0];
+		}
+
+		if (previous != null && previous != connection)
+		{
+			connections.indexKeys.computeIfPresent(previous, (c, indexKeys) -> {
+				for (Object indexKey : indexKeys)
+				{
+					connections.removeFromIndex(indexKey, c);
+				}
+				return null;
+			});
+		}
+	}
+
+	@Override
+	public void removeConnection(Application application, String sessionId, IKey key)
+	{
+		setConnection(application, sessionId, key, null);
+	}
+
+	private void index(Application application, String sessionId, IKey key, Object indexKey)
+	{
+		IWebSocketConnection connection = getConnection(application, sessionId, key);
+		if (connection != null)
+		{
+			index(application.getMetaData(KEY), connection, indexKey);
+		}
+	}
+
+	private void index(Connections connections, IWebSocketConnection connection, Object indexKey)
+	{
+		// a removed connection is not indexed anymore
+		connections.indexKeys.computeIfPresent(connection, (c, indexKeys) -> {
+			if (indexKeys.add(indexKey))
+			{
+				// add under the lock of the map, removeFromIndex() might drop an empty set
+				// concurrently
+				connections.indexes.compute(indexKey, (k, indexed) -> {
+					if (indexed == null)
+					{
+						indexed = ConcurrentHashMap.newKeySet();
+					}
+					indexed.add(c);
+					return indexed;
+				});
+			}
+			return indexKeys;
+		});
+	}
+
+	private Collection<IWebSocketConnection> getIndexed(Application application, Object indexKey)
+	{
+		Args.notNull(application, "application");
+
+		return new IndexView(getOrCreateConnections(application), indexKey);
+	}
+
+	private Connections getOrCreateConnections(Application application)
+	{
+		Connections connections = application.getMetaData(KEY);
+		if (connections == null)
+		{
+			synchronized (KEY)
+			{
+				connections = application.getMetaData(KEY);
+				if (connections == null)
+				{
+					connections = new Connections();
+					application.setMetaData(KEY, connections);
+				}
+			}
+		}
+		return connections;
+	}
+
+	/**
+	 * A live view of the connections with an index key, which stays valid when the set of the
+	 * connections is dropped from the index after the last one was removed.
+	 */
+	private static class IndexView extends AbstractCollection<IWebSocketConnection>
+	{
+		private final Connections connections;
+
+		private final Object indexKey;
+
+		private IndexView(Connections connections, Object indexKey)
+		{
+			this.connections = connections;
+			this.indexKey = indexKey;
+		}
+
+		private Set<IWebSocketConnection> getIndexed()
+		{
+			return connections.indexes.getOrDefault(indexKey, Collections.emptySet());
+		}
+
+		@Override
+		public Iterator<IWebSocketConnection> iterator()
+		{
+			return Collections.unmodifiableSet(getIndexed()).iterator();
+		}
+
+		@Override
+		public int size()
+		{
+			return getIndexed().size();
+		}
+
+		@Override
+		public boolean isEmpty()
+		{
+			return getIndexed().isEmpty();
+		}
+
+		@Override
+		public boolean contains(Object o)
+		{
+			return getIndexed().contains(o);
+		}
+	}
+
+	/**
+	 * The connections of an application and their indexes.
+	 */
+	private static class Connections
+	{
+		/**
+		 * The connections by session id and key.
+		 */
+		private final ConcurrentMap<String, ConcurrentMap<IKey, IWebSocketConnection>> bySession = new ConcurrentHashMap<>();
+
+		/**
+		 * All connections with the keys of the indexes they are in: topics, page classes and
+		 * resource names.
+		 */
+		private final ConcurrentMap<IWebSocketConnection, Set<Object>> indexKeys = new ConcurrentHashMap<>();
+
+		/**
+		 * The connections by the key of an index.
+		 */
+		private final ConcurrentMap<Object, Set<IWebSocketConnection>> indexes = new ConcurrentHashMap<>();
+
+		private void removeFromIndex(Object indexKey, IWebSocketConnection connection)
+		{
+			indexes.computeIfPresent(indexKey, (k, indexed) -> {
+				indexed.remove(connection);
+				return indexed.isEmpty() ? null : indexed;
+			});
+		}
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.ws.concurrent;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.wicket.util.lang.Args;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link KeyedExecutor} running the tasks in a work-stealing {@link ForkJoinPool}, which bounds
+ * the number of pending tasks.
+ * <p>
+ * During a broadcast storm the tasks beyond the bound are rejected and counted instead of piling
+ * up in memory. A rejected task is dropped, i.e. the push message is not processed for its
+ * connection.
+ * </p>
+ * To use this executor, put the following code in your application's init:
+ *
+ * <pre>
+ * WebSocketSettings.Holder.get(this).setWebSocketPushMessageExecutor(new BoundedExecutor());
+ * </pre>
+ */
+public class BoundedExecutor extends KeyedExecutor
+{
+	private static final Logger LOG = LoggerFactory.getLogger(BoundedExecutor.class);
+
+	/**
+	 * The default maximum number of pending tasks.
+	 */
+	public static final int DEFAULT_MAX_PENDING_TASKS = 10000;
+
+	private final int maxPendingTasks;
+
+	private final AtomicLong rejectedTasks = new AtomicLong();
+
+	/**
+	 * Constructor using one thread per available processor and the
+	 * {@link #DEFAULT_MAX_PENDING_TASKS default maximum number of pending tasks}.
+	 */
+	public BoundedExecutor()
+	{
+		this(Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_PENDING_TASKS);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param parallelism
+	 *            the number of threads
+	 * @param maxPendingTasks
+	 *            the maximum number of waiting and running tasks
+	 */
+	public BoundedExecutor(int parallelism, int maxPendingTasks)
+	{
+		super(newPool(parallelism));
+		this.maxPendingTasks = Args.withinRange(1, Integer.MAX_VALUE, maxPendingTasks,
+			"maxPendingTasks");
+	}
+
+	private static ForkJoinPool newPool(int parallelism)
+	{
+		Args.withinRange(1, (int)Short.MAX_VALUE, parallelism, "parallelism");
+
+		// FIFO scheduling since the tasks are never joined
+		return new ForkJoinPool(parallelism, pool -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			thread.setName("Wicket-WebSocket-Executor-" + thread.getPoolIndex());
+			return thread;
+		}, null, true);
+	}
+
+	/**
+	 * @return the maximum number of waiting and running tasks
+	 */
+	public int getMaxPendingTasks()
+	{
+		return maxPendingTasks;
+	}
+
+	/**
+	 * @return the number of tasks rejected since there were too many pending tasks
+	 */
+	public long getRejectedTasks()
+	{
+		return rejectedTasks.get();
+	}
+
+	@Override
+	protected boolean accept(Runnable command, int pendingTasks)
+	{
+		if (pendingTasks > maxPendingTasks)
+		{
+			rejectedTasks.incrementAndGet();
+			LOG.debug("Rejecting a task since there are {} pending tasks", maxPendingTasks);
+			return false;
+		}
+		return true;
+	}
+}
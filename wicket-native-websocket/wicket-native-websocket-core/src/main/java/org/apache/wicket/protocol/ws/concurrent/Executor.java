@@ -29,4 +29,19 @@ public interface Executor
 	 * @see     java.lang.Thread#run()
 	 */
 	void run(Runnable command);
+
+	/**
+	 * Runs a simple task that must not run concurrently with the other tasks of the same key, e.g.
+	 * the pushes to the same connection. By default the task is run like any other one.
+	 *
+	 * @param key
+	 *            the key of the task, e.g. the web socket connection
+	 * @param command
+	 *            the task
+	 * @see KeyedExecutor
+	 */
+	default void run(Object key, Runnable command)
+	{
+		run(command);
+	}
 }
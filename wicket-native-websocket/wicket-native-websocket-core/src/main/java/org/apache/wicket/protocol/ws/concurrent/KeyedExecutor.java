@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.ws.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.util.lang.Args;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link Executor} running the tasks in an {@link ExecutorService}, which never runs the tasks
+ * with the same key concurrently.
+ * <p>
+ * The tasks of a key wait in a queue of their own and are run one after the other in the order
+ * they were submitted, e.g. the pushes to a connection would otherwise only block each other on
+ * the lock of the page. Only one task per key is submitted to the executor service at a time, so
+ * a key with many tasks does not starve the other keys.
+ * </p>
+ */
+public class KeyedExecutor implements Executor
+{
+	private static final Logger LOG = LoggerFactory.getLogger(KeyedExecutor.class);
+
+	private final ExecutorService executorService;
+
+	/**
+	 * The tasks by key, the head of a queue being the running task. Guarded by computing the
+	 * queues in the map.
+	 */
+	private final ConcurrentMap<Object, Deque<Runnable>> queues = new ConcurrentHashMap<>();
+
+	private final AtomicInteger pendingTasks = new AtomicInteger();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param executorService
+	 *            the executor service running the tasks
+	 */
+	public KeyedExecutor(ExecutorService executorService)
+	{
+		this.executorService = Args.notNull(executorService, "executorService");
+	}
+
+	@Override
+	public void run(final Runnable command)
+	{
+		Args.notNull(command, "command");
+
+		if (accept(command))
+		{
+			try
+			{
+				executorService.execute(() -> runTask(command));
+			}
+			catch (RejectedExecutionException x)
+			{
+				pendingTasks.decrementAndGet();
+				LOG.debug("The executor service rejected a task: {}", x.toString());
+			}
+		}
+	}
+
+	@Override
+	public void run(final Object key, final Runnable command)
+	{
+		Args.notNull(key, "key");
+		Args.notNull(command, "command");
+
+		if (accept(command))
+		{
+			final boolean[] first = new boolean[1];
+			queues.compute(key, (k, tasks) -> {
+				if (tasks == null)
+				{
+					tasks = new ArrayDeque<>();
+					first[0] = true;
+				}
+				tasks.add(command);
+				return tasks;
+			});
+
+			if (first[0])
+			{
+				submit(key);
+			}
+		}
+	}
+
+	/**
+	 * @return the number of tasks waiting or running
+	 */
+	public int getPendingTasks()
+	{
+		return pendingTasks.get();
+	}
+
+	/**
+	 * Stops accepting new tasks. The tasks already submitted are still run.
+	 */
+	public void shutdown()
+	{
+		executorService.shutdown();
+	}
+
+	/**
+	 * Decides whether a task is accepted, e.g. to bound the number of pending tasks.
+	 *
+	 * @param command
+	 *            the task
+	 * @param pendingTasks
+	 *            the number of pending tasks including this one
+	 * @return {@code true} if the task is accepted
+	 */
+	protected boolean accept(Runnable command, int pendingTasks)
+	{
+		return true;
+	}
+
+	private boolean accept(Runnable command)
+	{
+		if (accept(command, pendingTasks.incrementAndGet()))
+		{
+			return true;
+		}
+		pendingTasks.decrementAndGet();
+		return false;
+	}
+
+	/**
+	 * Submits the task at the head of the queue of the key.
+	 */
+	private void submit(final Object key)
+	{
+		try
+		{
+			executorService.execute(() -> runHead(key));
+		}
+		catch (RejectedExecutionException x)
+		{
+			Deque<Runnable> dropped = queues.remove(key);
+			pendingTasks.addAndGet(-dropped.size());
+			LOG.debug("The executor service rejected the tasks of key {}: {}", key, x.toString());
+		}
+	}
+
+	private void runHead(final Object key)
+	{
+		final Runnable[] head = new Runnable[1];
+		queues.computeIfPresent(key, (k, tasks) -> {
+			head[0] = tasks.peek();
+			return tasks;
+		});
+		try
+		{
+			runTask(head[0]);
+		}
+		finally
+		{
+			// even after an Error the next task of the key has to run, the queue is removed with
+			// its last task, so a new task is submitted right away
+			final boolean[] more = new boolean[1];
+			queues.computeIfPresent(key, (k, tasks) -> {
+				tasks.poll();
+				more[0] = tasks.isEmpty() == false;
+				return more[0] ? tasks : null;
+			});
+
+			if (more[0])
+			{
+				submit(key);
+			}
+		}
+	}
+
+	private void runTask(final Runnable command)
+	{
+		try
+		{
+			command.run();
+		}
+		catch (RuntimeException | Error x)
+		{
+			// an Error is not rethrown, a dying worker of a ForkJoinPool would cancel the tasks it
+			// submitted, i.e. the next task of the key
+			LOG.error("An error occurred while running a task", x);
+		}
+		finally
+		{
+			pendingTasks.decrementAndGet();
+		}
+	}
+}
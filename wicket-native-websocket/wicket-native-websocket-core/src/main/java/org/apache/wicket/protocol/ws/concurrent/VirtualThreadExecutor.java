@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.ws.concurrent;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.wicket.WicketRuntimeException;
+
+/**
+ * A {@link KeyedExecutor} running each task in a virtual thread of its own, so the number of
+ * pending pushes is not bounded by the size of a thread pool.
+ * <p>
+ * Virtual threads are available since Java 21, check {@link #isAvailable()} before creating this
+ * executor. Note that before Java 24 (JEP 491) a virtual thread blocking inside a
+ * {@code synchronized} block pins its carrier thread. Waiting for the lock of a page and for the
+ * queued messages of a {@code JavaxWebSocketConnection} both block inside {@code synchronized}
+ * methods, so on Java 21 to 23 a task blocked there still holds up a platform thread, and at most
+ * as many tasks as there are carrier threads can wait at the same time.
+ * </p>
+ *
+ * <pre>
+ * WebSocketSettings.Holder.get(this).setWebSocketPushMessageExecutor(
+ * 	VirtualThreadExecutor.isAvailable() ? new VirtualThreadExecutor() : new BoundedExecutor());
+ * </pre>
+ */
+public class VirtualThreadExecutor extends KeyedExecutor
+{
+	/**
+	 * {@code Executors#newVirtualThreadPerTaskExecutor()} or {@code null} if the JDK has no
+	 * virtual threads.
+	 */
+	private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findFactory();
+
+	/**
+	 * Constructor.
+	 *
+	 * @throws UnsupportedOperationException
+	 *             if the JDK does not support virtual threads
+	 */
+	public VirtualThreadExecutor()
+	{
+		super(newExecutorService());
+	}
+
+	/**
+	 * @return {@code true} if the JDK supports virtual threads
+	 */
+	public static boolean isAvailable()
+	{
+		return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+	}
+
+	private static Method findFactory()
+	{
+		try
+		{
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			// preview releases throw when preview features are not enabled
+			((ExecutorService)factory.invoke(null)).shutdown();
+			return factory;
+		}
+		catch (ReflectiveOperationException | RuntimeException x)
+		{
+			return null;
+		}
+	}
+
+	private static ExecutorService newExecutorService()
+	{
+		if (isAvailable() == false)
+		{
+			throw new UnsupportedOperationException("Virtual threads require Java 21 or later");
+		}
+
+		try
+		{
+			return (ExecutorService)NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+		}
+		catch (IllegalAccessException | InvocationTargetException x)
+		{
+			throw new WicketRuntimeException("Cannot create the executor of virtual threads", x);
+		}
+	}
+}
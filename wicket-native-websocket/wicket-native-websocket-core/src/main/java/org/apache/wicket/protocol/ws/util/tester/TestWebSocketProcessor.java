@@ -143,7 +143,7 @@ abstract class TestWebSocketProcessor extends AbstractWebSocketProcessor
 			@Override
 			public void sendMessage(IWebSocketPushMessage message)
 			{
-				TestWebSocketProcessor.this.broadcastMessage(message);
+				TestWebSocketProcessor.this.broadcastPushMessage(message);
 			}
 		});
 	}
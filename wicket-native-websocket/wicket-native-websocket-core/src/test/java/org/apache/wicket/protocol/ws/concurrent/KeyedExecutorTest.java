@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.ws.concurrent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link KeyedExecutor}, {@link BoundedExecutor} and {@link VirtualThreadExecutor}
+ */
+public class KeyedExecutorTest
+{
+	/**
+	 * The tasks of a key run one after the other in order, the tasks of different keys concurrently
+	 */
+	@Test
+	public void boundedSerializesKeys() throws Exception
+	{
+		BoundedExecutor executor = new BoundedExecutor(4, 10000);
+		try
+		{
+			serializesKeys(executor);
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void virtualThreadSerializesKeys() throws Exception
+	{
+		assumeTrue(VirtualThreadExecutor.isAvailable(), "no virtual threads");
+
+		VirtualThreadExecutor executor = new VirtualThreadExecutor();
+		try
+		{
+			serializesKeys(executor);
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void rejects() throws Exception
+	{
+		BoundedExecutor executor = new BoundedExecutor(1, 2);
+		try
+		{
+			CountDownLatch blocked = new CountDownLatch(1);
+			CountDownLatch release = new CountDownLatch(1);
+			AtomicInteger ran = new AtomicInteger();
+
+			executor.run("key", () -> {
+				blocked.countDown();
+				await(release);
+				ran.incrementAndGet();
+			});
+			assertTrue(blocked.await(10, TimeUnit.SECONDS));
+
+			executor.run("key", ran::incrementAndGet);
+			executor.run("key", ran::incrementAndGet);
+			executor.run("other", ran::incrementAndGet);
+
+			assertEquals(2, executor.getRejectedTasks());
+			assertEquals(2, executor.getPendingTasks());
+
+			release.countDown();
+			awaitIdle(executor);
+
+			assertEquals(2, ran.get());
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * A failing task does not stop the tasks of the same key
+	 */
+	@Test
+	public void failingTask() throws Exception
+	{
+		BoundedExecutor executor = new BoundedExecutor(1, 10);
+		try
+		{
+			CountDownLatch done = new CountDownLatch(1);
+			executor.run("key", () -> {
+				throw new IllegalStateException("failing on purpose");
+			});
+			executor.run("key", done::countDown);
+
+			assertTrue(done.await(10, TimeUnit.SECONDS));
+			awaitIdle(executor);
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * A task throwing an Error does not leave the tasks of its key stuck in the queue
+	 */
+	@Test
+	public void errorInTask() throws Exception
+	{
+		BoundedExecutor executor = new BoundedExecutor(1, 10);
+		try
+		{
+			CountDownLatch done = new CountDownLatch(1);
+			executor.run("key", () -> {
+				throw new Error("failing on purpose");
+			});
+			executor.run("key", done::countDown);
+
+			assertTrue(done.await(10, TimeUnit.SECONDS));
+			awaitIdle(executor);
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	private void serializesKeys(KeyedExecutor executor) throws Exception
+	{
+		final int keys = 8;
+		final int tasks = 500;
+
+		List<List<Integer>> runs = new ArrayList<>();
+		List<AtomicBoolean> running = new ArrayList<>();
+		for (int k = 0; k < keys; k++)
+		{
+			runs.add(Collections.synchronizedList(new ArrayList<>()));
+			running.add(new AtomicBoolean());
+		}
+		AtomicBoolean overlapped = new AtomicBoolean();
+
+		for (int i = 0; i < tasks; i++)
+		{
+			for (int k = 0; k < keys; k++)
+			{
+				final int key = k;
+				final int task = i;
+				executor.run("key" + k, () -> {
+					if (running.get(key).getAndSet(true))
+					{
+						overlapped.set(true);
+					}
+					runs.get(key).add(task);
+					running.get(key).set(false);
+				});
+			}
+		}
+		awaitIdle(executor);
+
+		assertFalse(overlapped.get());
+		for (int k = 0; k < keys; k++)
+		{
+			List<Integer> run = runs.get(k);
+			assertEquals(tasks, run.size());
+			for (int i = 0; i < tasks; i++)
+			{
+				assertEquals(i, (int)run.get(i));
+			}
+		}
+	}
+
+	private static void awaitIdle(KeyedExecutor executor) throws InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + 10000;
+		while (executor.getPendingTasks() > 0 && System.currentTimeMillis() < deadline)
+		{
+			Thread.sleep(5);
+		}
+		assertEquals(0, executor.getPendingTasks());
+	}
+
+	private static void await(CountDownLatch latch)
+	{
+		try
+		{
+			latch.await(10, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.ws.util.tester;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.protocol.ws.WebSocketSettings;
+import org.apache.wicket.protocol.ws.api.IWebSocketConnection;
+import org.apache.wicket.protocol.ws.api.WebSocketPushBroadcaster;
+import org.apache.wicket.protocol.ws.api.message.IWebSocketPushMessage;
+import org.apache.wicket.protocol.ws.api.registry.IKey;
+import org.apache.wicket.protocol.ws.api.registry.IndexedWebSocketConnectionRegistry;
+import org.apache.wicket.protocol.ws.api.registry.PageIdKey;
+import org.apache.wicket.protocol.ws.api.registry.ResourceNameKey;
+import org.apache.wicket.protocol.ws.api.registry.SimpleWebSocketConnectionRegistry;
+import org.apache.wicket.util.WicketTestTag;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for {@link IndexedWebSocketConnectionRegistry}
+ */
+public class IndexedWebSocketConnectionRegistryTest
+{
+	private static final Logger LOG = LoggerFactory.getLogger(IndexedWebSocketConnectionRegistryTest.class);
+
+	private WicketTester tester;
+
+	private Application application;
+
+	private IndexedWebSocketConnectionRegistry registry;
+
+	@BeforeEach
+	public void before()
+	{
+		tester = new WicketTester();
+		application = tester.getApplication();
+		registry = new IndexedWebSocketConnectionRegistry();
+		WebSocketSettings.Holder.get(application).setConnectionRegistry(registry);
+	}
+
+	@AfterEach
+	public void after()
+	{
+		tester.destroy();
+	}
+
+	@Test
+	public void connections()
+	{
+		RecordingConnection first = connect("session1", new PageIdKey(1));
+		RecordingConnection second = connect("session1", new PageIdKey(2));
+		RecordingConnection third = connect("session2", new PageIdKey(1));
+
+		assertEquals(first, registry.getConnection(application, "session1", new PageIdKey(1)));
+		assertEquals(2, registry.getConnections(application, "session1").size());
+		assertEquals(3, registry.getConnections(application).size());
+
+		registry.removeConnection(application, "session1", new PageIdKey(1));
+
+		assertNull(registry.getConnection(application, "session1", new PageIdKey(1)));
+		assertEquals(List.of(second), new ArrayList<>(registry.getConnections(application, "session1")));
+		assertEquals(2, registry.getConnections(application).size());
+		assertTrue(registry.getConnections(application).contains(third));
+	}
+
+	/**
+	 * The returned collections are views reflecting later changes
+	 */
+	@Test
+	public void liveViews()
+	{
+		Collection<IWebSocketConnection> all = registry.getConnections(application);
+		connect("session1", new PageIdKey(1));
+		Collection<IWebSocketConnection> subscribers = subscribe("session1", new PageIdKey(1), "ticker");
+
+		connect("session2", new PageIdKey(1));
+		subscribe("session2", new PageIdKey(1), "ticker");
+
+		assertEquals(2, all.size());
+		assertEquals(2, subscribers.size());
+		assertThrows(UnsupportedOperationException.class, () -> subscribers.clear());
+	}
+
+	@Test
+	public void topics()
+	{
+		RecordingConnection first = connect("session1", new PageIdKey(1));
+		RecordingConnection second = connect("session2", new PageIdKey(1));
+		connect("session3", new PageIdKey(1));
+
+		subscribe("session1", new PageIdKey(1), "ticker");
+		subscribe("session2", new PageIdKey(1), "ticker");
+		subscribe("session2", new PageIdKey(1), "news");
+
+		assertEquals(2, registry.getSubscribers(application, "ticker").size());
+		assertEquals(List.of(second), new ArrayList<>(registry.getSubscribers(application, "news")));
+		assertTrue(registry.getSubscribers(application, "weather").isEmpty());
+
+		registry.unsubscribe(application, "session1", new PageIdKey(1), "ticker");
+		assertEquals(List.of(second), new ArrayList<>(registry.getSubscribers(application, "ticker")));
+
+		// a closed connection leaves all its topics
+		registry.removeConnection(application, "session2", new PageIdKey(1));
+		assertTrue(registry.getSubscribers(application, "ticker").isEmpty());
+		assertTrue(registry.getSubscribers(application, "news").isEmpty());
+
+		// a connection replaced by a new one does not keep its topics
+		subscribe("session1", new PageIdKey(1), "ticker");
+		connect("session1", new PageIdKey(1));
+		assertTrue(registry.getSubscribers(application, "ticker").isEmpty());
+		assertTrue(registry.getConnections(application).contains(first) == false);
+	}
+
+	@Test
+	public void resourceNames()
+	{
+		RecordingConnection connection = connect("session1", new ResourceNameKey("chat"));
+		connect("session1", new PageIdKey(1));
+
+		assertEquals(List.of(connection),
+			new ArrayList<>(registry.getConnectionsByResourceName(application, "chat")));
+		assertTrue(registry.getConnectionsByResourceName(application, "other").isEmpty());
+
+		registry.removeConnection(application, "session1", new ResourceNameKey("chat"));
+		assertTrue(registry.getConnectionsByResourceName(application, "chat").isEmpty());
+	}
+
+	/**
+	 * The connection of a page is indexed by the class of the page once it is established
+	 */
+	@Test
+	public void pageClasses()
+	{
+		WebSocketBehaviorTestPage page = new WebSocketBehaviorTestPage("message");
+		tester.startPage(page);
+
+		WebSocketTester webSocketTester = new WebSocketTester(tester, page);
+
+		assertEquals(1,
+			registry.getConnectionsByPageClass(application, WebSocketBehaviorTestPage.class).size());
+
+		webSocketTester.destroy();
+
+		assertTrue(
+			registry.getConnectionsByPageClass(application, WebSocketBehaviorTestPage.class).isEmpty());
+	}
+
+	@Test
+	public void broadcastTopic()
+	{
+		RecordingConnection first = connect("session1", new PageIdKey(1));
+		RecordingConnection second = connect("session2", new PageIdKey(1));
+		subscribe("session2", new PageIdKey(1), "ticker");
+
+		new WebSocketPushBroadcaster(registry).broadcastTopic(application, "ticker", "42");
+
+		assertNull(first.lastMessage);
+		assertEquals("42", second.lastMessage);
+	}
+
+	@Test
+	public void broadcastTopicRequiresIndexedRegistry()
+	{
+		WebSocketPushBroadcaster broadcaster = new WebSocketPushBroadcaster(
+			new SimpleWebSocketConnectionRegistry());
+
+		assertThrows(IllegalStateException.class,
+			() -> broadcaster.broadcastTopic(application, "ticker", "42"));
+	}
+
+	/**
+	 * Compares a broadcast to the subscribers of a topic with a broadcast to all connections
+	 */
+	@Test
+	@Tag(WicketTestTag.SLOW)
+	public void performance()
+	{
+		final int count = 100000;
+		final int subscribers = 100;
+		for (int i = 0; i < count; i++)
+		{
+			connect("session" + i, new PageIdKey(1));
+			if (i % (count / subscribers) == 0)
+			{
+				subscribe("session" + i, new PageIdKey(1), "ticker");
+			}
+		}
+
+		WebSocketPushBroadcaster broadcaster = new WebSocketPushBroadcaster(registry);
+		for (int i = 0; i < 20; i++)
+		{
+			broadcaster.broadcastTopic(application, "ticker", "warmup");
+			broadcaster.broadcastAll(application, "warmup");
+		}
+
+		long start = System.nanoTime();
+		broadcaster.broadcastTopic(application, "ticker", "42");
+		long topic = (System.nanoTime() - start) / 1000;
+
+		start = System.nanoTime();
+		broadcaster.broadcastAll(application, "42");
+		long all = (System.nanoTime() - start) / 1000;
+
+		LOG.info("Broadcast to {} subscribers in {} us, to all {} connections in {} us", subscribers,
+			topic, count, all);
+	}
+
+	private RecordingConnection connect(String sessionId, IKey key)
+	{
+		RecordingConnection connection = new RecordingConnection();
+		registry.setConnection(application, sessionId, key, connection);
+		return connection;
+	}
+
+	private Collection<IWebSocketConnection> subscribe(String sessionId, PageIdKey key, String topic)
+	{
+		registry.subscribe(application, sessionId, key, topic);
+		return registry.getSubscribers(application, topic);
+	}
+
+	private static class RecordingConnection extends TestWebSocketConnection
+	{
+		private String lastMessage;
+
+		@Override
+		protected void onOutMessage(String message)
+		{
+			lastMessage = message;
+		}
+
+		@Override
+		protected void onOutMessage(byte[] message, int offset, int length)
+		{
+		}
+
+		@Override
+		public void sendMessage(IWebSocketPushMessage message)
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+}
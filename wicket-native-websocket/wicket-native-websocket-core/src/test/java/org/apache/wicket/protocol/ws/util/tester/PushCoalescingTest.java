@@ -0,0 +1,377 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.ws.util.tester;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.markup.IMarkupResourceStreamProvider;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.protocol.ws.WebSocketSettings;
+import org.apache.wicket.protocol.ws.api.WebSocketBehavior;
+import org.apache.wicket.protocol.ws.api.WebSocketRequestHandler;
+import org.apache.wicket.protocol.ws.api.message.IWebSocketPushMessage;
+import org.apache.wicket.protocol.ws.api.registry.PageIdKey;
+import org.apache.wicket.protocol.ws.concurrent.BoundedExecutor;
+import org.apache.wicket.protocol.ws.concurrent.Executor;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the coalescing of push messages
+ *
+ * @see WebSocketSettings#setPushCoalescingWindow(Duration)
+ */
+public class PushCoalescingTest
+{
+	private static final String TIMER_THREAD = "Wicket-WebSocket-PushCoalescing";
+
+	private WicketTester tester;
+
+	@BeforeEach
+	public void before()
+	{
+		tester = new WicketTester();
+	}
+
+	@AfterEach
+	public void after()
+	{
+		if (tester != null)
+		{
+			tester.destroy();
+		}
+	}
+
+	/**
+	 * The push messages arriving within the window are processed in one request cycle and sent in
+	 * one frame
+	 */
+	@Test
+	public void coalesced() throws Exception
+	{
+		WebSocketSettings.Holder.get(tester.getApplication())
+			.setPushCoalescingWindow(Duration.ofMillis(200));
+
+		CountDownLatch sent = new CountDownLatch(1);
+		List<String> frames = new CopyOnWriteArrayList<>();
+		PushPage page = new PushPage();
+		tester.startPage(page);
+
+		WebSocketTester webSocketTester = new WebSocketTester(tester, page)
+		{
+			@Override
+			protected void onOutMessage(String message)
+			{
+				frames.add(message);
+				sent.countDown();
+			}
+		};
+
+		for (int i = 0; i < 3; i++)
+		{
+			broadcast(webSocketTester, page, i);
+		}
+		assertTrue(sent.await(10, TimeUnit.SECONDS));
+		Thread.sleep(300);
+
+		assertEquals(3, page.pushes.get());
+		assertEquals(1, frames.size());
+		assertTrue(frames.get(0).contains(">2<"), frames.get(0));
+
+		// the default executor does not render the page on the thread of the timer
+		assertFalse(page.pushThread.startsWith(TIMER_THREAD), page.pushThread);
+
+		webSocketTester.destroy();
+	}
+
+	/**
+	 * The timer of the window is shut down with the application
+	 */
+	@Test
+	public void timerShutDown() throws Exception
+	{
+		WebSocketSettings.Holder.get(tester.getApplication())
+			.setPushCoalescingWindow(Duration.ofMillis(10));
+
+		CountDownLatch sent = new CountDownLatch(1);
+		PushPage page = new PushPage();
+		tester.startPage(page);
+
+		WebSocketTester webSocketTester = new WebSocketTester(tester, page)
+		{
+			@Override
+			protected void onOutMessage(String message)
+			{
+				sent.countDown();
+			}
+		};
+		broadcast(webSocketTester, page, 1);
+		assertTrue(sent.await(10, TimeUnit.SECONDS));
+		webSocketTester.destroy();
+
+		tester.destroy();
+		tester = null;
+
+		// shorter than the keep alive time of an idle timer
+		long end = System.currentTimeMillis() + 2000;
+		while (isTimerAlive() && System.currentTimeMillis() < end)
+		{
+			Thread.sleep(20);
+		}
+		assertFalse(isTimerAlive());
+	}
+
+	/**
+	 * Without a window each push message is processed right away
+	 */
+	@Test
+	public void notCoalesced()
+	{
+		List<String> frames = new CopyOnWriteArrayList<>();
+		PushPage page = new PushPage();
+		tester.startPage(page);
+
+		WebSocketTester webSocketTester = new WebSocketTester(tester, page)
+		{
+			@Override
+			protected void onOutMessage(String message)
+			{
+				frames.add(message);
+			}
+		};
+
+		for (int i = 0; i < 3; i++)
+		{
+			broadcast(webSocketTester, page, i);
+		}
+
+		assertEquals(3, page.pushes.get());
+		assertEquals(3, frames.size());
+
+		webSocketTester.destroy();
+	}
+
+	/**
+	 * The push messages of a window rejected by a saturated executor are dropped, the later ones
+	 * are still delivered
+	 */
+	@Test
+	public void saturatedExecutor() throws Exception
+	{
+		BoundedExecutor executor = new BoundedExecutor(1, 1);
+		WebSocketSettings.Holder.get(tester.getApplication())
+			.setPushCoalescingWindow(Duration.ofMillis(500))
+			.setWebSocketPushMessageExecutor(executor);
+
+		CountDownLatch blocked = new CountDownLatch(1);
+		try
+		{
+			CountDownLatch sent = new CountDownLatch(1);
+			PushPage page = new PushPage();
+			tester.startPage(page);
+
+			WebSocketTester webSocketTester = new WebSocketTester(tester, page)
+			{
+				@Override
+				protected void onOutMessage(String message)
+				{
+					sent.countDown();
+				}
+			};
+
+			broadcast(webSocketTester, page, 1);
+			long end = System.currentTimeMillis() + 10000;
+			awaitNoPendingTasks(executor, end);
+
+			// saturate the executor before the window ends
+			executor.run(() -> {
+				try
+				{
+					blocked.await(10, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException x)
+				{
+					Thread.currentThread().interrupt();
+				}
+			});
+			while (executor.getRejectedTasks() == 0 && System.currentTimeMillis() < end)
+			{
+				Thread.sleep(10);
+			}
+			assertEquals(1, executor.getRejectedTasks());
+
+			blocked.countDown();
+			awaitNoPendingTasks(executor, end);
+			broadcast(webSocketTester, page, 2);
+			assertTrue(sent.await(10, TimeUnit.SECONDS));
+
+			assertEquals(1, page.pushes.get());
+			assertEquals(2, page.value);
+
+			webSocketTester.destroy();
+		}
+		finally
+		{
+			blocked.countDown();
+			executor.shutdown();
+		}
+	}
+
+	private static void awaitNoPendingTasks(BoundedExecutor executor, long end)
+		throws InterruptedException
+	{
+		while (executor.getPendingTasks() > 0 && System.currentTimeMillis() < end)
+		{
+			Thread.sleep(10);
+		}
+	}
+
+	/**
+	 * The push messages of a window are dropped if the executor throws, the later ones are still
+	 * delivered
+	 */
+	@Test
+	public void throwingExecutor() throws Exception
+	{
+		AtomicInteger handOvers = new AtomicInteger();
+		WebSocketSettings.Holder.get(tester.getApplication())
+			.setPushCoalescingWindow(Duration.ofMillis(10))
+			.setWebSocketPushMessageExecutor(new Executor()
+			{
+				@Override
+				public void run(Runnable command)
+				{
+					// fail the first hand over of the coalesced messages
+					if (Thread.currentThread().getName().startsWith(TIMER_THREAD) &&
+						handOvers.incrementAndGet() == 1)
+					{
+						throw new IllegalStateException("Cannot run the task");
+					}
+					new Thread(command).start();
+				}
+			});
+
+		CountDownLatch sent = new CountDownLatch(1);
+		PushPage page = new PushPage();
+		tester.startPage(page);
+
+		WebSocketTester webSocketTester = new WebSocketTester(tester, page)
+		{
+			@Override
+			protected void onOutMessage(String message)
+			{
+				sent.countDown();
+			}
+		};
+
+		broadcast(webSocketTester, page, 1);
+		long end = System.currentTimeMillis() + 10000;
+		while (handOvers.get() == 0 && System.currentTimeMillis() < end)
+		{
+			Thread.sleep(10);
+		}
+
+		broadcast(webSocketTester, page, 2);
+		assertTrue(sent.await(10, TimeUnit.SECONDS));
+
+		assertEquals(2, handOvers.get());
+		assertEquals(1, page.pushes.get());
+		assertEquals(2, page.value);
+
+		webSocketTester.destroy();
+	}
+
+	private static boolean isTimerAlive()
+	{
+		for (Thread thread : Thread.getAllStackTraces().keySet())
+		{
+			if (thread.getName().startsWith(TIMER_THREAD) && thread.isAlive())
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void broadcast(WebSocketTester webSocketTester, PushPage page, int value)
+	{
+		webSocketTester.broadcast(tester.getApplication(), tester.getHttpSession().getId(),
+			new PageIdKey(page.getPageId()), new ValueMessage(value));
+	}
+
+	private static class ValueMessage implements IWebSocketPushMessage
+	{
+		private final int value;
+
+		private ValueMessage(int value)
+		{
+			this.value = value;
+		}
+	}
+
+	private static class PushPage extends WebPage implements IMarkupResourceStreamProvider
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final AtomicInteger pushes = new AtomicInteger();
+
+		private volatile int value = -1;
+
+		private volatile String pushThread;
+
+		private PushPage()
+		{
+			add(new Label("value", () -> value).setOutputMarkupId(true));
+
+			add(new WebSocketBehavior()
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void onPush(WebSocketRequestHandler handler, IWebSocketPushMessage message)
+				{
+					pushes.incrementAndGet();
+					pushThread = Thread.currentThread().getName();
+					value = ((ValueMessage)message).value;
+					handler.add(get("value"));
+				}
+			});
+		}
+
+		@Override
+		public IResourceStream getMarkupResourceStream(MarkupContainer container,
+			Class<?> containerClass)
+		{
+			return new StringResourceStream("<html><body><span wicket:id=\"value\"></span></body></html>");
+		}
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.ws.util.tester;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.protocol.ws.WebSocketSettings;
+import org.apache.wicket.protocol.ws.api.IWebSocketConnection;
+import org.apache.wicket.protocol.ws.api.WebSocketPushBroadcaster;
+import org.apache.wicket.protocol.ws.api.message.IWebSocketPushMessage;
+import org.apache.wicket.protocol.ws.api.registry.IWebSocketConnectionRegistry;
+import org.apache.wicket.protocol.ws.api.registry.PageIdKey;
+import org.apache.wicket.util.WicketTestTag;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for the render once broadcasts of {@link WebSocketPushBroadcaster}
+ */
+public class WebSocketPushBroadcasterTest
+{
+	private static final Logger LOG = LoggerFactory.getLogger(WebSocketPushBroadcasterTest.class);
+
+	private WicketTester tester;
+
+	private Application application;
+
+	private IWebSocketConnectionRegistry registry;
+
+	private WebSocketPushBroadcaster broadcaster;
+
+	@BeforeEach
+	public void before()
+	{
+		tester = new WicketTester();
+		application = tester.getApplication();
+		registry = WebSocketSettings.Holder.get(application).getConnectionRegistry();
+		broadcaster = new WebSocketPushBroadcaster(registry);
+	}
+
+	@AfterEach
+	public void after()
+	{
+		tester.destroy();
+	}
+
+	@Test
+	public void broadcastAllText()
+	{
+		List<RecordingConnection> connections = connect(3);
+		connections.get(1).close(1000, "closed");
+
+		broadcaster.broadcastAll(application, "{\"price\":42}");
+
+		assertEquals("{\"price\":42}", connections.get(0).lastMessage);
+		assertEquals(null, connections.get(1).lastMessage);
+		assertEquals("{\"price\":42}", connections.get(2).lastMessage);
+	}
+
+	@Test
+	public void broadcastAllComponent()
+	{
+		List<RecordingConnection> connections = connect(2);
+		AtomicInteger renders = new AtomicInteger();
+
+		broadcaster.broadcastAll(application, () -> {
+			renders.incrementAndGet();
+			return new Label("ticker", "<b>42</b>]]>").setEscapeModelStrings(false)
+				.setMarkupId("ticker");
+		});
+
+		assertEquals(1, renders.get());
+		String message = connections.get(0).lastMessage;
+		assertTrue(message.startsWith("<ajax-response><component id=\"ticker\" ><![CDATA["),
+			message);
+		assertTrue(message.contains("<b>42</b>]]]]><![CDATA[>"), message);
+		assertTrue(message.endsWith("]]></component></ajax-response>"), message);
+		assertEquals(message, connections.get(1).lastMessage);
+	}
+
+	@Test
+	public void broadcastAllComponentWithoutMarkupId()
+	{
+		connect(1);
+
+		assertThrows(IllegalArgumentException.class,
+			() -> broadcaster.broadcastAll(application, () -> new Label("ticker", "42")));
+	}
+
+	/**
+	 * Broadcasts a component to many connections
+	 */
+	@Test
+	@Tag(WicketTestTag.SLOW)
+	public void load()
+	{
+		final int count = 20000;
+		List<RecordingConnection> connections = connect(count);
+
+		for (int i = 0; i < 20; i++)
+		{
+			broadcastTicker(i);
+		}
+
+		long start = System.nanoTime();
+		broadcastTicker(42);
+		long millis = (System.nanoTime() - start) / 1000000;
+
+		for (RecordingConnection connection : connections)
+		{
+			assertTrue(connection.lastMessage.contains("42"));
+		}
+		LOG.info("Sent a component rendered once to {} connections in {} ms", count, millis);
+	}
+
+	private void broadcastTicker(int price)
+	{
+		broadcaster.broadcastAll(application,
+			() -> new Label("ticker", String.valueOf(price)).setMarkupId("ticker"));
+	}
+
+	private List<RecordingConnection> connect(int count)
+	{
+		List<RecordingConnection> connections = new ArrayList<>();
+		for (int i = 0; i < count; i++)
+		{
+			RecordingConnection connection = new RecordingConnection();
+			registry.setConnection(application, "session" + i, new PageIdKey(1), connection);
+			connections.add(connection);
+		}
+		return connections;
+	}
+
+	private static class RecordingConnection extends TestWebSocketConnection
+	{
+		private String lastMessage;
+
+		@Override
+		protected void onOutMessage(String message)
+		{
+			lastMessage = message;
+		}
+
+		@Override
+		protected void onOutMessage(byte[] message, int offset, int length)
+		{
+		}
+
+		@Override
+		public void sendMessage(IWebSocketPushMessage message)
+		{
+			throw new UnsupportedOperationException("Pages are not rendered per connection");
+		}
+	}
+}
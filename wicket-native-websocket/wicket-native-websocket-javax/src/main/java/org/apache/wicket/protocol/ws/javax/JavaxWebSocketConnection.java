@@ -17,11 +17,19 @@
 package org.apache.wicket.protocol.ws.javax;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
 
 import javax.websocket.CloseReason;
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendResult;
 import javax.websocket.Session;
 
+import org.apache.wicket.protocol.ws.WebSocketSettings;
+import org.apache.wicket.protocol.ws.WebSocketSettings.OverflowPolicy;
 import org.apache.wicket.protocol.ws.api.AbstractWebSocketConnection;
 import org.apache.wicket.protocol.ws.api.AbstractWebSocketProcessor;
 import org.apache.wicket.protocol.ws.api.IWebSocketConnection;
@@ -31,6 +39,14 @@ import org.slf4j.LoggerFactory;
 
 /**
  * A wrapper around JSR 356's native Session.
+ * <p>
+ * The messages sent with {@link #sendMessageAsync(String)} are written one at a time with the
+ * session's asynchronous remote endpoint. The messages sent while a write is in progress wait in a
+ * bounded queue, and the {@link OverflowPolicy} decides what happens when a client does not keep
+ * up and the queue is full. The synchronous sends wait for the queued messages, but at most for
+ * the send timeout of the session. No write happens while holding the monitor of the connection,
+ * so the completion of a write never waits for another one.
+ * </p>
  *
  * @since 7.0.0
  */
@@ -38,8 +54,52 @@ public class JavaxWebSocketConnection extends AbstractWebSocketConnection
 {
 	private static final Logger LOG = LoggerFactory.getLogger(JavaxWebSocketConnection.class);
 
+	/**
+	 * The close code used when the queue of a client which does not keep up overflows.
+	 */
+	private static final int TRY_AGAIN_LATER = 1013;
+
+	/**
+	 * The time in milliseconds to wait for a queued message to be sent if the session has neither
+	 * a send timeout nor an idle timeout.
+	 */
+	private static final long DEFAULT_SEND_TIMEOUT = 30000;
+
 	private final Session session;
 
+	private final int asyncSendQueueSize;
+
+	private final OverflowPolicy asyncSendOverflowPolicy;
+
+	/**
+	 * The messages waiting for the current asynchronous write to complete, guarded by this.
+	 */
+	private final Deque<OutboundMessage> queue = new ArrayDeque<>();
+
+	/**
+	 * Whether a write is in progress, guarded by this.
+	 */
+	private boolean sending;
+
+	/**
+	 * The time the last write started or completed, guarded by this.
+	 */
+	private long lastProgress;
+
+	/**
+	 * The thread in the call writing the current message, guarded by this.
+	 */
+	private Thread writer;
+
+	/**
+	 * Whether the current message completed during the call writing it, guarded by this.
+	 */
+	private boolean written;
+
+	private long queuedBytes;
+
+	private long droppedMessages;
+
 	/**
 	 * Constructor.
 	 *
@@ -47,9 +107,31 @@ public class JavaxWebSocketConnection extends AbstractWebSocketConnection
 	 *            the WebSocket session
 	 */
 	public JavaxWebSocketConnection(Session session, AbstractWebSocketProcessor webSocketProcessor)
+	{
+		this(session, webSocketProcessor, WebSocketSettings.DEFAULT_ASYNC_SEND_QUEUE_SIZE,
+			OverflowPolicy.DROP_OLDEST);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param session
+	 *            the WebSocket session
+	 * @param asyncSendQueueSize
+	 *            the number of messages which may wait for an asynchronous write
+	 * @param asyncSendOverflowPolicy
+	 *            what to do when the queue of the messages waiting for an asynchronous write is
+	 *            full
+	 */
+	public JavaxWebSocketConnection(Session session, AbstractWebSocketProcessor webSocketProcessor,
+		int asyncSendQueueSize, OverflowPolicy asyncSendOverflowPolicy)
 	{
 		super(webSocketProcessor);
 		this.session = Args.notNull(session, "connection");
+		this.asyncSendQueueSize = Args.withinRange(1, Integer.MAX_VALUE, asyncSendQueueSize,
+			"asyncSendQueueSize");
+		this.asyncSendOverflowPolicy = Args.notNull(asyncSendOverflowPolicy,
+			"asyncSendOverflowPolicy");
 	}
 
 	@Override
@@ -59,7 +141,7 @@ public class JavaxWebSocketConnection extends AbstractWebSocketConnection
 	}
 
 	@Override
-	public synchronized void close(int code, String reason)
+	public void close(int code, String reason)
 	{
 		if (isOpen())
 		{
@@ -74,25 +156,348 @@ public class JavaxWebSocketConnection extends AbstractWebSocketConnection
 	}
 
 	@Override
-	public synchronized IWebSocketConnection sendMessage(String message) throws IOException
+	public IWebSocketConnection sendMessage(String message) throws IOException
 	{
 		checkClosed();
+		awaitWriter();
 
-		session.getBasicRemote().sendText(message);
+		try
+		{
+			session.getBasicRemote().sendText(message);
+		}
+		finally
+		{
+			writeNext();
+		}
 		return this;
 	}
 
 	@Override
-	public synchronized IWebSocketConnection sendMessage(byte[] message, int offset, int length)
+	public IWebSocketConnection sendMessage(byte[] message, int offset, int length)
 		throws IOException
 	{
 		checkClosed();
+		awaitWriter();
 
-		ByteBuffer buf = ByteBuffer.wrap(message, offset, length);
-		session.getBasicRemote().sendBinary(buf);
+		try
+		{
+			ByteBuffer buf = ByteBuffer.wrap(message, offset, length);
+			session.getBasicRemote().sendBinary(buf);
+		}
+		finally
+		{
+			writeNext();
+		}
 		return this;
 	}
 
+	@Override
+	public IWebSocketConnection sendMessageAsync(String message)
+	{
+		checkClosed();
+
+		// the size of a text is approximated by its number of chars
+		send(new OutboundMessage(Args.notNull(message, "message"), null, message.length()));
+		return this;
+	}
+
+	@Override
+	public IWebSocketConnection sendMessageAsync(byte[] message, int offset, int length)
+	{
+		checkClosed();
+
+		// the caller may reuse the array as soon as this method returns
+		ByteBuffer buf = ByteBuffer.wrap(Arrays.copyOfRange(message, offset, offset + length));
+		send(new OutboundMessage(null, buf, length));
+		return this;
+	}
+
+	/**
+	 * @return the number of bytes waiting for an asynchronous write, texts counting one byte per
+	 *         char
+	 */
+	public synchronized long getQueuedBytes()
+	{
+		return queuedBytes;
+	}
+
+	/**
+	 * @return the number of messages waiting for an asynchronous write
+	 */
+	public synchronized int getQueuedMessages()
+	{
+		return queue.size();
+	}
+
+	/**
+	 * @return the number of messages dropped because the queue overflowed or a write failed
+	 */
+	public synchronized long getDroppedMessages()
+	{
+		return droppedMessages;
+	}
+
+	/**
+	 * Writes the message right away if no write is in progress, or queues it otherwise. The
+	 * message is written, respectively the connection closed, after leaving the monitor.
+	 */
+	private void send(OutboundMessage message)
+	{
+		boolean close = false;
+		synchronized (this)
+		{
+			if (sending == false)
+			{
+				sending = true;
+				lastProgress = System.currentTimeMillis();
+			}
+			else
+			{
+				if (queue.size() >= asyncSendQueueSize)
+				{
+					switch (asyncSendOverflowPolicy)
+					{
+						case DROP_OLDEST :
+							OutboundMessage oldest = queue.poll();
+							queuedBytes -= oldest.size;
+							droppedMessages++;
+							break;
+
+						case KEEP_LATEST :
+							clearQueue();
+							break;
+
+						case CLOSE :
+							clearQueue();
+							close = true;
+							break;
+					}
+				}
+
+				if (close == false)
+				{
+					queue.add(message);
+					queuedBytes += message.size;
+					return;
+				}
+			}
+		}
+
+		if (close)
+		{
+			LOG.debug("Closing the WebSocket connection of a client which does not keep up");
+			close(TRY_AGAIN_LATER, "Too many queued messages");
+		}
+		else
+		{
+			write(message);
+		}
+	}
+
+	/**
+	 * Writes the message and then the queued ones which complete while being written. Containers
+	 * may complete a write on the calling thread, e.g. when the frame fits in the socket buffer,
+	 * so the queue is drained in a loop rather than by writing the next message from
+	 * {@link #onWritten(SendResult)}, which would nest one call per queued message.
+	 */
+	private void write(OutboundMessage message)
+	{
+		final Thread current = Thread.currentThread();
+		while (message != null)
+		{
+			synchronized (this)
+			{
+				writer = current;
+				written = false;
+			}
+
+			try
+			{
+				RemoteEndpoint.Async remote = session.getAsyncRemote();
+				if (message.text != null)
+				{
+					remote.sendText(message.text, this::onWritten);
+				}
+				else
+				{
+					remote.sendBinary(message.binary, this::onWritten);
+				}
+			}
+			catch (RuntimeException e)
+			{
+				LOG.debug("An error occurred while sending a WebSocket message", e);
+				synchronized (this)
+				{
+					if (writer == current)
+					{
+						writer = null;
+					}
+					droppedMessages++;
+					stopSending();
+				}
+				return;
+			}
+
+			synchronized (this)
+			{
+				if (writer != current)
+				{
+					// completed on another thread, which goes on with the next message
+					return;
+				}
+				writer = null;
+				if (written == false)
+				{
+					// still in progress, onWritten() goes on with the next message
+					return;
+				}
+			}
+
+			message = takeNext();
+		}
+	}
+
+	/**
+	 * Called by the container when an asynchronous write completes.
+	 */
+	private void onWritten(SendResult result)
+	{
+		if (result.isOK() == false)
+		{
+			LOG.debug("An error occurred while sending a WebSocket message",
+				result.getException());
+			synchronized (this)
+			{
+				droppedMessages++;
+				stopSending();
+			}
+			return;
+		}
+
+		synchronized (this)
+		{
+			if (writer == Thread.currentThread())
+			{
+				// completed while being written, write() goes on with the next message
+				written = true;
+				return;
+			}
+		}
+
+		writeNext();
+	}
+
+	/**
+	 * Writes the next queued message, or wakes up the callers waiting for the asynchronous writes
+	 * if there is none.
+	 */
+	private void writeNext()
+	{
+		OutboundMessage next = takeNext();
+		if (next != null)
+		{
+			write(next);
+		}
+	}
+
+	/**
+	 * Takes the next queued message under the monitor, so it can be written after leaving it.
+	 *
+	 * @return the next message or {@code null} if there is none or the connection is closed
+	 */
+	private OutboundMessage takeNext()
+	{
+		synchronized (this)
+		{
+			lastProgress = System.currentTimeMillis();
+
+			OutboundMessage next = queue.poll();
+			if (next == null)
+			{
+				sending = false;
+				notifyAll();
+				return null;
+			}
+			if (isOpen() == false)
+			{
+				droppedMessages++;
+				stopSending();
+				return null;
+			}
+			queuedBytes -= next.size;
+			return next;
+		}
+	}
+
+	/**
+	 * Drops the queued messages and wakes up the callers waiting for the asynchronous writes.
+	 * Called under the monitor.
+	 */
+	private void stopSending()
+	{
+		clearQueue();
+		sending = false;
+		notifyAll();
+	}
+
+	private void clearQueue()
+	{
+		droppedMessages += queue.size();
+		queue.clear();
+		queuedBytes = 0;
+	}
+
+	/**
+	 * Waits until the asynchronous writes complete and makes the caller the writer, so the
+	 * messages are written in order and the basic remote endpoint is not used while the
+	 * asynchronous one is. The caller has to call {@link #writeNext()} when done.
+	 *
+	 * @throws IOException
+	 *             if no write completed within the send timeout
+	 */
+	private synchronized void awaitWriter() throws IOException
+	{
+		final long timeout = getSendTimeout();
+		final long start = System.currentTimeMillis();
+		while (sending)
+		{
+			long remaining = Math.max(start, lastProgress) + timeout - System.currentTimeMillis();
+			if (remaining <= 0)
+			{
+				throw new IOException("Timed out after " + timeout +
+					" ms while waiting for the queued messages to be sent");
+			}
+
+			try
+			{
+				wait(remaining);
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for queued messages");
+			}
+		}
+
+		sending = true;
+		lastProgress = System.currentTimeMillis();
+	}
+
+	/**
+	 * @return the time to wait for a queued message to be sent: the send timeout of the
+	 *         asynchronous remote endpoint, the idle timeout of the session or
+	 *         {@value #DEFAULT_SEND_TIMEOUT} ms if neither is set
+	 */
+	private long getSendTimeout()
+	{
+		long timeout = session.getAsyncRemote().getSendTimeout();
+		if (timeout <= 0)
+		{
+			timeout = session.getMaxIdleTimeout();
+		}
+		return timeout > 0 ? timeout : DEFAULT_SEND_TIMEOUT;
+	}
+
 	private void checkClosed()
 	{
 		if (!isOpen())
@@ -101,6 +506,25 @@ public class JavaxWebSocketConnection extends AbstractWebSocketConnection
 		}
 	}
 
+	/**
+	 * A message waiting for an asynchronous write.
+	 */
+	private static class OutboundMessage
+	{
+		private final String text;
+
+		private final ByteBuffer binary;
+
+		private final int size;
+
+		private OutboundMessage(String text, ByteBuffer binary, int size)
+		{
+			this.text = text;
+			this.binary = binary;
+			this.size = size;
+		}
+	}
+
 	private static class CloseCode implements CloseReason.CloseCode
 	{
 		private final int code;
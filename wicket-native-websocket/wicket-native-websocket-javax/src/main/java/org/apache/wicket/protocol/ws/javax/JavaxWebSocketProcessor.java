@@ -23,6 +23,7 @@ import javax.websocket.MessageHandler;
 import javax.websocket.Session;
 
 import org.apache.wicket.protocol.http.WebApplication;
+import org.apache.wicket.protocol.ws.WebSocketSettings;
 import org.apache.wicket.protocol.ws.api.AbstractWebSocketProcessor;
 
 /**
@@ -45,7 +46,10 @@ public class JavaxWebSocketProcessor extends AbstractWebSocketProcessor
 	{
 		super(new JavaxUpgradeHttpRequest(session, endpointConfig), application);
 
-		onConnect(new JavaxWebSocketConnection(session, this));
+		WebSocketSettings webSocketSettings = WebSocketSettings.Holder.get(application);
+		onConnect(new JavaxWebSocketConnection(session, this,
+			webSocketSettings.getAsyncSendQueueSize(),
+			webSocketSettings.getAsyncSendOverflowPolicy()));
 
 		session.addMessageHandler(new StringMessageHandler());
 		session.addMessageHandler(new BinaryMessageHandler());
@@ -0,0 +1,349 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.ws.javax;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+
+import org.apache.wicket.protocol.http.WebApplication;
+import org.apache.wicket.protocol.http.mock.MockHttpServletRequest;
+import org.apache.wicket.protocol.ws.WebSocketSettings.OverflowPolicy;
+import org.apache.wicket.protocol.ws.api.AbstractWebSocketProcessor;
+import org.apache.wicket.request.http.WebRequest;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the asynchronous sends of {@link JavaxWebSocketConnection}
+ */
+class JavaxWebSocketConnectionTest
+{
+	private WicketTester tester;
+
+	/** The texts written by the asynchronous remote endpoint */
+	private final List<String> written = new ArrayList<>();
+
+	/** The handlers of the writes in progress */
+	private final List<SendHandler> handlers = new ArrayList<>();
+
+	private boolean open = true;
+
+	/** The send timeout of the asynchronous remote endpoint */
+	private long sendTimeout;
+
+	/** Whether the writes complete on the calling thread */
+	private boolean completeInline;
+
+	/** The deepest stack a write was started with */
+	private int maxWriteDepth;
+
+	/** The connection, to check that it does not write while holding its monitor */
+	private JavaxWebSocketConnection connection;
+
+	/** The writes and closes done while holding the monitor of the connection */
+	private int lockedCalls;
+
+	@BeforeEach
+	void before()
+	{
+		tester = new WicketTester();
+		tester.getApplication().getWicketFilter().setFilterPath("");
+	}
+
+	@AfterEach
+	void after()
+	{
+		tester.destroy();
+	}
+
+	/**
+	 * The messages sent while a write is in progress are written in order once it completes
+	 */
+	@Test
+	void queued()
+	{
+		JavaxWebSocketConnection connection = newConnection(10, OverflowPolicy.DROP_OLDEST);
+
+		connection.sendMessageAsync("one");
+		connection.sendMessageAsync("two");
+		connection.sendMessageAsync("three");
+
+		assertEquals(List.of("one"), written);
+		assertEquals(2, connection.getQueuedMessages());
+		assertEquals(8, connection.getQueuedBytes());
+
+		complete();
+		complete();
+		complete();
+
+		assertEquals(List.of("one", "two", "three"), written);
+		assertEquals(0, connection.getQueuedMessages());
+		assertEquals(0, connection.getQueuedBytes());
+		assertEquals(0, connection.getDroppedMessages());
+		assertEquals(0, lockedCalls);
+	}
+
+	@Test
+	void dropOldest()
+	{
+		JavaxWebSocketConnection connection = newConnection(2, OverflowPolicy.DROP_OLDEST);
+
+		connection.sendMessageAsync("1");
+		connection.sendMessageAsync("2");
+		connection.sendMessageAsync("3");
+		connection.sendMessageAsync("4");
+
+		assertEquals(2, connection.getQueuedMessages());
+		assertEquals(1, connection.getDroppedMessages());
+
+		complete();
+		complete();
+		complete();
+
+		assertEquals(List.of("1", "3", "4"), written);
+	}
+
+	@Test
+	void keepLatest()
+	{
+		JavaxWebSocketConnection connection = newConnection(2, OverflowPolicy.KEEP_LATEST);
+
+		connection.sendMessageAsync("1");
+		connection.sendMessageAsync("2");
+		connection.sendMessageAsync("3");
+		connection.sendMessageAsync("4");
+
+		assertEquals(1, connection.getQueuedMessages());
+		assertEquals(2, connection.getDroppedMessages());
+
+		complete();
+		complete();
+
+		assertEquals(List.of("1", "4"), written);
+	}
+
+	@Test
+	void close()
+	{
+		JavaxWebSocketConnection connection = newConnection(1, OverflowPolicy.CLOSE);
+
+		connection.sendMessageAsync("1");
+		connection.sendMessageAsync("2");
+		connection.sendMessageAsync("3");
+
+		assertFalse(connection.isOpen());
+		assertEquals(0, connection.getQueuedMessages());
+		assertEquals(1, connection.getDroppedMessages());
+		assertEquals(0, lockedCalls);
+	}
+
+	/**
+	 * The queued messages are written in a loop when the writes complete on the calling thread,
+	 * so the stack does not grow with the number of queued messages
+	 */
+	@Test
+	void completedInline()
+	{
+		JavaxWebSocketConnection connection = newConnection(1000, OverflowPolicy.DROP_OLDEST);
+
+		connection.sendMessageAsync("first");
+		for (int i = 0; i < 1000; i++)
+		{
+			connection.sendMessageAsync(String.valueOf(i));
+		}
+		assertEquals(1000, connection.getQueuedMessages());
+
+		completeInline = true;
+		maxWriteDepth = 0;
+		int depth = Thread.currentThread().getStackTrace().length;
+		complete();
+
+		assertEquals(1001, written.size());
+		assertEquals("999", written.get(1000));
+		assertEquals(0, connection.getQueuedMessages());
+		assertEquals(0, connection.getDroppedMessages());
+		assertTrue(maxWriteDepth - depth < 50, "stack depth " + (maxWriteDepth - depth));
+
+		// still sending when the next message completes inline
+		connection.sendMessageAsync("last");
+		assertEquals("last", written.get(1001));
+		assertEquals(0, connection.getQueuedMessages());
+	}
+
+	/**
+	 * A synchronous send waits for the asynchronous writes to complete
+	 */
+	@Test
+	void sendMessageAfterAsync() throws Exception
+	{
+		JavaxWebSocketConnection connection = newConnection(10, OverflowPolicy.DROP_OLDEST);
+
+		connection.sendMessageAsync("async");
+
+		Thread completer = new Thread(() -> {
+			try
+			{
+				Thread.sleep(50);
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			complete();
+		});
+		completer.start();
+
+		connection.sendMessage("sync");
+		completer.join();
+
+		assertEquals(List.of("async", "sync"), written);
+		assertEquals(0, lockedCalls);
+	}
+
+	/**
+	 * A synchronous send does not wait longer than the send timeout for the asynchronous writes
+	 */
+	@Test
+	void sendMessageTimeout()
+	{
+		sendTimeout = 100;
+		JavaxWebSocketConnection connection = newConnection(10, OverflowPolicy.DROP_OLDEST);
+
+		connection.sendMessageAsync("async");
+
+		assertThrows(IOException.class, () -> connection.sendMessage("sync"));
+		assertEquals(List.of("async"), written);
+	}
+
+	/**
+	 * Completes the oldest write in progress
+	 */
+	private void complete()
+	{
+		SendHandler handler;
+		synchronized (handlers)
+		{
+			handler = handlers.remove(0);
+		}
+		handler.onResult(new SendResult());
+	}
+
+	private JavaxWebSocketConnection newConnection(int queueSize, OverflowPolicy policy)
+	{
+		RemoteEndpoint.Async async = (RemoteEndpoint.Async)Proxy.newProxyInstance(
+			getClass().getClassLoader(), new Class<?>[] { RemoteEndpoint.Async.class },
+			(proxy, method, args) -> {
+				switch (method.getName())
+				{
+					case "sendText" :
+						checkUnlocked();
+						maxWriteDepth = Math.max(maxWriteDepth,
+							Thread.currentThread().getStackTrace().length);
+						synchronized (handlers)
+						{
+							written.add((String)args[0]);
+							if (completeInline == false)
+							{
+								handlers.add((SendHandler)args[1]);
+							}
+						}
+						if (completeInline)
+						{
+							((SendHandler)args[1]).onResult(new SendResult());
+						}
+						return null;
+					case "getSendTimeout" :
+						return sendTimeout;
+					default :
+						return null;
+				}
+			});
+
+		RemoteEndpoint.Basic basic = (RemoteEndpoint.Basic)Proxy.newProxyInstance(
+			getClass().getClassLoader(), new Class<?>[] { RemoteEndpoint.Basic.class },
+			(proxy, method, args) -> {
+				if ("sendText".equals(method.getName()))
+				{
+					checkUnlocked();
+					synchronized (handlers)
+					{
+						written.add((String)args[0]);
+					}
+				}
+				return null;
+			});
+
+		Session session = (Session)Proxy.newProxyInstance(getClass().getClassLoader(),
+			new Class<?>[] { Session.class }, (proxy, method, args) -> {
+				switch (method.getName())
+				{
+					case "isOpen" :
+						return open;
+					case "close" :
+						checkUnlocked();
+						open = false;
+						return null;
+					case "getMaxIdleTimeout" :
+						return 0L;
+					case "getAsyncRemote" :
+						return async;
+					case "getBasicRemote" :
+						return basic;
+					default :
+						return null;
+				}
+			});
+
+		MockHttpServletRequest request = new MockHttpServletRequest(tester.getApplication(),
+			tester.getHttpSession(), null);
+		request.addParameter("resourceName", "resource");
+		request.addParameter(WebRequest.PARAM_AJAX_BASE_URL, ".");
+
+		AbstractWebSocketProcessor processor = new AbstractWebSocketProcessor(request,
+			(WebApplication)tester.getApplication())
+		{
+			@Override
+			public void onOpen(Object containerConnection)
+			{
+			}
+		};
+		connection = new JavaxWebSocketConnection(session, processor, queueSize, policy);
+		return connection;
+	}
+
+	private void checkUnlocked()
+	{
+		if (Thread.holdsLock(connection))
+		{
+			lockedCalls++;
+		}
+	}
+}
@@ -21,6 +21,9 @@ import java.security.NoSuchAlgorithmException;
 import java.security.spec.AlgorithmParameterSpec;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.KeySpec;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
@@ -36,6 +39,12 @@ import org.apache.wicket.util.lang.Args;
  * implementation is based around Sun's security providers and uses the <a
  * href="http://www.ietf.org/rfc/rfc2898.txt">PBEWithMD5AndDES</a> method to encrypt and decrypt the
  * data.
+ * <p>
+ * The secret key is generated once per key and the {@link Cipher}s are reused by later
+ * de-/encryptions, initialized again with the {@link #createParameterSpec() parameter spec} for
+ * each one, so an instance should be reused to en-/decrypt many texts, e.g. all URLs of a page.
+ * Instances are thread-safe.
+ * </p>
  * 
  * @author Juergen Donnerstag
  */
@@ -55,9 +64,19 @@ public class SunJceCrypt extends AbstractCrypt
 
 	private static final PBEParameterSpec PARAMETER_SPEC = new PBEParameterSpec(SALT, COUNT);
 
+	/**
+	 * The maximum number of idle ciphers kept per mode.
+	 */
+	private static final int MAX_IDLE_CIPHERS = Runtime.getRuntime().availableProcessors();
+
 	/** The name of encryption method (cipher) */
 	private final String cryptMethod;
 
+	/**
+	 * The ciphers for the current key, replaced when the key changes.
+	 */
+	private volatile CipherPool cipherPool;
+
 	/**
 	 * Constructor
 	 */
@@ -93,10 +112,29 @@ public class SunJceCrypt extends AbstractCrypt
 	protected byte[] crypt(final byte[] input, final int mode)
 		throws GeneralSecurityException
 	{
-		SecretKey key = generateSecretKey();
-		AlgorithmParameterSpec spec = createParameterSpec();
-		Cipher ciph = createCipher(key, spec, mode);
-		return ciph.doFinal(input);
+		CipherPool pool = getCipherPool();
+		Cipher ciph = pool.acquire(mode);
+
+		// a cipher failing, e.g. on a tampered input, is not reused
+		byte[] result = ciph.doFinal(input);
+		pool.release(mode, ciph);
+		return result;
+	}
+
+	/**
+	 * @return the pool of ciphers for the current key
+	 * @throws GeneralSecurityException
+	 */
+	private CipherPool getCipherPool() throws GeneralSecurityException
+	{
+		String key = getKey();
+		CipherPool pool = cipherPool;
+		if (pool == null || Objects.equals(pool.key, key) == false)
+		{
+			pool = new CipherPool(key, generateSecretKey());
+			cipherPool = pool;
+		}
+		return pool;
 	}
 
 	/**
@@ -153,4 +191,62 @@ public class SunJceCrypt extends AbstractCrypt
 	{
 		return new PBEKeySpec(getKey().toCharArray());
 	}
+
+	/**
+	 * The secret key generated for a key and the idle ciphers. An idle cipher is initialized again
+	 * before it is reused, since {@link #createParameterSpec()} may return new parameters for each
+	 * de-/encryption, e.g. a new IV which a cipher must not reuse.
+	 */
+	private class CipherPool
+	{
+		private final String key;
+
+		private final SecretKey secretKey;
+
+		private final BlockingQueue<Cipher> encryptCiphers = new ArrayBlockingQueue<>(
+			MAX_IDLE_CIPHERS);
+
+		private final BlockingQueue<Cipher> decryptCiphers = new ArrayBlockingQueue<>(
+			MAX_IDLE_CIPHERS);
+
+		private CipherPool(final String key, final SecretKey secretKey)
+		{
+			this.key = key;
+			this.secretKey = secretKey;
+		}
+
+		private BlockingQueue<Cipher> getCiphers(final int mode)
+		{
+			switch (mode)
+			{
+				case Cipher.ENCRYPT_MODE :
+					return encryptCiphers;
+				case Cipher.DECRYPT_MODE :
+					return decryptCiphers;
+				default :
+					return null;
+			}
+		}
+
+		private Cipher acquire(final int mode) throws GeneralSecurityException
+		{
+			BlockingQueue<Cipher> ciphers = getCiphers(mode);
+			Cipher cipher = ciphers != null ? ciphers.poll() : null;
+			if (cipher == null)
+			{
+				return createCipher(secretKey, createParameterSpec(), mode);
+			}
+			cipher.init(mode, secretKey, createParameterSpec());
+			return cipher;
+		}
+
+		private void release(final int mode, final Cipher cipher)
+		{
+			BlockingQueue<Cipher> ciphers = getCiphers(mode);
+			if (ciphers != null)
+			{
+				ciphers.offer(cipher);
+			}
+		}
+	}
 }
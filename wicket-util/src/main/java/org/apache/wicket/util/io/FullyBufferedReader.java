@@ -122,6 +122,16 @@ public final class FullyBufferedReader
 		return inputPosition;
 	}
 
+	/**
+	 * Gets the remembered position in markup
+	 * 
+	 * @return position marker
+	 */
+	public final int getPositionMarker()
+	{
+		return positionMarker;
+	}
+
 	/**
 	 * Remember the current position in markup
 	 * 
@@ -254,12 +264,13 @@ public final class FullyBufferedReader
 
 		if (closeBracketIndex != -1)
 		{
-			CharSequence tagCode = getSubstring(startPos, closeBracketIndex + 1);
+			// scan the input in place, without copying the tag code
+			int length = closeBracketIndex + 1 - startPos;
 
-			for (int i = 0; i < tagCode.length(); i++)
+			for (int i = 0; i < length; i++)
 			{
-				char currentChar = tagCode.charAt(i);
-				char previousTag = tagCode.charAt(i > 0 ? i - 1 : 0);
+				char currentChar = input.charAt(startPos + i);
+				char previousTag = input.charAt(startPos + (i > 0 ? i - 1 : 0));
 
 				if (quotationChar == 0 && (currentChar == '\'' || currentChar == '\"'))
 				{// I'm entering inside a quoted string. Set quotationChar
@@ -33,8 +33,17 @@ public final class VariableAssignmentParser extends MetaPatternParser
 	private static final MetaPattern namespace = new OptionalMetaPattern(new MetaPattern[] {
 			MetaPattern.VARIABLE_NAME, MetaPattern.COLON, new OptionalMetaPattern(new MetaPattern[] {MetaPattern.VARIABLE_NAME, MetaPattern.COLON })});
 
+	/** The key of the default pattern */
+	private static final Group defaultKey = newKey();
+
+	/** The value of the default pattern */
+	private static final Group defaultValue = new Group(MetaPattern.STRING);
+
+	/** The default pattern, shared by all parsers of string values */
+	private static final MetaPattern defaultPattern = newPattern(defaultKey, defaultValue);
+
 	/** The key (lvalue) like "name" or "namespace:name" or "namespace:name:subname" */
-	private final Group key = new Group(new MetaPattern(namespace, MetaPattern.XML_ATTRIBUTE_NAME));
+	private final Group key;
 
 	/** The rvalue of the assignment */
 	private final Group value;
@@ -47,7 +56,11 @@ public final class VariableAssignmentParser extends MetaPatternParser
 	 */
 	public VariableAssignmentParser(final CharSequence input)
 	{
-		this(input, MetaPattern.STRING);
+		super(input);
+
+		key = defaultKey;
+		value = defaultValue;
+		setPattern(defaultPattern);
 	}
 
 	/**
@@ -62,16 +75,39 @@ public final class VariableAssignmentParser extends MetaPatternParser
 	{
 		super(input);
 
-		// Create group for value pattern
+		// Create groups for key and value pattern
+		key = newKey();
 		value = new Group(valuePattern);
 
+		setPattern(newPattern(key, value));
+	}
+
+	/**
+	 * @return a new group for the key
+	 */
+	private static Group newKey()
+	{
+		return new Group(new MetaPattern(namespace, MetaPattern.XML_ATTRIBUTE_NAME));
+	}
+
+	/**
+	 * Creates the parse pattern &lt;key&gt;=&lt;value&gt;?
+	 * 
+	 * @param key
+	 *            the group of the key
+	 * @param value
+	 *            the group of the value
+	 * @return the pattern
+	 */
+	private static MetaPattern newPattern(final Group key, final Group value)
+	{
 		// Pattern for =<value>
 		final MetaPattern variableAssignment = new MetaPattern(MetaPattern.OPTIONAL_WHITESPACE,
 			MetaPattern.EQUALS, MetaPattern.OPTIONAL_WHITESPACE, value);
 
 		// Set parse pattern to <key>=<value>?
-		setPattern(new MetaPattern(MetaPattern.OPTIONAL_WHITESPACE, key, new OptionalMetaPattern(
-			variableAssignment), MetaPattern.OPTIONAL_WHITESPACE));
+		return new MetaPattern(MetaPattern.OPTIONAL_WHITESPACE, key, new OptionalMetaPattern(
+			variableAssignment), MetaPattern.OPTIONAL_WHITESPACE);
 	}
 
 	/**
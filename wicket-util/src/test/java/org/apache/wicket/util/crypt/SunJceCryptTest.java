@@ -16,18 +16,41 @@
  */
 package org.apache.wicket.util.crypt;
 
+import org.apache.wicket.util.WicketTestTag;
 import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
 import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.AlgorithmParameterSpec;
+import java.security.spec.InvalidKeySpecException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 @SuppressWarnings("javadoc")
 public class SunJceCryptTest
 {
+	private static final Logger log = LoggerFactory.getLogger(SunJceCryptTest.class);
+
 	/**
 	 * Default encryption uses {@value org.apache.wicket.util.crypt.SunJceCrypt#DEFAULT_CRYPT_METHOD}
 	 */
@@ -59,6 +82,152 @@ public class SunJceCryptTest
 		assertEquals(new String(decrypted), input);
 	}
 
+	/**
+	 * The secret key is generated once per key
+	 */
+	@Test
+	public void reuseSecretKey()
+	{
+		final AtomicInteger generated = new AtomicInteger();
+		SunJceCrypt crypt = new SunJceCrypt()
+		{
+			@Override
+			protected SecretKey generateSecretKey()
+				throws NoSuchAlgorithmException, InvalidKeySpecException
+			{
+				generated.incrementAndGet();
+				return super.generateSecretKey();
+			}
+		};
+		crypt.setKey("key 1");
+
+		String encrypted = crypt.encryptUrlSafe("input");
+		for (int i = 0; i < 10; i++)
+		{
+			assertEquals(encrypted, crypt.encryptUrlSafe("input"));
+			assertEquals("input", crypt.decryptUrlSafe(encrypted));
+		}
+		assertEquals(1, generated.get());
+
+		crypt.setKey("key 2");
+		assertNotEquals(encrypted, crypt.encryptUrlSafe("input"));
+		assertEquals(2, generated.get());
+	}
+
+	/**
+	 * A reused cipher is initialized with new parameters for each encryption
+	 */
+	@Test
+	public void newParameterSpecPerCrypt() throws GeneralSecurityException
+	{
+		final SecureRandom random = new SecureRandom();
+		final List<byte[]> ivs = new ArrayList<>();
+		SunJceCrypt crypt = new SunJceCrypt("AES/GCM/NoPadding")
+		{
+			@Override
+			protected SecretKey generateSecretKey()
+			{
+				return new SecretKeySpec(new byte[16], "AES");
+			}
+
+			@Override
+			protected AlgorithmParameterSpec createParameterSpec()
+			{
+				byte[] iv = new byte[12];
+				random.nextBytes(iv);
+				ivs.add(iv);
+				return new GCMParameterSpec(128, iv);
+			}
+		};
+
+		byte[] first = crypt.crypt("input".getBytes(), Cipher.ENCRYPT_MODE);
+		byte[] second = crypt.crypt("input".getBytes(), Cipher.ENCRYPT_MODE);
+		byte[] third = crypt.crypt("input".getBytes(), Cipher.ENCRYPT_MODE);
+
+		assertEquals(3, ivs.size());
+		assertFalse(Arrays.equals(first, second));
+		assertFalse(Arrays.equals(second, third));
+	}
+
+	/**
+	 * A cipher failing to decrypt doesn't break later decryptions
+	 */
+	@Test
+	public void decryptTampered()
+	{
+		SunJceCrypt crypt = new SunJceCrypt();
+		String encrypted = crypt.encryptUrlSafe("input");
+
+		assertNull(crypt.decryptUrlSafe("x" + encrypted.substring(1, encrypted.length() - 2)));
+		assertEquals("input", crypt.decryptUrlSafe(encrypted));
+	}
+
+	@Test
+	public void concurrentCrypts() throws Exception
+	{
+		final SunJceCrypt crypt = new SunJceCrypt();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try
+		{
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < 8; t++)
+			{
+				final int thread = t;
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < 200; i++)
+					{
+						String text = "text " + thread + "-" + i;
+						assertEquals(text, crypt.decryptUrlSafe(crypt.encryptUrlSafe(text)));
+					}
+				}));
+			}
+			for (Future<?> future : futures)
+			{
+				future.get();
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Compares the URLs encrypted per second with a crypt per URL and a reused crypt
+	 */
+	@Test
+	@Tag(WicketTestTag.SLOW)
+	public void encryptionThroughput()
+	{
+		final SunJceCrypt reused = new SunJceCrypt();
+		measure("new crypt per URL", SunJceCrypt::new);
+		measure("reused crypt", () -> reused);
+	}
+
+	private void measure(String name, Supplier<ICrypt> crypts)
+	{
+		// the URLs of a page with 200 links
+		final int links = 200;
+		final int pages = 50;
+
+		for (int i = 0; i < links * 10; i++)
+		{
+			crypts.get().encryptUrlSafe("wicket/page?1-1.ILinkListener-link" + i);
+		}
+
+		long start = System.nanoTime();
+		for (int page = 0; page < pages; page++)
+		{
+			for (int i = 0; i < links; i++)
+			{
+				crypts.get().encryptUrlSafe("wicket/page?" + page + "-1.ILinkListener-link" + i);
+			}
+		}
+		long duration = System.nanoTime() - start;
+
+		log.info("{}: {} URLs per second", name, 1000000000L * links * pages / duration);
+	}
+
 	/**
 	 * Checks whether Oracle Unlimited Strength Jurisdiction Policy is installed
 	 * Based on http://stackoverflow.com/a/8607735